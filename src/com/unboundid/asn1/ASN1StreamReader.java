@@ -29,6 +29,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.logging.Level;
 import javax.security.sasl.SaslClient;
@@ -51,6 +52,17 @@ import static com.unboundid.util.StaticUtils.*;
  * caller must close this reader and must not attempt to use it any more.
  * {@code ASN1StreamReader} instances are not threadsafe and must not be
  * accessed concurrently by multiple threads.
+ * <BR><BR>
+ * A reader may also be created to read data from a {@code ByteBuffer} that
+ * already holds the complete encoded data.  In that case, if the buffer is
+ * backed by an accessible array, then the {@link #readOctetString} and
+ * {@link #readElement} methods will return objects whose values reference the
+ * buffer's backing array rather than a copy of the data, so that no copy will
+ * be made unless it is actually needed.  Note that any such object will keep
+ * the entire backing array from being garbage collected, even if its value is
+ * only a small part of it.  If the buffer is read-only or direct, then it
+ * does not provide access to a backing array, and each value will be copied
+ * into an array of its own.
  */
 @Mutable()
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
@@ -69,7 +81,12 @@ public final class ASN1StreamReader
   // unwrapped by SASL processing.
   private volatile ByteArrayInputStream saslInputStream;
 
-  // The input stream from which data will be read.
+  // The buffer from which data will be read, or null if data should be read
+  // from the input stream.
+  private final ByteBuffer buffer;
+
+  // The input stream from which data will be read, or null if data should be
+  // read from the buffer.
   private final InputStream inputStream;
 
   // The maximum element size that will be allowed.
@@ -136,6 +153,63 @@ public final class ASN1StreamReader
       this.maxElementSize = Integer.MAX_VALUE;
     }
 
+    buffer                        = null;
+    totalBytesRead                = 0L;
+    ignoreInitialSocketTimeout    = false;
+    ignoreSubsequentSocketTimeout = false;
+    saslClient                    = null;
+    saslInputStream               = null;
+  }
+
+
+
+  /**
+   * Creates a new ASN.1 stream reader that will read data from the provided
+   * buffer.  It will use a maximum element size of {@code Integer.MAX_VALUE}.
+   *
+   * @param  buffer  The buffer from which data should be read.  Data will be
+   *                 read starting at the buffer's current position and ending
+   *                 at its limit.  If the buffer is backed by an accessible
+   *                 array, then the contents of that array must not be altered
+   *                 for as long as any octet string or element read from this
+   *                 reader is in use.
+   */
+  public ASN1StreamReader(final ByteBuffer buffer)
+  {
+    this(buffer, Integer.MAX_VALUE);
+  }
+
+
+
+  /**
+   * Creates a new ASN.1 stream reader that will read data from the provided
+   * buffer.
+   *
+   * @param  buffer          The buffer from which data should be read.  Data
+   *                         will be read starting at the buffer's current
+   *                         position and ending at its limit.  If the buffer is
+   *                         backed by an accessible array, then the contents of
+   *                         that array must not be altered for as long as any
+   *                         octet string or element read from this reader is in
+   *                         use.
+   * @param  maxElementSize  The maximum size in bytes of an ASN.1 element that
+   *                         may be read.  A value less than or equal to zero
+   *                         will be interpreted as {@code Integer.MAX_VALUE}.
+   */
+  public ASN1StreamReader(final ByteBuffer buffer, final int maxElementSize)
+  {
+    this.buffer = buffer;
+    inputStream = null;
+
+    if (maxElementSize > 0)
+    {
+      this.maxElementSize = maxElementSize;
+    }
+    else
+    {
+      this.maxElementSize = Integer.MAX_VALUE;
+    }
+
     totalBytesRead                = 0L;
     ignoreInitialSocketTimeout    = false;
     ignoreSubsequentSocketTimeout = false;
@@ -155,7 +229,10 @@ public final class ASN1StreamReader
   public void close()
          throws IOException
   {
-    inputStream.close();
+    if (inputStream != null)
+    {
+      inputStream.close();
+    }
   }
 
 
@@ -289,6 +366,18 @@ public final class ASN1StreamReader
   public int peek()
          throws IOException
   {
+    if (buffer != null)
+    {
+      if (buffer.hasRemaining())
+      {
+        return (buffer.get(buffer.position()) & 0xFF);
+      }
+      else
+      {
+        return -1;
+      }
+    }
+
     final InputStream is;
     if (saslClient == null)
     {
@@ -415,6 +504,18 @@ public final class ASN1StreamReader
       return;
     }
 
+    if (buffer != null)
+    {
+      if (buffer.remaining() < numBytes)
+      {
+        throw new IOException(ERR_READ_END_BEFORE_VALUE_END.get());
+      }
+
+      buffer.position(buffer.position() + numBytes);
+      totalBytesRead += numBytes;
+      return;
+    }
+
     if (saslClient != null)
     {
       int skippedSoFar = 0;
@@ -492,23 +593,18 @@ public final class ASN1StreamReader
 
     final int length = readLength();
 
-    int valueBytesRead = 0;
-    int bytesRemaining = length;
-    final byte[] value = new byte[length];
-    while (valueBytesRead < length)
+    final ASN1Element e;
+    if ((buffer != null) && buffer.hasArray())
     {
-      final int bytesRead = read(value, valueBytesRead, bytesRemaining);
-      if (bytesRead < 0)
-      {
-        throw new IOException(ERR_READ_END_BEFORE_VALUE_END.get());
-      }
-
-      valueBytesRead += bytesRead;
-      bytesRemaining -= bytesRead;
+      final int offset = getValueOffsetInBufferArray(length);
+      e = new ASN1Element((byte) type, buffer.array(), offset, length);
+    }
+    else
+    {
+      e = new ASN1Element((byte) type, readValue(length));
     }
 
     totalBytesRead += length;
-    final ASN1Element e = new ASN1Element((byte) type, value);
     debugASN1Read(e);
     return e;
   }
@@ -948,6 +1044,56 @@ public final class ASN1StreamReader
 
 
 
+  /**
+   * Reads an ASN.1 octet string element from the input stream.  If this reader
+   * is reading from a buffer that is backed by an accessible array, then the
+   * value of the octet string that is returned will reference that array rather
+   * than a copy of the data.  As long as the octet string is reachable, the
+   * entire backing array will be retained, so a caller that reads a small
+   * value from a large buffer and keeps it for a long time may wish to read
+   * from a read-only view of the buffer instead, in which case the value will
+   * be copied into an array of its own.
+   *
+   * @return  The ASN.1 octet string element read, or {@code null} if the end of
+   *          the input stream was reached before any data could be read.  If
+   *          {@code null} is returned, then the input stream will have been
+   *          closed.
+   *
+   * @throws  IOException  If a problem occurs while reading from the input
+   *                       stream, if the end of the input stream is reached in
+   *                       the middle of the element, or or if an attempt is
+   *                       made to read an element larger than the maximum
+   *                       allowed size.
+   */
+  public ASN1OctetString readOctetString()
+         throws IOException
+  {
+    final int type = readType();
+    if (type < 0)
+    {
+      return null;
+    }
+
+    final int length = readLength();
+
+    final ASN1OctetString s;
+    if ((buffer != null) && buffer.hasArray())
+    {
+      final int offset = getValueOffsetInBufferArray(length);
+      s = new ASN1OctetString((byte) type, buffer.array(), offset, length);
+    }
+    else
+    {
+      s = new ASN1OctetString((byte) type, readValue(length));
+    }
+
+    totalBytesRead += length;
+    debugASN1Read(s);
+    return s;
+  }
+
+
+
   /**
    * Reads an ASN.1 octet string element from the input stream and returns the
    * value as a {@code String} using the UTF-8 encoding.
@@ -974,24 +1120,18 @@ public final class ASN1StreamReader
 
     final int length = readLength();
 
-    int valueBytesRead = 0;
-    int bytesRemaining = length;
-    final byte[] value = new byte[length];
-    while (valueBytesRead < length)
+    final String s;
+    if ((buffer != null) && buffer.hasArray())
     {
-      final int bytesRead = read(value, valueBytesRead, bytesRemaining);
-      if (bytesRead < 0)
-      {
-        throw new IOException(ERR_READ_END_BEFORE_VALUE_END.get());
-      }
-
-      valueBytesRead += bytesRead;
-      bytesRemaining -= bytesRead;
+      final int offset = getValueOffsetInBufferArray(length);
+      s = toUTF8String(buffer.array(), offset, length);
+    }
+    else
+    {
+      s = toUTF8String(readValue(length));
     }
 
     totalBytesRead += length;
-
-    final String s = toUTF8String(value);
     debugASN1Read(Level.INFO, "String", type, length, s);
     return s;
   }
@@ -1123,6 +1263,68 @@ public final class ASN1StreamReader
 
 
 
+  /**
+   * Reads a value of the specified length into a newly-allocated array.
+   *
+   * @param  length  The number of bytes in the value to read.
+   *
+   * @return  The array containing the value that was read.
+   *
+   * @throws  IOException  If a problem occurs while reading the data, or if
+   *                       the end of the input is reached before the entire
+   *                       value has been read.
+   */
+  private byte[] readValue(final int length)
+          throws IOException
+  {
+    int valueBytesRead = 0;
+    int bytesRemaining = length;
+    final byte[] value = new byte[length];
+    while (valueBytesRead < length)
+    {
+      final int bytesRead = read(value, valueBytesRead, bytesRemaining);
+      if (bytesRead < 0)
+      {
+        throw new IOException(ERR_READ_END_BEFORE_VALUE_END.get());
+      }
+
+      valueBytesRead += bytesRead;
+      bytesRemaining -= bytesRead;
+    }
+
+    return value;
+  }
+
+
+
+  /**
+   * Skips over a value of the specified length in the buffer and retrieves
+   * the position of that value in the buffer's backing array.  This may only be
+   * used when reading from a buffer that is backed by an accessible array.
+   *
+   * @param  length  The number of bytes in the value.
+   *
+   * @return  The offset of the first byte of the value in the buffer's backing
+   *          array.
+   *
+   * @throws  IOException  If the buffer does not contain the entire value.
+   */
+  private int getValueOffsetInBufferArray(final int length)
+          throws IOException
+  {
+    final int position = buffer.position();
+    if (buffer.remaining() < length)
+    {
+      buffer.position(buffer.limit());
+      throw new IOException(ERR_READ_END_BEFORE_VALUE_END.get());
+    }
+
+    buffer.position(position + length);
+    return (buffer.arrayOffset() + position);
+  }
+
+
+
   /**
    * Reads a byte of data from the underlying input stream, optionally ignoring
    * socket timeout exceptions.
@@ -1137,6 +1339,18 @@ public final class ASN1StreamReader
   private int read(final boolean initial)
           throws IOException
   {
+    if (buffer != null)
+    {
+      if (buffer.hasRemaining())
+      {
+        return (buffer.get() & 0xFF);
+      }
+      else
+      {
+        return -1;
+      }
+    }
+
     if (saslClient != null)
     {
       if (saslInputStream != null)
@@ -1212,6 +1426,18 @@ public final class ASN1StreamReader
   private int read(final byte[] buffer, final int offset, final int length)
           throws IOException
   {
+    if (this.buffer != null)
+    {
+      if (! this.buffer.hasRemaining())
+      {
+        return -1;
+      }
+
+      final int bytesRead = Math.min(length, this.buffer.remaining());
+      this.buffer.get(buffer, offset, bytesRead);
+      return bytesRead;
+    }
+
     if (saslClient != null)
     {
       if (saslInputStream != null)
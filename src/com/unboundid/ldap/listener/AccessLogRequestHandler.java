@@ -56,6 +56,7 @@ import com.unboundid.ldap.protocol.SearchResultEntryProtocolOp;
 import com.unboundid.ldap.protocol.UnbindRequestProtocolOp;
 import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.util.AsynchronousLogHandler;
 import com.unboundid.util.NotMutable;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.ThreadSafety;
@@ -69,6 +70,14 @@ import com.unboundid.util.Validator;
  * and result using the Java logging framework.  It will be also be associated
  * with another request handler that will actually be used to handle the
  * request.
+ * <BR><BR>
+ * Each message will be published to the log handler and the log handler will
+ * be flushed by the thread processing the associated request, so the time
+ * required to write the message will be included in the processing time for
+ * each request.  To avoid that, the log handler may be wrapped in a
+ * {@link AsynchronousLogHandler}, which will write the messages in batches
+ * from a background thread.  Such a handler will not be flushed after each
+ * message, since it will flush the wrapped handler itself.
  */
 @NotMutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
@@ -111,6 +120,9 @@ public final class AccessLogRequestHandler
   private final ConcurrentHashMap<Integer,AtomicLong> entryCounts =
        new ConcurrentHashMap<Integer,AtomicLong>();
 
+  // Indicates whether the log handler should be flushed after each message.
+  private final boolean flushAfterEachMessage;
+
   // The log handler that will be used to log the messages.
   private final Handler logHandler;
 
@@ -146,8 +158,9 @@ public final class AccessLogRequestHandler
     this.logHandler     = logHandler;
     this.requestHandler = requestHandler;
 
-    nextOperationID  = null;
-    clientConnection = null;
+    flushAfterEachMessage = (! (logHandler instanceof AsynchronousLogHandler));
+    nextOperationID       = null;
+    clientConnection      = null;
   }
 
 
@@ -175,7 +188,8 @@ public final class AccessLogRequestHandler
     this.requestHandler   = requestHandler;
     this.clientConnection = clientConnection;
 
-    nextOperationID  = new AtomicLong(0L);
+    flushAfterEachMessage = (! (logHandler instanceof AsynchronousLogHandler));
+    nextOperationID       = new AtomicLong(0L);
   }
 
 
@@ -205,8 +219,7 @@ public final class AccessLogRequestHandler
     b.append(s.getLocalPort());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return h;
   }
@@ -220,8 +233,7 @@ public final class AccessLogRequestHandler
   public void closeInstance()
   {
     final StringBuilder b = getConnectionHeader("DISCONNECT");
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     requestHandler.closeInstance();
   }
@@ -242,8 +254,7 @@ public final class AccessLogRequestHandler
     b.append(" idToAbandon=");
     b.append(request.getIDToAbandon());
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     requestHandler.processAbandonRequest(messageID, request, controls);
   }
@@ -266,8 +277,7 @@ public final class AccessLogRequestHandler
     b.append(request.getDN());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processAddRequest(
@@ -280,8 +290,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -320,8 +329,7 @@ public final class AccessLogRequestHandler
 
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processBindRequest(
@@ -334,8 +342,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -360,8 +367,7 @@ public final class AccessLogRequestHandler
     b.append(request.getAttributeName());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processCompareRequest(
@@ -374,8 +380,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -398,8 +403,7 @@ public final class AccessLogRequestHandler
     b.append(request.getDN());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processDeleteRequest(
@@ -412,8 +416,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -436,8 +439,7 @@ public final class AccessLogRequestHandler
     b.append(request.getOID());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processExtendedRequest(
@@ -458,8 +460,7 @@ public final class AccessLogRequestHandler
       b.append('"');
     }
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -482,8 +483,7 @@ public final class AccessLogRequestHandler
     b.append(request.getDN());
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processModifyRequest(
@@ -496,8 +496,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -531,8 +530,7 @@ public final class AccessLogRequestHandler
       b.append('"');
     }
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final long startTimeNanos = System.nanoTime();
     final LDAPMessage responseMessage = requestHandler.processModifyDNRequest(
@@ -545,8 +543,7 @@ public final class AccessLogRequestHandler
          protocolOp.getDiagnosticMessage(), protocolOp.getMatchedDN(),
          protocolOp.getReferralURLs(), eTimeNanos);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     return responseMessage;
   }
@@ -593,8 +590,7 @@ public final class AccessLogRequestHandler
 
     b.append('"');
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     final AtomicLong l = new AtomicLong(0L);
     entryCounts.put(messageID, l);
@@ -605,6 +601,14 @@ public final class AccessLogRequestHandler
       final LDAPMessage responseMessage = requestHandler.processSearchRequest(
            messageID, request, controls);
       final long eTimeNanos = System.nanoTime() - startTimeNanos;
+
+      // A null response indicates that the search (e.g., a persistent search)
+      // remains active, so there is no result to log yet.
+      if (responseMessage == null)
+      {
+        return null;
+      }
+
       final SearchResultDoneProtocolOp protocolOp =
            responseMessage.getSearchResultDoneProtocolOp();
 
@@ -615,8 +619,7 @@ public final class AccessLogRequestHandler
       b.append(" entriesReturned=");
       b.append(l.get());
 
-      logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-      logHandler.flush();
+      logMessage(b);
 
       return responseMessage;
     }
@@ -639,14 +642,30 @@ public final class AccessLogRequestHandler
     final StringBuilder b = getRequestHeader("UNBIND",
          nextOperationID.getAndIncrement(), messageID);
 
-    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
-    logHandler.flush();
+    logMessage(b);
 
     requestHandler.processUnbindRequest(messageID, request, controls);
   }
 
 
 
+  /**
+   * Publishes the provided message to the log handler, and flushes the log
+   * handler unless it is an asynchronous handler that will flush itself.
+   *
+   * @param  b  The buffer containing the message to be published.
+   */
+  private void logMessage(final StringBuilder b)
+  {
+    logHandler.publish(new LogRecord(Level.INFO, b.toString()));
+    if (flushAfterEachMessage)
+    {
+      logHandler.flush();
+    }
+  }
+
+
+
   /**
    * Retrieves a string builder that can be used to construct a log message.
    *
@@ -0,0 +1,1103 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.RDN;
+import com.unboundid.ldap.sdk.ReadOnlyEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.util.Debug;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a map of the entries held in an in-memory directory
+ * server instance, keyed by their DNs.  In addition to the standard map
+ * methods, it provides a means of efficiently iterating over only those
+ * entries within a given base and scope.  Entries are maintained in DN order,
+ * in which all entries in a subtree immediately follow the subtree base entry,
+ * so subtree iteration only needs to visit entries within that subtree, and
+ * single-level iteration can skip over the subtree below each immediate
+ * subordinate of the base entry.
+ * <BR><BR>
+ * The entries are held in a persistent (immutable) balanced binary tree, so
+ * any update creates a new version of the tree that shares all unaltered nodes
+ * with the previous version.  This makes it possible to create a snapshot of
+ * the map, or to restore the map from a snapshot, in constant time.  It also
+ * means that iterators over the map are not affected by subsequent updates.
+ * <BR><BR>
+ * This class is not threadsafe.  Callers must provide their own
+ * synchronization (e.g., the entry lock held by the in-memory request handler).
+ * However, a snapshot may be safely accessed by any number of threads, as long
+ * as it is not altered.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+final class InMemoryDirectoryServerEntryMap
+      extends AbstractMap<DN,ReadOnlyEntry>
+      implements Serializable
+{
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = -1873409727622006329L;
+
+
+
+  // The number of entries in this map.
+  private int size;
+
+  // The number of times that the content of this map has been altered.
+  private long modificationCount;
+
+  // The root of the tree holding the entries in this map.
+  private Node root;
+
+
+
+  /**
+   * Creates a new, empty entry map.
+   */
+  InMemoryDirectoryServerEntryMap()
+  {
+    root = null;
+    size = 0;
+    modificationCount = 0L;
+  }
+
+
+
+  /**
+   * Creates a new entry map with the provided tree.
+   *
+   * @param  root               The root of the tree holding the entries in
+   *                            the map.
+   * @param  size               The number of entries in the map.
+   * @param  modificationCount  The modification count for the map.
+   */
+  private InMemoryDirectoryServerEntryMap(final Node root, final int size,
+                                          final long modificationCount)
+  {
+    this.root = root;
+    this.size = size;
+    this.modificationCount = modificationCount;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int size()
+  {
+    return size;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean containsKey(final Object key)
+  {
+    return (getNode(key) != null);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public ReadOnlyEntry get(final Object key)
+  {
+    final Node n = getNode(key);
+    if (n == null)
+    {
+      return null;
+    }
+    else
+    {
+      return n.value;
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public ReadOnlyEntry put(final DN key, final ReadOnlyEntry value)
+  {
+    final Node existingNode = getNode(key);
+    root = put(root, key, value);
+    modificationCount++;
+
+    if (existingNode == null)
+    {
+      size++;
+      return null;
+    }
+    else
+    {
+      return existingNode.value;
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public ReadOnlyEntry remove(final Object key)
+  {
+    final Node existingNode = getNode(key);
+    if (existingNode == null)
+    {
+      return null;
+    }
+
+    root = remove(root, existingNode.key);
+    size--;
+    modificationCount++;
+    return existingNode.value;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void clear()
+  {
+    root = null;
+    size = 0;
+    modificationCount++;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public Set<Map.Entry<DN,ReadOnlyEntry>> entrySet()
+  {
+    return new EntrySet();
+  }
+
+
+
+  /**
+   * Creates a snapshot of the current content of this map.  The snapshot will
+   * not be affected by any subsequent changes to this map.  This will be a
+   * constant-time operation.  The snapshot will have the same modification
+   * count as this map.
+   *
+   * @return  A snapshot of the current content of this map.
+   */
+  InMemoryDirectoryServerEntryMap snapshot()
+  {
+    return new InMemoryDirectoryServerEntryMap(root, size, modificationCount);
+  }
+
+
+
+  /**
+   * Replaces the content of this map with the content of the provided
+   * snapshot.  The snapshot will not be affected by any subsequent changes to
+   * this map.  This will be a constant-time operation.
+   *
+   * @param  snapshot  The snapshot whose content should be used.
+   */
+  void restore(final InMemoryDirectoryServerEntryMap snapshot)
+  {
+    root = snapshot.root;
+    size = snapshot.size;
+    modificationCount++;
+  }
+
+
+
+  /**
+   * Retrieves the number of times that the content of this map has been
+   * altered.  This may be used to determine whether the map has been updated
+   * since some earlier point in time.
+   *
+   * @return  The number of times that the content of this map has been
+   *          altered.
+   */
+  long getModificationCount()
+  {
+    return modificationCount;
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that are immediate subordinates of the
+   * specified entry.
+   *
+   * @param  parentDN  The DN of the entry for which to retrieve the DNs of the
+   *                   immediate subordinates.  It must not be {@code null}.
+   *
+   * @return  The DNs of the immediate subordinates of the specified entry, or
+   *          an empty set if it does not have any subordinates.
+   */
+  Set<DN> getChildDNs(final DN parentDN)
+  {
+    final LinkedHashSet<DN> childDNs = new LinkedHashSet<DN>(10);
+    for (final Map.Entry<DN,ReadOnlyEntry> e :
+         getEntries(parentDN, SearchScope.ONE))
+    {
+      childDNs.add(e.getKey());
+    }
+
+    return Collections.unmodifiableSet(childDNs);
+  }
+
+
+
+  /**
+   * Retrieves an iterable object that may be used to iterate over all entries
+   * in this map that are within the specified base and scope.  Only entries
+   * within that base and scope will be examined, and for a single-level scope,
+   * the subtree below each immediate subordinate of the base entry will be
+   * skipped.  Iteration will reflect the content of the map at the time the
+   * iterator was created, and will not be affected by any subsequent changes
+   * to the map.  A single-level scope based at the null DN will not include
+   * any entries, which is consistent with the behavior of
+   * {@code DN.matchesBaseAndScope}.
+   *
+   * @param  baseDN  The base DN for the entries to retrieve.  It must not be
+   *                 {@code null}.
+   * @param  scope   The scope for the entries to retrieve.  It must not be
+   *                 {@code null}.
+   *
+   * @return  An iterable object that may be used to iterate over the entries
+   *          within the specified base and scope, in DN order.
+   */
+  Iterable<Map.Entry<DN,ReadOnlyEntry>> getEntries(final DN baseDN,
+                                                   final SearchScope scope)
+  {
+    final Node r = root;
+    return new Iterable<Map.Entry<DN,ReadOnlyEntry>>()
+    {
+      @Override()
+      public Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator()
+      {
+        return new ScopedIterator(r, baseDN, scope);
+      }
+    };
+  }
+
+
+
+  /**
+   * Retrieves the number of entries in this map that are within the specified
+   * base and scope.
+   *
+   * @param  baseDN  The base DN for the entries to count.  It must not be
+   *                 {@code null}.
+   * @param  scope   The scope for the entries to count.  It must not be
+   *                 {@code null}.
+   *
+   * @return  The number of entries in this map that are within the specified
+   *          base and scope.
+   */
+  int countEntries(final DN baseDN, final SearchScope scope)
+  {
+    int count = 0;
+    final Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator =
+         new ScopedIterator(root, baseDN, scope);
+    while (iterator.hasNext())
+    {
+      iterator.next();
+      count++;
+    }
+
+    return count;
+  }
+
+
+
+  /**
+   * Retrieves the node with the specified key.
+   *
+   * @param  key  The key for the node to retrieve.
+   *
+   * @return  The node with the specified key, or {@code null} if there is no
+   *          such node.
+   */
+  private Node getNode(final Object key)
+  {
+    if (! (key instanceof DN))
+    {
+      return null;
+    }
+
+    final DN dn = (DN) key;
+    Node n = root;
+    while (n != null)
+    {
+      final int c = dn.compareTo(n.key);
+      if (c < 0)
+      {
+        n = n.left;
+      }
+      else if (c > 0)
+      {
+        n = n.right;
+      }
+      else
+      {
+        return n;
+      }
+    }
+
+    return null;
+  }
+
+
+
+  /**
+   * Retrieves the height of the provided subtree.
+   *
+   * @param  n  The root of the subtree.  It may be {@code null}.
+   *
+   * @return  The height of the provided subtree.
+   */
+  private static int height(final Node n)
+  {
+    if (n == null)
+    {
+      return 0;
+    }
+    else
+    {
+      return n.height;
+    }
+  }
+
+
+
+  /**
+   * Creates a node with the provided information, performing any rotation
+   * needed to keep the resulting subtree balanced.  The heights of the
+   * provided subtrees must not differ by more than two.
+   *
+   * @param  key    The key for the node.
+   * @param  value  The value for the node.
+   * @param  left   The left subtree for the node.
+   * @param  right  The right subtree for the node.
+   *
+   * @return  The root of the resulting balanced subtree.
+   */
+  private static Node balance(final DN key, final ReadOnlyEntry value,
+                              final Node left, final Node right)
+  {
+    final int leftHeight = height(left);
+    final int rightHeight = height(right);
+    if (leftHeight > (rightHeight + 1))
+    {
+      if (height(left.left) >= height(left.right))
+      {
+        return new Node(left.key, left.value, left.left,
+             new Node(key, value, left.right, right));
+      }
+      else
+      {
+        final Node lr = left.right;
+        return new Node(lr.key, lr.value,
+             new Node(left.key, left.value, left.left, lr.left),
+             new Node(key, value, lr.right, right));
+      }
+    }
+    else if (rightHeight > (leftHeight + 1))
+    {
+      if (height(right.right) >= height(right.left))
+      {
+        return new Node(right.key, right.value,
+             new Node(key, value, left, right.left), right.right);
+      }
+      else
+      {
+        final Node rl = right.left;
+        return new Node(rl.key, rl.value,
+             new Node(key, value, left, rl.left),
+             new Node(right.key, right.value, rl.right, right.right));
+      }
+    }
+    else
+    {
+      return new Node(key, value, left, right);
+    }
+  }
+
+
+
+  /**
+   * Creates a version of the provided subtree that includes the given mapping,
+   * replacing any existing mapping for the same key.
+   *
+   * @param  n      The root of the subtree to update.  It may be
+   *                {@code null}.
+   * @param  key    The key for the mapping.
+   * @param  value  The value for the mapping.
+   *
+   * @return  The root of the updated subtree.
+   */
+  private static Node put(final Node n, final DN key,
+                          final ReadOnlyEntry value)
+  {
+    if (n == null)
+    {
+      return new Node(key, value, null, null);
+    }
+
+    final int c = key.compareTo(n.key);
+    if (c < 0)
+    {
+      return balance(n.key, n.value, put(n.left, key, value), n.right);
+    }
+    else if (c > 0)
+    {
+      return balance(n.key, n.value, n.left, put(n.right, key, value));
+    }
+    else
+    {
+      return new Node(n.key, value, n.left, n.right);
+    }
+  }
+
+
+
+  /**
+   * Creates a version of the provided subtree that does not include a mapping
+   * for the given key.
+   *
+   * @param  n    The root of the subtree to update.  It may be {@code null}.
+   * @param  key  The key for the mapping to remove.
+   *
+   * @return  The root of the updated subtree.
+   */
+  private static Node remove(final Node n, final DN key)
+  {
+    if (n == null)
+    {
+      return null;
+    }
+
+    final int c = key.compareTo(n.key);
+    if (c < 0)
+    {
+      return balance(n.key, n.value, remove(n.left, key), n.right);
+    }
+    else if (c > 0)
+    {
+      return balance(n.key, n.value, n.left, remove(n.right, key));
+    }
+    else if (n.left == null)
+    {
+      return n.right;
+    }
+    else if (n.right == null)
+    {
+      return n.left;
+    }
+    else
+    {
+      Node successor = n.right;
+      while (successor.left != null)
+      {
+        successor = successor.left;
+      }
+
+      return balance(successor.key, successor.value, n.left,
+           removeFirst(n.right));
+    }
+  }
+
+
+
+  /**
+   * Creates a version of the provided subtree that does not include its first
+   * node.
+   *
+   * @param  n  The root of the subtree to update.  It must not be
+   *            {@code null}.
+   *
+   * @return  The root of the updated subtree.
+   */
+  private static Node removeFirst(final Node n)
+  {
+    if (n.left == null)
+    {
+      return n.right;
+    }
+    else
+    {
+      return balance(n.key, n.value, removeFirst(n.left), n.right);
+    }
+  }
+
+
+
+  /**
+   * This class defines a node in the tree used to hold entries.  Nodes are
+   * immutable, so they may be shared between multiple versions of the tree.
+   */
+  private static final class Node
+          implements Map.Entry<DN,ReadOnlyEntry>, Serializable
+  {
+    /**
+     * The serial version UID for this serializable class.
+     */
+    private static final long serialVersionUID = 2384650925823340127L;
+
+
+
+    // The key for this node.
+    private final DN key;
+
+    // The height of the subtree rooted at this node.
+    private final int height;
+
+    // The left subtree for this node.
+    private final Node left;
+
+    // The right subtree for this node.
+    private final Node right;
+
+    // The value for this node.
+    private final ReadOnlyEntry value;
+
+
+
+    /**
+     * Creates a new node with the provided information.
+     *
+     * @param  key    The key for the node.
+     * @param  value  The value for the node.
+     * @param  left   The left subtree for the node.
+     * @param  right  The right subtree for the node.
+     */
+    private Node(final DN key, final ReadOnlyEntry value, final Node left,
+                 final Node right)
+    {
+      this.key   = key;
+      this.value = value;
+      this.left  = left;
+      this.right = right;
+
+      height = Math.max(height(left), height(right)) + 1;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public DN getKey()
+    {
+      return key;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public ReadOnlyEntry getValue()
+    {
+      return value;
+    }
+
+
+
+    /**
+     * Updates the value for this node.  This is not supported.
+     *
+     * @param  value  The new value for this node.
+     *
+     * @return  This method will never return successfully.
+     *
+     * @throws  UnsupportedOperationException  To indicate that this is not
+     *                                         supported.
+     */
+    @Override()
+    public ReadOnlyEntry setValue(final ReadOnlyEntry value)
+           throws UnsupportedOperationException
+    {
+      throw new UnsupportedOperationException();
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int hashCode()
+    {
+      return key.hashCode() ^ value.hashCode();
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public boolean equals(final Object o)
+    {
+      if (o == this)
+      {
+        return true;
+      }
+
+      if (! (o instanceof Map.Entry))
+      {
+        return false;
+      }
+
+      final Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+      return (key.equals(e.getKey()) && value.equals(e.getValue()));
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public String toString()
+    {
+      return key + "=" + value;
+    }
+  }
+
+
+
+  /**
+   * This class provides an iterator over the nodes in a tree, in key order.
+   * It may be positioned at an arbitrary point in the tree.
+   */
+  private static class NodeIterator
+  {
+    // The stack of nodes whose own keys and right subtrees still need to be
+    // visited.
+    private final ArrayList<Node> stack;
+
+    // The root of the tree.
+    private final Node root;
+
+
+
+    /**
+     * Creates a new node iterator for the provided tree.  It will initially be
+     * positioned before the first node.
+     *
+     * @param  root  The root of the tree.
+     */
+    NodeIterator(final Node root)
+    {
+      this.root = root;
+
+      stack = new ArrayList<Node>(40);
+      pushLeftPath(root);
+    }
+
+
+
+    /**
+     * Pushes the provided node and all of the nodes along the leftmost path
+     * below it onto the stack.
+     *
+     * @param  node  The node to push.  It may be {@code null}.
+     */
+    private void pushLeftPath(final Node node)
+    {
+      Node n = node;
+      while (n != null)
+      {
+        stack.add(n);
+        n = n.left;
+      }
+    }
+
+
+
+    /**
+     * Positions this iterator before the first node whose key is greater than
+     * (or, if requested, equal to) the provided DN.
+     *
+     * @param  dn         The DN at which to position the iterator.
+     * @param  inclusive  Indicates whether a node whose key equals the provided
+     *                    DN should be included.
+     */
+    final void positionAt(final DN dn, final boolean inclusive)
+    {
+      stack.clear();
+
+      Node n = root;
+      while (n != null)
+      {
+        final int c = n.key.compareTo(dn);
+        if ((c > 0) || ((c == 0) && inclusive))
+        {
+          stack.add(n);
+          n = n.left;
+        }
+        else
+        {
+          n = n.right;
+        }
+      }
+    }
+
+
+
+    /**
+     * Positions this iterator before the first node whose key is greater than
+     * the provided DN and is not subordinate to it.  That is, the iterator
+     * will be positioned after the entire subtree below the provided DN.
+     *
+     * @param  dn  The DN for the subtree to skip.
+     */
+    final void positionAfterSubtree(final DN dn)
+    {
+      stack.clear();
+
+      Node n = root;
+      while (n != null)
+      {
+        if ((n.key.compareTo(dn) > 0) && (! n.key.isDescendantOf(dn, false)))
+        {
+          stack.add(n);
+          n = n.left;
+        }
+        else
+        {
+          n = n.right;
+        }
+      }
+    }
+
+
+
+    /**
+     * Retrieves the next node from this iterator.
+     *
+     * @return  The next node from this iterator, or {@code null} if there are
+     *          no more nodes.
+     */
+    final Node nextNode()
+    {
+      if (stack.isEmpty())
+      {
+        return null;
+      }
+
+      final Node n = stack.remove(stack.size() - 1);
+      pushLeftPath(n.right);
+      return n;
+    }
+  }
+
+
+
+  /**
+   * This class provides the set view of the entries in this map.  Entries may
+   * be removed from the map through the iterator, but the set may not
+   * otherwise be altered.
+   */
+  private final class EntrySet
+          extends AbstractSet<Map.Entry<DN,ReadOnlyEntry>>
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int size()
+    {
+      return size;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator()
+    {
+      final NodeIterator nodeIterator = new NodeIterator(root);
+      return new Iterator<Map.Entry<DN,ReadOnlyEntry>>()
+      {
+        // The next node to return.
+        private Node nextNode = nodeIterator.nextNode();
+
+        // The last node returned by this iterator.
+        private Node lastNode = null;
+
+        @Override()
+        public boolean hasNext()
+        {
+          return (nextNode != null);
+        }
+
+        @Override()
+        public Map.Entry<DN,ReadOnlyEntry> next()
+        {
+          if (nextNode == null)
+          {
+            throw new NoSuchElementException();
+          }
+
+          lastNode = nextNode;
+          nextNode = nodeIterator.nextNode();
+          return lastNode;
+        }
+
+        @Override()
+        public void remove()
+        {
+          if (lastNode == null)
+          {
+            throw new IllegalStateException();
+          }
+
+          // Since the tree is immutable, removing the entry from the map will
+          // not affect the iteration.
+          InMemoryDirectoryServerEntryMap.this.remove(lastNode.key);
+          lastNode = null;
+        }
+      };
+    }
+  }
+
+
+
+  /**
+   * This class provides an iterator over the entries within a given base and
+   * scope.
+   */
+  private static final class ScopedIterator
+          extends NodeIterator
+          implements Iterator<Map.Entry<DN,ReadOnlyEntry>>
+  {
+    // The base DN for the entries to return.
+    private final DN baseDN;
+
+    // The next entry to return.
+    private Node nextEntry;
+
+    // The number of RDN components in the base DN.
+    private final int baseDNLength;
+
+    // The scope for the entries to return.
+    private final SearchScope scope;
+
+
+
+    /**
+     * Creates a new scoped iterator.
+     *
+     * @param  root    The root of the tree.
+     * @param  baseDN  The base DN for the entries to return.
+     * @param  scope   The scope for the entries to return.
+     */
+    private ScopedIterator(final Node root, final DN baseDN,
+                           final SearchScope scope)
+    {
+      super(root);
+
+      this.baseDN = baseDN;
+      this.scope = scope;
+
+      baseDNLength = baseDN.getRDNs().length;
+
+      switch (scope.intValue())
+      {
+        case SearchScope.BASE_INT_VALUE:
+          positionAt(baseDN, true);
+          final Node n = nextNode();
+          if ((n != null) && n.key.equals(baseDN))
+          {
+            nextEntry = n;
+          }
+          else
+          {
+            nextEntry = null;
+          }
+          break;
+
+        case SearchScope.ONE_INT_VALUE:
+          if (baseDN.isNullDN())
+          {
+            nextEntry = null;
+          }
+          else
+          {
+            positionAt(baseDN, false);
+            nextEntry = findNextEntry();
+          }
+          break;
+
+        case SearchScope.SUB_INT_VALUE:
+          positionAt(baseDN, true);
+          nextEntry = findNextEntry();
+          break;
+
+        case SearchScope.SUBORDINATE_SUBTREE_INT_VALUE:
+          positionAt(baseDN, false);
+          nextEntry = findNextEntry();
+          break;
+
+        default:
+          // This should never happen.
+          Debug.debugCodingError(new Exception("Unexpected scope " + scope));
+          nextEntry = null;
+          break;
+      }
+    }
+
+
+
+    /**
+     * Finds the next entry that should be returned by this iterator.
+     *
+     * @return  The next entry that should be returned by this iterator, or
+     *          {@code null} if there are no more entries.
+     */
+    private Node findNextEntry()
+    {
+      while (true)
+      {
+        // Since entries are sorted hierarchically, the first entry that is not
+        // within the subtree indicates that there are no more entries in
+        // scope.
+        final Node n = nextNode();
+        if ((n == null) || (! n.key.isDescendantOf(baseDN, true)))
+        {
+          return null;
+        }
+
+        if (scope != SearchScope.ONE)
+        {
+          return n;
+        }
+
+        // For a single-level scope, skip over the subtree below the immediate
+        // subordinate of the base entry.  Normally, that will be the entry we
+        // just found, but if its parent is missing, then skip the subtree for
+        // the missing parent.
+        final RDN[] rdns = n.key.getRDNs();
+        if (rdns.length == (baseDNLength + 1))
+        {
+          positionAfterSubtree(n.key);
+          return n;
+        }
+        else
+        {
+          positionAfterSubtree(new DN(Arrays.copyOfRange(rdns,
+               (rdns.length - baseDNLength - 1), rdns.length)));
+        }
+      }
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public boolean hasNext()
+    {
+      return (nextEntry != null);
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Map.Entry<DN,ReadOnlyEntry> next()
+    {
+      if (nextEntry == null)
+      {
+        throw new NoSuchElementException();
+      }
+
+      final Node e = nextEntry;
+      if (scope == SearchScope.BASE)
+      {
+        nextEntry = null;
+      }
+      else
+      {
+        nextEntry = findNextEntry();
+      }
+
+      return e;
+    }
+
+
+
+    /**
+     * Indicates that the last entry should be removed.  This is not
+     * supported.
+     *
+     * @throws  UnsupportedOperationException  To indicate that this is not
+     *                                         supported.
+     */
+    @Override()
+    public void remove()
+           throws UnsupportedOperationException
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
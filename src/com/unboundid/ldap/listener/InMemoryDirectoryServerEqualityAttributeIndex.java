@@ -53,6 +53,7 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
 @Mutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 final class InMemoryDirectoryServerEqualityAttributeIndex
+       extends InMemoryDirectoryServerAttributeIndex
 {
   // The attribute type with which this index is associated.
   private final AttributeTypeDefinition attributeType;
@@ -111,6 +112,7 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
    *
    * @return  The attribute type definition for this index.
    */
+  @Override()
   AttributeTypeDefinition getAttributeType()
   {
     return attributeType;
@@ -121,6 +123,7 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
   /**
    * Clears all index data for the associated attribute.
    */
+  @Override()
   synchronized void clear()
   {
     indexMap.clear();
@@ -187,6 +190,7 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
    *                         one or more values that are not acceptable for the
    *                         associated attribute type).
    */
+  @Override()
   synchronized void processAdd(final Entry entry)
                throws LDAPException
   {
@@ -228,6 +232,7 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
    *                         one or more values that are not acceptable for the
    *                         associated attribute type).
    */
+  @Override()
   synchronized void processDelete(final Entry entry)
                throws LDAPException
   {
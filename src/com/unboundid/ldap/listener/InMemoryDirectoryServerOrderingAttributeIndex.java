@@ -0,0 +1,331 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Debug;
+import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining an ordering index for a
+ * specified attribute.  Normalized values are held in a sorted map using the
+ * ordering matching rule for the attribute type, so that the entries matching
+ * a greater-or-equal or less-or-equal filter can be identified without
+ * examining every entry.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerOrderingAttributeIndex
+       extends InMemoryDirectoryServerAttributeIndex
+{
+  // The attribute type with which this index is associated.
+  private final AttributeTypeDefinition attributeType;
+
+  // The matching rule used to normalize and order values.
+  private final MatchingRule matchingRule;
+
+  // The schema for the server.
+  private final Schema schema;
+
+  // A sorted map from normalized values to the DNs of entries with those
+  // values.
+  private final TreeMap<ASN1OctetString,TreeSet<DN>> indexMap;
+
+
+
+  /**
+   * Creates a new ordering attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerOrderingAttributeIndex(final String attributeType,
+                                                final Schema schema)
+       throws LDAPException
+  {
+    this.schema = schema;
+    if (schema == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_ORD_INDEX_NO_SCHEMA.get(attributeType));
+    }
+
+    this.attributeType = schema.getAttributeType(attributeType);
+    if (this.attributeType == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_ORD_INDEX_UNDEFINED_ATTRIBUTE_TYPE.get(attributeType));
+    }
+
+    matchingRule = MatchingRule.selectOrderingMatchingRule(attributeType,
+         schema);
+
+    indexMap = new TreeMap<ASN1OctetString,TreeSet<DN>>(
+         new Comparator<ASN1OctetString>()
+         {
+           @Override()
+           public int compare(final ASN1OctetString v1,
+                              final ASN1OctetString v2)
+           {
+             try
+             {
+               return matchingRule.compareValues(v1, v2);
+             }
+             catch (final LDAPException le)
+             {
+               // This should not happen, since only values that could be
+               // normalized are held in the index.  Fall back to comparing
+               // the string representations so that the ordering is still
+               // consistent.
+               Debug.debugException(le);
+               return v1.stringValue().compareTo(v2.stringValue());
+             }
+           }
+         });
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  AttributeTypeDefinition getAttributeType()
+  {
+    return attributeType;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    indexMap.clear();
+  }
+
+
+
+  /**
+   * Obtains a copy of the internal map used by this index.  This is only
+   * intended for internal use for testing purposes.
+   *
+   * @return  A copy of the internal map used by this index.
+   */
+  @InternalUseOnly()
+  synchronized Map<ASN1OctetString,TreeSet<DN>> copyMap()
+  {
+    final TreeMap<ASN1OctetString,TreeSet<DN>> m =
+         new TreeMap<ASN1OctetString,TreeSet<DN>>(indexMap.comparator());
+    for (final Map.Entry<ASN1OctetString,TreeSet<DN>> e : indexMap.entrySet())
+    {
+      m.put(e.getKey(), new TreeSet<DN>(e.getValue()));
+    }
+
+    return m;
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that have at least one value that is
+   * greater than or equal to the provided value for the associated attribute.
+   *
+   * @param  value  The value for which to retrieve the corresponding entry DNs.
+   *
+   * @return  A set containing the DNs of the matching entries, or an empty set
+   *          if there are none.
+   *
+   * @throws  LDAPException  If a problem is encountered while attempting to
+   *                         make the determination (e.g., if the given value is
+   *                         not acceptable for the associated attribute type).
+   */
+  synchronized Set<DN> getEntriesGreaterThanOrEqualTo(
+                            final ASN1OctetString value)
+               throws LDAPException
+  {
+    final ASN1OctetString normalizedValue = matchingRule.normalize(value);
+    return merge(indexMap.tailMap(normalizedValue, true).values());
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that have at least one value that is
+   * less than or equal to the provided value for the associated attribute.
+   *
+   * @param  value  The value for which to retrieve the corresponding entry DNs.
+   *
+   * @return  A set containing the DNs of the matching entries, or an empty set
+   *          if there are none.
+   *
+   * @throws  LDAPException  If a problem is encountered while attempting to
+   *                         make the determination (e.g., if the given value is
+   *                         not acceptable for the associated attribute type).
+   */
+  synchronized Set<DN> getEntriesLessThanOrEqualTo(
+                            final ASN1OctetString value)
+               throws LDAPException
+  {
+    final ASN1OctetString normalizedValue = matchingRule.normalize(value);
+    return merge(indexMap.headMap(normalizedValue, true).values());
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    final ASN1OctetString[] normalizedValues = getNormalizedValues(entry);
+    if (normalizedValues != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString v : normalizedValues)
+      {
+        TreeSet<DN> dnSet = indexMap.get(v);
+        if (dnSet == null)
+        {
+          dnSet = new TreeSet<DN>();
+          indexMap.put(v, dnSet);
+        }
+        dnSet.add(dn);
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    final ASN1OctetString[] normalizedValues = getNormalizedValues(entry);
+    if (normalizedValues != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString v : normalizedValues)
+      {
+        final TreeSet<DN> dnSet = indexMap.get(v);
+        if (dnSet != null)
+        {
+          dnSet.remove(dn);
+          if (dnSet.isEmpty())
+          {
+            indexMap.remove(v);
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves the normalized values of the associated attribute in the
+   * provided entry.
+   *
+   * @param  entry  The entry for which to retrieve the normalized values.
+   *
+   * @return  The normalized values for the associated attribute, or
+   *          {@code null} if the entry does not have that attribute.
+   *
+   * @throws  LDAPException  If any of the values cannot be normalized.
+   */
+  private ASN1OctetString[] getNormalizedValues(final Entry entry)
+          throws LDAPException
+  {
+    final Attribute a =
+         entry.getAttribute(attributeType.getNameOrOID(), schema);
+    if (a == null)
+    {
+      return null;
+    }
+
+    final ASN1OctetString[] rawValues = a.getRawValues();
+    final ASN1OctetString[] normalizedValues =
+         new ASN1OctetString[rawValues.length];
+    for (int i=0; i < rawValues.length; i++)
+    {
+      normalizedValues[i] = matchingRule.normalize(rawValues[i]);
+    }
+
+    return normalizedValues;
+  }
+
+
+
+  /**
+   * Creates a set containing all of the DNs in the provided collection of sets.
+   *
+   * @param  dnSets  The sets of DNs to merge.
+   *
+   * @return  A set containing all of the DNs in the provided sets.
+   */
+  private static Set<DN> merge(final Collection<TreeSet<DN>> dnSets)
+  {
+    final TreeSet<DN> mergedSet = new TreeSet<DN>();
+    for (final TreeSet<DN> s : dnSets)
+    {
+      mergedSet.addAll(s);
+    }
+
+    return mergedSet;
+  }
+}
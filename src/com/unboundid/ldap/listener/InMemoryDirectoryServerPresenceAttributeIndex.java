@@ -0,0 +1,196 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.StaticUtils;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining a presence index for a
+ * specified attribute.  An entry will be included in the index if it has any
+ * values for the attribute, using any of the names or the OID for the
+ * attribute type, with or without attribute options.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerPresenceAttributeIndex
+       extends InMemoryDirectoryServerAttributeIndex
+{
+  // The attribute type with which this index is associated.
+  private final AttributeTypeDefinition attributeType;
+
+  // The lowercase names and OID that may be used to reference the attribute.
+  private final Set<String> lowerNames;
+
+  // The DNs of the entries that have the associated attribute.
+  private final TreeSet<DN> dnSet;
+
+
+
+  /**
+   * Creates a new presence attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerPresenceAttributeIndex(final String attributeType,
+                                                final Schema schema)
+       throws LDAPException
+  {
+    if (schema == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_PRES_INDEX_NO_SCHEMA.get(attributeType));
+    }
+
+    this.attributeType = schema.getAttributeType(attributeType);
+    if (this.attributeType == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_PRES_INDEX_UNDEFINED_ATTRIBUTE_TYPE.get(attributeType));
+    }
+
+    final HashSet<String> names = new HashSet<String>(5);
+    names.add(StaticUtils.toLowerCase(this.attributeType.getOID()));
+    for (final String name : this.attributeType.getNames())
+    {
+      names.add(StaticUtils.toLowerCase(name));
+    }
+    lowerNames = Collections.unmodifiableSet(names);
+
+    dnSet = new TreeSet<DN>();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  AttributeTypeDefinition getAttributeType()
+  {
+    return attributeType;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    dnSet.clear();
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that have the associated attribute.
+   *
+   * @return  A set containing the DNs of the entries that have the associated
+   *          attribute, or an empty set if there are none.
+   */
+  synchronized Set<DN> getMatchingEntries()
+  {
+    return Collections.unmodifiableSet(dnSet);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    if (hasAttribute(entry))
+    {
+      dnSet.add(entry.getParsedDN());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    if (hasAttribute(entry))
+    {
+      dnSet.remove(entry.getParsedDN());
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the provided entry has at least one attribute that
+   * references the associated attribute type.
+   *
+   * @param  entry  The entry to examine.
+   *
+   * @return  {@code true} if the entry has the associated attribute, or
+   *          {@code false} if not.
+   */
+  private boolean hasAttribute(final Entry entry)
+  {
+    for (final Attribute a : entry.getAttributes())
+    {
+      if (lowerNames.contains(StaticUtils.toLowerCase(a.getBaseName())))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
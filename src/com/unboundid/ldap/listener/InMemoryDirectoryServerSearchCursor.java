@@ -0,0 +1,304 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.SortKey;
+import com.unboundid.util.Debug;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that holds the results of a search
+ * processed by the in-memory directory server so that they can be re-used
+ * when retrieving subsequent pages of results with the simple paged results
+ * control, or when retrieving other portions of the result set with the
+ * virtual list view control.  A cursor holds the DNs of the matching entries
+ * in the order in which they should be returned, along with any search result
+ * references, and the information needed to determine whether a subsequent
+ * search request is equivalent to the one used to create the cursor.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.MOSTLY_THREADSAFE)
+final class InMemoryDirectoryServerSearchCursor
+{
+  // Indicates whether the search included the ManageDsaIT request control.
+  private final boolean hasManageDsaIT;
+
+  // Indicates whether the search could include LDAP subentries.
+  private final boolean includeSubEntries;
+
+  // Indicates whether the search could include entries that are not LDAP
+  // subentries.
+  private final boolean includeNonSubEntries;
+
+  // The base DN for the search.
+  private final DN baseDN;
+
+  // The filter for the search.
+  private final Filter filter;
+
+  // The DNs of the matching entries, in the order they should be returned.
+  private final List<DN> dns;
+
+  // The search result references for the search.
+  private final List<SearchResultReference> references;
+
+  // The identifier assigned to this cursor.
+  private final long cursorID;
+
+  // The entry map modification count at the time the cursor was created.
+  private final long modificationCount;
+
+  // The time that this cursor was last accessed.
+  private volatile long lastAccessTime;
+
+  // The scope for the search.
+  private final SearchScope scope;
+
+  // A string representation of the sort order for the search, or null if the
+  // search results were not sorted.
+  private final String sortOrder;
+
+
+
+  /**
+   * Creates a new search cursor with the provided information.
+   *
+   * @param  cursorID              The identifier assigned to this cursor.
+   * @param  baseDN                The base DN for the search.
+   * @param  scope                 The scope for the search.
+   * @param  filter                The filter for the search.
+   * @param  sortKeys              The sort keys for the search, or
+   *                               {@code null} if the results were not
+   *                               sorted.
+   * @param  includeSubEntries     Indicates whether the search could include
+   *                               LDAP subentries.
+   * @param  includeNonSubEntries  Indicates whether the search could include
+   *                               entries that are not LDAP subentries.
+   * @param  hasManageDsaIT        Indicates whether the search included the
+   *                               ManageDsaIT request control.
+   * @param  entries               The matching entries, in the order in which
+   *                               they should be returned.
+   * @param  references            The search result references for the
+   *                               search.
+   * @param  modificationCount     The entry map modification count at the
+   *                               time the search was processed.
+   */
+  InMemoryDirectoryServerSearchCursor(final long cursorID, final DN baseDN,
+       final SearchScope scope, final Filter filter, final SortKey[] sortKeys,
+       final boolean includeSubEntries, final boolean includeNonSubEntries,
+       final boolean hasManageDsaIT, final List<Entry> entries,
+       final List<SearchResultReference> references,
+       final long modificationCount)
+  {
+    this.cursorID             = cursorID;
+    this.baseDN               = baseDN;
+    this.scope                = scope;
+    this.filter               = filter;
+    this.includeSubEntries    = includeSubEntries;
+    this.includeNonSubEntries = includeNonSubEntries;
+    this.hasManageDsaIT       = hasManageDsaIT;
+    this.modificationCount    = modificationCount;
+
+    sortOrder = getSortOrder(sortKeys);
+
+    final ArrayList<DN> dnList = new ArrayList<DN>(entries.size());
+    for (final Entry e : entries)
+    {
+      try
+      {
+        dnList.add(e.getParsedDN());
+      }
+      catch (final Exception ex)
+      {
+        // This should never happen for an entry held in the server.
+        Debug.debugException(ex);
+      }
+    }
+    dns = Collections.unmodifiableList(dnList);
+
+    this.references = Collections.unmodifiableList(
+         new ArrayList<SearchResultReference>(references));
+
+    lastAccessTime = System.currentTimeMillis();
+  }
+
+
+
+  /**
+   * Retrieves the identifier assigned to this cursor.
+   *
+   * @return  The identifier assigned to this cursor.
+   */
+  long getCursorID()
+  {
+    return cursorID;
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the matching entries, in the order in which they
+   * should be returned.
+   *
+   * @return  The DNs of the matching entries.
+   */
+  List<DN> getDNs()
+  {
+    return dns;
+  }
+
+
+
+  /**
+   * Retrieves the search result references for the search.
+   *
+   * @return  The search result references for the search.
+   */
+  List<SearchResultReference> getReferences()
+  {
+    return references;
+  }
+
+
+
+  /**
+   * Retrieves the entry map modification count at the time this cursor was
+   * created.
+   *
+   * @return  The entry map modification count at the time this cursor was
+   *          created.
+   */
+  long getModificationCount()
+  {
+    return modificationCount;
+  }
+
+
+
+  /**
+   * Retrieves the time that this cursor was last accessed.
+   *
+   * @return  The time that this cursor was last accessed.
+   */
+  long getLastAccessTime()
+  {
+    return lastAccessTime;
+  }
+
+
+
+  /**
+   * Updates the time that this cursor was last accessed to the current time.
+   */
+  void updateLastAccessTime()
+  {
+    lastAccessTime = System.currentTimeMillis();
+  }
+
+
+
+  /**
+   * Indicates whether this cursor may be used to process a search with the
+   * provided information.
+   *
+   * @param  baseDN                The base DN for the search.
+   * @param  scope                 The scope for the search.
+   * @param  filter                The filter for the search.
+   * @param  sortKeys              The sort keys for the search, or
+   *                               {@code null} if the results should not be
+   *                               sorted.
+   * @param  includeSubEntries     Indicates whether the search could include
+   *                               LDAP subentries.
+   * @param  includeNonSubEntries  Indicates whether the search could include
+   *                               entries that are not LDAP subentries.
+   * @param  hasManageDsaIT        Indicates whether the search included the
+   *                               ManageDsaIT request control.
+   *
+   * @return  {@code true} if this cursor may be used to process a search with
+   *          the provided information, or {@code false} if not.
+   */
+  boolean matchesSearch(final DN baseDN, final SearchScope scope,
+                        final Filter filter, final SortKey[] sortKeys,
+                        final boolean includeSubEntries,
+                        final boolean includeNonSubEntries,
+                        final boolean hasManageDsaIT)
+  {
+    if ((this.includeSubEntries != includeSubEntries) ||
+        (this.includeNonSubEntries != includeNonSubEntries) ||
+        (this.hasManageDsaIT != hasManageDsaIT) ||
+        (! this.scope.equals(scope)) ||
+        (! this.baseDN.equals(baseDN)) ||
+        (! this.filter.equals(filter)))
+    {
+      return false;
+    }
+
+    final String s = getSortOrder(sortKeys);
+    if (sortOrder == null)
+    {
+      return (s == null);
+    }
+    else
+    {
+      return sortOrder.equals(s);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a string representation of the provided sort keys.
+   *
+   * @param  sortKeys  The sort keys for which to obtain the string
+   *                   representation.  It may be {@code null}.
+   *
+   * @return  A string representation of the provided sort keys, or
+   *          {@code null} if the provided sort keys are {@code null}.
+   */
+  private static String getSortOrder(final SortKey[] sortKeys)
+  {
+    if (sortKeys == null)
+    {
+      return null;
+    }
+
+    final StringBuilder buffer = new StringBuilder();
+    for (final SortKey k : sortKeys)
+    {
+      k.toString(buffer);
+    }
+
+    return buffer.toString();
+  }
+}
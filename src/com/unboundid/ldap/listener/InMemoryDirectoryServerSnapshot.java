@@ -25,7 +25,6 @@ package com.unboundid.ldap.listener;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
-import java.util.TreeMap;
 
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.ReadOnlyEntry;
@@ -61,6 +60,10 @@ public final class InMemoryDirectoryServerSnapshot
   private final long lastChangeNumber;
 
   // The set of entries held in the server at the time the snapshot was created.
+  private final InMemoryDirectoryServerEntryMap entries;
+
+  // An unmodifiable view of the set of entries held in the server at the time
+  // the snapshot was created.
   private final Map<DN,ReadOnlyEntry> entryMap;
 
 
@@ -69,22 +72,37 @@ public final class InMemoryDirectoryServerSnapshot
    * Creates a new in-memory directory server snapshot with the provided
    * information.
    *
-   * @param  m                  A map of the entries contained in the server
-   *                            (including changelog entries) at the time the
-   *                            snapshot was created.
+   * @param  m                  A snapshot of the map of the entries contained
+   *                            in the server (including changelog entries) at
+   *                            the time the snapshot was created.  It must
+   *                            not be altered.
    * @param  firstChangeNumber  The first change number value at the time the
    *                            snapshot was created.
    * @param  lastChangeNumber   The last change number value at the time the
    *                            snapshot was created.
    */
-  InMemoryDirectoryServerSnapshot(final Map<DN,ReadOnlyEntry> m,
+  InMemoryDirectoryServerSnapshot(final InMemoryDirectoryServerEntryMap m,
                                   final long firstChangeNumber,
                                   final long lastChangeNumber)
   {
     this.firstChangeNumber = firstChangeNumber;
     this.lastChangeNumber  = lastChangeNumber;
 
-    entryMap = Collections.unmodifiableMap(new TreeMap<DN,ReadOnlyEntry>(m));
+    entries = m;
+    entryMap = Collections.unmodifiableMap(m);
+  }
+
+
+
+  /**
+   * Retrieves the entry map snapshot held by this server snapshot.  It must
+   * not be altered.
+   *
+   * @return  The entry map snapshot held by this server snapshot.
+   */
+  InMemoryDirectoryServerEntryMap getEntries()
+  {
+    return entries;
   }
 
 
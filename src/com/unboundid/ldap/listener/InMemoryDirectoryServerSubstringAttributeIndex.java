@@ -0,0 +1,366 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining a substring index for a
+ * specified attribute.  Each normalized value is broken up into overlapping
+ * n-grams of {@link #GRAM_LENGTH} bytes, and the index maps each of those
+ * n-grams to the DNs of the entries containing it.  The candidate entries for
+ * a substring filter are the entries that contain all of the n-grams in all of
+ * the normalized substring components, and those candidates must still be
+ * checked against the filter to eliminate false positives.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerSubstringAttributeIndex
+       extends InMemoryDirectoryServerAttributeIndex
+{
+  /**
+   * The number of bytes in each n-gram held in the index.  Substring filter
+   * components shorter than this cannot be processed using the index.
+   */
+  static final int GRAM_LENGTH = 3;
+
+
+
+  /**
+   * A comparator that may be used to order sets by increasing size.
+   */
+  private static final Comparator<Set<DN>> SET_SIZE_COMPARATOR =
+       new Comparator<Set<DN>>()
+       {
+         @Override()
+         public int compare(final Set<DN> s1, final Set<DN> s2)
+         {
+           return (s1.size() - s2.size());
+         }
+       };
+
+
+
+  // The attribute type with which this index is associated.
+  private final AttributeTypeDefinition attributeType;
+
+  // A map from n-grams to the DNs of entries with values containing them.
+  private final Map<ASN1OctetString,TreeSet<DN>> indexMap;
+
+  // The matching rule used to normalize values.
+  private final MatchingRule matchingRule;
+
+  // The schema for the server.
+  private final Schema schema;
+
+
+
+  /**
+   * Creates a new substring attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerSubstringAttributeIndex(final String attributeType,
+                                                 final Schema schema)
+       throws LDAPException
+  {
+    this.schema = schema;
+    if (schema == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_SUB_INDEX_NO_SCHEMA.get(attributeType));
+    }
+
+    this.attributeType = schema.getAttributeType(attributeType);
+    if (this.attributeType == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_DS_SUB_INDEX_UNDEFINED_ATTRIBUTE_TYPE.get(attributeType));
+    }
+
+    matchingRule = MatchingRule.selectSubstringMatchingRule(attributeType,
+         schema);
+
+    indexMap = new HashMap<ASN1OctetString,TreeSet<DN>>(1000);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  AttributeTypeDefinition getAttributeType()
+  {
+    return attributeType;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    indexMap.clear();
+  }
+
+
+
+  /**
+   * Obtains a copy of the internal map used by this index.  This is only
+   * intended for internal use for testing purposes.
+   *
+   * @return  A copy of the internal map used by this index.
+   */
+  @InternalUseOnly()
+  synchronized Map<ASN1OctetString,TreeSet<DN>> copyMap()
+  {
+    final HashMap<ASN1OctetString,TreeSet<DN>> m =
+         new HashMap<ASN1OctetString,TreeSet<DN>>(indexMap.size());
+    for (final Map.Entry<ASN1OctetString,TreeSet<DN>> e : indexMap.entrySet())
+    {
+      m.put(e.getKey(), new TreeSet<DN>(e.getValue()));
+    }
+
+    return Collections.unmodifiableMap(m);
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that may match a substring filter with the
+   * provided components.
+   *
+   * @param  subInitial  The subInitial component from the filter, or
+   *                     {@code null} if there is none.
+   * @param  subAny      The subAny components from the filter, or
+   *                     {@code null} if there are none.
+   * @param  subFinal    The subFinal component from the filter, or
+   *                     {@code null} if there is none.
+   *
+   * @return  A set containing the DNs of the entries that may match the filter,
+   *          or {@code null} if none of the components are long enough to be
+   *          processed using the index.
+   *
+   * @throws  LDAPException  If a problem is encountered while attempting to
+   *                         normalize any of the substring components.
+   */
+  synchronized Set<DN> getCandidateEntries(final ASN1OctetString subInitial,
+                                           final ASN1OctetString[] subAny,
+                                           final ASN1OctetString subFinal)
+               throws LDAPException
+  {
+    final HashSet<ASN1OctetString> grams = new HashSet<ASN1OctetString>(10);
+    if (subInitial != null)
+    {
+      addGrams(matchingRule.normalizeSubstring(subInitial,
+           MatchingRule.SUBSTRING_TYPE_SUBINITIAL), grams);
+    }
+
+    if (subAny != null)
+    {
+      for (final ASN1OctetString s : subAny)
+      {
+        addGrams(matchingRule.normalizeSubstring(s,
+             MatchingRule.SUBSTRING_TYPE_SUBANY), grams);
+      }
+    }
+
+    if (subFinal != null)
+    {
+      addGrams(matchingRule.normalizeSubstring(subFinal,
+           MatchingRule.SUBSTRING_TYPE_SUBFINAL), grams);
+    }
+
+    if (grams.isEmpty())
+    {
+      return null;
+    }
+
+    final ArrayList<Set<DN>> dnSets = new ArrayList<Set<DN>>(grams.size());
+    for (final ASN1OctetString g : grams)
+    {
+      final TreeSet<DN> dnSet = indexMap.get(g);
+      if (dnSet == null)
+      {
+        return Collections.emptySet();
+      }
+      dnSets.add(dnSet);
+    }
+
+    // Start with the smallest set so that the intersection stays as small as
+    // possible.
+    Collections.sort(dnSets, SET_SIZE_COMPARATOR);
+    final TreeSet<DN> candidateSet = new TreeSet<DN>(dnSets.get(0));
+    for (int i=1; i < dnSets.size(); i++)
+    {
+      candidateSet.retainAll(dnSets.get(i));
+      if (candidateSet.isEmpty())
+      {
+        break;
+      }
+    }
+
+    return candidateSet;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    final Set<ASN1OctetString> grams = getGrams(entry);
+    if (grams != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString g : grams)
+      {
+        TreeSet<DN> dnSet = indexMap.get(g);
+        if (dnSet == null)
+        {
+          dnSet = new TreeSet<DN>();
+          indexMap.put(g, dnSet);
+        }
+        dnSet.add(dn);
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    final Set<ASN1OctetString> grams = getGrams(entry);
+    if (grams != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString g : grams)
+      {
+        final TreeSet<DN> dnSet = indexMap.get(g);
+        if (dnSet != null)
+        {
+          dnSet.remove(dn);
+          if (dnSet.isEmpty())
+          {
+            indexMap.remove(g);
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves the set of n-grams contained in the normalized values of the
+   * associated attribute in the provided entry.
+   *
+   * @param  entry  The entry for which to retrieve the n-grams.
+   *
+   * @return  The set of n-grams for the associated attribute, or {@code null}
+   *          if the entry does not have that attribute.
+   *
+   * @throws  LDAPException  If any of the values cannot be normalized.
+   */
+  private Set<ASN1OctetString> getGrams(final Entry entry)
+          throws LDAPException
+  {
+    final Attribute a =
+         entry.getAttribute(attributeType.getNameOrOID(), schema);
+    if (a == null)
+    {
+      return null;
+    }
+
+    final HashSet<ASN1OctetString> grams = new HashSet<ASN1OctetString>(20);
+    for (final ASN1OctetString v : a.getRawValues())
+    {
+      addGrams(matchingRule.normalize(v), grams);
+    }
+
+    return grams;
+  }
+
+
+
+  /**
+   * Adds all of the n-grams in the provided normalized value to the given set.
+   *
+   * @param  normalizedValue  The normalized value to process.
+   * @param  grams            The set to which the n-grams should be added.
+   */
+  private static void addGrams(final ASN1OctetString normalizedValue,
+                               final Set<ASN1OctetString> grams)
+  {
+    final byte[] valueBytes = normalizedValue.getValue();
+    for (int i=0; i <= (valueBytes.length - GRAM_LENGTH); i++)
+    {
+      grams.add(new ASN1OctetString(
+           Arrays.copyOfRange(valueBytes, i, (i + GRAM_LENGTH))));
+    }
+  }
+}
@@ -22,6 +22,7 @@ package com.unboundid.ldap.listener;
 
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -38,12 +39,20 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 
+import com.unboundid.asn1.ASN1Element;
 import com.unboundid.asn1.ASN1Integer;
+import com.unboundid.asn1.ASN1Long;
 import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.asn1.ASN1Sequence;
+import com.unboundid.ldap.protocol.AbandonRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddResponseProtocolOp;
 import com.unboundid.ldap.protocol.BindRequestProtocolOp;
@@ -54,6 +63,7 @@ import com.unboundid.ldap.protocol.DeleteRequestProtocolOp;
 import com.unboundid.ldap.protocol.DeleteResponseProtocolOp;
 import com.unboundid.ldap.protocol.ExtendedRequestProtocolOp;
 import com.unboundid.ldap.protocol.ExtendedResponseProtocolOp;
+import com.unboundid.ldap.protocol.IntermediateResponseProtocolOp;
 import com.unboundid.ldap.protocol.LDAPMessage;
 import com.unboundid.ldap.protocol.ModifyRequestProtocolOp;
 import com.unboundid.ldap.protocol.ModifyResponseProtocolOp;
@@ -62,6 +72,7 @@ import com.unboundid.ldap.protocol.ModifyDNResponseProtocolOp;
 import com.unboundid.ldap.protocol.ProtocolOp;
 import com.unboundid.ldap.protocol.SearchRequestProtocolOp;
 import com.unboundid.ldap.protocol.SearchResultDoneProtocolOp;
+import com.unboundid.ldap.protocol.UnbindRequestProtocolOp;
 import com.unboundid.ldap.matchingrules.DistinguishedNameMatchingRule;
 import com.unboundid.ldap.matchingrules.GeneralizedTimeMatchingRule;
 import com.unboundid.ldap.matchingrules.IntegerMatchingRule;
@@ -70,6 +81,7 @@ import com.unboundid.ldap.protocol.SearchResultReferenceProtocolOp;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.ChangeLogEntry;
+import com.unboundid.ldap.sdk.CompiledFilter;
 import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
@@ -99,9 +111,18 @@ import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.ldap.sdk.controls.AssertionRequestControl;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityRequestControl;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityResponseControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncDoneControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncInfoIntermediateResponse;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestMode;
+import com.unboundid.ldap.sdk.controls.ContentSyncState;
+import com.unboundid.ldap.sdk.controls.ContentSyncStateControl;
 import com.unboundid.ldap.sdk.controls.DontUseCopyRequestControl;
+import com.unboundid.ldap.sdk.controls.EntryChangeNotificationControl;
 import com.unboundid.ldap.sdk.controls.ManageDsaITRequestControl;
 import com.unboundid.ldap.sdk.controls.PermissiveModifyRequestControl;
+import com.unboundid.ldap.sdk.controls.PersistentSearchChangeType;
+import com.unboundid.ldap.sdk.controls.PersistentSearchRequestControl;
 import com.unboundid.ldap.sdk.controls.PostReadRequestControl;
 import com.unboundid.ldap.sdk.controls.PostReadResponseControl;
 import com.unboundid.ldap.sdk.controls.PreReadRequestControl;
@@ -130,11 +151,15 @@ import com.unboundid.ldif.LDIFModifyChangeRecord;
 import com.unboundid.ldif.LDIFModifyDNChangeRecord;
 import com.unboundid.ldif.LDIFReader;
 import com.unboundid.ldif.LDIFWriter;
+import com.unboundid.util.CloseableReadWriteLock;
 import com.unboundid.util.Debug;
+import com.unboundid.util.DebugType;
+import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.Mutable;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadLocalRandom;
 import com.unboundid.util.ThreadSafetyLevel;
 
 import static com.unboundid.ldap.listener.ListenerMessages.*;
@@ -173,6 +198,33 @@ public final class InMemoryRequestHandler
 
 
 
+  /**
+   * The maximum number of search cursors that will be retained for a single
+   * client connection.  If this limit is reached, then the least recently used
+   * cursor will be discarded.
+   */
+  private static final int MAX_SEARCH_CURSORS = 10;
+
+
+
+  /**
+   * The maximum length of time in milliseconds that a search cursor may remain
+   * unused before it will be discarded.
+   */
+  private static final long SEARCH_CURSOR_IDLE_TIMEOUT_MILLIS = 300000L;
+
+
+
+  /**
+   * The maximum number of change notifications that may be queued for delivery
+   * to a single persistent search.  If a client does not read notifications
+   * quickly enough to stay under this limit, then its persistent search will
+   * no longer be notified of changes.
+   */
+  private static final int MAX_PENDING_CHANGE_NOTIFICATIONS = 10000;
+
+
+
   // The change number for the first changelog entry in the server.
   private final AtomicLong firstChangeNumber;
 
@@ -239,6 +291,21 @@ public final class InMemoryRequestHandler
   private final Map<AttributeTypeDefinition,
      InMemoryDirectoryServerEqualityAttributeIndex> equalityIndexes;
 
+  // The set of substring indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerSubstringAttributeIndex> substringIndexes;
+
+  // The set of ordering indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerOrderingAttributeIndex> orderingIndexes;
+
+  // The set of presence indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerPresenceAttributeIndex> presenceIndexes;
+
+  // All of the indexes defined for the server, of any type.
+  private final List<InMemoryDirectoryServerAttributeIndex> attributeIndexes;
+
   // An additional set of credentials that may be used for bind operations.
   private final Map<DN,byte[]> additionalBindCredentials;
 
@@ -252,6 +319,16 @@ public final class InMemoryRequestHandler
   // A map of state information specific to the associated connection.
   private final Map<String,Object> connectionState;
 
+  // The search cursors retained for paged and virtual list view searches on
+  // the associated connection, keyed by cursor ID, in least recently used
+  // order.  All access to this map must be synchronized on the map itself.
+  private final LinkedHashMap<Long,InMemoryDirectoryServerSearchCursor>
+       searchCursors;
+
+  // The identifier to use for the next search cursor.  All access to this
+  // field must be synchronized on the search cursor map.
+  private long nextSearchCursorID;
+
   // The set of base DNs for the server.
   private final Set<DN> baseDNs;
 
@@ -259,7 +336,33 @@ public final class InMemoryRequestHandler
   private final Set<String> referentialIntegrityAttributes;
 
   // The map of entries currently held in the server.
-  private final Map<DN,ReadOnlyEntry> entryMap;
+  private final InMemoryDirectoryServerEntryMap entryMap;
+
+  // The lock used to protect the entry map, the indexes, and the changelog.
+  // Operations that only read data may be processed concurrently, while
+  // operations that alter data require exclusive access.
+  private final CloseableReadWriteLock entryLock;
+
+  // The persistent search and content synchronization operations that are
+  // currently registered to be notified of changes, across all connections.
+  private final List<PersistentSearch> persistentSearches;
+
+  // Notifications for changes that have been made but not yet delivered to the
+  // registered persistent searches, in the order in which the changes were
+  // made.  Notifications may only be added while holding the entry write lock,
+  // and all access to this queue must be synchronized on the queue itself.
+  private final ArrayDeque<ChangeNotification> pendingChangeNotifications;
+
+  // The executor used to send change notifications to clients.  Each
+  // persistent search has its own queue of notifications, which is drained by
+  // a thread from this executor, so that a client that does not read its
+  // notifications cannot block the operations that make changes, or the
+  // delivery of notifications to other clients.
+  private final ExecutorService changeNotificationExecutor;
+
+  // A randomly-generated value that identifies this server instance in the
+  // cookies provided to content synchronization clients.
+  private final long syncCookieInstanceID;
 
 
 
@@ -301,7 +404,16 @@ public final class InMemoryRequestHandler
            ERR_MEM_HANDLER_NO_BASE_DNS.get());
     }
 
-    entryMap = new TreeMap<DN,ReadOnlyEntry>();
+    entryMap = new InMemoryDirectoryServerEntryMap();
+    entryLock = new CloseableReadWriteLock();
+
+    persistentSearches = new CopyOnWriteArrayList<PersistentSearch>();
+    pendingChangeNotifications = new ArrayDeque<ChangeNotification>(10);
+    changeNotificationExecutor = Executors.newCachedThreadPool(
+         new LDAPSDKThreadFactory(
+              "In-Memory Directory Server Change Notification Delivery",
+              true));
+    syncCookieInstanceID = ThreadLocalRandom.get().nextLong();
 
     final LinkedHashSet<DN> baseDNSet =
          new LinkedHashSet<DN>(Arrays.asList(baseDNArray));
@@ -379,6 +491,46 @@ public final class InMemoryRequestHandler
       equalityIndexes.put(i.getAttributeType(), i);
     }
 
+    final List<String> subIndexAttrs = config.getSubstringIndexAttributes();
+    substringIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerSubstringAttributeIndex>(subIndexAttrs.size());
+    for (final String s : subIndexAttrs)
+    {
+      final InMemoryDirectoryServerSubstringAttributeIndex i =
+           new InMemoryDirectoryServerSubstringAttributeIndex(s, schema);
+      substringIndexes.put(i.getAttributeType(), i);
+    }
+
+    final List<String> ordIndexAttrs = config.getOrderingIndexAttributes();
+    orderingIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerOrderingAttributeIndex>(ordIndexAttrs.size());
+    for (final String s : ordIndexAttrs)
+    {
+      final InMemoryDirectoryServerOrderingAttributeIndex i =
+           new InMemoryDirectoryServerOrderingAttributeIndex(s, schema);
+      orderingIndexes.put(i.getAttributeType(), i);
+    }
+
+    final List<String> presIndexAttrs = config.getPresenceIndexAttributes();
+    presenceIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerPresenceAttributeIndex>(presIndexAttrs.size());
+    for (final String s : presIndexAttrs)
+    {
+      final InMemoryDirectoryServerPresenceAttributeIndex i =
+           new InMemoryDirectoryServerPresenceAttributeIndex(s, schema);
+      presenceIndexes.put(i.getAttributeType(), i);
+    }
+
+    final ArrayList<InMemoryDirectoryServerAttributeIndex> allIndexes =
+         new ArrayList<InMemoryDirectoryServerAttributeIndex>(
+              equalityIndexes.size() + substringIndexes.size() +
+                   orderingIndexes.size() + presenceIndexes.size());
+    allIndexes.addAll(equalityIndexes.values());
+    allIndexes.addAll(substringIndexes.values());
+    allIndexes.addAll(orderingIndexes.values());
+    allIndexes.addAll(presenceIndexes.values());
+    attributeIndexes = Collections.unmodifiableList(allIndexes);
+
     final Set<String> pwAttrSet = config.getPasswordAttributes();
     final LinkedHashSet<String> basePWAttrSet =
          new LinkedHashSet<>(pwAttrSet.size());
@@ -426,6 +578,8 @@ public final class InMemoryRequestHandler
     authenticatedDN               = new DN("cn=Internal Root User", schema);
     connection                    = null;
     connectionState               = Collections.emptyMap();
+    searchCursors                 = createSearchCursorMap();
+    nextSearchCursorID            = 1L;
     firstChangeNumber             = new AtomicLong(0L);
     lastChangeNumber              = new AtomicLong(0L);
     processingDelayMillis         = new AtomicLong(0L);
@@ -491,6 +645,8 @@ public final class InMemoryRequestHandler
     authenticatedDN = DN.NULL_DN;
     connectionState =
          Collections.synchronizedMap(new LinkedHashMap<String,Object>(0));
+    searchCursors = createSearchCursorMap();
+    nextSearchCursorID = 1L;
 
     config                         = parent.config;
     generateOperationalAttributes  = parent.generateOperationalAttributes;
@@ -503,8 +659,17 @@ public final class InMemoryRequestHandler
     maxChangelogEntries            = parent.maxChangelogEntries;
     maxSizeLimit                   = parent.maxSizeLimit;
     equalityIndexes                = parent.equalityIndexes;
+    substringIndexes               = parent.substringIndexes;
+    orderingIndexes                = parent.orderingIndexes;
+    presenceIndexes                = parent.presenceIndexes;
+    attributeIndexes               = parent.attributeIndexes;
     referentialIntegrityAttributes = parent.referentialIntegrityAttributes;
     entryMap                       = parent.entryMap;
+    entryLock                      = parent.entryLock;
+    persistentSearches             = parent.persistentSearches;
+    pendingChangeNotifications     = parent.pendingChangeNotifications;
+    changeNotificationExecutor     = parent.changeNotificationExecutor;
+    syncCookieInstanceID           = parent.syncCookieInstanceID;
     entryValidatorRef              = parent.entryValidatorRef;
     extendedRequestHandlers        = parent.extendedRequestHandlers;
     saslBindHandlers               = parent.saslBindHandlers;
@@ -552,9 +717,12 @@ public final class InMemoryRequestHandler
    */
   public InMemoryDirectoryServerSnapshot createSnapshot()
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
-      return new InMemoryDirectoryServerSnapshot(entryMap,
+      readLock.avoidCompilerWarning();
+
+      return new InMemoryDirectoryServerSnapshot(entryMap.snapshot(),
            firstChangeNumber.get(), lastChangeNumber.get());
     }
   }
@@ -570,13 +738,15 @@ public final class InMemoryRequestHandler
    */
   public void restoreSnapshot(final InMemoryDirectoryServerSnapshot snapshot)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
-      entryMap.clear();
-      entryMap.putAll(snapshot.getEntryMap());
+      writeLock.avoidCompilerWarning();
+
+      entryMap.restore(snapshot.getEntries());
+      discardChangeNotifications(snapshot.getEntries().getModificationCount());
 
-      for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-           equalityIndexes.values())
+      for (final InMemoryDirectoryServerAttributeIndex i : attributeIndexes)
       {
         i.clear();
         for (final Entry e : entryMap.values())
@@ -767,6 +937,31 @@ public final class InMemoryRequestHandler
 
 
 
+  /**
+   * Performs any processing necessary for the provided abandon request.  If
+   * the request targets a persistent search or content synchronization
+   * operation on this connection, then that operation will no longer receive
+   * change notifications.  Other operations cannot be abandoned, since they
+   * will have already completed.
+   *
+   * @param  messageID  The message ID of the LDAP message containing the
+   *                    abandon request.
+   * @param  request    The abandon request that was included in the LDAP
+   *                    message that was received.
+   * @param  controls   The set of controls included in the LDAP message.  It
+   *                    may be empty if there were no controls, but will not be
+   *                    {@code null}.
+   */
+  @Override()
+  public void processAbandonRequest(final int messageID,
+                                    final AbandonRequestProtocolOp request,
+                                    final List<Control> controls)
+  {
+    removePersistentSearches(request.getIDToAbandon());
+  }
+
+
+
   /**
    * Attempts to add an entry to the in-memory data set.  The attempt will fail
    * if any of the following conditions is true:
@@ -804,8 +999,11 @@ public final class InMemoryRequestHandler
                                        final AddRequestProtocolOp request,
                                        final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -1166,6 +1364,8 @@ public final class InMemoryRequestHandler
         entryMap.put(dn, new ReadOnlyEntry(entry));
         indexAdd(entry);
         addChangeLogEntry(request, authzDN);
+        addChangeNotification(PersistentSearchChangeType.ADD, null, entry,
+             true);
         return new LDAPMessage(messageID,
              new AddResponseProtocolOp(ResultCode.SUCCESS_INT_VALUE, null, null,
                   null),
@@ -1179,6 +1379,8 @@ public final class InMemoryRequestHandler
         entryMap.put(dn, new ReadOnlyEntry(entry));
         indexAdd(entry);
         addChangeLogEntry(request, authzDN);
+        addChangeNotification(PersistentSearchChangeType.ADD, null, entry,
+             true);
         return new LDAPMessage(messageID,
              new AddResponseProtocolOp(ResultCode.SUCCESS_INT_VALUE, null, null,
                   null),
@@ -1192,6 +1394,10 @@ public final class InMemoryRequestHandler
                 dn.getParentString()),
            null));
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -1267,8 +1473,26 @@ public final class InMemoryRequestHandler
                                         final BindRequestProtocolOp request,
                                         final List<Control> controls)
   {
-    synchronized (entryMap)
+    // A simple bind only needs to read the target entry, but SASL bind
+    // handlers may need to update the data set, so make sure that they are
+    // invoked with the write lock held.
+    if ((request.getCredentialsType() ==
+         BindRequestProtocolOp.CRED_TYPE_SASL) &&
+        (! entryLock.isWriteLockedByCurrentThread()))
+    {
+      try (final CloseableReadWriteLock.WriteLock writeLock =
+                entryLock.lockWrite())
+      {
+        writeLock.avoidCompilerWarning();
+        return processBindRequest(messageID, request, controls);
+      }
+    }
+
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -1519,8 +1743,11 @@ public final class InMemoryRequestHandler
                           final CompareRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -1680,8 +1907,11 @@ public final class InMemoryRequestHandler
                                           final DeleteRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -1814,13 +2044,11 @@ public final class InMemoryRequestHandler
       // Create a list with the DN of the target entry, and all the DNs of its
       // subordinates.  If the entry has subordinates and the subtree delete
       // control was not provided, then fail.
-      final ArrayList<DN> subordinateDNs = new ArrayList<DN>(entryMap.size());
-      for (final DN mapEntryDN : entryMap.keySet())
+      final ArrayList<DN> subordinateDNs = new ArrayList<DN>(10);
+      for (final Map.Entry<DN,ReadOnlyEntry> me :
+           entryMap.getEntries(dn, SearchScope.SUBORDINATE_SUBTREE))
       {
-        if (mapEntryDN.isDescendantOf(dn, false))
-        {
-          subordinateDNs.add(mapEntryDN);
-        }
+        subordinateDNs.add(me.getKey());
       }
 
       if ((! subordinateDNs.isEmpty()) &&
@@ -1865,6 +2093,8 @@ public final class InMemoryRequestHandler
         final Entry subEntry = entryMap.remove(subordinateDN);
         indexDelete(subEntry);
         addDeleteChangeLogEntry(subEntry, authzDN);
+        addChangeNotification(PersistentSearchChangeType.DELETE, subEntry,
+             null, true);
         handleReferentialIntegrityDelete(subordinateDN);
       }
 
@@ -1872,6 +2102,8 @@ public final class InMemoryRequestHandler
       entryMap.remove(dn);
       indexDelete(entry);
       addDeleteChangeLogEntry(entry, authzDN);
+      addChangeNotification(PersistentSearchChangeType.DELETE, entry, null,
+           true);
       handleReferentialIntegrityDelete(dn);
 
       return new LDAPMessage(messageID,
@@ -1879,6 +2111,10 @@ public final class InMemoryRequestHandler
                 null, null),
            responseControls);
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -1926,6 +2162,8 @@ public final class InMemoryRequestHandler
         entryMap.put(mapDN, new ReadOnlyEntry(copy));
         indexDelete(e);
         indexAdd(copy);
+        addChangeNotification(PersistentSearchChangeType.MODIFY, e, copy,
+             false);
       }
     }
   }
@@ -1953,8 +2191,11 @@ public final class InMemoryRequestHandler
                           final ExtendedRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -2034,6 +2275,10 @@ public final class InMemoryRequestHandler
              null, null, null));
       }
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -2069,8 +2314,11 @@ public final class InMemoryRequestHandler
                                           final ModifyRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -2358,11 +2606,20 @@ public final class InMemoryRequestHandler
         indexAdd(modifiedEntry);
       }
       addChangeLogEntry(request, authzDN);
+      if (! dn.equals(subschemaSubentryDN))
+      {
+        addChangeNotification(PersistentSearchChangeType.MODIFY, entry,
+             modifiedEntry, true);
+      }
       return new LDAPMessage(messageID,
            new ModifyResponseProtocolOp(ResultCode.SUCCESS_INT_VALUE, null,
                 null, null),
            responseControls);
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -2698,8 +2955,11 @@ public final class InMemoryRequestHandler
                           final ModifyDNRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
 
@@ -3098,46 +3358,64 @@ public final class InMemoryRequestHandler
       // If the target entry had any subordinates, then rename them as well.
       final RDN[] oldDNComps = dn.getRDNs();
       final RDN[] newDNComps = newDN.getRDNs();
-      final Set<DN> dnSet = new LinkedHashSet<DN>(entryMap.keySet());
-      for (final DN mapEntryDN : dnSet)
+      final ArrayList<DN> subordinateDNs = new ArrayList<DN>(10);
+      for (final Map.Entry<DN,ReadOnlyEntry> me :
+           entryMap.getEntries(dn, SearchScope.SUBORDINATE_SUBTREE))
       {
-        if (mapEntryDN.isDescendantOf(dn, false))
-        {
-          final Entry o = entryMap.remove(mapEntryDN);
-          final Entry e = o.duplicate();
+        subordinateDNs.add(me.getKey());
+      }
 
-          final RDN[] oldMapEntryComps = mapEntryDN.getRDNs();
-          final int compsToSave = oldMapEntryComps.length - oldDNComps.length;
+      final ArrayList<ObjectPair<Entry,Entry>> renamedSubordinates =
+           new ArrayList<ObjectPair<Entry,Entry>>(subordinateDNs.size());
 
-          final RDN[] newMapEntryComps =
-               new RDN[compsToSave + newDNComps.length];
-          System.arraycopy(oldMapEntryComps, 0, newMapEntryComps, 0,
-               compsToSave);
-          System.arraycopy(newDNComps, 0, newMapEntryComps, compsToSave,
-               newDNComps.length);
+      for (final DN mapEntryDN : subordinateDNs)
+      {
+        final Entry o = entryMap.remove(mapEntryDN);
+        final Entry e = o.duplicate();
 
-          final DN newMapEntryDN = new DN(newMapEntryComps);
-          e.setDN(newMapEntryDN);
-          if (generateOperationalAttributes)
-          {
-            e.setAttribute(new Attribute("entryDN",
-                 DistinguishedNameMatchingRule.getInstance(),
-                 newMapEntryDN.toNormalizedString()));
-          }
-          entryMap.put(newMapEntryDN, new ReadOnlyEntry(e));
-          indexDelete(o);
-          indexAdd(e);
-          handleReferentialIntegrityModifyDN(mapEntryDN, newMapEntryDN);
+        final RDN[] oldMapEntryComps = mapEntryDN.getRDNs();
+        final int compsToSave = oldMapEntryComps.length - oldDNComps.length;
+
+        final RDN[] newMapEntryComps =
+             new RDN[compsToSave + newDNComps.length];
+        System.arraycopy(oldMapEntryComps, 0, newMapEntryComps, 0,
+             compsToSave);
+        System.arraycopy(newDNComps, 0, newMapEntryComps, compsToSave,
+             newDNComps.length);
+
+        final DN newMapEntryDN = new DN(newMapEntryComps);
+        e.setDN(newMapEntryDN);
+        if (generateOperationalAttributes)
+        {
+          e.setAttribute(new Attribute("entryDN",
+               DistinguishedNameMatchingRule.getInstance(),
+               newMapEntryDN.toNormalizedString()));
         }
+        entryMap.put(newMapEntryDN, new ReadOnlyEntry(e));
+        indexDelete(o);
+        indexAdd(e);
+        renamedSubordinates.add(new ObjectPair<Entry,Entry>(o, e));
+        handleReferentialIntegrityModifyDN(mapEntryDN, newMapEntryDN);
       }
 
       addChangeLogEntry(request, authzDN);
+      addChangeNotification(PersistentSearchChangeType.MODIFY_DN,
+           originalEntry, updatedEntry, true);
+      for (final ObjectPair<Entry,Entry> p : renamedSubordinates)
+      {
+        addChangeNotification(PersistentSearchChangeType.MODIFY_DN,
+             p.getFirst(), p.getSecond(), false);
+      }
       handleReferentialIntegrityModifyDN(dn, newDN);
       return new LDAPMessage(messageID,
            new ModifyDNResponseProtocolOp(ResultCode.SUCCESS_INT_VALUE, null,
                 null, null),
            responseControls);
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -3190,6 +3468,8 @@ public final class InMemoryRequestHandler
         entryMap.put(mapDN, new ReadOnlyEntry(copy));
         indexDelete(e);
         indexAdd(copy);
+        addChangeNotification(PersistentSearchChangeType.MODIFY, e, copy,
+             false);
       }
     }
   }
@@ -3228,55 +3508,52 @@ public final class InMemoryRequestHandler
                                           final SearchRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
-    {
-      final List<SearchResultEntry> entryList =
-           new ArrayList<SearchResultEntry>(entryMap.size());
-      final List<SearchResultReference> referenceList =
-           new ArrayList<SearchResultReference>(entryMap.size());
+    final List<SearchResultEntry> entryList =
+         new ArrayList<SearchResultEntry>(10);
+    final List<SearchResultReference> referenceList =
+         new ArrayList<SearchResultReference>(10);
 
-      final LDAPMessage returnMessage = processSearchRequest(messageID, request,
-           controls, entryList, referenceList);
+    final LDAPMessage returnMessage = processSearchRequest(messageID, request,
+         controls, entryList, referenceList, true);
 
-      for (final SearchResultEntry e : entryList)
+    for (final SearchResultEntry e : entryList)
+    {
+      try
       {
-        try
-        {
-          connection.sendSearchResultEntry(messageID, e, e.getControls());
-        }
-        catch (final LDAPException le)
-        {
-          Debug.debugException(le);
-          return new LDAPMessage(messageID,
-               new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
-                    le.getMatchedDN(), le.getDiagnosticMessage(),
-                    StaticUtils.toList(le.getReferralURLs())),
-               le.getResponseControls());
-        }
+        connection.sendSearchResultEntry(messageID, e, e.getControls());
       }
-
-      for (final SearchResultReference r : referenceList)
+      catch (final LDAPException le)
       {
-        try
-        {
-          connection.sendSearchResultReference(messageID,
-               new SearchResultReferenceProtocolOp(
-                    StaticUtils.toList(r.getReferralURLs())),
-               r.getControls());
-        }
-        catch (final LDAPException le)
-        {
-          Debug.debugException(le);
-          return new LDAPMessage(messageID,
-               new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
-                    le.getMatchedDN(), le.getDiagnosticMessage(),
-                    StaticUtils.toList(le.getReferralURLs())),
-               le.getResponseControls());
-        }
+        Debug.debugException(le);
+        return new LDAPMessage(messageID,
+             new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                  le.getMatchedDN(), le.getDiagnosticMessage(),
+                  StaticUtils.toList(le.getReferralURLs())),
+             le.getResponseControls());
       }
+    }
 
-      return returnMessage;
+    for (final SearchResultReference r : referenceList)
+    {
+      try
+      {
+        connection.sendSearchResultReference(messageID,
+             new SearchResultReferenceProtocolOp(
+                  StaticUtils.toList(r.getReferralURLs())),
+             r.getControls());
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+        return new LDAPMessage(messageID,
+             new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                  le.getMatchedDN(), le.getDiagnosticMessage(),
+                  StaticUtils.toList(le.getReferralURLs())),
+             le.getResponseControls());
+      }
     }
+
+    return returnMessage;
   }
 
 
@@ -3320,7 +3597,68 @@ public final class InMemoryRequestHandler
                    final List<SearchResultEntry> entryList,
                    final List<SearchResultReference> referenceList)
   {
-    synchronized (entryMap)
+    return processSearchRequest(messageID, request, controls, entryList,
+         referenceList, false);
+  }
+
+
+
+  /**
+   * Attempts to process the provided search request.  The attempt will fail
+   * if any of the following conditions is true:
+   * <UL>
+   *   <LI>There is a problem with any of the request controls.</LI>
+   *   <LI>The modify DN request contains a malformed target DN, new RDN, or
+   *       new superior DN.</LI>
+   *   <LI>The new DN of the entry would conflict with the DN of an existing
+   *       entry.</LI>
+   *   <LI>The new DN of the entry would exist outside the set of defined
+   *       base DNs.</LI>
+   *   <LI>The new DN of the entry is not a defined base DN and does not exist
+   *       immediately below an existing entry.</LI>
+   * </UL>
+   *
+   * @param  messageID      The message ID of the LDAP message containing the
+   *                        search request.
+   * @param  request        The search request that was included in the LDAP
+   *                        message that was received.
+   * @param  controls       The set of controls included in the LDAP message.
+   *                        It may be empty if there were no controls, but will
+   *                        not be {@code null}.
+   * @param  entryList      A list to which to add search result entries
+   *                        intended for return to the client.  It must not be
+   *                        {@code null}.
+   * @param  referenceList  A list to which to add search result references
+   *                        intended for return to the client.  It must not be
+   *                        {@code null}.
+   * @param  streamEntries  Indicates whether matching entries may be sent
+   *                        directly to the client connection as they are
+   *                        found, rather than being added to the provided
+   *                        entry list.  Entries will only be streamed if the
+   *                        request does not include any controls that require
+   *                        the complete set of matching entries to be
+   *                        assembled before any of them can be returned
+   *                        (e.g., the server-side sort, simple paged results,
+   *                        or virtual list view request controls).
+   *
+   * @return  The {@link LDAPMessage} containing the response to send to the
+   *          client.  The protocol op in the {@code LDAPMessage} must be an
+   *          {@code SearchResultDoneProtocolOp}.
+   */
+  private LDAPMessage processSearchRequest(final int messageID,
+                           final SearchRequestProtocolOp request,
+                           final List<Control> controls,
+                           final List<SearchResultEntry> entryList,
+                           final List<SearchResultReference> referenceList,
+                           final boolean streamEntries)
+  {
+    // If matching entries will be streamed, then the read lock will be
+    // released before they are sent to the client.
+    final CloseableReadWriteLock.ReadLock readLock = entryLock.lockRead();
+    boolean holdingReadLock = true;
+    PersistentSearch persistentSearch = null;
+    boolean persistentSearchStarted = false;
+    try
     {
       // Sleep before processing, if appropriate.
       final long processingStartTime = System.currentTimeMillis();
@@ -3335,10 +3673,10 @@ public final class InMemoryRequestHandler
       // response by configuring a delay that is greater than the requested time
       // limit, so we should check now to see if that's been exceeded.
       final long timeLimitMillis = 1000L * request.getTimeLimit();
+      final long timeLimitExpirationTime;
       if (timeLimitMillis > 0L)
       {
-        final long timeLimitExpirationTime =
-             processingStartTime + timeLimitMillis;
+        timeLimitExpirationTime = processingStartTime + timeLimitMillis;
         if (System.currentTimeMillis() >= timeLimitExpirationTime)
         {
           return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
@@ -3346,6 +3684,10 @@ public final class InMemoryRequestHandler
                ERR_MEM_HANDLER_TIME_LIMIT_EXCEEDED.get(), null));
         }
       }
+      else
+      {
+        timeLimitExpirationTime = -1L;
+      }
 
       // Process the provided request controls.
       final Map<String,Control> controlMap;
@@ -3487,115 +3829,377 @@ public final class InMemoryRequestHandler
         includeNonSubEntries = true;
       }
 
-      // Create a temporary list to hold all of the entries to be returned.
-      // These entries will not have been pared down based on the requested
-      // attributes.
-      final List<Entry> fullEntryList = new ArrayList<Entry>(entryMap.size());
-
-findEntriesAndRefs:
-      {
-        // Check the scope.  If it is a base-level search, then we only need to
-        // examine the base entry.  Otherwise, we'll have to scan the entire
-        // entry map.
-        final Filter filter = request.getFilter();
-        if (scope == SearchScope.BASE)
+      // Get the controls that will require the complete set of matching
+      // entries to be assembled before any of them can be returned.  If there
+      // aren't any, then matching entries may be sent to the client as soon as
+      // they are found.
+      final ServerSideSortRequestControl sortRequestControl =
+           (ServerSideSortRequestControl) controlMap.get(
+                ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID);
+      final SimplePagedResultsControl pagedResultsControl =
+           (SimplePagedResultsControl)
+                controlMap.get(SimplePagedResultsControl.PAGED_RESULTS_OID);
+      final VirtualListViewRequestControl vlvRequest =
+           (VirtualListViewRequestControl) controlMap.get(
+                VirtualListViewRequestControl.VIRTUAL_LIST_VIEW_REQUEST_OID);
+      final boolean streamResults = streamEntries &&
+           (sortRequestControl == null) && (pagedResultsControl == null) &&
+           (vlvRequest == null);
+
+      // If the request includes the persistent search or content
+      // synchronization request control, then make sure that it can be
+      // processed.  These are only available for searches from a client
+      // connection, and may not be combined with each other or with controls
+      // that require the complete set of matching entries to be assembled.
+      final PersistentSearchRequestControl persistentSearchRequest =
+           (PersistentSearchRequestControl) controlMap.get(
+                PersistentSearchRequestControl.PERSISTENT_SEARCH_REQUEST_OID);
+      final ContentSyncRequestControl syncRequest =
+           (ContentSyncRequestControl) controlMap.get(
+                ContentSyncRequestControl.SYNC_REQUEST_OID);
+      boolean skipInitialContent = false;
+      ASN1OctetString syncCookie = null;
+      if ((persistentSearchRequest != null) || (syncRequest != null))
+      {
+        if (! streamEntries)
         {
-          try
-          {
-            if (filter.matchesEntry(baseEntry, schema))
-            {
-              processSearchEntry(baseEntry, includeSubEntries,
-                   includeNonSubEntries, includeChangeLog, hasManageDsaIT,
-                   fullEntryList, referenceList);
-            }
-          }
-          catch (final Exception e)
-          {
-            Debug.debugException(e);
-          }
-
-          break findEntriesAndRefs;
+          return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
+               ResultCode.UNWILLING_TO_PERFORM_INT_VALUE, null,
+               ERR_MEM_HANDLER_PERSISTENT_SEARCH_NOT_SUPPORTED.get(), null));
         }
 
-        // If the search uses a single-level scope and the base DN is the root
-        // DSE, then we will only examine the defined base entries for the data
-        // set.
-        if ((scope == SearchScope.ONE) && baseDN.isNullDN())
+        if (((persistentSearchRequest != null) && (syncRequest != null)) ||
+            (! streamResults))
         {
-          for (final DN dn : baseDNs)
-          {
-            final Entry e = entryMap.get(dn);
-            if (e != null)
-            {
-              try
-              {
-                if (filter.matchesEntry(e, schema))
-                {
-                  processSearchEntry(e, includeSubEntries, includeNonSubEntries,
-                       includeChangeLog, hasManageDsaIT, fullEntryList,
-                       referenceList);
-                }
-              }
-              catch (final Exception ex)
-              {
-                Debug.debugException(ex);
-              }
-            }
-          }
-
-          break findEntriesAndRefs;
+          return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
+               ResultCode.UNWILLING_TO_PERFORM_INT_VALUE, null,
+               ERR_MEM_HANDLER_PERSISTENT_SEARCH_INCOMPATIBLE_CONTROLS.get(),
+               null));
         }
 
-
-        // Try to use indexes to process the request.  If we can't use any
-        // indexes to get a candidate list, then just iterate over all the
-        // entries.  It's not necessary to consider the root DSE for non-base
-        // scopes.
-        final Set<DN> candidateDNs = indexSearch(filter);
-        if (candidateDNs == null)
+        if (persistentSearchRequest != null)
+        {
+          skipInitialContent = persistentSearchRequest.changesOnly();
+        }
+        else
         {
-          for (final Map.Entry<DN,ReadOnlyEntry> me : entryMap.entrySet())
+          // A cookie identifies the state of the server as of the last update
+          // provided to the client.  If the client's cookie reflects the
+          // current state, then it is already up to date.  Otherwise, either
+          // reload all of the content or tell the client that it needs to do
+          // so.
+          syncCookie = encodeSyncCookie(entryMap.getModificationCount());
+          final ASN1OctetString clientCookie = syncRequest.getCookie();
+          if ((clientCookie != null) && (clientCookie.getValueLength() > 0))
           {
-            final DN dn = me.getKey();
-            final Entry entry = me.getValue();
-            try
+            if (Arrays.equals(clientCookie.getValue(), syncCookie.getValue()))
             {
-              if (dn.matchesBaseAndScope(baseDN, scope) &&
-                   filter.matchesEntry(entry, schema))
-              {
-                processSearchEntry(entry, includeSubEntries,
-                     includeNonSubEntries, includeChangeLog, hasManageDsaIT,
-                     fullEntryList, referenceList);
-              }
+              skipInitialContent = true;
             }
-            catch (final Exception e)
+            else if (! syncRequest.getReloadHint())
             {
-              Debug.debugException(e);
+              return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
+                   ResultCode.E_SYNC_REFRESH_REQUIRED_INT_VALUE, null,
+                   ERR_MEM_HANDLER_SYNC_REFRESH_REQUIRED.get(), null));
             }
           }
         }
-        else
-        {
-          for (final DN dn : candidateDNs)
-          {
-            try
-            {
-              if (! dn.matchesBaseAndScope(baseDN, scope))
+      }
+
+      // Process the set of requested attributes so that we can pare down the
+      // entries.
+      final AtomicBoolean allUserAttrs = new AtomicBoolean(false);
+      final AtomicBoolean allOpAttrs = new AtomicBoolean(false);
+      final Map<String,List<List<String>>> returnAttrs =
+           processRequestedAttributes(request.getAttributes(), allUserAttrs,
+                allOpAttrs);
+
+      final int sizeLimit;
+      if (request.getSizeLimit() > 0)
+      {
+        sizeLimit = Math.min(request.getSizeLimit(), maxSizeLimit);
+      }
+      else
+      {
+        sizeLimit = maxSizeLimit;
+      }
+
+      final SearchEntryReturner entryReturner = new SearchEntryReturner(
+           messageID, request.typesOnly(), allUserAttrs.get(),
+           allOpAttrs.get(), returnAttrs, sizeLimit, timeLimitExpirationTime,
+           (syncRequest != null), (streamResults ? null : entryList),
+           responseControls);
+
+      // Create a temporary list to hold the entries to be returned.  These
+      // entries will not have been pared down based on the requested
+      // attributes.  If results are being streamed, then this will only hold
+      // entries until they can be sent to the client.
+      final List<Entry> fullEntryList = new ArrayList<Entry>(10);
+
+      // If the request includes the simple paged results control with a
+      // cookie from an earlier page, or if it includes the virtual list view
+      // control, then see if there is a cursor with the results of an
+      // equivalent search that we can use rather than processing the search
+      // again.
+      final Filter filter = request.getFilter();
+      final CompiledFilter compiledFilter = new CompiledFilter(filter, schema);
+      final SortKey[] sortKeys = ((sortRequestControl == null)
+           ? null
+           : sortRequestControl.getSortKeys());
+      InMemoryDirectoryServerSearchCursor cursor = null;
+      int pagedResultsOffset = 0;
+      if (pagedResultsControl != null)
+      {
+        final ASN1OctetString cookie = pagedResultsControl.getCookie();
+        if ((cookie != null) && (cookie.getValueLength() > 0))
+        {
+          // The cookie value will be a sequence containing the identifier of
+          // the cursor for the search and the offset within the result list at
+          // which to start the next page.
+          final long cursorID;
+          try
+          {
+            final ASN1Element[] cookieElements =
+                 ASN1Sequence.decodeAsSequence(cookie.getValue()).elements();
+            cursorID = ASN1Long.decodeAsLong(cookieElements[0]).longValue();
+            pagedResultsOffset =
+                 ASN1Integer.decodeAsInteger(cookieElements[1]).intValue();
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            return new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(
+                      ResultCode.PROTOCOL_ERROR_INT_VALUE, null,
+                      ERR_MEM_HANDLER_MALFORMED_PAGED_RESULTS_COOKIE.get(),
+                      null),
+                 responseControls);
+          }
+
+          cursor = getSearchCursor(cursorID);
+
+          // A page size of zero indicates that the client wants to abandon the
+          // paged search, so we can release the cursor.
+          if ((cursor != null) && (pagedResultsControl.getSize() <= 0))
+          {
+            removeSearchCursor(cursorID);
+            responseControls.add(new SimplePagedResultsControl(
+                 cursor.getDNs().size(), new ASN1OctetString(), false));
+            return new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(ResultCode.SUCCESS_INT_VALUE,
+                      null, null, null),
+                 responseControls);
+          }
+
+          // If the search doesn't match the one used to create the cursor,
+          // then we can't use it.
+          if ((cursor != null) && (! cursor.matchesSearch(baseDN, scope,
+               filter, sortKeys, includeSubEntries, includeNonSubEntries,
+               hasManageDsaIT)))
+          {
+            cursor = null;
+          }
+        }
+      }
+      else if (vlvRequest != null)
+      {
+        cursor = findSearchCursor(baseDN, scope, filter, sortKeys,
+             includeSubEntries, includeNonSubEntries, hasManageDsaIT);
+      }
+
+      // If the matching entries will be streamed, then they will be found in
+      // a snapshot of the entry map and sent to the client after the entry
+      // lock has been released, so that a client that is slow to read them
+      // can't block operations that make changes.  Creating the snapshot is a
+      // constant-time operation, and it won't be affected by any subsequent
+      // changes.
+      final InMemoryDirectoryServerEntryMap searchEntryMap =
+           (streamResults ? entryMap.snapshot() : entryMap);
+      Iterable<Map.Entry<DN,ReadOnlyEntry>> scopedEntries = null;
+      Collection<DN> candidateDNs = null;
+
+findEntriesAndRefs:
+      {
+        // If we're able to use an existing cursor, or if this is a persistent
+        // search or content synchronization operation that only needs to
+        // return subsequent changes, then we don't need to find the matching
+        // entries.
+        if ((cursor != null) || skipInitialContent)
+        {
+          break findEntriesAndRefs;
+        }
+
+        // Check the scope.  If it is a base-level search, then we only need to
+        // examine the base entry.  Otherwise, we'll have to examine the entries
+        // within the scope of the search.
+        if (scope == SearchScope.BASE)
+        {
+          try
+          {
+            if (compiledFilter.matchesEntry(baseEntry))
+            {
+              processSearchEntry(baseEntry, includeSubEntries,
+                   includeNonSubEntries, includeChangeLog, hasManageDsaIT,
+                   fullEntryList, referenceList);
+            }
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+          }
+
+          break findEntriesAndRefs;
+        }
+
+        // If the search uses a single-level scope and the base DN is the root
+        // DSE, then we will only examine the defined base entries for the data
+        // set.
+        if ((scope == SearchScope.ONE) && baseDN.isNullDN())
+        {
+          for (final DN dn : baseDNs)
+          {
+            final Entry e = searchEntryMap.get(dn);
+            if (e != null)
+            {
+              try
               {
-                continue;
+                if (compiledFilter.matchesEntry(e))
+                {
+                  processSearchEntry(e, includeSubEntries, includeNonSubEntries,
+                       includeChangeLog, hasManageDsaIT, fullEntryList,
+                       referenceList);
+                }
               }
-
-              final Entry entry = entryMap.get(dn);
-              if (filter.matchesEntry(entry, schema))
+              catch (final Exception ex)
               {
-                processSearchEntry(entry, includeSubEntries,
-                     includeNonSubEntries, includeChangeLog, hasManageDsaIT,
-                     fullEntryList, referenceList);
+                Debug.debugException(ex);
               }
             }
-            catch (final Exception e)
+          }
+
+          break findEntriesAndRefs;
+        }
+
+
+        // Try to use indexes to process the request.  If we can't use any
+        // indexes to get a candidate list, then just iterate over all the
+        // entries within the scope of the search.  It's not necessary to
+        // consider the root DSE for non-base scopes.  The indexes are altered
+        // along with the entry map, so the candidate list needs to be copied
+        // if it will be used after the entry lock has been released.
+        final Set<DN> indexedDNs = indexSearch(filter);
+        if (indexedDNs == null)
+        {
+          scopedEntries = searchEntryMap.getEntries(baseDN, scope);
+        }
+        else if (streamResults)
+        {
+          candidateDNs = new ArrayList<DN>(indexedDNs);
+        }
+        else
+        {
+          candidateDNs = indexedDNs;
+        }
+      }
+
+
+      // If this is a persistent search or a content synchronization operation
+      // in refresh and persist mode, then register it to be notified of
+      // subsequent changes before the entry lock is released so that no
+      // changes will be missed.  Notifications won't be sent until all of the
+      // initial content has been returned.
+      if ((persistentSearchRequest != null) ||
+          ((syncRequest != null) &&
+           (syncRequest.getMode() != ContentSyncRequestMode.REFRESH_ONLY)))
+      {
+        final Set<PersistentSearchChangeType> changeTypes;
+        final boolean returnECs;
+        if (persistentSearchRequest == null)
+        {
+          changeTypes = null;
+          returnECs = false;
+        }
+        else
+        {
+          changeTypes = persistentSearchRequest.getChangeTypes();
+          returnECs = persistentSearchRequest.returnECs();
+        }
+
+        persistentSearch = new PersistentSearch(messageID, baseDN, scope,
+             compiledFilter, includeSubEntries, includeNonSubEntries,
+             request.typesOnly(), allUserAttrs.get(), allOpAttrs.get(),
+             returnAttrs, changeTypes, returnECs,
+             searchEntryMap.getModificationCount());
+        persistentSearches.add(persistentSearch);
+      }
+
+      if (streamResults)
+      {
+        readLock.close();
+        holdingReadLock = false;
+      }
+
+      if (scopedEntries != null)
+      {
+        for (final Map.Entry<DN,ReadOnlyEntry> me : scopedEntries)
+        {
+          final Entry entry = me.getValue();
+          try
+          {
+            if (compiledFilter.matchesEntry(entry))
             {
-              Debug.debugException(e);
+              processSearchEntry(entry, includeSubEntries, includeNonSubEntries,
+                   includeChangeLog, hasManageDsaIT, fullEntryList,
+                   referenceList);
+            }
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+          }
+
+          if (streamResults)
+          {
+            final LDAPMessage doneMessage =
+                 entryReturner.returnEntries(fullEntryList);
+            if (doneMessage != null)
+            {
+              return doneMessage;
+            }
+          }
+        }
+      }
+      else if (candidateDNs != null)
+      {
+        for (final DN dn : candidateDNs)
+        {
+          try
+          {
+            if (! dn.matchesBaseAndScope(baseDN, scope))
+            {
+              continue;
+            }
+
+            final Entry entry = searchEntryMap.get(dn);
+            if (compiledFilter.matchesEntry(entry))
+            {
+              processSearchEntry(entry, includeSubEntries, includeNonSubEntries,
+                   includeChangeLog, hasManageDsaIT, fullEntryList,
+                   referenceList);
+            }
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+          }
+
+          if (streamResults)
+          {
+            final LDAPMessage doneMessage =
+                 entryReturner.returnEntries(fullEntryList);
+            if (doneMessage != null)
+            {
+              return doneMessage;
             }
           }
         }
@@ -3604,233 +4208,681 @@ findEntriesAndRefs:
 
       // If the request included the server-side sort request control, then sort
       // the matching entries appropriately.
-      final ServerSideSortRequestControl sortRequestControl =
-           (ServerSideSortRequestControl) controlMap.get(
-                ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID);
       if (sortRequestControl != null)
       {
-        final EntrySorter entrySorter = new EntrySorter(false, schema,
-             sortRequestControl.getSortKeys());
-        final SortedSet<Entry> sortedEntrySet = entrySorter.sort(fullEntryList);
-        fullEntryList.clear();
-        fullEntryList.addAll(sortedEntrySet);
+        if (cursor == null)
+        {
+          final EntrySorter entrySorter = new EntrySorter(false, schema,
+               sortKeys);
+          final SortedSet<Entry> sortedEntrySet =
+               entrySorter.sort(fullEntryList);
+          fullEntryList.clear();
+          fullEntryList.addAll(sortedEntrySet);
+        }
 
         responseControls.add(new ServerSideSortResponseControl(
              ResultCode.SUCCESS, null));
       }
 
 
+      // If the request included the simple paged results or virtual list view
+      // control, then we'll use a cursor to hold the list of matching entries
+      // so that it can be re-used for subsequent requests.  If we're using an
+      // existing cursor, then use the references from that cursor.  Otherwise,
+      // create a new one.
+      if ((pagedResultsControl == null) && (vlvRequest == null))
+      {
+        // No cursor is needed.
+      }
+      else if (cursor == null)
+      {
+        cursor = createSearchCursor(baseDN, scope, filter, sortKeys,
+             includeSubEntries, includeNonSubEntries, hasManageDsaIT,
+             fullEntryList, referenceList);
+      }
+      else
+      {
+        referenceList.addAll(cursor.getReferences());
+      }
+
+
       // If the request included the simple paged results control, then handle
       // it.
-      final SimplePagedResultsControl pagedResultsControl =
-           (SimplePagedResultsControl)
-                controlMap.get(SimplePagedResultsControl.PAGED_RESULTS_OID);
+      List<DN> resultDNs = ((cursor == null) ? null : cursor.getDNs());
       if (pagedResultsControl != null)
       {
-        final int totalSize = fullEntryList.size();
-        final int pageSize = pagedResultsControl.getSize();
-        final ASN1OctetString cookie = pagedResultsControl.getCookie();
+        final int totalSize = resultDNs.size();
+        final int pageSize = Math.max(0, pagedResultsControl.getSize());
+        final int start = Math.min(Math.max(0, pagedResultsOffset), totalSize);
+        final int end = (int) Math.min((long) start + pageSize, totalSize);
+        resultDNs = resultDNs.subList(start, end);
 
-        final int offset;
-        if ((cookie == null) || (cookie.getValueLength() == 0))
+        // If there are still entries left, then create a cookie to include in
+        // the response.  Otherwise, use an empty cookie and release the
+        // cursor.
+        if (end < totalSize)
         {
-          // This is the first request in the series, so start at the beginning
-          // of the list.
-          offset = 0;
+          final ASN1Sequence cookieSequence = new ASN1Sequence(
+               new ASN1Long(cursor.getCursorID()),
+               new ASN1Integer(end));
+          responseControls.add(new SimplePagedResultsControl(totalSize,
+               new ASN1OctetString(cookieSequence.encode()), false));
         }
         else
         {
-          // The cookie value will simply be an integer representation of the
-          // offset within the result list at which to start the next batch.
-          try
+          removeSearchCursor(cursor.getCursorID());
+          responseControls.add(new SimplePagedResultsControl(totalSize,
+               new ASN1OctetString(), false));
+        }
+      }
+
+
+      // If the request includes the virtual list view request control, then
+      // handle it.
+      if (vlvRequest != null)
+      {
+        final int totalEntries = resultDNs.size();
+        final ASN1OctetString assertionValue = vlvRequest.getAssertionValue();
+
+        // Figure out the position of the target entry in the list.
+        int offset = vlvRequest.getTargetOffset();
+        if (assertionValue == null)
+        {
+          // The offset is one-based, so we need to adjust it for the list's
+          // zero-based offset.  Also, make sure to put it within the bounds of
+          // the list.
+          offset--;
+          offset = Math.max(0, offset);
+          offset = Math.min(totalEntries, offset);
+        }
+        else
+        {
+          final SortKey primarySortKey = sortKeys[0];
+
+          final Entry testEntry = new Entry("cn=test", schema,
+               new Attribute(primarySortKey.getAttributeName(),
+                    assertionValue));
+
+          final EntrySorter entrySorter =
+               new EntrySorter(false, schema, primarySortKey);
+
+          // Since the list is sorted, use a binary search to find the first
+          // entry that is greater than or equal to the assertion value.  If an
+          // entry has been removed since the list was created, then skip over
+          // it.
+          int low = 0;
+          int high = totalEntries;
+          while (low < high)
           {
-            final ASN1Integer offsetInteger =
-                 ASN1Integer.decodeAsInteger(cookie.getValue());
-            offset = offsetInteger.intValue();
+            final int mid = (low + high) >>> 1;
+            final Entry e = entryMap.get(resultDNs.get(mid));
+            if ((e == null) || (entrySorter.compare(e, testEntry) < 0))
+            {
+              low = mid + 1;
+            }
+            else
+            {
+              high = mid;
+            }
           }
-          catch (final Exception e)
+          offset = low;
+        }
+
+        // Get the start and end positions based on the before and after counts.
+        final int beforeCount = Math.max(0, vlvRequest.getBeforeCount());
+        final int afterCount  = Math.max(0, vlvRequest.getAfterCount());
+
+        final int start = Math.max(0, (offset - beforeCount));
+        final int end = (int) Math.min(totalEntries,
+             ((long) offset + afterCount + 1L));
+        resultDNs = resultDNs.subList(start, end);
+
+        // Create the appropriate response control.
+        responseControls.add(new VirtualListViewResponseControl((offset+1),
+             totalEntries, ResultCode.SUCCESS, null));
+      }
+
+
+      // If we're using a cursor, then get the entries to return from it.  If
+      // any of the entries have been altered since the cursor was created, then
+      // make sure that they still exist and still match the filter.
+      if (resultDNs != null)
+      {
+        final boolean recheckEntries = (cursor.getModificationCount() !=
+             entryMap.getModificationCount());
+        fullEntryList.clear();
+        for (final DN dn : resultDNs)
+        {
+          final Entry e = entryMap.get(dn);
+          if (e == null)
           {
-            Debug.debugException(e);
-            return new LDAPMessage(messageID,
-                 new SearchResultDoneProtocolOp(
-                      ResultCode.PROTOCOL_ERROR_INT_VALUE, null,
-                      ERR_MEM_HANDLER_MALFORMED_PAGED_RESULTS_COOKIE.get(),
-                      null),
-                 responseControls);
+            continue;
+          }
+
+          if (recheckEntries)
+          {
+            try
+            {
+              if (! compiledFilter.matchesEntry(e))
+              {
+                continue;
+              }
+            }
+            catch (final Exception ex)
+            {
+              Debug.debugException(ex);
+              continue;
+            }
           }
+
+          fullEntryList.add(e);
         }
+      }
 
-        // Create an iterator that will be used to remove entries from the
-        // result set that are outside of the requested page of results.
-        int pos = 0;
-        final Iterator<Entry> iterator = fullEntryList.iterator();
 
-        // First, remove entries at the beginning of the list until we hit the
-        // offset.
-        while (iterator.hasNext() && (pos < offset))
+      // Return the remaining entries.
+      final LDAPMessage doneMessage =
+           entryReturner.returnEntries(fullEntryList);
+      if (doneMessage != null)
+      {
+        return doneMessage;
+      }
+
+
+      // If the request included the content synchronization request control
+      // in refresh-only mode, then indicate that the refresh is complete.  If
+      // it was a persistent search, or a content synchronization operation in
+      // refresh and persist mode, then start sending it notifications for
+      // subsequent changes.  In that case, the operation remains active and
+      // no search result done message will be returned.
+      if ((syncRequest != null) &&
+          (syncRequest.getMode() == ContentSyncRequestMode.REFRESH_ONLY))
+      {
+        responseControls.add(
+             new ContentSyncDoneControl(syncCookie, skipInitialContent));
+      }
+      else if (persistentSearch != null)
+      {
+        // Since there won't be a search result done message, any references
+        // need to be sent now.
+        try
         {
-          iterator.next();
-          iterator.remove();
-          pos++;
+          for (final SearchResultReference r : referenceList)
+          {
+            connection.sendSearchResultReference(messageID,
+                 new SearchResultReferenceProtocolOp(
+                      StaticUtils.toList(r.getReferralURLs())),
+                 r.getControls());
+          }
+          referenceList.clear();
+
+          if (syncRequest != null)
+          {
+            final ContentSyncInfoIntermediateResponse refreshDoneResponse;
+            if (skipInitialContent)
+            {
+              refreshDoneResponse = ContentSyncInfoIntermediateResponse.
+                   createRefreshDeleteResponse(syncCookie, true);
+            }
+            else
+            {
+              refreshDoneResponse = ContentSyncInfoIntermediateResponse.
+                   createRefreshPresentResponse(syncCookie, true);
+            }
+
+            connection.sendIntermediateResponse(messageID,
+                 new IntermediateResponseProtocolOp(refreshDoneResponse));
+          }
+        }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
+          return new LDAPMessage(messageID,
+               new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                    le.getMatchedDN(), le.getDiagnosticMessage(),
+                    StaticUtils.toList(le.getReferralURLs())),
+               le.getResponseControls());
+        }
+
+        persistentSearch.startDelivery();
+        persistentSearchStarted = true;
+        return null;
+      }
+
+      return new LDAPMessage(messageID,
+           new SearchResultDoneProtocolOp(ResultCode.SUCCESS_INT_VALUE, null,
+                null, null),
+           responseControls);
+    }
+    finally
+    {
+      if (holdingReadLock)
+      {
+        readLock.close();
+      }
+
+      // If the initial content could not be returned, then the persistent
+      // search should no longer be notified of changes.
+      if ((persistentSearch != null) && (! persistentSearchStarted))
+      {
+        persistentSearches.remove(persistentSearch);
+      }
+    }
+  }
+
+
+
+  /**
+   * Performs any processing necessary for the provided unbind request.  Any
+   * persistent search or content synchronization operations on this
+   * connection will no longer receive change notifications.
+   *
+   * @param  messageID  The message ID of the LDAP message containing the
+   *                    unbind request.
+   * @param  request    The unbind request that was included in the LDAP
+   *                    message that was received.
+   * @param  controls   The set of controls included in the LDAP message.  It
+   *                    may be empty if there were no controls, but will not be
+   *                    {@code null}.
+   */
+  @Override()
+  public void processUnbindRequest(final int messageID,
+                                   final UnbindRequestProtocolOp request,
+                                   final List<Control> controls)
+  {
+    removePersistentSearches(-1);
+  }
+
+
+
+  /**
+   * Creates an empty map that may be used to hold search cursors in least
+   * recently used order.
+   *
+   * @return  The map that was created.
+   */
+  private static LinkedHashMap<Long,InMemoryDirectoryServerSearchCursor>
+               createSearchCursorMap()
+  {
+    return new LinkedHashMap<Long,InMemoryDirectoryServerSearchCursor>(
+         (MAX_SEARCH_CURSORS * 2), 0.75f, true);
+  }
+
+
+
+  /**
+   * Creates a new search cursor with the provided information and retains it
+   * for use in subsequent searches on the associated connection.
+   *
+   * @param  baseDN                The base DN for the search.
+   * @param  scope                 The scope for the search.
+   * @param  filter                The filter for the search.
+   * @param  sortKeys              The sort keys for the search, or
+   *                               {@code null} if the results were not
+   *                               sorted.
+   * @param  includeSubEntries     Indicates whether the search could include
+   *                               LDAP subentries.
+   * @param  includeNonSubEntries  Indicates whether the search could include
+   *                               entries that are not LDAP subentries.
+   * @param  hasManageDsaIT        Indicates whether the search included the
+   *                               ManageDsaIT request control.
+   * @param  entries               The matching entries, in the order in which
+   *                               they should be returned.
+   * @param  references            The search result references for the
+   *                               search.
+   *
+   * @return  The search cursor that was created.
+   */
+  private InMemoryDirectoryServerSearchCursor createSearchCursor(
+               final DN baseDN, final SearchScope scope, final Filter filter,
+               final SortKey[] sortKeys, final boolean includeSubEntries,
+               final boolean includeNonSubEntries,
+               final boolean hasManageDsaIT, final List<Entry> entries,
+               final List<SearchResultReference> references)
+  {
+    synchronized (searchCursors)
+    {
+      removeExpiredSearchCursors();
+
+      final InMemoryDirectoryServerSearchCursor cursor =
+           new InMemoryDirectoryServerSearchCursor(nextSearchCursorID++,
+                baseDN, scope, filter, sortKeys, includeSubEntries,
+                includeNonSubEntries, hasManageDsaIT, entries, references,
+                entryMap.getModificationCount());
+      searchCursors.put(cursor.getCursorID(), cursor);
+
+      if (searchCursors.size() > MAX_SEARCH_CURSORS)
+      {
+        final Iterator<Long> iterator = searchCursors.keySet().iterator();
+        iterator.next();
+        iterator.remove();
+      }
+
+      return cursor;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the search cursor with the specified identifier, if it is
+   * available.
+   *
+   * @param  cursorID  The identifier for the search cursor to retrieve.
+   *
+   * @return  The search cursor with the specified identifier, or {@code null}
+   *          if there is no such cursor (e.g., because it has been discarded
+   *          after remaining unused for too long).
+   */
+  private InMemoryDirectoryServerSearchCursor getSearchCursor(
+               final long cursorID)
+  {
+    synchronized (searchCursors)
+    {
+      removeExpiredSearchCursors();
+
+      final InMemoryDirectoryServerSearchCursor cursor =
+           searchCursors.get(cursorID);
+      if (cursor != null)
+      {
+        cursor.updateLastAccessTime();
+      }
+
+      return cursor;
+    }
+  }
+
+
+
+  /**
+   * Retrieves a search cursor that may be used to process a search with the
+   * provided information, if one is available.  A cursor will only be
+   * returned if the data in the server has not been altered since it was
+   * created.
+   *
+   * @param  baseDN                The base DN for the search.
+   * @param  scope                 The scope for the search.
+   * @param  filter                The filter for the search.
+   * @param  sortKeys              The sort keys for the search, or
+   *                               {@code null} if the results should not be
+   *                               sorted.
+   * @param  includeSubEntries     Indicates whether the search could include
+   *                               LDAP subentries.
+   * @param  includeNonSubEntries  Indicates whether the search could include
+   *                               entries that are not LDAP subentries.
+   * @param  hasManageDsaIT        Indicates whether the search included the
+   *                               ManageDsaIT request control.
+   *
+   * @return  A search cursor that may be used to process the search, or
+   *          {@code null} if there is no suitable cursor.
+   */
+  private InMemoryDirectoryServerSearchCursor findSearchCursor(
+               final DN baseDN, final SearchScope scope, final Filter filter,
+               final SortKey[] sortKeys, final boolean includeSubEntries,
+               final boolean includeNonSubEntries,
+               final boolean hasManageDsaIT)
+  {
+    synchronized (searchCursors)
+    {
+      removeExpiredSearchCursors();
+
+      final long modificationCount = entryMap.getModificationCount();
+      for (final InMemoryDirectoryServerSearchCursor cursor :
+           searchCursors.values())
+      {
+        if ((cursor.getModificationCount() == modificationCount) &&
+            cursor.matchesSearch(baseDN, scope, filter, sortKeys,
+                 includeSubEntries, includeNonSubEntries, hasManageDsaIT))
+        {
+          // Get the cursor from the map so that it will be considered the
+          // most recently used.
+          searchCursors.get(cursor.getCursorID());
+          cursor.updateLastAccessTime();
+          return cursor;
         }
+      }
+
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Discards the search cursor with the specified identifier.
+   *
+   * @param  cursorID  The identifier for the search cursor to discard.
+   */
+  private void removeSearchCursor(final long cursorID)
+  {
+    synchronized (searchCursors)
+    {
+      searchCursors.remove(cursorID);
+    }
+  }
+
+
+
+  /**
+   * Discards any search cursors that have remained unused for too long.  The
+   * caller must hold the lock on the search cursor map.
+   */
+  private void removeExpiredSearchCursors()
+  {
+    if (searchCursors.isEmpty())
+    {
+      return;
+    }
+
+    final long expirationTime =
+         System.currentTimeMillis() - SEARCH_CURSOR_IDLE_TIMEOUT_MILLIS;
+    final Iterator<InMemoryDirectoryServerSearchCursor> iterator =
+         searchCursors.values().iterator();
+    while (iterator.hasNext())
+    {
+      if (iterator.next().getLastAccessTime() < expirationTime)
+      {
+        iterator.remove();
+      }
+    }
+  }
+
+
+  /**
+   * Adds a notification for the provided change to the queue of notifications
+   * to be delivered to the registered persistent searches.  This must only be
+   * called while holding the entry write lock, after the change has been
+   * applied to the entry map and recorded in the changelog (if appropriate).
+   * The notification will be delivered once the write lock is released.
+   *
+   * @param  changeType     The type of change that was made.
+   * @param  previousEntry  The entry as it appeared before the change, or
+   *                        {@code null} for an add.
+   * @param  entry          The entry as it appears after the change, or
+   *                        {@code null} for a delete.
+   * @param  changeLogged   Indicates whether the change was recorded in the
+   *                        changelog, so that the change number of the last
+   *                        changelog entry applies to it.
+   */
+  private void addChangeNotification(
+                    final PersistentSearchChangeType changeType,
+                    final Entry previousEntry, final Entry entry,
+                    final boolean changeLogged)
+  {
+    if (persistentSearches.isEmpty())
+    {
+      return;
+    }
+
+    final long changeNumber;
+    if (changeLogged && (maxChangelogEntries > 0))
+    {
+      changeNumber = lastChangeNumber.get();
+    }
+    else
+    {
+      changeNumber = -1L;
+    }
+
+    final ChangeNotification n = new ChangeNotification(changeType,
+         previousEntry, entry, changeNumber, entryMap.getModificationCount());
+    synchronized (pendingChangeNotifications)
+    {
+      pendingChangeNotifications.add(n);
+    }
+  }
+
 
-        // Next, skip over the entries that should be returned.
-        int keptEntries = 0;
-        while (iterator.hasNext() && (keptEntries < pageSize))
-        {
-          iterator.next();
-          pos++;
-          keptEntries++;
-        }
 
-        // If there are still entries left, then remove them and create a cookie
-        // to include in the response.  Otherwise, use an empty cookie.
-        if (iterator.hasNext())
-        {
-          responseControls.add(new SimplePagedResultsControl(totalSize,
-               new ASN1OctetString(new ASN1Integer(pos).encode()), false));
-          while (iterator.hasNext())
-          {
-            iterator.next();
-            iterator.remove();
-          }
-        }
-        else
+  /**
+   * Discards any undelivered change notifications for changes made after the
+   * entry map had the specified modification count (e.g., because the changes
+   * have been reverted by restoring a snapshot).  This must only be called
+   * while holding the entry write lock.
+   *
+   * @param  modificationCount  The entry map modification count after which
+   *                            notifications should be discarded.
+   */
+  private void discardChangeNotifications(final long modificationCount)
+  {
+    synchronized (pendingChangeNotifications)
+    {
+      final Iterator<ChangeNotification> iterator =
+           pendingChangeNotifications.iterator();
+      while (iterator.hasNext())
+      {
+        if (iterator.next().getSequenceNumber() > modificationCount)
         {
-          responseControls.add(new SimplePagedResultsControl(totalSize,
-               new ASN1OctetString(), false));
+          iterator.remove();
         }
       }
+    }
+  }
 
 
-      // If the request includes the virtual list view request control, then
-      // handle it.
-      final VirtualListViewRequestControl vlvRequest =
-           (VirtualListViewRequestControl) controlMap.get(
-                VirtualListViewRequestControl.VIRTUAL_LIST_VIEW_REQUEST_OID);
-      if (vlvRequest != null)
-      {
-        final int totalEntries = fullEntryList.size();
-        final ASN1OctetString assertionValue = vlvRequest.getAssertionValue();
 
-        // Figure out the position of the target entry in the list.
-        int offset = vlvRequest.getTargetOffset();
-        if (assertionValue == null)
+  /**
+   * Hands off any pending change notifications to the registered persistent
+   * searches.  Each persistent search will queue the notifications that it
+   * receives, and they will be sent to the client by a separate thread, so
+   * this method will not block while waiting for any client to read them.
+   * Nothing will be done if the current thread holds the entry write lock,
+   * since the notifications will be handed off by the outermost operation
+   * once it releases the lock.
+   */
+  private void deliverChangeNotifications()
+  {
+    if (entryLock.isWriteLockedByCurrentThread())
+    {
+      return;
+    }
+
+    // The notifications are handed off while holding the lock on the pending
+    // queue so that each persistent search will receive them in the order in
+    // which the changes were made.
+    synchronized (pendingChangeNotifications)
+    {
+      while (true)
+      {
+        final ChangeNotification n = pendingChangeNotifications.poll();
+        if (n == null)
         {
-          // The offset is one-based, so we need to adjust it for the list's
-          // zero-based offset.  Also, make sure to put it within the bounds of
-          // the list.
-          offset--;
-          offset = Math.max(0, offset);
-          offset = Math.min(fullEntryList.size(), offset);
+          return;
         }
-        else
-        {
-          final SortKey primarySortKey = sortRequestControl.getSortKeys()[0];
 
-          final Entry testEntry = new Entry("cn=test", schema,
-               new Attribute(primarySortKey.getAttributeName(),
-                    assertionValue));
+        for (final PersistentSearch s : persistentSearches)
+        {
+          s.queueChange(n);
+        }
+      }
+    }
+  }
 
-          final EntrySorter entrySorter =
-               new EntrySorter(false, schema, primarySortKey);
 
-          offset = fullEntryList.size();
-          for (int i=0; i < fullEntryList.size(); i++)
-          {
-            if (entrySorter.compare(fullEntryList.get(i), testEntry) >= 0)
-            {
-              offset = i;
-              break;
-            }
-          }
-        }
 
-        // Get the start and end positions based on the before and after counts.
-        final int beforeCount = Math.max(0, vlvRequest.getBeforeCount());
-        final int afterCount  = Math.max(0, vlvRequest.getAfterCount());
+  /**
+   * Removes any persistent searches registered by this request handler
+   * instance.  If a message ID is provided, then only the persistent search
+   * with that message ID will be removed.
+   *
+   * @param  messageID  The message ID of the persistent search to remove, or
+   *                    a negative value if all persistent searches for this
+   *                    request handler instance should be removed.
+   */
+  private void removePersistentSearches(final int messageID)
+  {
+    for (final PersistentSearch s : persistentSearches)
+    {
+      if ((s.getRequestHandler() == this) &&
+          ((messageID < 0) || (s.getMessageID() == messageID)))
+      {
+        persistentSearches.remove(s);
+      }
+    }
+  }
 
-        final int start = Math.max(0, (offset - beforeCount));
-        final int end =
-             Math.min(fullEntryList.size(), (offset + afterCount + 1));
 
-        // Create an iterator to use to alter the list so that it only contains
-        // the appropriate set of entries.
-        int pos = 0;
-        final Iterator<Entry> iterator = fullEntryList.iterator();
-        while (iterator.hasNext())
-        {
-          iterator.next();
-          if ((pos < start) || (pos >= end))
-          {
-            iterator.remove();
-          }
-          pos++;
-        }
 
-        // Create the appropriate response control.
-        responseControls.add(new VirtualListViewResponseControl((offset+1),
-             totalEntries, ResultCode.SUCCESS, null));
-      }
+  /**
+   * Creates a content synchronization cookie that represents the state of the
+   * server when the entry map had the specified modification count.
+   *
+   * @param  modificationCount  The entry map modification count to encode in
+   *                            the cookie.
+   *
+   * @return  The content synchronization cookie.
+   */
+  private ASN1OctetString encodeSyncCookie(final long modificationCount)
+  {
+    return new ASN1OctetString(new ASN1Sequence(
+         new ASN1Long(syncCookieInstanceID),
+         new ASN1Long(modificationCount)).encode());
+  }
 
 
-      // Process the set of requested attributes so that we can pare down the
-      // entries.
-      final AtomicBoolean allUserAttrs = new AtomicBoolean(false);
-      final AtomicBoolean allOpAttrs = new AtomicBoolean(false);
-      final Map<String,List<List<String>>> returnAttrs =
-           processRequestedAttributes(request.getAttributes(), allUserAttrs,
-                allOpAttrs);
 
-      final int sizeLimit;
-      if (request.getSizeLimit() > 0)
-      {
-        sizeLimit = Math.min(request.getSizeLimit(), maxSizeLimit);
-      }
-      else
+  /**
+   * Retrieves the UUID to use to identify the provided entry to content
+   * synchronization clients.  The value of the entryUUID attribute will be
+   * used if it is present.  Otherwise, a UUID will be generated from the
+   * entry DN.
+   *
+   * @param  entry  The entry for which to obtain the UUID.
+   *
+   * @return  The UUID to use to identify the provided entry.
+   */
+  private static UUID getEntryUUID(final Entry entry)
+  {
+    final String uuidString = entry.getAttributeValue("entryUUID");
+    if (uuidString != null)
+    {
+      try
       {
-        sizeLimit = maxSizeLimit;
+        return UUID.fromString(uuidString);
       }
-
-      int entryCount = 0;
-      for (final Entry e : fullEntryList)
+      catch (final Exception e)
       {
-        entryCount++;
-        if (entryCount > sizeLimit)
-        {
-          return new LDAPMessage(messageID,
-               new SearchResultDoneProtocolOp(
-                    ResultCode.SIZE_LIMIT_EXCEEDED_INT_VALUE, null,
-                    ERR_MEM_HANDLER_SEARCH_SIZE_LIMIT_EXCEEDED.get(), null),
-               responseControls);
-        }
-
-        final Entry trimmedEntry = trimForRequestedAttributes(e,
-             allUserAttrs.get(), allOpAttrs.get(), returnAttrs);
-        if (request.typesOnly())
-        {
-          final Entry typesOnlyEntry = new Entry(trimmedEntry.getDN(), schema);
-          for (final Attribute a : trimmedEntry.getAttributes())
-          {
-            typesOnlyEntry.addAttribute(new Attribute(a.getName()));
-          }
-          entryList.add(new SearchResultEntry(typesOnlyEntry));
-        }
-        else
-        {
-          entryList.add(new SearchResultEntry(trimmedEntry));
-        }
+        Debug.debugException(e);
       }
+    }
 
-      return new LDAPMessage(messageID,
-           new SearchResultDoneProtocolOp(ResultCode.SUCCESS_INT_VALUE, null,
-                null, null),
-           responseControls);
+    String dnString;
+    try
+    {
+      dnString = entry.getParsedDN().toNormalizedString();
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      dnString = StaticUtils.toLowerCase(entry.getDN());
     }
+
+    return UUID.nameUUIDFromBytes(StaticUtils.getBytes(dnString));
   }
 
 
 
+
   /**
    * Performs any necessary index processing to add the provided entry.
    *
@@ -3838,8 +4890,7 @@ findEntriesAndRefs:
    */
   private void indexAdd(final Entry entry)
   {
-    for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-         equalityIndexes.values())
+    for (final InMemoryDirectoryServerAttributeIndex i : attributeIndexes)
     {
       try
       {
@@ -3861,8 +4912,7 @@ findEntriesAndRefs:
    */
   private void indexDelete(final Entry entry)
   {
-    for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-         equalityIndexes.values())
+    for (final InMemoryDirectoryServerAttributeIndex i : attributeIndexes)
     {
       try
       {
@@ -3954,26 +5004,60 @@ findEntriesAndRefs:
         }
 
       case Filter.FILTER_TYPE_EQUALITY:
-        final Schema schema = schemaRef.get();
-        if (schema == null)
+        final InMemoryDirectoryServerEqualityAttributeIndex eqIndex =
+             getIndex(equalityIndexes, filter);
+        if (eqIndex == null)
+        {
+          return null;
+        }
+        try
+        {
+          return eqIndex.getMatchingEntries(filter.getRawAssertionValue());
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+          return null;
+        }
+
+      case Filter.FILTER_TYPE_SUBSTRING:
+        final InMemoryDirectoryServerSubstringAttributeIndex subIndex =
+             getIndex(substringIndexes, filter);
+        if (subIndex == null)
         {
           return null;
         }
-        final AttributeTypeDefinition at =
-             schema.getAttributeType(filter.getAttributeName());
-        if (at == null)
+        try
+        {
+          return subIndex.getCandidateEntries(filter.getRawSubInitialValue(),
+               filter.getRawSubAnyValues(), filter.getRawSubFinalValue());
+        }
+        catch (final Exception e)
         {
+          Debug.debugException(e);
           return null;
         }
-        final InMemoryDirectoryServerEqualityAttributeIndex i =
-             equalityIndexes.get(at);
-        if (i == null)
+
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        final InMemoryDirectoryServerOrderingAttributeIndex ordIndex =
+             getIndex(orderingIndexes, filter);
+        if (ordIndex == null)
         {
           return null;
         }
         try
         {
-          return i.getMatchingEntries(filter.getRawAssertionValue());
+          if (filter.getFilterType() == Filter.FILTER_TYPE_GREATER_OR_EQUAL)
+          {
+            return ordIndex.getEntriesGreaterThanOrEqualTo(
+                 filter.getRawAssertionValue());
+          }
+          else
+          {
+            return ordIndex.getEntriesLessThanOrEqualTo(
+                 filter.getRawAssertionValue());
+          }
         }
         catch (final Exception e)
         {
@@ -3981,6 +5065,15 @@ findEntriesAndRefs:
           return null;
         }
 
+      case Filter.FILTER_TYPE_PRESENCE:
+        final InMemoryDirectoryServerPresenceAttributeIndex presIndex =
+             getIndex(presenceIndexes, filter);
+        if (presIndex == null)
+        {
+          return null;
+        }
+        return presIndex.getMatchingEntries();
+
       default:
         return null;
     }
@@ -3988,6 +5081,44 @@ findEntriesAndRefs:
 
 
 
+  /**
+   * Retrieves the index from the provided map that is associated with the
+   * attribute type targeted by the given filter.
+   *
+   * @param  <T>      The type of index to retrieve.
+   * @param  indexes  The map of indexes, by attribute type, to examine.
+   * @param  filter   The filter for which to retrieve the index.
+   *
+   * @return  The index for the attribute type targeted by the filter, or
+   *          {@code null} if there is no such index.
+   */
+  private <T extends InMemoryDirectoryServerAttributeIndex> T getIndex(
+               final Map<AttributeTypeDefinition,T> indexes,
+               final Filter filter)
+  {
+    if (indexes.isEmpty())
+    {
+      return null;
+    }
+
+    final Schema schema = schemaRef.get();
+    if (schema == null)
+    {
+      return null;
+    }
+
+    final AttributeTypeDefinition at =
+         schema.getAttributeType(filter.getAttributeName());
+    if (at == null)
+    {
+      return null;
+    }
+
+    return indexes.get(at);
+  }
+
+
+
   /**
    * Determines whether the provided set of controls includes a transaction
    * specification request control.  If so, then it will verify that it
@@ -4205,8 +5336,11 @@ findEntriesAndRefs:
    */
   public int countEntries(final boolean includeChangeLog)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       if (includeChangeLog || (maxChangelogEntries == 0))
       {
         return entryMap.size();
@@ -4245,20 +5379,14 @@ findEntriesAndRefs:
   public int countEntriesBelow(final String baseDN)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
-      final DN parsedBaseDN = new DN(baseDN, schemaRef.get());
+      readLock.avoidCompilerWarning();
 
-      int count = 0;
-      for (final DN dn : entryMap.keySet())
-      {
-        if (dn.isDescendantOf(parsedBaseDN, true))
-        {
-          count++;
-        }
-      }
+      final DN parsedBaseDN = new DN(baseDN, schemaRef.get());
 
-      return count;
+      return entryMap.countEntries(parsedBaseDN, SearchScope.SUB);
     }
   }
 
@@ -4271,8 +5399,11 @@ findEntriesAndRefs:
    */
   public void clear()
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       restoreSnapshot(initialSnapshot);
     }
   }
@@ -4299,8 +5430,11 @@ findEntriesAndRefs:
   public int importFromLDIF(final boolean clear, final LDIFReader ldifReader)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       final InMemoryDirectoryServerSnapshot snapshot = createSnapshot();
       boolean restoreSnapshot = true;
 
@@ -4390,8 +5524,11 @@ findEntriesAndRefs:
                           final boolean closeWriter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       boolean exceptionThrown = false;
 
       try
@@ -4540,8 +5677,11 @@ findEntriesAndRefs:
   public void addEntries(final List<? extends Entry> entries)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       final InMemoryDirectoryServerSnapshot snapshot = createSnapshot();
       boolean restoreSnapshot = true;
 
@@ -4561,6 +5701,10 @@ findEntriesAndRefs:
         }
       }
     }
+    finally
+    {
+      deliverChangeNotifications();
+    }
   }
 
 
@@ -4582,8 +5726,11 @@ findEntriesAndRefs:
   public int deleteSubtree(final String baseDN)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.WriteLock writeLock =
+              entryLock.lockWrite())
     {
+      writeLock.avoidCompilerWarning();
+
       final DN dn = new DN(baseDN, schemaRef.get());
       if (dn.isNullDN())
       {
@@ -4591,21 +5738,25 @@ findEntriesAndRefs:
              ERR_MEM_HANDLER_DELETE_ROOT_DSE.get());
       }
 
-      int numDeleted = 0;
+      final ArrayList<DN> dnsToDelete = new ArrayList<DN>(10);
+      for (final Map.Entry<DN,ReadOnlyEntry> me :
+           entryMap.getEntries(dn, SearchScope.SUB))
+      {
+        dnsToDelete.add(me.getKey());
+      }
 
-      final Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator =
-           entryMap.entrySet().iterator();
-      while (iterator.hasNext())
+      for (final DN dnToDelete : dnsToDelete)
       {
-        final Map.Entry<DN,ReadOnlyEntry> e = iterator.next();
-        if (e.getKey().isDescendantOf(dn, true))
-        {
-          iterator.remove();
-          numDeleted++;
-        }
+        final Entry deletedEntry = entryMap.remove(dnToDelete);
+        addChangeNotification(PersistentSearchChangeType.DELETE,
+             deletedEntry, null, false);
       }
 
-      return numDeleted;
+      return dnsToDelete.size();
+    }
+    finally
+    {
+      deliverChangeNotifications();
     }
   }
 
@@ -4682,8 +5833,11 @@ findEntriesAndRefs:
    */
   public ReadOnlyEntry getEntry(final DN dn)
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       if (dn.isNullDN())
       {
         return generateRootDSE();
@@ -4730,8 +5884,11 @@ findEntriesAndRefs:
                                     final Filter filter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final DN parsedDN;
       final Schema schema = schemaRef.get();
       try
@@ -4812,31 +5969,29 @@ findEntriesAndRefs:
       }
 
       final List<ReadOnlyEntry> entryList = new ArrayList<ReadOnlyEntry>(10);
-      for (final Map.Entry<DN,ReadOnlyEntry> me : entryMap.entrySet())
+      for (final Map.Entry<DN,ReadOnlyEntry> me :
+           entryMap.getEntries(parsedDN, scope))
       {
+        // We don't want to return changelog entries searches based at the
+        // root DSE.
         final DN dn = me.getKey();
-        if (dn.matchesBaseAndScope(parsedDN, scope))
+        if (parsedDN.isNullDN() && dn.isDescendantOf(changeLogBaseDN, true))
         {
-          // We don't want to return changelog entries searches based at the
-          // root DSE.
-          if (parsedDN.isNullDN() && dn.isDescendantOf(changeLogBaseDN, true))
-          {
-            continue;
-          }
+          continue;
+        }
 
-          try
-          {
-            final Entry entry = me.getValue();
-            if (filter.matchesEntry(entry, schema))
-            {
-              entryList.add(new ReadOnlyEntry(entry));
-            }
-          }
-          catch (final LDAPException le)
+        try
+        {
+          final Entry entry = me.getValue();
+          if (filter.matchesEntry(entry, schema))
           {
-            Debug.debugException(le);
+            entryList.add(new ReadOnlyEntry(entry));
           }
         }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
+        }
       }
 
       return Collections.unmodifiableList(entryList);
@@ -4893,10 +6048,12 @@ findEntriesAndRefs:
     ctlSet.add(AssertionRequestControl.ASSERTION_REQUEST_OID);
     ctlSet.add(AuthorizationIdentityRequestControl.
          AUTHORIZATION_IDENTITY_REQUEST_OID);
+    ctlSet.add(ContentSyncRequestControl.SYNC_REQUEST_OID);
     ctlSet.add(DontUseCopyRequestControl.DONT_USE_COPY_REQUEST_OID);
     ctlSet.add(ManageDsaITRequestControl.MANAGE_DSA_IT_REQUEST_OID);
     ctlSet.add(DraftZeilengaLDAPNoOp12RequestControl.NO_OP_REQUEST_OID);
     ctlSet.add(PermissiveModifyRequestControl.PERMISSIVE_MODIFY_REQUEST_OID);
+    ctlSet.add(PersistentSearchRequestControl.PERSISTENT_SEARCH_REQUEST_OID);
     ctlSet.add(PostReadRequestControl.POST_READ_REQUEST_OID);
     ctlSet.add(PreReadRequestControl.PRE_READ_REQUEST_OID);
     ctlSet.add(ProxiedAuthorizationV1RequestControl.
@@ -5422,8 +6579,46 @@ findEntriesAndRefs:
         }
       }
     }
-
-    return copy;
+
+    return copy;
+  }
+
+
+
+  /**
+   * Retrieves a copy of the provided entry that includes only the appropriate
+   * set of requested attributes, and that includes only attribute types
+   * without values if appropriate.
+   *
+   * @param  entry         The entry to be returned.
+   * @param  typesOnly     Indicates whether to return only attribute types.
+   * @param  allUserAttrs  Indicates whether to return all user attributes.
+   * @param  allOpAttrs    Indicates whether to return all operational
+   *                       attributes.
+   * @param  returnAttrs   A map with information about the specific attribute
+   *                       types to return.
+   *
+   * @return  A copy of the provided entry that includes only the appropriate
+   *          set of requested attributes.
+   */
+  private Entry trimEntry(final Entry entry, final boolean typesOnly,
+                          final boolean allUserAttrs, final boolean allOpAttrs,
+                          final Map<String,List<List<String>>> returnAttrs)
+  {
+    final Entry trimmedEntry = trimForRequestedAttributes(entry, allUserAttrs,
+         allOpAttrs, returnAttrs);
+    if (! typesOnly)
+    {
+      return trimmedEntry;
+    }
+
+    final Entry typesOnlyEntry =
+         new Entry(trimmedEntry.getDN(), schemaRef.get());
+    for (final Attribute a : trimmedEntry.getAttributes())
+    {
+      typesOnlyEntry.addAttribute(new Attribute(a.getName()));
+    }
+    return typesOnlyEntry;
   }
 
 
@@ -5640,7 +6835,7 @@ findEntriesAndRefs:
   /**
    * Adds the provided changelog entry to the data set, removing an old entry if
    * necessary to remain within the maximum allowed number of changes.  This
-   * must only be called from a synchronized method, and the change number for
+   * must only be called while holding the write lock, and the change number for
    * the changelog entry must have been obtained by calling
    * {@code lastChangeNumber.incrementAndGet()}.
    *
@@ -5779,8 +6974,11 @@ findEntriesAndRefs:
   public DN getDNForAuthzID(final String authzID)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final String lowerAuthzID = StaticUtils.toLowerCase(authzID);
       if (lowerAuthzID.startsWith("dn:"))
       {
@@ -6081,8 +7279,11 @@ findEntriesAndRefs:
   public boolean entryExists(final String dn, final String filter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6121,8 +7322,11 @@ findEntriesAndRefs:
   public boolean entryExists(final Entry entry)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(entry.getDN());
       if (e == null)
       {
@@ -6183,8 +7387,11 @@ findEntriesAndRefs:
   public void assertEntryExists(final String dn, final String filter)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6229,8 +7436,11 @@ findEntriesAndRefs:
   public void assertEntryExists(final Entry entry)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(entry.getDN());
       if (e == null)
       {
@@ -6289,8 +7499,11 @@ findEntriesAndRefs:
   public List<String> getMissingEntryDNs(final Collection<String> dns)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final List<String> missingDNs = new ArrayList<String>(dns.size());
       for (final String dn : dns)
       {
@@ -6321,8 +7534,11 @@ findEntriesAndRefs:
   public void assertEntriesExist(final Collection<String> dns)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final List<String> missingDNs = getMissingEntryDNs(dns);
       if (missingDNs.isEmpty())
       {
@@ -6361,8 +7577,11 @@ findEntriesAndRefs:
                            final Collection<String> attributeNames)
          throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6405,8 +7624,11 @@ findEntriesAndRefs:
                                     final Collection<String> attributeNames)
         throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final List<String> missingAttrs =
            getMissingAttributeNames(dn, attributeNames);
       if (missingAttrs == null)
@@ -6453,8 +7675,11 @@ findEntriesAndRefs:
                            final Collection<String> attributeValues)
        throws LDAPException
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6501,8 +7726,11 @@ findEntriesAndRefs:
                                 final Collection<String> attributeValues)
         throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final List<String> missingValues =
            getMissingAttributeValues(dn, attributeName, attributeValues);
       if (missingValues == null)
@@ -6576,8 +7804,11 @@ findEntriesAndRefs:
                                      final Collection<String> attributeNames)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6625,8 +7856,11 @@ findEntriesAndRefs:
                                  final Collection<String> attributeValues)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    try (final CloseableReadWriteLock.ReadLock readLock =
+              entryLock.lockRead())
     {
+      readLock.avoidCompilerWarning();
+
       final Entry e = getEntry(dn);
       if (e == null)
       {
@@ -6652,4 +7886,795 @@ findEntriesAndRefs:
       }
     }
   }
+
+
+
+  /**
+   * This class is used to return the entries that match a search request,
+   * either by adding them to a list that will be returned to the caller or by
+   * sending them directly to the client.  It takes care of enforcing the size
+   * and time limits for the search as each entry is returned.
+   */
+  private final class SearchEntryReturner
+  {
+    // Indicates whether to return all user attributes.
+    private final boolean allUserAttrs;
+
+    // Indicates whether to return all operational attributes.
+    private final boolean allOpAttrs;
+
+    // Indicates whether to include a content synchronization state control in
+    // each entry that is returned.
+    private final boolean includeSyncState;
+
+    // Indicates whether to return only attribute types.
+    private final boolean typesOnly;
+
+    // The number of entries that have been returned so far.
+    private int entryCount;
+
+    // The message ID for the search request.
+    private final int messageID;
+
+    // The maximum number of entries that may be returned.
+    private final int sizeLimit;
+
+    // The list of response controls to include in the search result done
+    // message.
+    private final List<Control> responseControls;
+
+    // The list to which entries should be added, or null if entries should be
+    // sent directly to the client.
+    private final List<SearchResultEntry> entryList;
+
+    // The time at which the search should stop because the time limit has
+    // been exceeded, or a negative value if there is no time limit.
+    private final long timeLimitExpirationTime;
+
+    // A map of the specific attributes that should be returned.
+    private final Map<String,List<List<String>>> returnAttrs;
+
+
+
+    /**
+     * Creates a new search entry returner with the provided information.
+     *
+     * @param  messageID                The message ID for the search request.
+     * @param  typesOnly                Indicates whether to return only
+     *                                  attribute types.
+     * @param  allUserAttrs             Indicates whether to return all user
+     *                                  attributes.
+     * @param  allOpAttrs               Indicates whether to return all
+     *                                  operational attributes.
+     * @param  returnAttrs              A map of the specific attributes that
+     *                                  should be returned.
+     * @param  sizeLimit                The maximum number of entries that may
+     *                                  be returned.
+     * @param  timeLimitExpirationTime  The time at which the search should stop
+     *                                  because the time limit has been
+     *                                  exceeded, or a negative value if there
+     *                                  is no time limit.
+     * @param  includeSyncState         Indicates whether to include a content
+     *                                  synchronization state control in each
+     *                                  entry that is returned.
+     * @param  entryList                The list to which entries should be
+     *                                  added, or {@code null} if entries should
+     *                                  be sent directly to the client.
+     * @param  responseControls         The list of response controls to include
+     *                                  in the search result done message.
+     */
+    private SearchEntryReturner(final int messageID, final boolean typesOnly,
+                 final boolean allUserAttrs, final boolean allOpAttrs,
+                 final Map<String,List<List<String>>> returnAttrs,
+                 final int sizeLimit, final long timeLimitExpirationTime,
+                 final boolean includeSyncState,
+                 final List<SearchResultEntry> entryList,
+                 final List<Control> responseControls)
+    {
+      this.messageID               = messageID;
+      this.typesOnly               = typesOnly;
+      this.allUserAttrs            = allUserAttrs;
+      this.allOpAttrs              = allOpAttrs;
+      this.returnAttrs             = returnAttrs;
+      this.sizeLimit               = sizeLimit;
+      this.timeLimitExpirationTime = timeLimitExpirationTime;
+      this.includeSyncState        = includeSyncState;
+      this.entryList               = entryList;
+      this.responseControls        = responseControls;
+
+      entryCount = 0;
+    }
+
+
+
+    /**
+     * Returns the entries in the provided list, and then clears the list.
+     *
+     * @param  entries  The entries to be returned.  They will not yet have
+     *                  been pared down based on the requested attributes.
+     *
+     * @return  {@code null} if all of the entries were returned and processing
+     *          may continue, or the {@code LDAPMessage} with the search result
+     *          done response to return to the client if processing should
+     *          stop (e.g., because the size or time limit has been exceeded,
+     *          or because an entry could not be sent to the client).
+     */
+    private LDAPMessage returnEntries(final List<Entry> entries)
+    {
+      try
+      {
+        for (final Entry e : entries)
+        {
+          entryCount++;
+          if (entryCount > sizeLimit)
+          {
+            return new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(
+                      ResultCode.SIZE_LIMIT_EXCEEDED_INT_VALUE, null,
+                      ERR_MEM_HANDLER_SEARCH_SIZE_LIMIT_EXCEEDED.get(), null),
+                 responseControls);
+          }
+
+          if ((timeLimitExpirationTime > 0L) &&
+               (System.currentTimeMillis() >= timeLimitExpirationTime))
+          {
+            return new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(
+                      ResultCode.TIME_LIMIT_EXCEEDED_INT_VALUE, null,
+                      ERR_MEM_HANDLER_TIME_LIMIT_EXCEEDED.get(), null),
+                 responseControls);
+          }
+
+          final Control[] entryControls;
+          if (includeSyncState)
+          {
+            entryControls = new Control[]
+            {
+              new ContentSyncStateControl(ContentSyncState.ADD,
+                   getEntryUUID(e), null)
+            };
+          }
+          else
+          {
+            entryControls = NO_CONTROLS;
+          }
+
+          final SearchResultEntry searchEntry = new SearchResultEntry(
+               trimEntry(e, typesOnly, allUserAttrs, allOpAttrs, returnAttrs),
+               entryControls);
+
+          if (entryList == null)
+          {
+            try
+            {
+              connection.sendSearchResultEntry(messageID, searchEntry,
+                   searchEntry.getControls());
+            }
+            catch (final LDAPException le)
+            {
+              Debug.debugException(le);
+              return new LDAPMessage(messageID,
+                   new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                        le.getMatchedDN(), le.getDiagnosticMessage(),
+                        StaticUtils.toList(le.getReferralURLs())),
+                   le.getResponseControls());
+            }
+          }
+          else
+          {
+            entryList.add(searchEntry);
+          }
+        }
+
+        return null;
+      }
+      finally
+      {
+        entries.clear();
+      }
+    }
+  }
+
+
+
+  /**
+   * This class holds information about a persistent search or content
+   * synchronization operation that has been registered to be notified of
+   * changes.  Matching changes will be sent to the client as search result
+   * entries, with an entry change notification control (for a persistent
+   * search that requested them) or a content synchronization state control
+   * (for a content synchronization operation).
+   */
+  private final class PersistentSearch
+          implements Runnable
+  {
+    // Indicates whether to return all operational attributes.
+    private final boolean allOpAttrs;
+
+    // Indicates whether to return all user attributes.
+    private final boolean allUserAttrs;
+
+    // Indicates whether the search could include LDAP subentries.
+    private final boolean includeSubEntries;
+
+    // Indicates whether the search could include entries that are not LDAP
+    // subentries.
+    private final boolean includeNonSubEntries;
+
+    // Indicates whether to include entry change notification controls.
+    private final boolean returnECs;
+
+    // Indicates whether to return only attribute types.
+    private final boolean typesOnly;
+
+    // Indicates whether a task has been submitted to send the pending
+    // notifications to the client, or whether delivery has not yet started.
+    // All access to this field must be synchronized on the
+    // pendingNotifications queue.
+    private boolean deliveryScheduled;
+
+    // Indicates whether this persistent search has been deregistered because
+    // notifications can no longer be delivered to the client.  All access to
+    // this field must be synchronized on the pendingNotifications queue.
+    private boolean terminated;
+
+    // The filter for the search.
+    private final CompiledFilter filter;
+
+    // The base DN for the search.
+    private final DN baseDN;
+
+    // The message ID for the search request.
+    private final int messageID;
+
+    // The diagnostic message for a search result done message that should be
+    // sent to the client once any notification currently being sent has been
+    // written.  All access to this field must be synchronized on the
+    // pendingNotifications queue.
+    private String pendingTerminationMessage;
+
+    // The notifications for changes that have been queued for this persistent
+    // search but not yet sent to the client.  All access to this queue must be
+    // synchronized on the queue itself.
+    private final ArrayDeque<ChangeNotification> pendingNotifications;
+
+    // The entry map modification count at the time the search was registered.
+    // Notifications for earlier changes will be ignored.
+    private final long registrationSequenceNumber;
+
+    // A map of the specific attributes that should be returned.
+    private final Map<String,List<List<String>>> returnAttrs;
+
+    // The scope for the search.
+    private final SearchScope scope;
+
+    // The types of changes that should be returned for a persistent search, or
+    // null for a content synchronization operation.
+    private final Set<PersistentSearchChangeType> changeTypes;
+
+
+
+    /**
+     * Creates a new persistent search with the provided information.
+     *
+     * @param  messageID                   The message ID for the search
+     *                                     request.
+     * @param  baseDN                      The base DN for the search.
+     * @param  scope                       The scope for the search.
+     * @param  filter                      The filter for the search.
+     * @param  includeSubEntries           Indicates whether the search could
+     *                                     include LDAP subentries.
+     * @param  includeNonSubEntries        Indicates whether the search could
+     *                                     include entries that are not LDAP
+     *                                     subentries.
+     * @param  typesOnly                   Indicates whether to return only
+     *                                     attribute types.
+     * @param  allUserAttrs                Indicates whether to return all
+     *                                     user attributes.
+     * @param  allOpAttrs                  Indicates whether to return all
+     *                                     operational attributes.
+     * @param  returnAttrs                 A map of the specific attributes
+     *                                     that should be returned.
+     * @param  changeTypes                 The types of changes that should be
+     *                                     returned for a persistent search, or
+     *                                     {@code null} for a content
+     *                                     synchronization operation.
+     * @param  returnECs                   Indicates whether to include entry
+     *                                     change notification controls.
+     * @param  registrationSequenceNumber  The entry map modification count at
+     *                                     the time the search was registered.
+     */
+    private PersistentSearch(final int messageID, final DN baseDN,
+                 final SearchScope scope, final CompiledFilter filter,
+                 final boolean includeSubEntries,
+                 final boolean includeNonSubEntries, final boolean typesOnly,
+                 final boolean allUserAttrs, final boolean allOpAttrs,
+                 final Map<String,List<List<String>>> returnAttrs,
+                 final Set<PersistentSearchChangeType> changeTypes,
+                 final boolean returnECs,
+                 final long registrationSequenceNumber)
+    {
+      this.messageID                  = messageID;
+      this.baseDN                     = baseDN;
+      this.scope                      = scope;
+      this.filter                     = filter;
+      this.includeSubEntries          = includeSubEntries;
+      this.includeNonSubEntries       = includeNonSubEntries;
+      this.typesOnly                  = typesOnly;
+      this.allUserAttrs               = allUserAttrs;
+      this.allOpAttrs                 = allOpAttrs;
+      this.returnAttrs                = returnAttrs;
+      this.changeTypes                = changeTypes;
+      this.returnECs                  = returnECs;
+      this.registrationSequenceNumber = registrationSequenceNumber;
+
+      pendingNotifications      = new ArrayDeque<ChangeNotification>(10);
+      deliveryScheduled         = true;
+      terminated                = false;
+      pendingTerminationMessage = null;
+    }
+
+
+
+    /**
+     * Retrieves the request handler instance that registered this persistent
+     * search.
+     *
+     * @return  The request handler instance that registered this persistent
+     *          search.
+     */
+    private InMemoryRequestHandler getRequestHandler()
+    {
+      return InMemoryRequestHandler.this;
+    }
+
+
+
+    /**
+     * Retrieves the message ID for the search request.
+     *
+     * @return  The message ID for the search request.
+     */
+    private int getMessageID()
+    {
+      return messageID;
+    }
+
+
+
+    /**
+     * Starts sending change notifications to the client.  Notifications for
+     * changes made after this persistent search was registered will be held
+     * until this method is called, so that they will not be sent before the
+     * initial search results.
+     */
+    private void startDelivery()
+    {
+      changeNotificationExecutor.execute(this);
+    }
+
+
+
+    /**
+     * Queues the provided change notification so that it will be processed by
+     * a separate thread.  This method will never block while waiting for the
+     * client to read data.  If too many notifications are already waiting to
+     * be sent to the client, then this persistent search will be deregistered
+     * and the client will be sent a search result done message with a result
+     * code of {@code ADMIN_LIMIT_EXCEEDED}.
+     *
+     * @param  n  The notification for the change to queue.
+     */
+    private void queueChange(final ChangeNotification n)
+    {
+      if (n.getSequenceNumber() <= registrationSequenceNumber)
+      {
+        return;
+      }
+
+      synchronized (pendingNotifications)
+      {
+        if (terminated)
+        {
+          return;
+        }
+
+        if (pendingNotifications.size() >= MAX_PENDING_CHANGE_NOTIFICATIONS)
+        {
+          // The search result done message can't be sent from this thread
+          // because the client isn't reading, and writing it could block the
+          // operation that made the change.  Leave it for the delivery task,
+          // which will send it once it is able to write to the client again.
+          final String message =
+               WARN_MEM_HANDLER_PERSISTENT_SEARCH_QUEUE_FULL.get(messageID,
+                    connection.getConnectionID(),
+                    MAX_PENDING_CHANGE_NOTIFICATIONS);
+          Debug.debug(Level.WARNING, DebugType.LDAP, message);
+          persistentSearches.remove(this);
+          pendingNotifications.clear();
+          terminated = true;
+          pendingTerminationMessage = message;
+        }
+        else
+        {
+          pendingNotifications.add(n);
+        }
+
+        if (deliveryScheduled)
+        {
+          return;
+        }
+
+        deliveryScheduled = true;
+      }
+
+      changeNotificationExecutor.execute(this);
+    }
+
+
+
+    /**
+     * Sends all of the queued change notifications to the client, in the
+     * order in which they were queued.  If this persistent search has been
+     * deregistered because too many notifications were pending, then the
+     * search result done message will be sent after the last notification.
+     */
+    @Override()
+    public void run()
+    {
+      while (true)
+      {
+        final ChangeNotification n;
+        final String terminationMessage;
+        synchronized (pendingNotifications)
+        {
+          n = pendingNotifications.poll();
+          if (n == null)
+          {
+            deliveryScheduled = false;
+            terminationMessage = pendingTerminationMessage;
+            pendingTerminationMessage = null;
+          }
+          else
+          {
+            terminationMessage = null;
+          }
+        }
+
+        if (n == null)
+        {
+          if (terminationMessage != null)
+          {
+            sendSearchResultDone(ResultCode.ADMIN_LIMIT_EXCEEDED,
+                 terminationMessage);
+          }
+
+          return;
+        }
+
+        try
+        {
+          processChange(n);
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+        }
+      }
+    }
+
+
+
+    /**
+     * Sends a search result entry to the client if the provided change is
+     * relevant to this persistent search.  If the entry cannot be sent, then
+     * this persistent search will be deregistered and the client will be sent
+     * a search result done message, or will be disconnected if that is not
+     * possible.
+     *
+     * @param  n  The notification for the change to process.
+     */
+    private void processChange(final ChangeNotification n)
+    {
+      if (n.getSequenceNumber() <= registrationSequenceNumber)
+      {
+        return;
+      }
+
+      final Entry entry;
+      final Control control;
+      if (changeTypes == null)
+      {
+        // For a content synchronization operation, the state depends on
+        // whether the entry was within the scope of the search before and
+        // after the change.
+        final ASN1OctetString cookie =
+             encodeSyncCookie(n.getSequenceNumber());
+        final boolean previouslyMatched = matches(n.getPreviousEntry());
+        if (matches(n.getEntry()))
+        {
+          entry = trimEntry(n.getEntry(), typesOnly, allUserAttrs, allOpAttrs,
+               returnAttrs);
+          control = new ContentSyncStateControl(
+               (previouslyMatched
+                    ? ContentSyncState.MODIFY
+                    : ContentSyncState.ADD),
+               getEntryUUID(n.getEntry()), cookie);
+        }
+        else if (previouslyMatched)
+        {
+          entry = new Entry(n.getPreviousEntry().getDN());
+          control = new ContentSyncStateControl(ContentSyncState.DELETE,
+               getEntryUUID(n.getPreviousEntry()), cookie);
+        }
+        else
+        {
+          return;
+        }
+      }
+      else
+      {
+        // For a persistent search, a deleted entry is returned as it appeared
+        // before it was removed.  Other changes are returned if the entry
+        // matches the search after the change.
+        final PersistentSearchChangeType changeType = n.getChangeType();
+        if (! changeTypes.contains(changeType))
+        {
+          return;
+        }
+
+        final Entry e;
+        if (changeType == PersistentSearchChangeType.DELETE)
+        {
+          e = n.getPreviousEntry();
+        }
+        else
+        {
+          e = n.getEntry();
+        }
+
+        if (! matches(e))
+        {
+          return;
+        }
+
+        entry = trimEntry(e, typesOnly, allUserAttrs, allOpAttrs,
+             returnAttrs);
+        if (returnECs)
+        {
+          final String previousDN;
+          if (changeType == PersistentSearchChangeType.MODIFY_DN)
+          {
+            previousDN = n.getPreviousEntry().getDN();
+          }
+          else
+          {
+            previousDN = null;
+          }
+
+          control = new EntryChangeNotificationControl(changeType, previousDN,
+               n.getChangeNumber());
+        }
+        else
+        {
+          control = null;
+        }
+      }
+
+      try
+      {
+        if (control == null)
+        {
+          connection.sendSearchResultEntry(messageID, entry);
+        }
+        else
+        {
+          connection.sendSearchResultEntry(messageID, entry, control);
+        }
+      }
+      catch (final LDAPException le)
+      {
+        // The client is no longer able to receive results, so there's no
+        // reason to keep this persistent search.
+        Debug.debugException(le);
+        persistentSearches.remove(this);
+        synchronized (pendingNotifications)
+        {
+          pendingNotifications.clear();
+          terminated = true;
+          pendingTerminationMessage = null;
+        }
+
+        sendSearchResultDone(le.getResultCode(), le.getMessage());
+      }
+    }
+
+
+
+    /**
+     * Sends a search result done message to the client to indicate that it
+     * will not be notified of any more changes.  If the message cannot be
+     * sent, then the client connection will be closed so that the client
+     * does not wait indefinitely for a response that will never arrive.
+     *
+     * @param  resultCode         The result code to include in the message.
+     * @param  diagnosticMessage  The diagnostic message to include in the
+     *                            message.
+     */
+    private void sendSearchResultDone(final ResultCode resultCode,
+                                      final String diagnosticMessage)
+    {
+      try
+      {
+        connection.sendSearchResultDone(messageID,
+             new SearchResultDoneProtocolOp(resultCode.intValue(), null,
+                  diagnosticMessage, null));
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+        connection.close(le);
+      }
+    }
+
+
+
+    /**
+     * Indicates whether the provided entry matches the criteria for this
+     * persistent search.
+     *
+     * @param  entry  The entry for which to make the determination.  It may
+     *                be {@code null}.
+     *
+     * @return  {@code true} if the provided entry matches the criteria for
+     *          this persistent search, or {@code false} if not.
+     */
+    private boolean matches(final Entry entry)
+    {
+      if (entry == null)
+      {
+        return false;
+      }
+
+      if (entry.hasObjectClass("ldapSubEntry") ||
+          entry.hasObjectClass("inheritableLDAPSubEntry"))
+      {
+        if (! includeSubEntries)
+        {
+          return false;
+        }
+      }
+      else if (! includeNonSubEntries)
+      {
+        return false;
+      }
+
+      try
+      {
+        return entry.getParsedDN().matchesBaseAndScope(baseDN, scope) &&
+             filter.matchesEntry(entry);
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+        return false;
+      }
+    }
+  }
+
+
+
+  /**
+   * This class holds information about a change that has been made to the
+   * data in the server, for delivery to registered persistent searches.
+   */
+  private static final class ChangeNotification
+  {
+    // The entry as it appeared after the change.
+    private final Entry entry;
+
+    // The entry as it appeared before the change.
+    private final Entry previousEntry;
+
+    // The change number for the change.
+    private final long changeNumber;
+
+    // The entry map modification count after the change was made.
+    private final long sequenceNumber;
+
+    // The type of change that was made.
+    private final PersistentSearchChangeType changeType;
+
+
+
+    /**
+     * Creates a new change notification with the provided information.
+     *
+     * @param  changeType      The type of change that was made.
+     * @param  previousEntry   The entry as it appeared before the change, or
+     *                         {@code null} for an add.
+     * @param  entry           The entry as it appeared after the change, or
+     *                         {@code null} for a delete.
+     * @param  changeNumber    The change number for the change, or -1 if it
+     *                         was not recorded in the changelog.
+     * @param  sequenceNumber  The entry map modification count after the
+     *                         change was made.
+     */
+    private ChangeNotification(final PersistentSearchChangeType changeType,
+                               final Entry previousEntry, final Entry entry,
+                               final long changeNumber,
+                               final long sequenceNumber)
+    {
+      this.changeType     = changeType;
+      this.previousEntry  = previousEntry;
+      this.entry          = entry;
+      this.changeNumber   = changeNumber;
+      this.sequenceNumber = sequenceNumber;
+    }
+
+
+
+    /**
+     * Retrieves the type of change that was made.
+     *
+     * @return  The type of change that was made.
+     */
+    private PersistentSearchChangeType getChangeType()
+    {
+      return changeType;
+    }
+
+
+
+    /**
+     * Retrieves the entry as it appeared before the change.
+     *
+     * @return  The entry as it appeared before the change, or {@code null}
+     *          for an add.
+     */
+    private Entry getPreviousEntry()
+    {
+      return previousEntry;
+    }
+
+
+
+    /**
+     * Retrieves the entry as it appeared after the change.
+     *
+     * @return  The entry as it appeared after the change, or {@code null} for
+     *          a delete.
+     */
+    private Entry getEntry()
+    {
+      return entry;
+    }
+
+
+
+    /**
+     * Retrieves the change number for the change.
+     *
+     * @return  The change number for the change, or -1 if it was not recorded
+     *          in the changelog.
+     */
+    private long getChangeNumber()
+    {
+      return changeNumber;
+    }
+
+
+
+    /**
+     * Retrieves the entry map modification count after the change was made.
+     * This may be used to order changes and to identify them in content
+     * synchronization cookies.
+     *
+     * @return  The entry map modification count after the change was made.
+     */
+    private long getSequenceNumber()
+    {
+      return sequenceNumber;
+    }
+  }
 }
@@ -628,6 +628,13 @@ public final class LDAPDebuggerRequestHandler
     final LDAPMessage responseMessage = requestHandler.processSearchRequest(
          messageID, request, controls);
 
+    // A null response indicates that the search (e.g., a persistent search)
+    // remains active, so there is no result to log yet.
+    if (responseMessage == null)
+    {
+      return null;
+    }
+
     b.setLength(0);
     appendHeader(b, responseMessage.getMessageID());
     b.append("     Search Result Done Protocol Op:").append(EOL);
@@ -24,22 +24,30 @@ package com.unboundid.ldap.listener;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ServerSocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
 import com.unboundid.util.Debug;
 import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
 
@@ -102,6 +110,14 @@ public final class LDAPListener
   // is established.
   private final AtomicLong nextConnectionID;
 
+  // The executor created to process requests read by selector threads if none
+  // was configured.
+  private final AtomicReference<ExecutorService> defaultRequestExecutor;
+
+  // The selector threads used to read requests from client connections, if
+  // any.
+  private final AtomicReference<LDAPListenerSelectorThread[]> selectorThreads;
+
   // The server socket that is being used to accept connections.
   private final AtomicReference<ServerSocket> serverSocket;
 
@@ -134,6 +150,8 @@ public final class LDAPListener
     stopRequested = new AtomicBoolean(false);
     nextConnectionID = new AtomicLong(0L);
     serverSocket = new AtomicReference<ServerSocket>(null);
+    selectorThreads = new AtomicReference<LDAPListenerSelectorThread[]>(null);
+    defaultRequestExecutor = new AtomicReference<ExecutorService>(null);
     thread = new AtomicReference<Thread>(null);
     startLatch = new CountDownLatch(1);
     establishedConnections =
@@ -155,19 +173,78 @@ public final class LDAPListener
     final ServerSocketFactory f = config.getServerSocketFactory();
     final InetAddress a = config.getListenAddress();
     final int p = config.getListenPort();
-    if (a == null)
+    final int selectorThreadCount = config.getSelectorThreadCount();
+    if (selectorThreadCount > 0)
     {
-      serverSocket.set(f.createServerSocket(config.getListenPort(), 128));
+      // Listeners that use selector threads need a server socket with an
+      // associated channel, so they can't use the server socket factory.
+      final ServerSocketChannel channel = ServerSocketChannel.open();
+      try
+      {
+        final ServerSocket s = channel.socket();
+
+        final int receiveBufferSize = config.getReceiveBufferSize();
+        if (receiveBufferSize > 0)
+        {
+          s.setReceiveBufferSize(receiveBufferSize);
+        }
+
+        if (a == null)
+        {
+          s.bind(new InetSocketAddress(p), 128);
+        }
+        else
+        {
+          s.bind(new InetSocketAddress(a, p), 128);
+        }
+
+        serverSocket.set(s);
+      }
+      catch (final IOException ioe)
+      {
+        Debug.debugException(ioe);
+        channel.close();
+        throw ioe;
+      }
+
+      final int port = serverSocket.get().getLocalPort();
+      final LDAPListenerSelectorThread[] threads =
+           new LDAPListenerSelectorThread[selectorThreadCount];
+      for (int i=0; i < threads.length; i++)
+      {
+        threads[i] = new LDAPListenerSelectorThread(
+             "LDAP Listener Selector Thread " + (i+1) + " for port " + port);
+      }
+
+      for (final LDAPListenerSelectorThread t : threads)
+      {
+        t.start();
+      }
+      selectorThreads.set(threads);
+
+      if (config.getRequestExecutor() == null)
+      {
+        defaultRequestExecutor.set(Executors.newCachedThreadPool(
+             new LDAPSDKThreadFactory(
+                  "LDAP Listener Request Processor for port " + port, true)));
+      }
     }
     else
     {
-      serverSocket.set(f.createServerSocket(config.getListenPort(), 128, a));
-    }
+      if (a == null)
+      {
+        serverSocket.set(f.createServerSocket(config.getListenPort(), 128));
+      }
+      else
+      {
+        serverSocket.set(f.createServerSocket(config.getListenPort(), 128, a));
+      }
 
-    final int receiveBufferSize = config.getReceiveBufferSize();
-    if (receiveBufferSize > 0)
-    {
-      serverSocket.get().setReceiveBufferSize(receiveBufferSize);
+      final int receiveBufferSize = config.getReceiveBufferSize();
+      if (receiveBufferSize > 0)
+      {
+        serverSocket.get().setReceiveBufferSize(receiveBufferSize);
+      }
     }
 
     setName("LDAP Listener Thread (listening on port " +
@@ -200,6 +277,9 @@ public final class LDAPListener
     final LDAPListenerExceptionHandler exceptionHandler =
          config.getExceptionHandler();
 
+    final LDAPListenerSelectorThread[] threads = selectorThreads.get();
+    int nextSelectorThread = 0;
+
     try
     {
       startLatch.countDown();
@@ -228,11 +308,36 @@ public final class LDAPListener
           continue;
         }
 
+        final LDAPListenerSelectorThread selectorThread;
         final LDAPListenerClientConnection c;
         try
         {
-          c = new LDAPListenerClientConnection(this, s,
-               config.getRequestHandler(), config.getExceptionHandler());
+          if (threads == null)
+          {
+            selectorThread = null;
+            c = new LDAPListenerClientConnection(this, s,
+                 config.getRequestHandler(), config.getExceptionHandler());
+          }
+          else
+          {
+            selectorThread = threads[nextSelectorThread];
+            nextSelectorThread = (nextSelectorThread + 1) % threads.length;
+
+            final SSLContext sslContext = config.getSelectorSSLContext();
+            final SSLEngine sslEngine;
+            if (sslContext == null)
+            {
+              sslEngine = null;
+            }
+            else
+            {
+              sslEngine = sslContext.createSSLEngine();
+            }
+
+            c = new LDAPListenerClientConnection(this, s, sslEngine,
+                 selectorThread, config.getRequestHandler(),
+                 config.getExceptionHandler());
+          }
         }
         catch (final LDAPException le)
         {
@@ -245,6 +350,27 @@ public final class LDAPListener
 
           continue;
         }
+        catch (final RuntimeException re)
+        {
+          // This may happen if the SSL context could not create an engine.
+          Debug.debugException(re);
+
+          try
+          {
+            s.close();
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+          }
+
+          if (exceptionHandler != null)
+          {
+            exceptionHandler.connectionCreationFailure(s, re);
+          }
+
+          continue;
+        }
 
         final int maxConnections = config.getMaxConnections();
         if ((maxConnections > 0) &&
@@ -257,7 +383,14 @@ public final class LDAPListener
         }
 
         establishedConnections.put(c.getConnectionID(), c);
-        c.start();
+        if (selectorThread == null)
+        {
+          c.start();
+        }
+        else
+        {
+          selectorThread.addConnection(c);
+        }
       }
     }
     finally
@@ -389,6 +522,26 @@ public final class LDAPListener
     {
       closeAllConnections(false);
     }
+
+    // Selector threads will continue to service any connections that remain
+    // established, and will exit once those connections have been closed.
+    final LDAPListenerSelectorThread[] threads = selectorThreads.get();
+    if (threads != null)
+    {
+      for (final LDAPListenerSelectorThread selectorThread : threads)
+      {
+        selectorThread.stopWhenIdle();
+      }
+    }
+
+    if (closeExisting)
+    {
+      final ExecutorService executor = defaultRequestExecutor.get();
+      if (executor != null)
+      {
+        executor.shutdown();
+      }
+    }
   }
 
 
@@ -454,6 +607,21 @@ public final class LDAPListener
 
 
 
+  /**
+   * Retrieves the executor that should be used to process requests read by
+   * selector threads if no request executor was configured.
+   *
+   * @return  The executor that should be used to process requests read by
+   *          selector threads if no request executor was configured, or
+   *          {@code null} if this listener does not use selector threads.
+   */
+  Executor getDefaultRequestExecutor()
+  {
+    return defaultRequestExecutor.get();
+  }
+
+
+
   /**
    * Retrieves the connection ID that should be used for the next connection
    * accepted by this listener.
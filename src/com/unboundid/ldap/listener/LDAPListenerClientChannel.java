@@ -0,0 +1,684 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.util.Debug;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a wrapper around a non-blocking socket channel for a
+ * client connection accepted by an {@link LDAPListener} that uses selector
+ * threads.  Data read from the client will be accumulated until complete LDAP
+ * messages are available, and data written to the client will be written in
+ * full by the thread that sends it.  If an {@code SSLEngine} is provided, then
+ * all communication with the client will be secured with TLS.
+ * <BR><BR>
+ * Only the selector thread for the connection may read from the channel, while
+ * any thread may write to it.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.MOSTLY_THREADSAFE)
+final class LDAPListenerClientChannel
+{
+  /**
+   * The initial size to use for the buffer that holds clear-text data read
+   * from the client.
+   */
+  private static final int INITIAL_READ_BUFFER_SIZE = 8192;
+
+
+
+  /**
+   * The maximum length of time in milliseconds to wait for the channel to
+   * become writable before checking to see whether it has been closed.
+   */
+  private static final long WRITE_WAIT_INTERVAL_MILLIS = 1000L;
+
+
+
+  /**
+   * A pre-allocated empty buffer.
+   */
+  private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+
+
+  // The buffer used to hold clear-text data read from the client that has not
+  // yet been decoded.  It will only be accessed by the selector thread.
+  private ByteBuffer appReadBuffer;
+
+  // The buffer used to hold TLS-encoded data read from the client that has not
+  // yet been unwrapped.  It will only be accessed by the selector thread, and
+  // it will be null if TLS is not in use.
+  private ByteBuffer netReadBuffer;
+
+  // The buffer used to hold TLS-encoded data to be written to the client.  It
+  // will only be accessed while holding the write lock, and it will be null if
+  // TLS is not in use.
+  private ByteBuffer netWriteBuffer;
+
+  // The output stream that may be used to write data to the client.
+  private final OutputStream outputStream;
+
+  // The lock used to ensure that only one thread writes to the client at a
+  // time.
+  private final Object writeLock;
+
+  // A selector that may be used to wait for the channel to become writable.
+  // It will be created only if needed, and will only be accessed while
+  // holding the write lock.
+  private Selector writeSelector;
+
+  // The socket channel used to communicate with the client.
+  private final SocketChannel socketChannel;
+
+  // The SSL engine used to secure communication with the client, if any.
+  private final SSLEngine sslEngine;
+
+
+
+  /**
+   * Creates a new client channel for the provided socket channel.  The
+   * channel will be placed in non-blocking mode.
+   *
+   * @param  socketChannel  The socket channel used to communicate with the
+   *                        client.  It must not be {@code null}.
+   * @param  sslEngine      The SSL engine used to secure communication with
+   *                        the client.  It may be {@code null} if the
+   *                        communication should not be secured.
+   *
+   * @throws  IOException  If a problem occurs while configuring the channel.
+   */
+  LDAPListenerClientChannel(final SocketChannel socketChannel,
+                            final SSLEngine sslEngine)
+       throws IOException
+  {
+    this.socketChannel = socketChannel;
+    this.sslEngine     = sslEngine;
+
+    socketChannel.configureBlocking(false);
+
+    writeLock     = new Object();
+    writeSelector = null;
+    outputStream  = new ChannelOutputStream();
+
+    if (sslEngine == null)
+    {
+      appReadBuffer  = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+      netReadBuffer  = null;
+      netWriteBuffer = null;
+    }
+    else
+    {
+      sslEngine.setUseClientMode(false);
+
+      final int packetBufferSize =
+           sslEngine.getSession().getPacketBufferSize();
+      appReadBuffer = ByteBuffer.allocate(Math.max(INITIAL_READ_BUFFER_SIZE,
+           sslEngine.getSession().getApplicationBufferSize()));
+      netReadBuffer  = ByteBuffer.allocate(packetBufferSize);
+      netWriteBuffer = ByteBuffer.allocate(packetBufferSize);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the socket channel used to communicate with the client.
+   *
+   * @return  The socket channel used to communicate with the client.
+   */
+  SocketChannel getSocketChannel()
+  {
+    return socketChannel;
+  }
+
+
+
+  /**
+   * Retrieves an output stream that may be used to write data to the client.
+   * Each write will block until all of the provided data has been written.
+   *
+   * @return  An output stream that may be used to write data to the client.
+   */
+  OutputStream getOutputStream()
+  {
+    return outputStream;
+  }
+
+
+
+  /**
+   * Reads any data that is available from the client and decodes any complete
+   * LDAP messages that it contains.  This must only be called by the selector
+   * thread for the connection.
+   *
+   * @return  The list of complete messages that have been read, which may be
+   *          empty if no complete message is available yet, or {@code null}
+   *          if the client has closed the connection.
+   *
+   * @throws  IOException  If a problem occurs while reading from the client.
+   *
+   * @throws  LDAPException  If the data read from the client cannot be
+   *                         decoded as LDAP messages.
+   */
+  List<LDAPMessage> readMessages()
+       throws IOException, LDAPException
+  {
+    final boolean endOfStream;
+    if (sslEngine == null)
+    {
+      if (! appReadBuffer.hasRemaining())
+      {
+        appReadBuffer = enlarge(appReadBuffer, appReadBuffer.capacity() * 2);
+      }
+
+      endOfStream = (socketChannel.read(appReadBuffer) < 0);
+    }
+    else
+    {
+      endOfStream = readTLS();
+    }
+
+    final List<LDAPMessage> messages = decodeMessages();
+    if (endOfStream && messages.isEmpty())
+    {
+      return null;
+    }
+
+    return messages;
+  }
+
+
+
+  /**
+   * Reads any TLS-encoded data that is available from the client and unwraps
+   * it into the application read buffer, performing any handshake processing
+   * that may be needed.
+   *
+   * @return  {@code true} if the client has closed the connection, or
+   *          {@code false} if not.
+   *
+   * @throws  IOException  If a problem occurs while reading from the client.
+   */
+  private boolean readTLS()
+          throws IOException
+  {
+    if (socketChannel.read(netReadBuffer) < 0)
+    {
+      return true;
+    }
+
+    netReadBuffer.flip();
+    try
+    {
+      while (true)
+      {
+        final SSLEngineResult result =
+             sslEngine.unwrap(netReadBuffer, appReadBuffer);
+        switch (result.getStatus())
+        {
+          case BUFFER_OVERFLOW:
+            appReadBuffer = enlarge(appReadBuffer, appReadBuffer.position() +
+                 sslEngine.getSession().getApplicationBufferSize());
+            continue;
+
+          case BUFFER_UNDERFLOW:
+            // More data is needed to unwrap the next record.  Make sure that
+            // the buffer is large enough to hold it.
+            final int packetBufferSize =
+                 sslEngine.getSession().getPacketBufferSize();
+            if (netReadBuffer.capacity() < packetBufferSize)
+            {
+              final ByteBuffer b = ByteBuffer.allocate(packetBufferSize);
+              b.put(netReadBuffer);
+              b.flip();
+              netReadBuffer = b;
+            }
+            processHandshake(result.getHandshakeStatus());
+            return false;
+
+          case CLOSED:
+            return true;
+        }
+
+        final boolean handshakeProgress =
+             processHandshake(result.getHandshakeStatus());
+        if ((result.bytesConsumed() == 0) && (result.bytesProduced() == 0) &&
+            (! handshakeProgress))
+        {
+          return false;
+        }
+      }
+    }
+    finally
+    {
+      netReadBuffer.compact();
+    }
+  }
+
+
+
+  /**
+   * Performs any handshake processing that may be required, other than
+   * unwrapping data received from the client.
+   *
+   * @param  handshakeStatus  The current handshake status.
+   *
+   * @return  {@code true} if any handshake processing was performed, or
+   *          {@code false} if not.
+   *
+   * @throws  IOException  If a problem occurs while writing handshake data to
+   *                       the client.
+   */
+  private boolean processHandshake(
+                       final SSLEngineResult.HandshakeStatus handshakeStatus)
+          throws IOException
+  {
+    boolean progress = false;
+    SSLEngineResult.HandshakeStatus status = handshakeStatus;
+    while (true)
+    {
+      switch (status)
+      {
+        case NEED_TASK:
+          Runnable task = sslEngine.getDelegatedTask();
+          while (task != null)
+          {
+            task.run();
+            task = sslEngine.getDelegatedTask();
+          }
+          status = sslEngine.getHandshakeStatus();
+          progress = true;
+          break;
+
+        case NEED_WRAP:
+          synchronized (writeLock)
+          {
+            wrapAndWrite(EMPTY_BUFFER.duplicate());
+          }
+          status = sslEngine.getHandshakeStatus();
+          progress = true;
+          break;
+
+        default:
+          return progress;
+      }
+    }
+  }
+
+
+
+  /**
+   * Decodes any complete LDAP messages contained in the application read
+   * buffer.
+   *
+   * @return  A list of the messages that were decoded.  It may be empty but
+   *          will not be {@code null}.
+   *
+   * @throws  LDAPException  If the data read from the client cannot be
+   *                         decoded as LDAP messages.
+   */
+  private List<LDAPMessage> decodeMessages()
+          throws LDAPException
+  {
+    appReadBuffer.flip();
+
+    List<LDAPMessage> messages = Collections.emptyList();
+    int requiredCapacity = 0;
+    try
+    {
+      while (appReadBuffer.remaining() >= 2)
+      {
+        // Determine the length of the next message from its BER header.
+        final int start = appReadBuffer.position();
+        final int firstLengthByte = appReadBuffer.get(start + 1) & 0xFF;
+        final int headerLength;
+        long valueLength;
+        if ((firstLengthByte & 0x80) == 0x00)
+        {
+          headerLength = 2;
+          valueLength = firstLengthByte;
+        }
+        else
+        {
+          final int numLengthBytes = firstLengthByte & 0x7F;
+          if ((numLengthBytes < 1) || (numLengthBytes > 4))
+          {
+            throw new LDAPException(ResultCode.DECODING_ERROR,
+                 ERR_CONN_INVALID_REQUEST_LENGTH.get());
+          }
+
+          headerLength = 2 + numLengthBytes;
+          if (appReadBuffer.remaining() < headerLength)
+          {
+            break;
+          }
+
+          valueLength = 0L;
+          for (int i=0; i < numLengthBytes; i++)
+          {
+            valueLength = (valueLength << 8) |
+                 (appReadBuffer.get(start + 2 + i) & 0xFF);
+          }
+        }
+
+        final long messageLength = headerLength + valueLength;
+        if (messageLength > Integer.MAX_VALUE)
+        {
+          throw new LDAPException(ResultCode.DECODING_ERROR,
+               ERR_CONN_INVALID_REQUEST_LENGTH.get());
+        }
+
+        if (appReadBuffer.remaining() < messageLength)
+        {
+          requiredCapacity = (int) messageLength;
+          break;
+        }
+
+        // The read buffer will be reused, so decode the message from a
+        // read-only view of it.  That prevents the decoded values from
+        // referencing the buffer, so each value is copied into an array of its
+        // own, and a value that the request handler keeps won't retain the rest
+        // of the message.
+        final ByteBuffer messageBuffer = appReadBuffer.asReadOnlyBuffer();
+        messageBuffer.limit(messageBuffer.position() + (int) messageLength);
+        appReadBuffer.position(appReadBuffer.position() + (int) messageLength);
+        final LDAPMessage message =
+             LDAPMessage.readFrom(new ASN1StreamReader(messageBuffer), false);
+        if (messages.isEmpty())
+        {
+          messages = new ArrayList<LDAPMessage>(1);
+        }
+        messages.add(message);
+      }
+    }
+    finally
+    {
+      appReadBuffer.compact();
+    }
+
+    if (requiredCapacity > appReadBuffer.capacity())
+    {
+      appReadBuffer = enlarge(appReadBuffer, requiredCapacity);
+    }
+
+    return messages;
+  }
+
+
+
+  /**
+   * Writes the provided data to the client, blocking until all of it has been
+   * written.
+   *
+   * @param  data  The buffer containing the data to write.
+   *
+   * @throws  IOException  If a problem occurs while writing the data.
+   */
+  private void write(final ByteBuffer data)
+          throws IOException
+  {
+    synchronized (writeLock)
+    {
+      if (sslEngine == null)
+      {
+        writeFully(data);
+      }
+      else
+      {
+        wrapAndWrite(data);
+      }
+    }
+  }
+
+
+
+  /**
+   * Uses the SSL engine to wrap the provided data and writes the result to
+   * the client.  The caller must hold the write lock.
+   *
+   * @param  data  The buffer containing the data to wrap.  It may be empty if
+   *               only handshake data should be written.
+   *
+   * @throws  IOException  If a problem occurs while wrapping or writing the
+   *                       data.
+   */
+  private void wrapAndWrite(final ByteBuffer data)
+          throws IOException
+  {
+    while (true)
+    {
+      netWriteBuffer.clear();
+      final SSLEngineResult result = sslEngine.wrap(data, netWriteBuffer);
+      switch (result.getStatus())
+      {
+        case BUFFER_OVERFLOW:
+          netWriteBuffer = ByteBuffer.allocate(Math.max(
+               (netWriteBuffer.capacity() * 2),
+               sslEngine.getSession().getPacketBufferSize()));
+          continue;
+
+        case CLOSED:
+          throw new ClosedChannelException();
+      }
+
+      netWriteBuffer.flip();
+      writeFully(netWriteBuffer);
+
+      SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+      if (status == SSLEngineResult.HandshakeStatus.NEED_TASK)
+      {
+        Runnable task = sslEngine.getDelegatedTask();
+        while (task != null)
+        {
+          task.run();
+          task = sslEngine.getDelegatedTask();
+        }
+        status = sslEngine.getHandshakeStatus();
+      }
+
+      if (data.hasRemaining())
+      {
+        if ((result.bytesConsumed() == 0) && (result.bytesProduced() == 0))
+        {
+          // This would only happen if the engine needs data from the client
+          // (e.g., for a renegotiation), which is not supported.
+          throw new SSLException(ERR_CONN_TLS_WRAP_FAILED.get());
+        }
+      }
+      else if (status != SSLEngineResult.HandshakeStatus.NEED_WRAP)
+      {
+        return;
+      }
+    }
+  }
+
+
+
+  /**
+   * Writes all of the data in the provided buffer to the client, waiting for
+   * the channel to become writable as necessary.  The caller must hold the
+   * write lock.
+   *
+   * @param  buffer  The buffer containing the data to be written.
+   *
+   * @throws  IOException  If a problem occurs while writing the data.
+   */
+  private void writeFully(final ByteBuffer buffer)
+          throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      if (socketChannel.write(buffer) > 0)
+      {
+        continue;
+      }
+
+      // The socket's send buffer is full, so wait for the client to read some
+      // of the data that has already been sent.
+      try
+      {
+        if (writeSelector == null)
+        {
+          writeSelector = Selector.open();
+          socketChannel.register(writeSelector, SelectionKey.OP_WRITE);
+        }
+
+        writeSelector.select(WRITE_WAIT_INTERVAL_MILLIS);
+        writeSelector.selectedKeys().clear();
+      }
+      catch (final ClosedSelectorException cse)
+      {
+        Debug.debugException(cse);
+        throw new ClosedChannelException();
+      }
+
+      if (! socketChannel.isOpen())
+      {
+        throw new ClosedChannelException();
+      }
+    }
+  }
+
+
+
+  /**
+   * Closes the channel and releases any resources associated with it.
+   */
+  void close()
+  {
+    try
+    {
+      socketChannel.close();
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+    }
+
+    final Selector s = writeSelector;
+    if (s != null)
+    {
+      try
+      {
+        s.close();
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+      }
+    }
+  }
+
+
+
+  /**
+   * Creates a new buffer with at least the specified capacity that contains
+   * the data from the provided buffer, which must be in a state to accept
+   * additional data.
+   *
+   * @param  buffer    The buffer to be enlarged.
+   * @param  capacity  The minimum capacity for the new buffer.
+   *
+   * @return  The new buffer, which will be in a state to accept additional
+   *          data.
+   */
+  private static ByteBuffer enlarge(final ByteBuffer buffer,
+                                    final int capacity)
+  {
+    final ByteBuffer b =
+         ByteBuffer.allocate(Math.max(capacity, buffer.capacity()));
+    buffer.flip();
+    b.put(buffer);
+    return b;
+  }
+
+
+
+  /**
+   * This class provides an output stream that writes data to the client
+   * through the enclosing channel.
+   */
+  private final class ChannelOutputStream
+          extends OutputStream
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void write(final int b)
+           throws IOException
+    {
+      LDAPListenerClientChannel.this.write(
+           ByteBuffer.wrap(new byte[] { (byte) b }));
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void write(final byte[] b, final int off, final int len)
+           throws IOException
+    {
+      LDAPListenerClientChannel.this.write(ByteBuffer.wrap(b, off, len));
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void close()
+    {
+      // No implementation is required.  The underlying channel will be closed
+      // when the associated connection is closed.
+    }
+  }
+}
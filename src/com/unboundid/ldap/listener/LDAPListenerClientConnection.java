@@ -26,10 +26,15 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
@@ -54,6 +59,7 @@ import com.unboundid.ldap.sdk.ExtendedResult;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPRuntimeException;
 import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.controls.TransactionSpecificationRequestControl;
 import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
 import com.unboundid.util.Debug;
 import com.unboundid.util.InternalUseOnly;
@@ -73,7 +79,11 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
  * be created independently if they were accepted in some other way.  Each
  * connection has its own thread that will be used to read requests from the
  * client, and connections created outside of an {@code LDAPListener} instance,
- * then the thread must be explicitly started.
+ * then the thread must be explicitly started.  If the listener is configured
+ * with a request executor (as described in
+ * {@link LDAPListenerConfig#setRequestExecutor}), then that thread will hand
+ * off requests to the executor so that multiple operations requested over the
+ * same connection may be processed concurrently.
  */
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 public final class LDAPListenerClientConnection
@@ -87,6 +97,15 @@ public final class LDAPListenerClientConnection
 
 
 
+  /**
+   * The maximum number of requests that may be waiting or in progress for a
+   * connection serviced by a selector thread before no more requests will be
+   * read from the client until some of them have completed.
+   */
+  private static final int MAX_QUEUED_REQUESTS = 100;
+
+
+
   // The buffer used to hold responses to be sent to the client.
   private final ASN1Buffer asn1Buffer;
 
@@ -97,6 +116,47 @@ public final class LDAPListenerClientConnection
   // response to the client.
   private final AtomicBoolean suppressNextResponse;
 
+  // The executor that will be used to process requests concurrently, if any.
+  private final Executor requestExecutor;
+
+  // The number of requests handed off to the request executor that have not
+  // yet completed.
+  private int outstandingRequests;
+
+  // The lock used to protect access to the outstanding request count.
+  private final Object outstandingRequestLock;
+
+  // Indicates whether each request must be processed by itself rather than
+  // concurrently with other requests.  This is only used for connections
+  // serviced by a selector thread.
+  private final boolean serializeRequests;
+
+  // The requests read by the selector thread that have not yet been handed off
+  // to the request executor.  All access to this queue must be synchronized on
+  // the outstanding request lock.
+  private final ArrayDeque<LDAPMessage> pendingRequests;
+
+  // Indicates whether a request that must be processed by itself is in
+  // progress.  All access to this field must be synchronized on the
+  // outstanding request lock.
+  private boolean exclusiveRequestInProgress;
+
+  // Indicates whether the selector thread has stopped reading requests from
+  // the client because too many requests are waiting or in progress.  All
+  // access to this field must be synchronized on the outstanding request lock.
+  private boolean readingSuspended;
+
+  // Indicates whether a connection serviced by a selector thread has been
+  // closed.
+  private final AtomicBoolean closed;
+
+  // The channel used to communicate with the client, if this connection is
+  // serviced by a selector thread.
+  private final LDAPListenerClientChannel clientChannel;
+
+  // The selector thread that reads requests for this connection, if any.
+  private final LDAPListenerSelectorThread selectorThread;
+
   // The set of intermediate response transformers for this connection.
   private final CopyOnWriteArrayList<IntermediateResponseTransformer>
        intermediateResponseTransformers;
@@ -159,6 +219,50 @@ public final class LDAPListenerClientConnection
               final LDAPListenerRequestHandler requestHandler,
               final LDAPListenerExceptionHandler exceptionHandler)
          throws LDAPException
+  {
+    this(listener, socket, null, null, requestHandler, exceptionHandler);
+  }
+
+
+
+  /**
+   * Creates a new LDAP listener client connection that will communicate with
+   * the client using the provided socket.  If a selector thread is provided,
+   * then the socket must have an associated channel, and this connection
+   * must be added to the selector thread rather than being started.
+   *
+   * @param  listener          The listener that accepted this client
+   *                           connection.  It may be {@code null} if this
+   *                           connection was not accepted by a listener and
+   *                           no selector thread is provided.
+   * @param  socket            The socket that may be used to communicate with
+   *                           the client.  It must not be {@code null}.
+   * @param  sslEngine         The SSL engine that will be used to secure
+   *                           communication with the client.  It may be
+   *                           {@code null} if communication should not be
+   *                           secured, and it will be ignored if no selector
+   *                           thread is provided.
+   * @param  selectorThread    The selector thread that will be used to read
+   *                           requests from the client.  It may be
+   *                           {@code null} if this connection should use its
+   *                           own thread.
+   * @param  requestHandler    The request handler that will be used to process
+   *                           requests read from the client.  It must not be
+   *                           {@code null}.
+   * @param  exceptionHandler  The disconnect handler to be notified when this
+   *                           connection is closed.  It may be {@code null} if
+   *                           no disconnect handler should be used.
+   *
+   * @throws  LDAPException  If a problem occurs while preparing this client
+   *                         connection. for use.  If this is thrown, then the
+   *                         provided socket will be closed.
+   */
+  LDAPListenerClientConnection(final LDAPListener listener,
+       final Socket socket, final SSLEngine sslEngine,
+       final LDAPListenerSelectorThread selectorThread,
+       final LDAPListenerRequestHandler requestHandler,
+       final LDAPListenerExceptionHandler exceptionHandler)
+       throws LDAPException
   {
     Validator.ensureNotNull(socket, requestHandler);
 
@@ -170,9 +274,16 @@ public final class LDAPListenerClientConnection
     this.listener         = listener;
     this.socket           = socket;
     this.exceptionHandler = exceptionHandler;
+    this.selectorThread   = selectorThread;
 
-    asn1Buffer           = new ASN1Buffer();
-    suppressNextResponse = new AtomicBoolean(false);
+    asn1Buffer                 = new ASN1Buffer();
+    suppressNextResponse       = new AtomicBoolean(false);
+    outstandingRequests        = 0;
+    outstandingRequestLock     = new Object();
+    pendingRequests            = new ArrayDeque<LDAPMessage>(1);
+    exclusiveRequestInProgress = false;
+    readingSuspended           = false;
+    closed                     = new AtomicBoolean(false);
 
     intermediateResponseTransformers =
          new CopyOnWriteArrayList<IntermediateResponseTransformer>();
@@ -183,11 +294,30 @@ public final class LDAPListenerClientConnection
 
     if (listener == null)
     {
-      connectionID = -1L;
+      connectionID      = -1L;
+      requestExecutor   = null;
+      serializeRequests = false;
     }
     else
     {
       connectionID = listener.nextConnectionID();
+
+      // Connections serviced by a selector thread always need an executor to
+      // process their requests.  If none was configured, then use one
+      // provided by the listener and preserve the one-request-at-a-time
+      // behavior of connections with their own threads.
+      final Executor configuredExecutor =
+           listener.getConfig().getRequestExecutor();
+      if ((selectorThread != null) && (configuredExecutor == null))
+      {
+        requestExecutor   = listener.getDefaultRequestExecutor();
+        serializeRequests = true;
+      }
+      else
+      {
+        requestExecutor   = configuredExecutor;
+        serializeRequests = false;
+      }
     }
 
     try
@@ -213,7 +343,17 @@ public final class LDAPListenerClientConnection
         socket.setSendBufferSize(sendBufferSize);
       }
 
-      asn1Reader = new ASN1StreamReader(socket.getInputStream());
+      if (selectorThread == null)
+      {
+        clientChannel = null;
+        asn1Reader = new ASN1StreamReader(socket.getInputStream());
+      }
+      else
+      {
+        clientChannel =
+             new LDAPListenerClientChannel(socket.getChannel(), sslEngine);
+        asn1Reader = null;
+      }
     }
     catch (final IOException ioe)
     {
@@ -236,19 +376,29 @@ public final class LDAPListenerClientConnection
 
     try
     {
-      outputStream = socket.getOutputStream();
+      if (clientChannel == null)
+      {
+        outputStream = socket.getOutputStream();
+      }
+      else
+      {
+        outputStream = clientChannel.getOutputStream();
+      }
     }
     catch (final IOException ioe)
     {
       Debug.debugException(ioe);
 
-      try
-      {
-        asn1Reader.close();
-      }
-      catch (final Exception e)
+      if (asn1Reader != null)
       {
-        Debug.debugException(e);
+        try
+        {
+          asn1Reader.close();
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+        }
       }
 
       try
@@ -274,13 +424,16 @@ public final class LDAPListenerClientConnection
     {
       Debug.debugException(le);
 
-      try
+      if (asn1Reader != null)
       {
-        asn1Reader.close();
-      }
-      catch (final Exception e)
-      {
-        Debug.debugException(e);
+        try
+        {
+          asn1Reader.close();
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+        }
       }
 
       try
@@ -325,9 +478,21 @@ public final class LDAPListenerClientConnection
       Debug.debugException(e);
     }
 
+    if (asn1Reader != null)
+    {
+      try
+      {
+        asn1Reader.close();
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+      }
+    }
+
     try
     {
-      asn1Reader.close();
+      outputStream.close();
     }
     catch (final Exception e)
     {
@@ -336,14 +501,24 @@ public final class LDAPListenerClientConnection
 
     try
     {
-      outputStream.close();
+      socket.close();
     }
-    catch (final Exception e)
+    finally
     {
-      Debug.debugException(e);
-    }
+      if (clientChannel != null)
+      {
+        clientChannel.close();
+        if (closed.compareAndSet(false, true))
+        {
+          if (listener != null)
+          {
+            listener.connectionClosed(this);
+          }
 
-    socket.close();
+          selectorThread.wakeup();
+        }
+      }
+    }
   }
 
 
@@ -404,6 +579,13 @@ public final class LDAPListenerClientConnection
   @Override()
   public void run()
   {
+    // Connections serviced by a selector thread do not read requests in their
+    // own thread.
+    if (clientChannel != null)
+    {
+      return;
+    }
+
     try
     {
       while (true)
@@ -436,209 +618,629 @@ public final class LDAPListenerClientConnection
           return;
         }
 
-        try
+        // If requests are to be processed concurrently, then hand off those
+        // that can be processed independently of other requests.  Bind and
+        // extended requests may alter the state of the connection (e.g., its
+        // authentication identity or whether it uses TLS), and requests that
+        // are part of a transaction must be added to it in order, so they will
+        // only be processed after all outstanding requests have completed.
+        if (requestExecutor != null)
         {
-          final int messageID = requestMessage.getMessageID();
-          final List<Control> controls = requestMessage.getControls();
-
-          LDAPMessage responseMessage;
           switch (requestMessage.getProtocolOpType())
           {
-            case LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST:
-              requestHandler.processAbandonRequest(messageID,
-                   requestMessage.getAbandonRequestProtocolOp(), controls);
-              responseMessage = null;
-              break;
-
             case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
-              try
+            case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
+            case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
+            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
+            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
+            case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
+              if (hasTransactionSpecificationControl(requestMessage))
               {
-                responseMessage = requestHandler.processAddRequest(messageID,
-                     requestMessage.getAddRequestProtocolOp(), controls);
+                waitForOutstandingRequests();
               }
-              catch (final Exception e)
+              else if (dispatchRequest(requestMessage))
               {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new AddResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
+                continue;
               }
               break;
 
             case LDAPMessage.PROTOCOL_OP_TYPE_BIND_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processBindRequest(messageID,
-                     requestMessage.getBindRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new BindResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null, null));
-              }
+            case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
+              waitForOutstandingRequests();
               break;
+          }
+        }
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processCompareRequest(
-                     messageID, requestMessage.getCompareRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new CompareResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
+        if (! processRequest(requestMessage))
+        {
+          return;
+        }
+      }
+    }
+    finally
+    {
+      if (listener != null)
+      {
+        listener.connectionClosed(this);
+      }
+    }
+  }
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processDeleteRequest(messageID,
-                     requestMessage.getDeleteRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new DeleteResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processExtendedRequest(
-                     messageID, requestMessage.getExtendedRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ExtendedResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null, null, null));
-              }
-              break;
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processModifyRequest(messageID,
-                     requestMessage.getModifyRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ModifyResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
+  /**
+   * Processes the provided request and sends the response to the client.
+   *
+   * @param  requestMessage  The request message to be processed.
+   *
+   * @return  {@code true} if processing completed and the connection remains
+   *          established, or {@code false} if the connection has been closed.
+   */
+  private boolean processRequest(final LDAPMessage requestMessage)
+  {
+    try
+    {
+      final int messageID = requestMessage.getMessageID();
+      final List<Control> controls = requestMessage.getControls();
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processModifyDNRequest(
-                     messageID, requestMessage.getModifyDNRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ModifyDNResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
+      LDAPMessage responseMessage;
+      switch (requestMessage.getProtocolOpType())
+      {
+        case LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST:
+          requestHandler.processAbandonRequest(messageID,
+               requestMessage.getAbandonRequestProtocolOp(), controls);
+          responseMessage = null;
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processAddRequest(messageID,
+                 requestMessage.getAddRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new AddResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processSearchRequest(messageID,
-                     requestMessage.getSearchRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new SearchResultDoneProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
+        case LDAPMessage.PROTOCOL_OP_TYPE_BIND_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processBindRequest(messageID,
+                 requestMessage.getBindRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new BindResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null, null));
+          }
+          break;
 
-            case LDAPMessage.PROTOCOL_OP_TYPE_UNBIND_REQUEST:
-              requestHandler.processUnbindRequest(messageID,
-                   requestMessage.getUnbindRequestProtocolOp(), controls);
-              close();
-              return;
+        case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processCompareRequest(
+                 messageID, requestMessage.getCompareRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new CompareResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
 
-            default:
-              close(new LDAPException(ResultCode.PROTOCOL_ERROR,
-                   ERR_CONN_INVALID_PROTOCOL_OP_TYPE.get(StaticUtils.toHex(
-                        requestMessage.getProtocolOpType()))));
-              return;
+        case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processDeleteRequest(messageID,
+                 requestMessage.getDeleteRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new DeleteResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
           }
+          break;
 
-          if (responseMessage != null)
+        case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
+          try
           {
-            try
-            {
-              sendMessage(responseMessage);
-            }
-            catch (final LDAPException le)
-            {
-              Debug.debugException(le);
-              close(le);
-              return;
-            }
+            responseMessage = requestHandler.processExtendedRequest(
+                 messageID, requestMessage.getExtendedRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ExtendedResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null, null, null));
           }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processModifyRequest(messageID,
+                 requestMessage.getModifyRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ModifyResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processModifyDNRequest(
+                 messageID, requestMessage.getModifyDNRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ModifyDNResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processSearchRequest(messageID,
+                 requestMessage.getSearchRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_UNBIND_REQUEST:
+          requestHandler.processUnbindRequest(messageID,
+               requestMessage.getUnbindRequestProtocolOp(), controls);
+          close();
+          return false;
+
+        default:
+          close(new LDAPException(ResultCode.PROTOCOL_ERROR,
+               ERR_CONN_INVALID_PROTOCOL_OP_TYPE.get(StaticUtils.toHex(
+                    requestMessage.getProtocolOpType()))));
+          return false;
+      }
+
+      if (responseMessage != null)
+      {
+        try
+        {
+          sendMessage(responseMessage);
         }
-        catch (final Exception e)
+        catch (final LDAPException le)
         {
-          close(new LDAPException(ResultCode.LOCAL_ERROR,
-               ERR_CONN_EXCEPTION_IN_REQUEST_HANDLER.get(
-                    String.valueOf(requestMessage),
-                    StaticUtils.getExceptionMessage(e))));
-          return;
+          Debug.debugException(le);
+          close(le);
+          return false;
         }
       }
+
+      return true;
     }
-    finally
+    catch (final Exception e)
     {
-      if (listener != null)
+      close(new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONN_EXCEPTION_IN_REQUEST_HANDLER.get(
+                String.valueOf(requestMessage),
+                StaticUtils.getExceptionMessage(e))));
+      return false;
+    }
+  }
+
+
+
+  /**
+   * Attempts to hand off the provided request to the request executor so that
+   * it may be processed concurrently with other requests from this client.
+   *
+   * @param  requestMessage  The request message to be processed.
+   *
+   * @return  {@code true} if the request was accepted by the executor, or
+   *          {@code false} if it was rejected and should be processed by the
+   *          calling thread.
+   */
+  private boolean dispatchRequest(final LDAPMessage requestMessage)
+  {
+    synchronized (outstandingRequestLock)
+    {
+      outstandingRequests++;
+    }
+
+    try
+    {
+      requestExecutor.execute(new RequestProcessor(requestMessage, false));
+      return true;
+    }
+    catch (final RejectedExecutionException ree)
+    {
+      Debug.debugException(ree);
+      requestCompleted(false);
+      return false;
+    }
+  }
+
+
+
+  /**
+   * Indicates that processing has completed for a request that was handed off
+   * to the request executor.  For a connection serviced by a selector thread,
+   * any pending requests that may now be processed will be handed off to the
+   * request executor.
+   *
+   * @param  exclusive  Indicates whether the request had to be processed by
+   *                    itself.
+   */
+  private void requestCompleted(final boolean exclusive)
+  {
+    final List<RequestProcessor> processors;
+    final boolean resumeReading;
+    synchronized (outstandingRequestLock)
+    {
+      outstandingRequests--;
+      if (exclusive)
       {
-        listener.connectionClosed(this);
+        exclusiveRequestInProgress = false;
+      }
+
+      if (outstandingRequests == 0)
+      {
+        outstandingRequestLock.notifyAll();
+      }
+
+      if (clientChannel == null)
+      {
+        return;
+      }
+
+      processors = getDispatchableRequests();
+      resumeReading = (readingSuspended && (! shouldSuspendReading()));
+      if (resumeReading)
+      {
+        readingSuspended = false;
+      }
+    }
+
+    if (resumeReading)
+    {
+      selectorThread.resumeReading(this);
+    }
+
+    executeRequests(processors);
+  }
+
+
+
+  /**
+   * Reads any requests that are available from the client and hands them off
+   * for processing.  This is only used for connections serviced by a selector
+   * thread, and must only be called by that thread when the selector indicates
+   * that data is available.  If too many requests are waiting or in progress,
+   * or if a request that must be processed by itself is waiting, then the
+   * selector thread will stop reading from the client until enough requests
+   * have completed.
+   *
+   * @return  {@code true} if the connection remains established, or
+   *          {@code false} if it has been closed.
+   */
+  boolean readAvailableRequests()
+  {
+    final List<LDAPMessage> requestMessages;
+    try
+    {
+      requestMessages = clientChannel.readMessages();
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      close(le);
+      return false;
+    }
+    catch (final IOException ioe)
+    {
+      Debug.debugException(ioe);
+
+      // Close the channel before closing the connection so that any thread
+      // blocked while writing to the client will be released.
+      clientChannel.close();
+      close(new LDAPException(ResultCode.SERVER_DOWN,
+           ERR_CONN_READ_EXCEPTION.get(StaticUtils.getExceptionMessage(ioe)),
+           ioe));
+      return false;
+    }
+
+    if (requestMessages == null)
+    {
+      // This indicates that the client has closed the connection.
+      clientChannel.close();
+      try
+      {
+        close();
+      }
+      catch (final IOException ioe)
+      {
+        Debug.debugException(ioe);
+      }
+
+      return false;
+    }
+
+    if (requestMessages.isEmpty())
+    {
+      return true;
+    }
+
+    for (final LDAPMessage m : requestMessages)
+    {
+      // Abandon requests are processed as soon as they are read so that they
+      // can affect operations that are already in progress.
+      if (m.getProtocolOpType() == LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST)
+      {
+        processRequest(m);
+      }
+      else
+      {
+        synchronized (outstandingRequestLock)
+        {
+          pendingRequests.add(m);
+        }
+      }
+    }
+
+    final List<RequestProcessor> processors;
+    final boolean suspendReading;
+    synchronized (outstandingRequestLock)
+    {
+      processors = getDispatchableRequests();
+      suspendReading = shouldSuspendReading();
+      readingSuspended = suspendReading;
+    }
+
+    // This must be done before handing off the requests so that it can't be
+    // reversed by requestCompleted before it takes effect.
+    if (suspendReading)
+    {
+      selectorThread.suspendReading(this);
+    }
+
+    executeRequests(processors);
+    return (! closed.get());
+  }
+
+
+
+  /**
+   * Removes requests from the pending request queue that can be processed now,
+   * respecting the constraint that requests which must be processed by
+   * themselves may not overlap with any other request.  The caller must hold
+   * the outstanding request lock.
+   *
+   * @return  The request processors for the requests that were removed from
+   *          the queue, which should be handed off to the request executor.
+   */
+  private List<RequestProcessor> getDispatchableRequests()
+  {
+    if (closed.get())
+    {
+      pendingRequests.clear();
+      return Collections.emptyList();
+    }
+
+    List<RequestProcessor> processors = Collections.emptyList();
+    while (! exclusiveRequestInProgress)
+    {
+      final LDAPMessage m = pendingRequests.peek();
+      if (m == null)
+      {
+        break;
+      }
+
+      final boolean exclusive = requiresExclusiveProcessing(m);
+      if (exclusive)
+      {
+        if (outstandingRequests > 0)
+        {
+          break;
+        }
+
+        exclusiveRequestInProgress = true;
+      }
+
+      pendingRequests.remove();
+      outstandingRequests++;
+
+      if (processors.isEmpty())
+      {
+        processors = new ArrayList<RequestProcessor>(1);
+      }
+      processors.add(new RequestProcessor(m, exclusive));
+    }
+
+    return processors;
+  }
+
+
+
+  /**
+   * Indicates whether the selector thread should stop reading requests from
+   * the client, either because too many requests are waiting or in progress,
+   * or because a request that must be processed by itself is waiting for
+   * other requests to complete.  The caller must hold the outstanding request
+   * lock.
+   *
+   * @return  {@code true} if the selector thread should stop reading requests
+   *          from the client, or {@code false} if not.
+   */
+  private boolean shouldSuspendReading()
+  {
+    if ((pendingRequests.size() + outstandingRequests) >= MAX_QUEUED_REQUESTS)
+    {
+      return true;
+    }
+
+    final LDAPMessage m = pendingRequests.peek();
+    return ((m != null) && requiresExclusiveProcessing(m));
+  }
+
+
+
+  /**
+   * Indicates whether the provided request must be processed by itself rather
+   * than concurrently with other requests from this connection.
+   *
+   * @param  requestMessage  The request message to examine.
+   *
+   * @return  {@code true} if the request must be processed by itself, or
+   *          {@code false} if it may be processed concurrently with other
+   *          requests.
+   */
+  private boolean requiresExclusiveProcessing(final LDAPMessage requestMessage)
+  {
+    if (serializeRequests)
+    {
+      return true;
+    }
+
+    switch (requestMessage.getProtocolOpType())
+    {
+      case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
+        return hasTransactionSpecificationControl(requestMessage);
+
+      default:
+        return true;
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the provided request includes the transaction
+   * specification request control.  Such a request is added to a transaction
+   * held in the connection state rather than processed immediately, and the
+   * requests in a transaction must be added in the order that they were
+   * received, so they may not be processed concurrently with other requests.
+   *
+   * @param  requestMessage  The request message to examine.
+   *
+   * @return  {@code true} if the request includes the transaction
+   *          specification request control, or {@code false} if not.
+   */
+  private static boolean hasTransactionSpecificationControl(
+                              final LDAPMessage requestMessage)
+  {
+    for (final Control c : requestMessage.getControls())
+    {
+      if (c.getOID().equals(TransactionSpecificationRequestControl.
+           TRANSACTION_SPECIFICATION_REQUEST_OID))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+
+
+  /**
+   * Hands off the provided request processors to the request executor.  Any
+   * that are rejected by the executor will be invoked by the current thread.
+   *
+   * @param  processors  The request processors to be executed.
+   */
+  private void executeRequests(final List<RequestProcessor> processors)
+  {
+    for (final RequestProcessor p : processors)
+    {
+      try
+      {
+        requestExecutor.execute(p);
+      }
+      catch (final RejectedExecutionException ree)
+      {
+        Debug.debugException(ree);
+        p.run();
+      }
+    }
+  }
+
+
+
+  /**
+   * Waits until all requests that have been handed off to the request executor
+   * have completed.
+   */
+  private void waitForOutstandingRequests()
+  {
+    synchronized (outstandingRequestLock)
+    {
+      while (outstandingRequests > 0)
+      {
+        try
+        {
+          outstandingRequestLock.wait();
+        }
+        catch (final InterruptedException ie)
+        {
+          Debug.debugException(ie);
+          Thread.currentThread().interrupt();
+          return;
+        }
       }
     }
   }
@@ -948,6 +1550,34 @@ public final class LDAPListenerClientConnection
 
 
 
+  /**
+   * Sends a search result done message to the client with the provided
+   * information.  This may be used to complete a search operation for which
+   * the request handler did not return a response, like a persistent search
+   * that will no longer be notified of changes.
+   *
+   * @param  messageID   The message ID for the LDAP message to send to the
+   *                     client.  It must match the message ID of the associated
+   *                     search request.
+   * @param  protocolOp  The search result done protocol op to include in the
+   *                     LDAP message to send to the client.
+   * @param  controls    The set of controls to include in the response message.
+   *                     It may be empty or {@code null} if no controls should
+   *                     be included.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to send the
+   *                         provided response message.
+   */
+  public void sendSearchResultDone(final int messageID,
+                   final SearchResultDoneProtocolOp protocolOp,
+                   final Control... controls)
+         throws LDAPException
+  {
+    sendMessage(new LDAPMessage(messageID, protocolOp, controls));
+  }
+
+
+
   /**
    * Sends an unsolicited notification message to the client with the provided
    * extended result.
@@ -1027,11 +1657,20 @@ public final class LDAPListenerClientConnection
    *
    * @throws  LDAPException  If a problem is encountered while trying to convert
    *                         the existing socket to an SSL socket.  If this is
-   *                         thrown, then the connection will have been closed.
+   *                         thrown, then the connection will have been closed,
+   *                         unless it was thrown because the connection was
+   *                         accepted by a listener that uses selector threads,
+   *                         which do not support StartTLS.
    */
   public synchronized OutputStream convertToTLS(final SSLSocketFactory f)
          throws LDAPException
   {
+    if (clientChannel != null)
+    {
+      throw new LDAPException(ResultCode.UNWILLING_TO_PERFORM,
+           ERR_CONN_CONVERT_TO_TLS_NOT_SUPPORTED.get());
+    }
+
     final OutputStream clearOutputStream = outputStream;
 
     final Socket origSocket = socket;
@@ -1067,6 +1706,20 @@ public final class LDAPListenerClientConnection
 
 
 
+  /**
+   * Retrieves the channel used to communicate with the client, if this
+   * connection is serviced by a selector thread.
+   *
+   * @return  The channel used to communicate with the client, or {@code null}
+   *          if this connection uses its own thread.
+   */
+  LDAPListenerClientChannel getClientChannel()
+  {
+    return clientChannel;
+  }
+
+
+
   /**
    * Retrieves the connection ID that has been assigned to this connection by
    * the associated listener.
@@ -1162,4 +1815,54 @@ public final class LDAPListenerClientConnection
   {
     intermediateResponseTransformers.remove(t);
   }
+
+
+
+  /**
+   * This class provides a task that may be used to process a request read from
+   * the client using the request executor.
+   */
+  private final class RequestProcessor
+          implements Runnable
+  {
+    // Indicates whether the request must be processed by itself.
+    private final boolean exclusive;
+
+    // The request message to be processed.
+    private final LDAPMessage requestMessage;
+
+
+
+    /**
+     * Creates a new request processor for the provided request.
+     *
+     * @param  requestMessage  The request message to be processed.
+     * @param  exclusive       Indicates whether the request must be processed
+     *                         by itself.
+     */
+    private RequestProcessor(final LDAPMessage requestMessage,
+                             final boolean exclusive)
+    {
+      this.requestMessage = requestMessage;
+      this.exclusive      = exclusive;
+    }
+
+
+
+    /**
+     * Processes the request and sends the response to the client.
+     */
+    @Override()
+    public void run()
+    {
+      try
+      {
+        processRequest(requestMessage);
+      }
+      finally
+      {
+        requestCompleted(exclusive);
+      }
+    }
+  }
 }
@@ -23,7 +23,9 @@ package com.unboundid.ldap.listener;
 
 
 import java.net.InetAddress;
+import java.util.concurrent.Executor;
 import javax.net.ServerSocketFactory;
+import javax.net.ssl.SSLContext;
 
 import com.unboundid.util.Mutable;
 import com.unboundid.util.ThreadSafety;
@@ -69,6 +71,9 @@ public final class LDAPListenerConfig
   // The port on which to listen for client connections.
   private int listenPort;
 
+  // The number of selector threads to use to read requests from clients.
+  private int selectorThreadCount;
+
   // The maximum number of concurrent connections that will be allowed.
   private int maxConnections;
 
@@ -85,9 +90,17 @@ public final class LDAPListenerConfig
   // clients.
   private LDAPListenerRequestHandler requestHandler;
 
+  // The executor that will be used to process requests read from clients, if
+  // any.
+  private Executor requestExecutor;
+
   // The factory that will be used to create server sockets.
   private ServerSocketFactory serverSocketFactory;
 
+  // The SSL context that will be used to secure connections accepted by a
+  // listener that uses selector threads, if any.
+  private SSLContext selectorSSLContext;
+
 
 
   /**
@@ -120,6 +133,9 @@ public final class LDAPListenerConfig
     receiveBufferSize   = 0;
     sendBufferSize      = 0;
     exceptionHandler    = null;
+    requestExecutor     = null;
+    selectorThreadCount = 0;
+    selectorSSLContext  = null;
     serverSocketFactory = ServerSocketFactory.getDefault();
   }
 
@@ -543,6 +559,156 @@ public final class LDAPListenerConfig
 
 
 
+  /**
+   * Retrieves the executor that will be used to process requests read from
+   * client connections, if any.
+   *
+   * @return  The executor that will be used to process requests read from
+   *          client connections, or {@code null} if each connection should
+   *          process its requests one at a time in its own thread.
+   */
+  public Executor getRequestExecutor()
+  {
+    return requestExecutor;
+  }
+
+
+
+  /**
+   * Specifies the executor that will be used to process requests read from
+   * client connections.  By default, each client connection reads a request,
+   * processes it, and sends the response before reading the next request, so
+   * a client that issues multiple asynchronous operations over the same
+   * connection will not see any parallelism.  If an executor is provided, then
+   * add, compare, delete, modify, modify DN, and search requests will be handed
+   * off to it so that they may be processed concurrently with other requests
+   * from the same connection, and their responses will be returned as they
+   * become available.  Abandon requests will be processed as soon as they are
+   * read, and bind, extended, and unbind requests will only be processed after
+   * all earlier requests on the connection have completed (and no subsequent
+   * request will be read until they have been processed), so that operations
+   * like StartTLS or a change in authentication identity are not interleaved
+   * with other operations.  Requests that include the transaction
+   * specification request control are handled in the same way, so that they
+   * are added to their transaction in the order that they were received.
+   * <BR><BR>
+   * If an executor is configured, then the request handler instances created
+   * for client connections must be threadsafe, since a single instance will
+   * be used to process multiple operations from the same connection at the
+   * same time.  This includes any per-connection state that the handler
+   * maintains.  The executor may be shared across listeners, and it will not
+   * be shut down when a listener is stopped.  If the executor rejects a
+   * request, then it will be processed by the thread that read it from the
+   * client.
+   *
+   * @param  requestExecutor  The executor that will be used to process
+   *                          requests read from client connections.  It may
+   *                          be {@code null} if each connection should
+   *                          process its requests one at a time in its own
+   *                          thread.
+   */
+  public void setRequestExecutor(final Executor requestExecutor)
+  {
+    this.requestExecutor = requestExecutor;
+  }
+
+
+
+  /**
+   * Retrieves the number of selector threads that will be used to read
+   * requests from client connections.
+   *
+   * @return  The number of selector threads that will be used to read requests
+   *          from client connections, or zero if each connection will use its
+   *          own thread.
+   */
+  public int getSelectorThreadCount()
+  {
+    return selectorThreadCount;
+  }
+
+
+
+  /**
+   * Specifies the number of selector threads that will be used to read
+   * requests from client connections.  By default, each connection accepted by
+   * the listener has its own thread that waits for requests from the client,
+   * so a listener with a large number of mostly-idle connections needs a
+   * correspondingly large number of threads.  If a positive number of selector
+   * threads is configured, then the listener will instead use non-blocking I/O
+   * so that each of those threads can read requests from any number of
+   * connections.
+   * <BR><BR>
+   * Requests read by a selector thread will be processed by the configured
+   * request executor, and will be processed concurrently with other requests
+   * from the same connection as described in the documentation for the
+   * {@link #setRequestExecutor} method.  If no request executor is configured,
+   * then the listener will create its own, and the requests from each
+   * connection will be processed one at a time in the order they were
+   * received.
+   * <BR><BR>
+   * A listener that uses selector threads will not use the configured server
+   * socket factory.  Connections may instead be secured with TLS using the
+   * SSL context provided to the {@link #setSelectorSSLContext} method, and the
+   * StartTLS extended operation cannot be used on connections accepted by such
+   * a listener.
+   *
+   * @param  selectorThreadCount  The number of selector threads that will be
+   *                              used to read requests from client
+   *                              connections.  A value that is less than or
+   *                              equal to zero indicates that each connection
+   *                              should use its own thread.
+   */
+  public void setSelectorThreadCount(final int selectorThreadCount)
+  {
+    if (selectorThreadCount > 0)
+    {
+      this.selectorThreadCount = selectorThreadCount;
+    }
+    else
+    {
+      this.selectorThreadCount = 0;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the SSL context that will be used to secure communication with
+   * clients if the listener uses selector threads.
+   *
+   * @return  The SSL context that will be used to secure communication with
+   *          clients if the listener uses selector threads, or {@code null}
+   *          if communication will not be secured.
+   */
+  public SSLContext getSelectorSSLContext()
+  {
+    return selectorSSLContext;
+  }
+
+
+
+  /**
+   * Specifies the SSL context that will be used to secure communication with
+   * clients if the listener uses selector threads.  A new
+   * {@code SSLEngine} will be created from this context for each connection
+   * that is accepted.  This will be ignored if the listener does not use
+   * selector threads, in which case a secure server socket factory should be
+   * configured instead.
+   *
+   * @param  selectorSSLContext  The SSL context that will be used to secure
+   *                             communication with clients if the listener
+   *                             uses selector threads.  It may be
+   *                             {@code null} if communication should not be
+   *                             secured.
+   */
+  public void setSelectorSSLContext(final SSLContext selectorSSLContext)
+  {
+    this.selectorSSLContext = selectorSSLContext;
+  }
+
+
+
 /**
    * Creates a copy of this configuration that may be altered without impacting
    * this configuration, and which will not be altered by changes to this
@@ -567,6 +733,9 @@ public final class LDAPListenerConfig
     copy.receiveBufferSize   = receiveBufferSize;
     copy.sendBufferSize      = sendBufferSize;
     copy.exceptionHandler    = exceptionHandler;
+    copy.requestExecutor     = requestExecutor;
+    copy.selectorThreadCount = selectorThreadCount;
+    copy.selectorSSLContext  = selectorSSLContext;
     copy.serverSocketFactory = serverSocketFactory;
 
     return copy;
@@ -625,6 +794,13 @@ public final class LDAPListenerConfig
       buffer.append('\'');
     }
 
+    if (requestExecutor != null)
+    {
+      buffer.append(", requestExecutorClass='");
+      buffer.append(requestExecutor.getClass().getName());
+      buffer.append('\'');
+    }
+
     buffer.append(", useKeepAlive=");
     buffer.append(useKeepAlive);
     buffer.append(", useTCPNoDelay=");
@@ -648,6 +824,15 @@ public final class LDAPListenerConfig
     buffer.append(receiveBufferSize);
     buffer.append(", sendBufferSize=");
     buffer.append(sendBufferSize);
+
+    if (selectorThreadCount > 0)
+    {
+      buffer.append(", selectorThreadCount=");
+      buffer.append(selectorThreadCount);
+      buffer.append(", useSelectorSSL=");
+      buffer.append(selectorSSLContext != null);
+    }
+
     buffer.append(')');
   }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.unboundid.util.Debug;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a thread that uses a selector to read requests from any
+ * number of client connections accepted by an {@link LDAPListener}, so that
+ * a dedicated thread is not needed for each connection.  Requests that are
+ * read will be handed off to the connection for processing by a separate set
+ * of threads.  A connection may ask this thread to stop reading from its
+ * client while it has too many requests waiting to be processed.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class LDAPListenerSelectorThread
+      extends Thread
+{
+  // Indicates whether this thread should stop running once it no longer has
+  // any connections to service.
+  private final AtomicBoolean stopWhenIdle;
+
+  // The connections that have been assigned to this thread but have not yet
+  // been registered with the selector.
+  private final ConcurrentLinkedQueue<LDAPListenerClientConnection>
+       pendingConnections;
+
+  // The connections for which reading has been suspended that are now ready
+  // to have more requests read from their clients.
+  private final ConcurrentLinkedQueue<LDAPListenerClientConnection>
+       resumedConnections;
+
+  // The selector used to determine which connections have data available.
+  private final Selector selector;
+
+
+
+  /**
+   * Creates a new selector thread with the provided name.  It must be started
+   * before it will service any connections.
+   *
+   * @param  name  The name to use for this thread.
+   *
+   * @throws  IOException  If a problem occurs while opening the selector.
+   */
+  LDAPListenerSelectorThread(final String name)
+       throws IOException
+  {
+    setName(name);
+    setDaemon(true);
+
+    stopWhenIdle       = new AtomicBoolean(false);
+    pendingConnections =
+         new ConcurrentLinkedQueue<LDAPListenerClientConnection>();
+    resumedConnections =
+         new ConcurrentLinkedQueue<LDAPListenerClientConnection>();
+    selector           = Selector.open();
+  }
+
+
+
+  /**
+   * Assigns the provided connection to this selector thread.  Requests will be
+   * read from the connection until it is closed.
+   *
+   * @param  connection  The connection to be serviced by this thread.
+   */
+  void addConnection(final LDAPListenerClientConnection connection)
+  {
+    pendingConnections.add(connection);
+    selector.wakeup();
+  }
+
+
+
+  /**
+   * Stops reading requests from the provided connection until
+   * {@link #resumeReading} is called for it.  This must only be called by this
+   * thread.
+   *
+   * @param  connection  The connection for which to stop reading requests.
+   */
+  void suspendReading(final LDAPListenerClientConnection connection)
+  {
+    setInterestOps(connection, 0);
+  }
+
+
+
+  /**
+   * Indicates that this thread should resume reading requests from the
+   * provided connection.  This may be called by any thread.
+   *
+   * @param  connection  The connection for which to resume reading requests.
+   */
+  void resumeReading(final LDAPListenerClientConnection connection)
+  {
+    resumedConnections.add(connection);
+    selector.wakeup();
+  }
+
+
+
+  /**
+   * Wakes up this thread so that it will notice any connections that have
+   * been closed.
+   */
+  void wakeup()
+  {
+    selector.wakeup();
+  }
+
+
+
+  /**
+   * Indicates that this thread should stop running once all of the
+   * connections that it services have been closed.
+   */
+  void stopWhenIdle()
+  {
+    stopWhenIdle.set(true);
+    selector.wakeup();
+  }
+
+
+
+  /**
+   * Operates in a loop, reading requests from client connections as data
+   * becomes available.
+   */
+  @Override()
+  public void run()
+  {
+    try
+    {
+      while (true)
+      {
+        registerPendingConnections();
+        resumeReadingFromConnections();
+        if (stopWhenIdle.get() && selector.keys().isEmpty() &&
+            pendingConnections.isEmpty())
+        {
+          return;
+        }
+
+        selector.select();
+
+        final Iterator<SelectionKey> iterator =
+             selector.selectedKeys().iterator();
+        while (iterator.hasNext())
+        {
+          final SelectionKey key = iterator.next();
+          iterator.remove();
+
+          if (key.isValid() && key.isReadable())
+          {
+            final LDAPListenerClientConnection connection =
+                 (LDAPListenerClientConnection) key.attachment();
+            if (! connection.readAvailableRequests())
+            {
+              key.cancel();
+            }
+          }
+        }
+      }
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+    }
+    finally
+    {
+      // If this thread is exiting for any reason other than a normal shutdown,
+      // then none of its connections could be serviced, so close them.
+      final ArrayList<LDAPListenerClientConnection> connections =
+           new ArrayList<LDAPListenerClientConnection>(pendingConnections);
+      pendingConnections.clear();
+      try
+      {
+        for (final SelectionKey key : selector.keys())
+        {
+          connections.add((LDAPListenerClientConnection) key.attachment());
+        }
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+      }
+
+      for (final LDAPListenerClientConnection connection : connections)
+      {
+        try
+        {
+          connection.close();
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+        }
+      }
+
+      try
+      {
+        selector.close();
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+      }
+    }
+  }
+
+
+
+  /**
+   * Registers any connections that have been assigned to this thread with the
+   * selector.
+   */
+  private void registerPendingConnections()
+  {
+    while (true)
+    {
+      final LDAPListenerClientConnection connection =
+           pendingConnections.poll();
+      if (connection == null)
+      {
+        return;
+      }
+
+      try
+      {
+        connection.getClientChannel().getSocketChannel().register(selector,
+             SelectionKey.OP_READ, connection);
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+
+        try
+        {
+          connection.close();
+        }
+        catch (final Exception e2)
+        {
+          Debug.debugException(e2);
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Resumes reading requests from any connections that have been passed to
+   * the {@link #resumeReading} method.
+   */
+  private void resumeReadingFromConnections()
+  {
+    while (true)
+    {
+      final LDAPListenerClientConnection connection =
+           resumedConnections.poll();
+      if (connection == null)
+      {
+        return;
+      }
+
+      setInterestOps(connection, SelectionKey.OP_READ);
+    }
+  }
+
+
+
+  /**
+   * Sets the operations of interest for the provided connection.  It will
+   * not have any effect if the connection is not registered with the selector
+   * or has been closed.
+   *
+   * @param  connection   The connection for which to set the operations of
+   *                      interest.
+   * @param  interestOps  The operations of interest for the connection.
+   */
+  private void setInterestOps(final LDAPListenerClientConnection connection,
+                              final int interestOps)
+  {
+    final SelectionKey key =
+         connection.getClientChannel().getSocketChannel().keyFor(selector);
+    if ((key == null) || (! key.isValid()))
+    {
+      return;
+    }
+
+    try
+    {
+      key.interestOps(interestOps);
+    }
+    catch (final CancelledKeyException cke)
+    {
+      // The connection was closed by another thread.
+      Debug.debugException(cke);
+    }
+  }
+}
@@ -23,14 +23,15 @@ package com.unboundid.ldap.listener.interceptor;
 
 
 import java.util.List;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.unboundid.ldap.listener.IntermediateResponseTransformer;
 import com.unboundid.ldap.listener.LDAPListenerClientConnection;
 import com.unboundid.ldap.listener.LDAPListenerRequestHandler;
 import com.unboundid.ldap.listener.SearchEntryTransformer;
 import com.unboundid.ldap.listener.SearchReferenceTransformer;
+import com.unboundid.ldap.protocol.AbandonRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddResponseProtocolOp;
 import com.unboundid.ldap.protocol.BindRequestProtocolOp;
@@ -51,6 +52,7 @@ import com.unboundid.ldap.protocol.SearchRequestProtocolOp;
 import com.unboundid.ldap.protocol.SearchResultDoneProtocolOp;
 import com.unboundid.ldap.protocol.SearchResultEntryProtocolOp;
 import com.unboundid.ldap.protocol.SearchResultReferenceProtocolOp;
+import com.unboundid.ldap.protocol.UnbindRequestProtocolOp;
 import com.unboundid.ldap.sdk.AddRequest;
 import com.unboundid.ldap.sdk.CompareRequest;
 import com.unboundid.ldap.sdk.Control;
@@ -118,7 +120,8 @@ public final class InMemoryOperationInterceptorRequestHandler
     interceptors.toArray(this.interceptors);
 
     connection       = null;
-    activeOperations = new HashMap<Integer,InterceptedOperation>(5);
+    activeOperations =
+         new ConcurrentHashMap<Integer,InterceptedOperation>(5);
   }
 
 
@@ -146,7 +149,8 @@ public final class InMemoryOperationInterceptorRequestHandler
     this.wrappedHandler = wrappedHandler;
     this.connection     = connection;
 
-    activeOperations = new HashMap<Integer,InterceptedOperation>(5);
+    activeOperations =
+         new ConcurrentHashMap<Integer,InterceptedOperation>(5);
   }
 
 
@@ -172,6 +176,20 @@ public final class InMemoryOperationInterceptorRequestHandler
 
 
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void processAbandonRequest(final int messageID,
+                                    final AbandonRequestProtocolOp request,
+                                    final List<Control> controls)
+  {
+    activeOperations.remove(request.getIDToAbandon());
+    wrappedHandler.processAbandonRequest(messageID, request, controls);
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -791,6 +809,7 @@ public final class InMemoryOperationInterceptorRequestHandler
               toArray(controls));
     activeOperations.put(messageID, op);
 
+    boolean operationComplete = true;
     try
     {
       for (final InMemoryOperationInterceptor i : interceptors)
@@ -822,6 +841,17 @@ public final class InMemoryOperationInterceptorRequestHandler
            messageID,
            new SearchRequestProtocolOp((SearchRequest) op.getRequest()),
            op.getRequest().getControlList());
+
+      // A null response indicates that the search (e.g., a persistent search)
+      // remains active, so there is no result to intercept yet.  Keep the
+      // operation registered so that entries returned for it later can still
+      // be intercepted.
+      if (resultMessage == null)
+      {
+        operationComplete = false;
+        return null;
+      }
+
       op.setResult(resultMessage.getSearchResultDoneProtocolOp().toLDAPResult(
            toArray(resultMessage.getControls())));
       for (final InMemoryOperationInterceptor i : interceptors)
@@ -848,12 +878,29 @@ public final class InMemoryOperationInterceptorRequestHandler
     }
     finally
     {
-      activeOperations.remove(messageID);
+      if (operationComplete)
+      {
+        activeOperations.remove(messageID);
+      }
     }
   }
 
 
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void processUnbindRequest(final int messageID,
+                                   final UnbindRequestProtocolOp request,
+                                   final List<Control> controls)
+  {
+    activeOperations.clear();
+    wrappedHandler.processUnbindRequest(messageID, request, controls);
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -23,7 +23,9 @@ package com.unboundid.ldap.sdk;
 
 
 import java.io.Closeable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
@@ -2506,6 +2508,366 @@ public abstract class AbstractConnectionPool
 
 
 
+  /**
+   * Processes the provided add request as an asynchronous operation using a
+   * connection from this connection pool.  The connection will be returned to
+   * the pool as soon as the request has been sent, so it may be used to
+   * process other operations while this one is in progress.
+   *
+   * @param  addRequest      The add request to be processed.  It must not be
+   *                         {@code null}.
+   * @param  resultListener  The async result listener to use to handle the
+   *                         response for the add operation.  It may be
+   *                         {@code null} if the result is going to be obtained
+   *                         from the returned {@code AsyncRequestID} object via
+   *                         the {@code Future} API.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If a problem occurs while sending the request.
+   */
+  public final AsyncRequestID asyncAdd(final AddRequest addRequest,
+                                       final AsyncResultListener resultListener)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID =
+           conn.asyncAdd(addRequest, resultListener);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.ADD, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID =
+             newConn.asyncAdd(addRequest, resultListener);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Processes the provided compare request as an asynchronous operation using a
+   * connection from this connection pool.  The connection will be returned to
+   * the pool as soon as the request has been sent, so it may be used to
+   * process other operations while this one is in progress.
+   *
+   * @param  compareRequest  The compare request to be processed.  It must not
+   *                         be {@code null}.
+   * @param  resultListener  The async result listener to use to handle the
+   *                         response for the compare operation.  It may be
+   *                         {@code null} if the result is going to be obtained
+   *                         from the returned {@code AsyncRequestID} object via
+   *                         the {@code Future} API.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If a problem occurs while sending the request.
+   */
+  public final AsyncRequestID asyncCompare(
+              final CompareRequest compareRequest,
+              final AsyncCompareResultListener resultListener)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID =
+           conn.asyncCompare(compareRequest, resultListener);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.COMPARE, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID =
+             newConn.asyncCompare(compareRequest, resultListener);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Processes the provided delete request as an asynchronous operation using a
+   * connection from this connection pool.  The connection will be returned to
+   * the pool as soon as the request has been sent, so it may be used to
+   * process other operations while this one is in progress.
+   *
+   * @param  deleteRequest   The delete request to be processed.  It must not be
+   *                         {@code null}.
+   * @param  resultListener  The async result listener to use to handle the
+   *                         response for the delete operation.  It may be
+   *                         {@code null} if the result is going to be obtained
+   *                         from the returned {@code AsyncRequestID} object via
+   *                         the {@code Future} API.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If a problem occurs while sending the request.
+   */
+  public final AsyncRequestID asyncDelete(final DeleteRequest deleteRequest,
+                                   final AsyncResultListener resultListener)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID =
+           conn.asyncDelete(deleteRequest, resultListener);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.DELETE, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID =
+             newConn.asyncDelete(deleteRequest, resultListener);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Processes the provided modify request as an asynchronous operation using a
+   * connection from this connection pool.  The connection will be returned to
+   * the pool as soon as the request has been sent, so it may be used to
+   * process other operations while this one is in progress.
+   *
+   * @param  modifyRequest   The modify request to be processed.  It must not be
+   *                         {@code null}.
+   * @param  resultListener  The async result listener to use to handle the
+   *                         response for the modify operation.  It may be
+   *                         {@code null} if the result is going to be obtained
+   *                         from the returned {@code AsyncRequestID} object via
+   *                         the {@code Future} API.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If a problem occurs while sending the request.
+   */
+  public final AsyncRequestID asyncModify(final ModifyRequest modifyRequest,
+                                   final AsyncResultListener resultListener)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID =
+           conn.asyncModify(modifyRequest, resultListener);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.MODIFY, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID =
+             newConn.asyncModify(modifyRequest, resultListener);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Processes the provided modify DN request as an asynchronous operation
+   * using a connection from this connection pool.  The connection will be
+   * returned to the pool as soon as the request has been sent, so it may be
+   * used to process other operations while this one is in progress.
+   *
+   * @param  modifyDNRequest  The modify DN request to be processed.  It must
+   *                          not be {@code null}.
+   * @param  resultListener   The async result listener to use to handle the
+   *                          response for the modify DN operation.  It may
+   *                          be {@code null} if the result is going to be
+   *                          obtained from the returned
+   *                          {@code AsyncRequestID} object via the
+   *                          {@code Future} API.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If a problem occurs while sending the request.
+   */
+  public final AsyncRequestID asyncModifyDN(
+              final ModifyDNRequest modifyDNRequest,
+              final AsyncResultListener resultListener)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID =
+           conn.asyncModifyDN(modifyDNRequest, resultListener);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.MODIFY_DN, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID =
+             newConn.asyncModifyDN(modifyDNRequest, resultListener);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Processes the provided search request as an asynchronous operation using a
+   * connection from this connection pool.  The connection will be returned to
+   * the pool as soon as the request has been sent, so it may be used to
+   * process other operations while this one is in progress.
+   *
+   * @param  searchRequest  The search request to be processed.  It must not be
+   *                        {@code null}, and it must be configured with a
+   *                        search result listener that is also an
+   *                        {@code AsyncSearchResultListener}.
+   *
+   * @return  An async request ID that may be used to reference the operation.
+   *
+   * @throws  LDAPException  If the provided search request does not have a
+   *                         search result listener that is an
+   *                         {@code AsyncSearchResultListener}, or if a problem
+   *                         occurs while sending the request.
+   */
+  public final AsyncRequestID asyncSearch(final SearchRequest searchRequest)
+         throws LDAPException
+  {
+    final LDAPConnection conn = getConnection();
+
+    try
+    {
+      final AsyncRequestID requestID = conn.asyncSearch(searchRequest);
+      releaseConnection(conn);
+      return requestID;
+    }
+    catch (final Throwable t)
+    {
+      throwIfAsyncRequestPermitUnavailable(t, conn);
+      throwLDAPExceptionIfShouldNotRetry(t, OperationType.SEARCH, conn);
+
+      // If we have gotten here, then we should retry the operation with a
+      // newly-created connection.
+      final LDAPConnection newConn = replaceDefunctConnection(t, conn);
+
+      try
+      {
+        final AsyncRequestID requestID = newConn.asyncSearch(searchRequest);
+        releaseConnection(newConn);
+        return requestID;
+      }
+      catch (final Throwable t2)
+      {
+        throwIfAsyncRequestPermitUnavailable(t2, newConn);
+        throwLDAPException(t2, newConn);
+      }
+
+      // This return statement should never be reached.
+      return null;
+    }
+  }
+
+
+
   /**
    * Parses the provided string as a {@code Filter} object.
    *
@@ -2692,45 +3054,7 @@ requestLoop:
          "LDAPConnectionPool.processRequests.requests must not be empty.");
 
     // Make sure that all the requests are acceptable.
-    for (final LDAPRequest r : requests)
-    {
-      switch (r.getOperationType())
-      {
-        case ADD:
-        case COMPARE:
-        case DELETE:
-        case MODIFY:
-        case MODIFY_DN:
-          // These operation types are always acceptable for asynchronous
-          // processing.
-          break;
-
-        case SEARCH:
-          // Search operations will only be acceptable if they have been
-          // configured with an async search result listener.
-          final SearchRequest searchRequest = (SearchRequest) r;
-          if ((searchRequest.getSearchResultListener() == null) ||
-              (! (searchRequest.getSearchResultListener() instanceof
-                   AsyncSearchResultListener)))
-          {
-            throw new LDAPException(ResultCode.PARAM_ERROR,
-                 ERR_POOL_PROCESS_REQUESTS_ASYNC_SEARCH_NOT_ASYNC.get(
-                      String.valueOf(r)));
-          }
-          break;
-
-        case ABANDON:
-        case BIND:
-        case EXTENDED:
-        case UNBIND:
-        default:
-          // These operation types are never acceptable for asynchronous
-          // processing.
-          throw new LDAPException(ResultCode.PARAM_ERROR,
-               ERR_POOL_PROCESS_REQUESTS_ASYNC_OP_NOT_ASYNC.get(
-                    String.valueOf(r)));
-      }
-    }
+    ensureAsyncRequestsAcceptable(requests);
 
 
     final LDAPConnection conn;
@@ -2760,44 +3084,23 @@ requestLoop:
       }
 
 
-      // Issue all of the requests.  If an exception is encountered while
-      // issuing a request, then convert it into an AsyncRequestID with the
+      // Issue all of the requests.  They will be pipelined over the
+      // connection, and if an exception is encountered while issuing a
+      // request, then it will be converted into an AsyncRequestID with the
       // exception as the result.
-      for (final LDAPRequest r : requests)
+      try
       {
-        AsyncRequestID requestID = null;
-        try
-        {
-          switch (r.getOperationType())
-          {
-            case ADD:
-              requestID = conn.asyncAdd((AddRequest) r, null);
-              break;
-            case COMPARE:
-              requestID = conn.asyncCompare((CompareRequest) r, null);
-              break;
-            case DELETE:
-              requestID = conn.asyncDelete((DeleteRequest) r, null);
-              break;
-            case MODIFY:
-              requestID = conn.asyncModify((ModifyRequest) r, null);
-              break;
-            case MODIFY_DN:
-              requestID = conn.asyncModifyDN((ModifyDNRequest) r, null);
-              break;
-            case SEARCH:
-              requestID = conn.asyncSearch((SearchRequest) r);
-              break;
-          }
-        }
-        catch (final LDAPException le)
+        requestIDs.addAll(conn.processRequestsAsync(requests));
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        if (! ResultCode.isConnectionUsable(le.getResultCode()))
         {
-          debugException(le);
-          requestID = new AsyncRequestID(r.getLastMessageID(), conn);
-          requestID.setResult(le.toLDAPResult());
+          isDefunct = true;
         }
 
-        requestIDs.add(requestID);
+        throw le;
       }
 
 
@@ -2819,74 +3122,444 @@ requestLoop:
 
       for (final AsyncRequestID requestID : requestIDs)
       {
-        LDAPResult result;
-        final long waitTime = stopWaitingTime - System.currentTimeMillis();
-        if (waitTime > 0)
+        final LDAPResult result =
+             getAsyncResult(requestID, startWaitingTime, stopWaitingTime);
+
+
+        // See if we think that the connection may be defunct.
+        if (! ResultCode.isConnectionUsable(result.getResultCode()))
         {
-          try
+          isDefunct = true;
+        }
+      }
+
+      return requestIDs;
+    }
+    finally
+    {
+      if (isDefunct)
+      {
+        releaseDefunctConnection(conn);
+      }
+      else
+      {
+        releaseConnection(conn);
+      }
+    }
+  }
+
+
+
+  /**
+   * Processes multiple independent requests in parallel, spreading them across
+   * multiple connections from this pool and using asynchronous processing so
+   * that several operations may be outstanding on each connection at once.
+   * This may be much faster than {@link #processRequests} for large numbers of
+   * requests, because it does not need to wait for the response to one
+   * operation before sending the next.  However, there are no guarantees about
+   * the order in which the server will process the operations, so the requests
+   * must not depend on one another (for example, a request to modify an entry
+   * should not be included in the same list as the request to add it).
+   * <BR><BR>
+   * Requests will be dealt out to the connections in batches, and each batch
+   * will be pipelined so that it is written to the server in as few network
+   * writes as possible.  No more than the specified number of operations will
+   * be outstanding on any connection at any given time, and when that limit is
+   * reached, this method will wait for the oldest operation on the connection
+   * to complete before sending more requests over it.  If it appears that a
+   * connection is no longer valid, then no further requests will be sent over
+   * it, and it will be released as defunct when processing is complete.  Note
+   * that the {@link #retryFailedOperationsDueToInvalidConnections()} setting
+   * will be ignored, so that any failed operations will not be retried.
+   * <BR><BR>
+   * The connections will be obtained before any requests are sent.  The first
+   * connection will be obtained in the same way as for any other operation, but
+   * additional connections will only be used if they are immediately available
+   * in the pool, so fewer connections than requested may be used.
+   *
+   * @param  requests                     The list of requests to be processed.
+   *                                      It must not be {@code null} or empty,
+   *                                      and it must contain only add,
+   *                                      compare, delete, modify, modify DN,
+   *                                      and search requests.  Any search
+   *                                      requests must be configured with an
+   *                                      {@code AsyncSearchResultListener}.
+   * @param  maxConnections               The maximum number of connections to
+   *                                      use to process the requests.  It must
+   *                                      be greater than zero.
+   * @param  maxOutstandingPerConnection  The maximum number of operations that
+   *                                      may be outstanding on each connection
+   *                                      at any given time.  It must be greater
+   *                                      than zero.
+   * @param  maxWaitTimeMillis            The maximum length of time in
+   *                                      milliseconds to wait for all of the
+   *                                      operations to complete.  A value that
+   *                                      is less than or equal to zero
+   *                                      indicates that there should be no
+   *                                      limit.
+   *
+   * @return  The list of results for the requests.  The order of elements in
+   *          this list will correspond to the order of the provided requests,
+   *          and there will be a result for every request.  If a request could
+   *          not be sent or no response was received for it, then its result
+   *          will have been generated by the client to describe the problem.
+   *
+   * @throws  LDAPException  If there is a problem with any of the requests, if
+   *                         a connection could not be obtained, or if
+   *                         connections in the pool are configured to use
+   *                         synchronous mode.  If an exception is thrown, then
+   *                         none of the requests will have been sent.
+   */
+  public final List<LDAPResult> processRequestsInParallel(
+                    final List<? extends LDAPRequest> requests,
+                    final int maxConnections,
+                    final int maxOutstandingPerConnection,
+                    final long maxWaitTimeMillis)
+         throws LDAPException
+  {
+    ensureNotNull(requests);
+    ensureFalse(requests.isEmpty(),
+         "AbstractConnectionPool.processRequestsInParallel.requests must " +
+              "not be empty.");
+    ensureTrue((maxConnections > 0),
+         "AbstractConnectionPool.processRequestsInParallel.maxConnections " +
+              "must be greater than zero.");
+    ensureTrue((maxOutstandingPerConnection > 0),
+         "AbstractConnectionPool.processRequestsInParallel." +
+              "maxOutstandingPerConnection must be greater than zero.");
+
+    ensureAsyncRequestsAcceptable(requests);
+
+
+    // Get the connections to use.  Only wait for the first one.  Additional
+    // connections will only be used if they are already available.
+    final ArrayList<LDAPConnection> conns =
+         new ArrayList<LDAPConnection>(maxConnections);
+    conns.add(getConnection());
+    while ((conns.size() < maxConnections) &&
+           (getCurrentAvailableConnections() > 0))
+    {
+      try
+      {
+        conns.add(getConnection());
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        break;
+      }
+    }
+
+    final int numConnections = conns.size();
+    final boolean[] isDefunct = new boolean[numConnections];
+    final ArrayList<ArrayDeque<Integer>> windows =
+         new ArrayList<ArrayDeque<Integer>>(numConnections);
+    for (int i=0; i < numConnections; i++)
+    {
+      windows.add(new ArrayDeque<Integer>(maxOutstandingPerConnection));
+    }
+
+    final int numRequests = requests.size();
+    final AsyncRequestID[] requestIDs = new AsyncRequestID[numRequests];
+    final LDAPResult[] results = new LDAPResult[numRequests];
+
+    final long startWaitingTime = System.currentTimeMillis();
+    final long stopWaitingTime;
+    if (maxWaitTimeMillis > 0)
+    {
+      stopWaitingTime = startWaitingTime + maxWaitTimeMillis;
+    }
+    else
+    {
+      stopWaitingTime = Long.MAX_VALUE;
+    }
+
+    try
+    {
+      // Make sure that none of the connections is configured to use
+      // synchronous mode, because asynchronous operations are not allowed in
+      // that mode.
+      for (final LDAPConnection conn : conns)
+      {
+        if (conn.synchronousMode())
+        {
+          throw new LDAPException(ResultCode.PARAM_ERROR,
+               ERR_POOL_PROCESS_REQUESTS_ASYNC_SYNCHRONOUS_MODE.get());
+        }
+      }
+
+
+      // Deal the requests out to the connections in round-robin order.  Each
+      // connection gets a pipelined batch large enough to fill its window.
+      int nextRequest = 0;
+      while (nextRequest < numRequests)
+      {
+        boolean sentAny = false;
+        for (int i=0; (i < numConnections) && (nextRequest < numRequests); i++)
+        {
+          if (isDefunct[i])
           {
-            result = requestID.get(waitTime, TimeUnit.MILLISECONDS);
+            continue;
           }
-          catch (final Exception e)
-          {
-            debugException(e);
-            requestID.cancel(true);
 
-            if (e instanceof TimeoutException)
-            {
-              result = new LDAPResult(requestID.getMessageID(),
-                   ResultCode.TIMEOUT,
-                   ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_TIMEOUT.get(
-                        (System.currentTimeMillis() - startWaitingTime)),
-                   null, NO_STRINGS, NO_CONTROLS);
-            }
-            else
+          // Collect the results for any completed operations at the front of
+          // the window, and if the window is full, then wait for the oldest
+          // operation to complete.
+          final ArrayDeque<Integer> window = windows.get(i);
+          while ((! window.isEmpty()) &&
+                 ((window.size() >= maxOutstandingPerConnection) ||
+                  requestIDs[window.peekFirst()].isDone()))
+          {
+            final int index = window.removeFirst();
+            results[index] = getAsyncResult(requestIDs[index],
+                 startWaitingTime, stopWaitingTime);
+
+            // Don't hold on to the request ID (and the connection state that
+            // it references) once its result has been collected.
+            requestIDs[index] = null;
+            if (! ResultCode.isConnectionUsable(
+                       results[index].getResultCode()))
             {
-              result = new LDAPResult(requestID.getMessageID(),
-                   ResultCode.LOCAL_ERROR,
-                   ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_EXCEPTION.get(
-                        getExceptionMessage(e)),
-                   null, NO_STRINGS, NO_CONTROLS);
+              isDefunct[i] = true;
             }
-            requestID.setResult(result);
           }
+
+          if (isDefunct[i])
+          {
+            continue;
+          }
+
+          final int batchSize = Math.min(
+               (maxOutstandingPerConnection - window.size()),
+               (numRequests - nextRequest));
+          final List<AsyncRequestID> batchIDs;
+          try
+          {
+            batchIDs = conns.get(i).processRequestsAsync(
+                 requests.subList(nextRequest, (nextRequest + batchSize)));
+          }
+          catch (final LDAPException le)
+          {
+            // This should only happen if the connection is not established.
+            debugException(le);
+            isDefunct[i] = true;
+            continue;
+          }
+
+          for (final AsyncRequestID requestID : batchIDs)
+          {
+            requestIDs[nextRequest] = requestID;
+            window.addLast(nextRequest);
+            nextRequest++;
+          }
+          sentAny = true;
         }
-        else
+
+        if (! sentAny)
         {
-          requestID.cancel(true);
-          result = new LDAPResult(requestID.getMessageID(),
-               ResultCode.TIMEOUT,
-               ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_TIMEOUT.get(
-                    (System.currentTimeMillis() - startWaitingTime)),
-               null, NO_STRINGS, NO_CONTROLS);
-          requestID.setResult(result);
+          // None of the connections is usable, so we can't send any more
+          // requests.
+          break;
         }
+      }
+
+      for (int i=nextRequest; i < numRequests; i++)
+      {
+        results[i] = new LDAPResult(-1, ResultCode.SERVER_DOWN,
+             ERR_POOL_PROCESS_REQUESTS_PARALLEL_NOT_SENT.get(), null,
+             NO_STRINGS, NO_CONTROLS);
+      }
 
 
-        // See if we think that the connection may be defunct.
-        if (! ResultCode.isConnectionUsable(result.getResultCode()))
+      // Wait for all of the remaining operations to complete.
+      for (int i=0; i < numConnections; i++)
+      {
+        final ArrayDeque<Integer> window = windows.get(i);
+        while (! window.isEmpty())
         {
-          isDefunct = true;
+          final int index = window.removeFirst();
+          results[index] = getAsyncResult(requestIDs[index], startWaitingTime,
+               stopWaitingTime);
+          requestIDs[index] = null;
+          if (! ResultCode.isConnectionUsable(results[index].getResultCode()))
+          {
+            isDefunct[i] = true;
+          }
         }
       }
 
-      return requestIDs;
+      return new ArrayList<LDAPResult>(Arrays.asList(results));
     }
     finally
     {
-      if (isDefunct)
+      for (int i=0; i < numConnections; i++)
       {
-        releaseDefunctConnection(conn);
+        if (isDefunct[i])
+        {
+          releaseDefunctConnection(conns.get(i));
+        }
+        else
+        {
+          releaseConnection(conns.get(i));
+        }
       }
-      else
+    }
+  }
+
+
+
+  /**
+   * Ensures that all of the provided requests may be processed as asynchronous
+   * operations.
+   *
+   * @param  requests  The list of requests to examine.
+   *
+   * @throws  LDAPException  If any of the requests may not be processed as an
+   *                         asynchronous operation.
+   */
+  private static void ensureAsyncRequestsAcceptable(
+                           final List<? extends LDAPRequest> requests)
+          throws LDAPException
+  {
+    for (final LDAPRequest r : requests)
+    {
+      switch (r.getOperationType())
       {
-        releaseConnection(conn);
+        case ADD:
+        case COMPARE:
+        case DELETE:
+        case MODIFY:
+        case MODIFY_DN:
+          // These operation types are always acceptable for asynchronous
+          // processing.
+          break;
+
+        case SEARCH:
+          // Search operations will only be acceptable if they have been
+          // configured with an async search result listener.
+          final SearchRequest searchRequest = (SearchRequest) r;
+          if ((searchRequest.getSearchResultListener() == null) ||
+              (! (searchRequest.getSearchResultListener() instanceof
+                   AsyncSearchResultListener)))
+          {
+            throw new LDAPException(ResultCode.PARAM_ERROR,
+                 ERR_POOL_PROCESS_REQUESTS_ASYNC_SEARCH_NOT_ASYNC.get(
+                      String.valueOf(r)));
+          }
+          break;
+
+        case ABANDON:
+        case BIND:
+        case EXTENDED:
+        case UNBIND:
+        default:
+          // These operation types are never acceptable for asynchronous
+          // processing.
+          throw new LDAPException(ResultCode.PARAM_ERROR,
+               ERR_POOL_PROCESS_REQUESTS_ASYNC_OP_NOT_ASYNC.get(
+                    String.valueOf(r)));
       }
     }
   }
 
 
 
+  /**
+   * Waits for the result of the provided asynchronous operation.  If the
+   * operation does not complete before the specified time, or if an error
+   * occurs while waiting, then the operation will be canceled and a result
+   * describing the problem will be generated.
+   *
+   * @param  requestID         The async request ID for the operation.
+   * @param  startWaitingTime  The time, in milliseconds since the epoch, that
+   *                           the caller started waiting for operations to
+   *                           complete.
+   * @param  stopWaitingTime   The time, in milliseconds since the epoch, after
+   *                           which the caller should no longer wait for the
+   *                           operation to complete.
+   *
+   * @return  The result for the operation.
+   */
+  private static LDAPResult getAsyncResult(final AsyncRequestID requestID,
+                                           final long startWaitingTime,
+                                           final long stopWaitingTime)
+  {
+    LDAPResult result;
+    final long waitTime = stopWaitingTime - System.currentTimeMillis();
+    if (waitTime > 0)
+    {
+      try
+      {
+        result = requestID.get(waitTime, TimeUnit.MILLISECONDS);
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+        requestID.cancel(true);
+
+        if (e instanceof TimeoutException)
+        {
+          result = new LDAPResult(requestID.getMessageID(),
+               ResultCode.TIMEOUT,
+               ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_TIMEOUT.get(
+                    (System.currentTimeMillis() - startWaitingTime)),
+               null, NO_STRINGS, NO_CONTROLS);
+        }
+        else
+        {
+          result = new LDAPResult(requestID.getMessageID(),
+               ResultCode.LOCAL_ERROR,
+               ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_EXCEPTION.get(
+                    getExceptionMessage(e)),
+               null, NO_STRINGS, NO_CONTROLS);
+        }
+        requestID.setResult(result);
+      }
+    }
+    else
+    {
+      requestID.cancel(true);
+      result = new LDAPResult(requestID.getMessageID(),
+           ResultCode.TIMEOUT,
+           ERR_POOL_PROCESS_REQUESTS_ASYNC_RESULT_TIMEOUT.get(
+                (System.currentTimeMillis() - startWaitingTime)),
+           null, NO_STRINGS, NO_CONTROLS);
+      requestID.setResult(result);
+    }
+
+    return result;
+  }
+
+
+
+  /**
+   * Examines the provided {@code Throwable} object to determine whether it
+   * indicates that an asynchronous request could not be sent because the
+   * connection already had the maximum number of outstanding asynchronous
+   * requests.  If so, then the connection will be released back to the pool
+   * as a valid connection (since the operations in progress on it may still
+   * complete successfully) and the exception will be thrown without retrying
+   * the operation.  Otherwise, no action will be taken.
+   *
+   * @param  t     The {@code Throwable} object that was caught.
+   * @param  conn  The connection on which the request was to be sent.
+   *
+   * @throws  LDAPException  If the provided {@code Throwable} indicates that a
+   *                         permit to send the request could not be obtained.
+   */
+  private void throwIfAsyncRequestPermitUnavailable(final Throwable t,
+                                                    final LDAPConnection conn)
+          throws LDAPException
+  {
+    if (t instanceof AsyncRequestPermitException)
+    {
+      releaseConnection(conn);
+      throw (AsyncRequestPermitException) t;
+    }
+  }
+
+
+
   /**
    * Examines the provided {@code Throwable} object to determine whether it
    * represents an {@code LDAPException} that indicates the associated
@@ -28,9 +28,11 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.unboundid.util.Debug;
+import com.unboundid.util.HashedWheelTimer;
 import com.unboundid.util.NotMutable;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ThreadSafety;
@@ -77,12 +79,40 @@ public final class AsyncRequestID
 
 
 
+  /**
+   * The permit state indicating that the associated operation has not yet
+   * completed and does not hold an outstanding async request permit.
+   */
+  private static final int PERMIT_STATE_NOT_HELD = 0;
+
+
+
+  /**
+   * The permit state indicating that the associated operation holds an
+   * outstanding async request permit for its connection.
+   */
+  private static final int PERMIT_STATE_HELD = 1;
+
+
+
+  /**
+   * The permit state indicating that the associated operation has completed
+   * and any permit that it held has been released.
+   */
+  private static final int PERMIT_STATE_RELEASED = 2;
+
+
+
   // The queue used to receive the result for the associated operation.
   private final ArrayBlockingQueue<LDAPResult> resultQueue;
 
   // A flag indicating whether a request has been made to cancel the operation.
   private final AtomicBoolean cancelRequested;
 
+  // Indicates whether the associated operation holds one of the connection's
+  // outstanding async request permits.
+  private final AtomicInteger permitState;
+
   // The result for the associated operation.
   private final AtomicReference<LDAPResult> result;
 
@@ -92,8 +122,9 @@ public final class AsyncRequestID
   // The connection used to process the asynchronous operation.
   private final LDAPConnection connection;
 
-  // The timer task that will allow the associated request to be cancelled.
-  private volatile AsyncTimeoutTimerTask timerTask;
+  // The scheduled timeout that will allow the associated request to be
+  // cancelled.
+  private volatile HashedWheelTimer.Timeout scheduledTimeout;
 
 
 
@@ -109,10 +140,11 @@ public final class AsyncRequestID
     this.messageID  = messageID;
     this.connection = connection;
 
-    resultQueue     = new ArrayBlockingQueue<LDAPResult>(1);
-    cancelRequested = new AtomicBoolean(false);
-    result          = new AtomicReference<LDAPResult>();
-    timerTask       = null;
+    resultQueue      = new ArrayBlockingQueue<LDAPResult>(1);
+    cancelRequested  = new AtomicBoolean(false);
+    permitState      = new AtomicInteger(PERMIT_STATE_NOT_HELD);
+    result           = new AtomicReference<LDAPResult>();
+    scheduledTimeout = null;
   }
 
 
@@ -313,16 +345,47 @@ public final class AsyncRequestID
 
 
   /**
-   * Sets the timer task that may be used to cancel this result after a period
-   * of time.
+   * Sets the scheduled timeout that may be used to cancel this result after a
+   * period of time.
    *
-   * @param  timerTask  The timer task that may be used to cancel this result
-   *                    after a period of time.  It may be {@code null} if no
-   *                    timer task should be used.
+   * @param  scheduledTimeout  The scheduled timeout that may be used to cancel
+   *                           this result after a period of time.  It may be
+   *                           {@code null} if no timeout should be used.
+   */
+  void setScheduledTimeout(final HashedWheelTimer.Timeout scheduledTimeout)
+  {
+    this.scheduledTimeout = scheduledTimeout;
+  }
+
+
+
+  /**
+   * Indicates that the associated operation holds one of the outstanding async
+   * request permits for its connection, which must be released when the
+   * operation completes.  If the operation has already completed by the time
+   * this method is called, then the permit will be released immediately.
    */
-  void setTimerTask(final AsyncTimeoutTimerTask timerTask)
+  void setAsyncRequestPermitHeld()
   {
-    this.timerTask = timerTask;
+    if (! permitState.compareAndSet(PERMIT_STATE_NOT_HELD, PERMIT_STATE_HELD))
+    {
+      connection.releaseAsyncRequestPermit();
+    }
+  }
+
+
+
+  /**
+   * Releases the outstanding async request permit held by the associated
+   * operation, if any.  It is safe to call this method multiple times, as the
+   * permit will only be released once.
+   */
+  void releaseAsyncRequestPermit()
+  {
+    if (permitState.getAndSet(PERMIT_STATE_RELEASED) == PERMIT_STATE_HELD)
+    {
+      connection.releaseAsyncRequestPermit();
+    }
   }
 
 
@@ -335,14 +398,17 @@ public final class AsyncRequestID
    */
   void setResult(final LDAPResult result)
   {
+    // Release the permit before making the result available, so that anyone
+    // who obtains the result will see that the operation is no longer
+    // outstanding.
+    releaseAsyncRequestPermit();
     resultQueue.offer(result);
 
-    final AsyncTimeoutTimerTask t = timerTask;
+    final HashedWheelTimer.Timeout t = scheduledTimeout;
     if (t != null)
     {
       t.cancel();
-      connection.getTimer().purge();
-      timerTask = null;
+      scheduledTimeout = null;
     }
   }
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class defines an exception that will be thrown if a permit to send an
+ * asynchronous request could not be obtained because the maximum number of
+ * outstanding asynchronous requests had been reached on a connection.  It does
+ * not indicate any problem with the connection itself, so a connection pool
+ * may continue to use the connection after this exception has been thrown.
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class AsyncRequestPermitException
+      extends LDAPException
+{
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = -3105873251920577412L;
+
+
+
+  /**
+   * Creates a new async request permit exception with the provided
+   * information.
+   *
+   * @param  resultCode    The result code for this exception.
+   * @param  errorMessage  The error message for this exception.
+   * @param  cause         The underlying cause for this exception.  It may be
+   *                       {@code null} if there is no cause.
+   */
+  AsyncRequestPermitException(final ResultCode resultCode,
+                              final String errorMessage,
+                              final Throwable cause)
+  {
+    super(resultCode, errorMessage, cause);
+  }
+}
@@ -22,10 +22,12 @@ package com.unboundid.ldap.sdk;
 
 
 
-import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.unboundid.ldap.protocol.LDAPResponse;
 import com.unboundid.util.Debug;
+import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.StaticUtils;
 
 import static com.unboundid.ldap.sdk.LDAPMessages.*;
@@ -34,11 +36,26 @@ import static com.unboundid.ldap.sdk.LDAPMessages.*;
 
 /**
  * This class provides a timer task that can be used to ensure that operation
- * timeouts for asynchronous operations are properly respected.
+ * timeouts for asynchronous operations are properly respected.  It will be
+ * run by the timer shared by all connections, so it must not block for a
+ * significant length of time.  For that reason, the timer thread only hands
+ * the timeout off to a separate executor, which delivers the timeout result to
+ * the operation's listener and sends an abandon request if appropriate.
  */
 final class AsyncTimeoutTimerTask
-      extends TimerTask
+      implements Runnable
 {
+  /**
+   * The executor that will be used to process operation timeouts.  Threads
+   * will be created as needed and will exit after they have been idle for a
+   * while.
+   */
+  private static final ExecutorService TIMEOUT_EXECUTOR =
+       Executors.newCachedThreadPool(new LDAPSDKThreadFactory(
+            "LDAP async operation timeout handler", true));
+
+
+
   // The async helper with which this task is associated.
   private final CommonAsyncHelper helper;
 
@@ -58,10 +75,31 @@ final class AsyncTimeoutTimerTask
 
 
   /**
-   * Generates a timeout response for the associated operation.
+   * Schedules the timeout response for the associated operation to be
+   * generated by the timeout executor.
    */
   @Override()
   public void run()
+  {
+    TIMEOUT_EXECUTOR.execute(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        processTimeout();
+      }
+    });
+  }
+
+
+
+  /**
+   * Generates a timeout response for the associated operation, and abandons the
+   * operation if the connection options indicate that it should be abandoned.
+   * This may block while invoking the operation's listener or sending the
+   * abandon request, so it must not be called by the timer thread.
+   */
+  private void processTimeout()
   {
     final long waitTimeNanos = System.nanoTime() - helper.getCreateTimeNanos();
     final long waitTimeMillis = waitTimeNanos / 1000000L;
@@ -1459,7 +1459,10 @@ public final class Attribute
 
 
   /**
-   * Reads and decodes an attribute from the provided ASN.1 stream reader.
+   * Reads and decodes an attribute from the provided ASN.1 stream reader.  The
+   * values are read with {@link ASN1StreamReader#readOctetString}, so if the
+   * reader is reading from a buffer with an accessible backing array, then
+   * they will reference that array, and the attribute will retain all of it.
    *
    * @param  reader  The ASN.1 stream reader from which to read the attribute.
    * @param  schema  The schema to use to select the appropriate matching rule
@@ -1489,7 +1492,7 @@ public final class Attribute
       final ASN1StreamReaderSet valueSet = reader.beginSet();
       while (valueSet.hasMoreElements())
       {
-        valueList.add(new ASN1OctetString(reader.readBytes()));
+        valueList.add(reader.readOctetString());
       }
 
       final ASN1OctetString[] values = new ASN1OctetString[valueList.size()];
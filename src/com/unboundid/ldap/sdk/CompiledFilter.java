@@ -0,0 +1,1073 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.LinkedHashSet;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.CaseExactStringMatchingRule;
+import com.unboundid.ldap.matchingrules.CaseIgnoreStringMatchingRule;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.matchingrules.NumericStringMatchingRule;
+import com.unboundid.ldap.matchingrules.OctetStringMatchingRule;
+import com.unboundid.ldap.matchingrules.TelephoneNumberMatchingRule;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a mechanism for efficiently determining whether a search
+ * filter matches a large number of entries.  It yields exactly the same results
+ * as the {@link Filter#matchesEntry(Entry,Schema)} method, but the work that
+ * method would repeat for every entry is instead performed only once, when the
+ * compiled filter is created.  That includes:
+ * <UL>
+ *   <LI>Walking the filter to determine how each component should be
+ *       evaluated.</LI>
+ *   <LI>Using the schema to determine all of the names by which each
+ *       attribute type may be referenced in an entry.</LI>
+ *   <LI>Selecting the matching rule to use for each component.</LI>
+ *   <LI>Normalizing the assertion values and substring elements for the most
+ *       commonly used string and octet string matching rules.</LI>
+ * </UL>
+ * <BR>
+ * A compiled filter is bound to the schema with which it was created, and it
+ * should be re-created if that schema changes.  Compiled filters are
+ * threadsafe and may be used to evaluate any number of entries concurrently.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example demonstrates the process for using a compiled filter
+ * to identify the matching entries in a list:
+ * <PRE>
+ * CompiledFilter compiledFilter = new CompiledFilter(
+ *      Filter.create("(&amp;(objectClass=person)(sn=Doe))"), schema);
+ * for (Entry entry : entries)
+ * {
+ *   if (compiledFilter.matchesEntry(entry))
+ *   {
+ *     matchingEntries.add(entry);
+ *   }
+ * }
+ * </PRE>
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class CompiledFilter
+{
+  // The filter that was compiled.
+  private final Filter filter;
+
+  // The root of the tree of evaluators for the filter.
+  private final Evaluator evaluator;
+
+  // The schema that was used to compile the filter, if any.
+  private final Schema schema;
+
+
+
+  /**
+   * Creates a new compiled representation of the provided filter.
+   *
+   * @param  filter  The filter to be compiled.  It must not be {@code null}.
+   * @param  schema  The schema to use when evaluating the filter.  If this is
+   *                 {@code null}, then all matching will be performed using a
+   *                 case-ignore matching rule.
+   */
+  public CompiledFilter(final Filter filter, final Schema schema)
+  {
+    ensureNotNull(filter);
+
+    this.filter = filter;
+    this.schema = schema;
+
+    evaluator = compile(filter, schema);
+  }
+
+
+
+  /**
+   * Retrieves the filter that was compiled.
+   *
+   * @return  The filter that was compiled.
+   */
+  public Filter getFilter()
+  {
+    return filter;
+  }
+
+
+
+  /**
+   * Retrieves the schema that was used to compile the filter, if any.
+   *
+   * @return  The schema that was used to compile the filter, or {@code null}
+   *          if no schema was provided.
+   */
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+
+
+  /**
+   * Indicates whether the compiled filter matches the provided entry.  This
+   * will yield the same result as calling {@code matchesEntry(entry, schema)}
+   * on the filter that was compiled, with the schema that was used to compile
+   * it.
+   *
+   * @param  entry  The entry for which to make the determination.  It must not
+   *                be {@code null}.
+   *
+   * @return  {@code true} if the filter appears to match the provided entry,
+   *          or {@code false} if not.
+   *
+   * @throws  LDAPException  If a problem occurs while trying to make the
+   *                         determination.
+   */
+  public boolean matchesEntry(final Entry entry)
+         throws LDAPException
+  {
+    ensureNotNull(entry);
+
+    return evaluator.matchesEntry(entry);
+  }
+
+
+
+  /**
+   * Retrieves a string representation of this compiled filter.
+   *
+   * @return  A string representation of this compiled filter.
+   */
+  @Override()
+  public String toString()
+  {
+    return filter.toString();
+  }
+
+
+
+  /**
+   * Creates the evaluator for the provided filter.
+   *
+   * @param  f       The filter for which to create the evaluator.
+   * @param  schema  The schema to use when evaluating the filter, if any.
+   *
+   * @return  The evaluator for the provided filter.
+   */
+  private static Evaluator compile(final Filter f, final Schema schema)
+  {
+    switch (f.getFilterType())
+    {
+      case Filter.FILTER_TYPE_AND:
+      case Filter.FILTER_TYPE_OR:
+        final Filter[] comps = f.getComponents();
+        final Evaluator[] compEvaluators = new Evaluator[comps.length];
+        for (int i=0; i < comps.length; i++)
+        {
+          compEvaluators[i] = compile(comps[i], schema);
+        }
+
+        if (f.getFilterType() == Filter.FILTER_TYPE_AND)
+        {
+          return new ANDEvaluator(compEvaluators);
+        }
+        else
+        {
+          return new OREvaluator(compEvaluators);
+        }
+
+      case Filter.FILTER_TYPE_NOT:
+        return new NOTEvaluator(compile(f.getNOTComponent(), schema));
+
+      case Filter.FILTER_TYPE_EQUALITY:
+        return new EqualityEvaluator(f.getAttributeName(), schema,
+             f.getRawAssertionValue());
+
+      case Filter.FILTER_TYPE_SUBSTRING:
+        return new SubstringEvaluator(f.getAttributeName(), schema,
+             f.getRawSubInitialValue(), f.getRawSubAnyValues(),
+             f.getRawSubFinalValue());
+
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+        return new OrderingEvaluator(f.getAttributeName(), schema,
+             f.getRawAssertionValue(), true);
+
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        return new OrderingEvaluator(f.getAttributeName(), schema,
+             f.getRawAssertionValue(), false);
+
+      case Filter.FILTER_TYPE_PRESENCE:
+        return new PresenceEvaluator(f.getAttributeName(), schema);
+
+      case Filter.FILTER_TYPE_APPROXIMATE_MATCH:
+        return new UnsupportedEvaluator(ResultCode.NOT_SUPPORTED,
+             ERR_FILTER_APPROXIMATE_MATCHING_NOT_SUPPORTED.get());
+
+      case Filter.FILTER_TYPE_EXTENSIBLE_MATCH:
+        return new UnsupportedEvaluator(ResultCode.NOT_SUPPORTED,
+             ERR_FILTER_EXTENSIBLE_MATCHING_NOT_SUPPORTED.get());
+
+      default:
+        return new UnsupportedEvaluator(ResultCode.PARAM_ERROR,
+             ERR_FILTER_INVALID_TYPE.get());
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the provided matching rule is one whose behavior is
+   * entirely defined by the way that it normalizes values, so that assertion
+   * values may be normalized in advance and normalized values compared
+   * directly.
+   *
+   * @param  matchingRule  The matching rule for which to make the
+   *                       determination.
+   * @param  forOrdering   Indicates whether the matching rule will be used for
+   *                       ordering comparisons.
+   *
+   * @return  {@code true} if assertion values may be normalized in advance for
+   *          the provided matching rule, or {@code false} if not.
+   */
+  private static boolean isNormalizingMatchingRule(
+                              final MatchingRule matchingRule,
+                              final boolean forOrdering)
+  {
+    final Class<?> c = matchingRule.getClass();
+    if ((c == CaseIgnoreStringMatchingRule.class) ||
+        (c == CaseExactStringMatchingRule.class) ||
+        (c == OctetStringMatchingRule.class) ||
+        (c == NumericStringMatchingRule.class))
+    {
+      return true;
+    }
+
+    // The telephone number matching rule has its own ordering behavior.
+    return ((! forOrdering) && (c == TelephoneNumberMatchingRule.class));
+  }
+
+
+
+  /**
+   * Compares the provided normalized values in the same way as the
+   * {@code SimpleMatchingRule.compareValues} method.
+   *
+   * @param  v1  The first normalized value to compare.
+   * @param  v2  The second normalized value to compare.
+   *
+   * @return  A negative value if the first value should be ordered before the
+   *          second, a positive value if the first value should be ordered
+   *          after the second, or zero if they are equal.
+   */
+  private static int compareNormalizedValues(final byte[] v1, final byte[] v2)
+  {
+    final int minLength = Math.min(v1.length, v2.length);
+    for (int i=0; i < minLength; i++)
+    {
+      final int b1 = v1[i] & 0xFF;
+      final int b2 = v2[i] & 0xFF;
+
+      if (b1 < b2)
+      {
+        return -1;
+      }
+      else if (b1 > b2)
+      {
+        return 1;
+      }
+    }
+
+    return v1.length - v2.length;
+  }
+
+
+
+  /**
+   * Indicates whether the provided normalized value matches the given
+   * normalized substring elements in the same way as the
+   * {@code SimpleMatchingRule.matchesSubstring} method.
+   *
+   * @param  normValue       The normalized value to examine.
+   * @param  normSubInitial  The normalized subInitial element, if any.
+   * @param  normSubAny      The normalized subAny elements, if any.
+   * @param  normSubFinal    The normalized subFinal element, if any.
+   *
+   * @return  {@code true} if the value matches the substring elements, or
+   *          {@code false} if not.
+   */
+  private static boolean matchesNormalizedSubstring(final byte[] normValue,
+                              final byte[] normSubInitial,
+                              final byte[][] normSubAny,
+                              final byte[] normSubFinal)
+  {
+    int pos = 0;
+    if (normSubInitial != null)
+    {
+      if (normValue.length < normSubInitial.length)
+      {
+        return false;
+      }
+
+      for (int i=0; i < normSubInitial.length; i++)
+      {
+        if (normValue[i] != normSubInitial[i])
+        {
+          return false;
+        }
+      }
+
+      pos = normSubInitial.length;
+    }
+
+    if (normSubAny != null)
+    {
+      for (final byte[] b : normSubAny)
+      {
+        if (b.length == 0)
+        {
+          continue;
+        }
+
+        boolean match = false;
+        final int subEndLength = normValue.length - b.length;
+        while (pos <= subEndLength)
+        {
+          match = true;
+          for (int i=0; i < b.length; i++)
+          {
+            if (normValue[pos+i] != b[i])
+            {
+              match = false;
+              break;
+            }
+          }
+
+          if (match)
+          {
+            pos += b.length;
+            break;
+          }
+          else
+          {
+            pos++;
+          }
+        }
+
+        if (! match)
+        {
+          return false;
+        }
+      }
+    }
+
+    if (normSubFinal != null)
+    {
+      int finalStartPos = normValue.length - normSubFinal.length;
+      if (finalStartPos < pos)
+      {
+        return false;
+      }
+
+      for (int i=0; i < normSubFinal.length; i++,finalStartPos++)
+      {
+        if (normValue[finalStartPos] != normSubFinal[i])
+        {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+
+
+  /**
+   * This class defines the API for an object that evaluates a single
+   * component of a compiled filter.
+   */
+  private abstract static class Evaluator
+  {
+    /**
+     * Indicates whether the associated filter component matches the provided
+     * entry.
+     *
+     * @param  entry  The entry for which to make the determination.
+     *
+     * @return  {@code true} if the filter component matches the provided
+     *          entry, or {@code false} if not.
+     *
+     * @throws  LDAPException  If a problem occurs while trying to make the
+     *                         determination.
+     */
+    abstract boolean matchesEntry(Entry entry)
+             throws LDAPException;
+  }
+
+
+
+  /**
+   * This class provides an evaluator for AND filters.
+   */
+  private static final class ANDEvaluator
+          extends Evaluator
+  {
+    // The evaluators for the AND components.
+    private final Evaluator[] components;
+
+
+
+    /**
+     * Creates a new AND evaluator.
+     *
+     * @param  components  The evaluators for the AND components.
+     */
+    private ANDEvaluator(final Evaluator[] components)
+    {
+      this.components = components;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      for (final Evaluator e : components)
+      {
+        if (! e.matchesEntry(entry))
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for OR filters.
+   */
+  private static final class OREvaluator
+          extends Evaluator
+  {
+    // The evaluators for the OR components.
+    private final Evaluator[] components;
+
+
+
+    /**
+     * Creates a new OR evaluator.
+     *
+     * @param  components  The evaluators for the OR components.
+     */
+    private OREvaluator(final Evaluator[] components)
+    {
+      this.components = components;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      for (final Evaluator e : components)
+      {
+        if (e.matchesEntry(entry))
+        {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for NOT filters.
+   */
+  private static final class NOTEvaluator
+          extends Evaluator
+  {
+    // The evaluator for the NOT component.
+    private final Evaluator component;
+
+
+
+    /**
+     * Creates a new NOT evaluator.
+     *
+     * @param  component  The evaluator for the NOT component.
+     */
+    private NOTEvaluator(final Evaluator component)
+    {
+      this.component = component;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      return (! component.matchesEntry(entry));
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for filter types that cannot be used to
+   * match entries.
+   */
+  private static final class UnsupportedEvaluator
+          extends Evaluator
+  {
+    // The result code for the exception to throw.
+    private final ResultCode resultCode;
+
+    // The message for the exception to throw.
+    private final String message;
+
+
+
+    /**
+     * Creates a new unsupported evaluator.
+     *
+     * @param  resultCode  The result code for the exception to throw.
+     * @param  message     The message for the exception to throw.
+     */
+    private UnsupportedEvaluator(final ResultCode resultCode,
+                                 final String message)
+    {
+      this.resultCode = resultCode;
+      this.message    = message;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      throw new LDAPException(resultCode, message);
+    }
+  }
+
+
+
+  /**
+   * This class provides a base class for evaluators that target a specific
+   * attribute.  It determines, in advance, all of the keys under which the
+   * attribute may be stored in an entry.
+   */
+  private abstract static class AttributeEvaluator
+          extends Evaluator
+  {
+    // The attribute name as provided in the filter.
+    private final String attrName;
+
+    // The all-lowercase names under which the attribute may be stored in an
+    // entry, in the order in which they should be checked.
+    private final String[] lowerNames;
+
+
+
+    /**
+     * Creates a new attribute evaluator.
+     *
+     * @param  attrName  The attribute name as provided in the filter.
+     * @param  schema    The schema to use to identify alternate names for the
+     *                   attribute, if any.
+     */
+    AttributeEvaluator(final String attrName, final Schema schema)
+    {
+      this.attrName = attrName;
+
+      final LinkedHashSet<String> names = new LinkedHashSet<String>(5);
+      names.add(toLowerCase(attrName));
+
+      if (schema != null)
+      {
+        final String baseName;
+        final String options;
+        final int semicolonPos = attrName.indexOf(';');
+        if (semicolonPos > 0)
+        {
+          baseName = attrName.substring(0, semicolonPos);
+          options  = toLowerCase(attrName.substring(semicolonPos));
+        }
+        else
+        {
+          baseName = attrName;
+          options  = "";
+        }
+
+        final AttributeTypeDefinition at = schema.getAttributeType(baseName);
+        if (at != null)
+        {
+          names.add(toLowerCase(at.getOID() + options));
+          for (final String name : at.getNames())
+          {
+            names.add(toLowerCase(name) + options);
+          }
+        }
+      }
+
+      lowerNames = names.toArray(new String[names.size()]);
+    }
+
+
+
+    /**
+     * Retrieves the attribute name as provided in the filter.
+     *
+     * @return  The attribute name as provided in the filter.
+     */
+    final String getAttributeName()
+    {
+      return attrName;
+    }
+
+
+
+    /**
+     * Retrieves the targeted attribute from the provided entry, in the same
+     * way as the {@code Entry.getAttribute(String,Schema)} method.
+     *
+     * @param  entry  The entry from which to retrieve the attribute.
+     *
+     * @return  The targeted attribute, or {@code null} if it is not present in
+     *          the entry.
+     */
+    final Attribute getAttribute(final Entry entry)
+    {
+      for (final String name : lowerNames)
+      {
+        final Attribute a = entry.getAttributeByLowerCaseName(name);
+        if (a != null)
+        {
+          return a;
+        }
+      }
+
+      return null;
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for presence filters.
+   */
+  private static final class PresenceEvaluator
+          extends AttributeEvaluator
+  {
+    // The schema that was used to compile the filter.
+    private final Schema schema;
+
+
+
+    /**
+     * Creates a new presence evaluator.
+     *
+     * @param  attrName  The attribute name as provided in the filter.
+     * @param  schema    The schema that was used to compile the filter, if
+     *                   any.
+     */
+    private PresenceEvaluator(final String attrName, final Schema schema)
+    {
+      super(attrName, schema);
+
+      this.schema = schema;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+    {
+      // Presence filters are evaluated using the entry's own schema rather
+      // than the schema provided to the filter.
+      if (entry.getSchema() == schema)
+      {
+        return (getAttribute(entry) != null);
+      }
+      else
+      {
+        return entry.hasAttribute(getAttributeName());
+      }
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for equality filters.
+   */
+  private static final class EqualityEvaluator
+          extends AttributeEvaluator
+  {
+    // The assertion value from the filter.
+    private final ASN1OctetString assertionValue;
+
+    // The normalized assertion value, if the matching rule allows it to be
+    // normalized in advance.
+    private final ASN1OctetString normalizedAssertionValue;
+
+    // The equality matching rule for the attribute.
+    private final MatchingRule matchingRule;
+
+
+
+    /**
+     * Creates a new equality evaluator.
+     *
+     * @param  attrName        The attribute name as provided in the filter.
+     * @param  schema          The schema to use when evaluating the filter, if
+     *                         any.
+     * @param  assertionValue  The assertion value from the filter.
+     */
+    private EqualityEvaluator(final String attrName, final Schema schema,
+                              final ASN1OctetString assertionValue)
+    {
+      super(attrName, schema);
+
+      this.assertionValue = assertionValue;
+      matchingRule = MatchingRule.selectEqualityMatchingRule(attrName, schema);
+
+      ASN1OctetString normalized = null;
+      if (isNormalizingMatchingRule(matchingRule, false))
+      {
+        try
+        {
+          normalized = matchingRule.normalize(assertionValue);
+        }
+        catch (final LDAPException le)
+        {
+          // The matching rule will report this problem for every entry that
+          // has the attribute.
+          debugException(le);
+        }
+      }
+      normalizedAssertionValue = normalized;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      final Attribute a = getAttribute(entry);
+      if (a == null)
+      {
+        return false;
+      }
+
+      if (normalizedAssertionValue == null)
+      {
+        return matchingRule.matchesAnyValue(assertionValue, a.getRawValues());
+      }
+
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        try
+        {
+          if (normalizedAssertionValue.equalsIgnoreType(
+               matchingRule.normalize(v)))
+          {
+            return true;
+          }
+        }
+        catch (final LDAPException le)
+        {
+          debugException(le);
+        }
+      }
+
+      return false;
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for substring filters.
+   */
+  private static final class SubstringEvaluator
+          extends AttributeEvaluator
+  {
+    // The substring elements from the filter.
+    private final ASN1OctetString subInitial;
+    private final ASN1OctetString[] subAny;
+    private final ASN1OctetString subFinal;
+
+    // The normalized substring elements, if the matching rule allows them to
+    // be normalized in advance.
+    private final boolean normalized;
+    private final byte[] normSubInitial;
+    private final byte[][] normSubAny;
+    private final byte[] normSubFinal;
+
+    // The substring matching rule for the attribute.
+    private final MatchingRule matchingRule;
+
+
+
+    /**
+     * Creates a new substring evaluator.
+     *
+     * @param  attrName    The attribute name as provided in the filter.
+     * @param  schema      The schema to use when evaluating the filter, if
+     *                     any.
+     * @param  subInitial  The subInitial element from the filter, if any.
+     * @param  subAny      The subAny elements from the filter, if any.
+     * @param  subFinal    The subFinal element from the filter, if any.
+     */
+    private SubstringEvaluator(final String attrName, final Schema schema,
+                               final ASN1OctetString subInitial,
+                               final ASN1OctetString[] subAny,
+                               final ASN1OctetString subFinal)
+    {
+      super(attrName, schema);
+
+      this.subInitial = subInitial;
+      this.subAny     = subAny;
+      this.subFinal   = subFinal;
+
+      matchingRule = MatchingRule.selectSubstringMatchingRule(attrName, schema);
+
+      byte[] initial = null;
+      byte[][] any = null;
+      byte[] fin = null;
+      boolean ok = isNormalizingMatchingRule(matchingRule, false);
+      if (ok)
+      {
+        try
+        {
+          if (subInitial != null)
+          {
+            initial = matchingRule.normalizeSubstring(subInitial,
+                 MatchingRule.SUBSTRING_TYPE_SUBINITIAL).getValue();
+          }
+
+          if (subAny != null)
+          {
+            any = new byte[subAny.length][];
+            for (int i=0; i < subAny.length; i++)
+            {
+              any[i] = matchingRule.normalizeSubstring(subAny[i],
+                   MatchingRule.SUBSTRING_TYPE_SUBANY).getValue();
+            }
+          }
+
+          if (subFinal != null)
+          {
+            fin = matchingRule.normalizeSubstring(subFinal,
+                 MatchingRule.SUBSTRING_TYPE_SUBFINAL).getValue();
+          }
+        }
+        catch (final LDAPException le)
+        {
+          // The matching rule will report this problem when it is used.
+          debugException(le);
+          ok = false;
+        }
+      }
+
+      normalized     = ok;
+      normSubInitial = initial;
+      normSubAny     = any;
+      normSubFinal   = fin;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      final Attribute a = getAttribute(entry);
+      if (a == null)
+      {
+        return false;
+      }
+
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        if (normalized)
+        {
+          if (matchesNormalizedSubstring(matchingRule.normalize(v).getValue(),
+               normSubInitial, normSubAny, normSubFinal))
+          {
+            return true;
+          }
+        }
+        else if (matchingRule.matchesSubstring(v, subInitial, subAny,
+                      subFinal))
+        {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+
+
+  /**
+   * This class provides an evaluator for greater-or-equal and less-or-equal
+   * filters.
+   */
+  private static final class OrderingEvaluator
+          extends AttributeEvaluator
+  {
+    // Indicates whether this is a greater-or-equal filter rather than a
+    // less-or-equal filter.
+    private final boolean greaterOrEqual;
+
+    // The assertion value from the filter.
+    private final ASN1OctetString assertionValue;
+
+    // The normalized assertion value, if the matching rule allows it to be
+    // normalized in advance.
+    private final byte[] normalizedAssertionValue;
+
+    // The ordering matching rule for the attribute.
+    private final MatchingRule matchingRule;
+
+
+
+    /**
+     * Creates a new ordering evaluator.
+     *
+     * @param  attrName        The attribute name as provided in the filter.
+     * @param  schema          The schema to use when evaluating the filter, if
+     *                         any.
+     * @param  assertionValue  The assertion value from the filter.
+     * @param  greaterOrEqual  Indicates whether this is a greater-or-equal
+     *                         filter rather than a less-or-equal filter.
+     */
+    private OrderingEvaluator(final String attrName, final Schema schema,
+                              final ASN1OctetString assertionValue,
+                              final boolean greaterOrEqual)
+    {
+      super(attrName, schema);
+
+      this.assertionValue = assertionValue;
+      this.greaterOrEqual = greaterOrEqual;
+      matchingRule = MatchingRule.selectOrderingMatchingRule(attrName, schema);
+
+      byte[] normalized = null;
+      if (isNormalizingMatchingRule(matchingRule, true))
+      {
+        try
+        {
+          normalized = matchingRule.normalize(assertionValue).getValue();
+        }
+        catch (final LDAPException le)
+        {
+          // The matching rule will report this problem when it is used.
+          debugException(le);
+        }
+      }
+      normalizedAssertionValue = normalized;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    boolean matchesEntry(final Entry entry)
+            throws LDAPException
+    {
+      final Attribute a = getAttribute(entry);
+      if (a == null)
+      {
+        return false;
+      }
+
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        final int c;
+        if (normalizedAssertionValue == null)
+        {
+          c = matchingRule.compareValues(v, assertionValue);
+        }
+        else
+        {
+          c = compareNormalizedValues(matchingRule.normalize(v).getValue(),
+               normalizedAssertionValue);
+        }
+
+        if (greaterOrEqual ? (c >= 0) : (c <= 0))
+        {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+}
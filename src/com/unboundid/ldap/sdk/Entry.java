@@ -883,6 +883,24 @@ public class Entry
 
 
 
+  /**
+   * Retrieves the attribute stored under the provided all-lowercase name
+   * (including any options).  No attempt will be made to use schema to find
+   * the attribute by an alternate name.
+   *
+   * @param  lowerName  The all-lowercase name of the attribute to retrieve.
+   *                    It must not be {@code null}.
+   *
+   * @return  The requested attribute from this entry, or {@code null} if the
+   *          specified attribute is not present in this entry.
+   */
+  final Attribute getAttributeByLowerCaseName(final String lowerName)
+  {
+    return attributes.get(lowerName);
+  }
+
+
+
   /**
    * Retrieves the list of attributes with the given base name and all of the
    * specified options.
@@ -25,12 +25,14 @@ package com.unboundid.ldap.sdk;
 import java.io.Closeable;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -50,6 +52,7 @@ import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.ldap.sdk.unboundidds.controls.RetainIdentityRequestControl;
 import com.unboundid.ldif.LDIFException;
 import com.unboundid.util.DebugType;
+import com.unboundid.util.HashedWheelTimer;
 import com.unboundid.util.SynchronizedSocketFactory;
 import com.unboundid.util.SynchronizedSSLSocketFactory;
 import com.unboundid.util.ThreadSafety;
@@ -207,6 +210,17 @@ public final class LDAPConnection
 
 
 
+  /**
+   * The timer that will be used to enforce timeouts for asynchronous operations
+   * on all connections.  Its background thread will not be started until the
+   * first timeout is scheduled.
+   */
+  private static final HashedWheelTimer ASYNC_TIMEOUT_TIMER =
+       new HashedWheelTimer("LDAP SDK Asynchronous Operation Timeout Timer",
+            10L, 512);
+
+
+
   /**
    * The default socket factory that will be used if no alternate factory is
    * provided.
@@ -232,6 +246,15 @@ public final class LDAPConnection
   // Indicates whether to perform a reconnect before the next write.
   private final AtomicBoolean needsReconnect;
 
+  // The number of asynchronous requests currently outstanding on this
+  // connection.
+  private final AtomicInteger outstandingAsyncRequests;
+
+  // The lock used to wait for and signal the availability of a permit to send
+  // an asynchronous request when the number of outstanding requests is
+  // limited.
+  private final Object asyncRequestPermitLock;
+
   // The disconnect information for this connection.
   private final AtomicReference<DisconnectInfo> disconnectInfo;
 
@@ -307,9 +330,6 @@ public final class LDAPConnection
   // The address of the server to which a connection should be re-established.
   private String reconnectAddress;
 
-  // A timer that may be used to enforce timeouts for asynchronous operations.
-  private Timer timer;
-
 
 
   /**
@@ -370,6 +390,8 @@ public final class LDAPConnection
                         final LDAPConnectionOptions connectionOptions)
   {
     needsReconnect = new AtomicBoolean(false);
+    outstandingAsyncRequests = new AtomicInteger(0);
+    asyncRequestPermitLock = new Object();
     disconnectInfo = new AtomicReference<DisconnectInfo>();
     lastCommunicationTime = -1L;
 
@@ -416,7 +438,6 @@ public final class LDAPConnection
     connectionName       = null;
     connectionPoolName   = null;
     cachedSchema         = null;
-    timer                = null;
 
     referralConnector = this.connectionOptions.getReferralConnector();
     if (referralConnector == null)
@@ -1673,6 +1694,16 @@ public final class LDAPConnection
   void setConnectionPool(final AbstractConnectionPool connectionPool)
   {
     this.connectionPool = connectionPool;
+
+    if (connectionPool == null)
+    {
+      connectionStatistics.setConnectionPoolStatistics(null);
+    }
+    else
+    {
+      connectionStatistics.setConnectionPoolStatistics(
+           connectionPool.getConnectionPoolStatistics());
+    }
   }
 
 
@@ -1872,6 +1903,10 @@ public final class LDAPConnection
       debugException(e);
     }
 
+    // No response will be delivered for the abandoned operation, so it will
+    // no longer count against the outstanding asynchronous request limit.
+    requestID.releaseAsyncRequestPermit();
+
     connectionStatistics.incrementNumAbandonRequests();
     final int abandonMessageID = nextMessageID();
     if (debugEnabled(DebugType.LDAP))
@@ -2147,7 +2182,19 @@ public final class LDAPConnection
       listener = resultListener;
     }
 
-    return addRequest.processAsync(this, listener);
+    acquireAsyncRequestPermit(addRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID = addRequest.processAsync(this, listener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -2416,7 +2463,20 @@ public final class LDAPConnection
       listener = resultListener;
     }
 
-    return compareRequest.processAsync(this, listener);
+    acquireAsyncRequestPermit(compareRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID =
+           compareRequest.processAsync(this, listener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -2560,7 +2620,20 @@ public final class LDAPConnection
       listener = resultListener;
     }
 
-    return deleteRequest.processAsync(this, listener);
+    acquireAsyncRequestPermit(deleteRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID =
+           deleteRequest.processAsync(this, listener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -2941,7 +3014,20 @@ public final class LDAPConnection
       listener = resultListener;
     }
 
-    return modifyRequest.processAsync(this, listener);
+    acquireAsyncRequestPermit(modifyRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID =
+           modifyRequest.processAsync(this, listener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -3124,7 +3210,20 @@ public final class LDAPConnection
       listener = resultListener;
     }
 
-    return modifyDNRequest.processAsync(this, listener);
+    acquireAsyncRequestPermit(modifyDNRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID =
+           modifyDNRequest.processAsync(this, listener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -4243,8 +4342,20 @@ public final class LDAPConnection
            ERR_ASYNC_NOT_SUPPORTED_IN_SYNCHRONOUS_MODE.get());
     }
 
-    return searchRequest.processAsync(this,
-         (AsyncSearchResultListener) searchListener);
+    acquireAsyncRequestPermit(searchRequest.getResponseTimeoutMillis(this));
+    try
+    {
+      final AsyncRequestID requestID = searchRequest.processAsync(this,
+           (AsyncSearchResultListener) searchListener);
+      requestID.setAsyncRequestPermitHeld();
+      return requestID;
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseAsyncRequestPermit();
+      throw le;
+    }
   }
 
 
@@ -4278,6 +4389,222 @@ public final class LDAPConnection
 
 
 
+  /**
+   * Sends multiple requests over this connection as asynchronous operations,
+   * pipelining them so that they are written to the server in as few network
+   * writes as possible rather than flushing the connection after each request.
+   * This may significantly improve throughput when sending a large number of
+   * small requests (for example, a bulk set of modify operations).  The list
+   * of requests may contain only add, compare, delete, modify, modify DN, and
+   * search operations (and any search operations to be processed must be
+   * configured with an {@link AsyncSearchResultListener}).
+   * <BR><BR>
+   * This method will not wait for any of the operations to complete.  The order
+   * of elements in the list of {@link AsyncRequestID} objects returned will
+   * correspond to the order of elements in the list of requests, and the
+   * operation results may be obtained from the returned {@code AsyncRequestID}
+   * objects using the {@code java.util.concurrent.Future} API.  If a problem is
+   * encountered while sending any of the requests, then the corresponding
+   * {@code AsyncRequestID} will be populated with a result that describes the
+   * failure.
+   *
+   * @param  requests  The list of requests to be processed.  It must not be
+   *                   {@code null}, and it must contain only add, compare,
+   *                   delete, modify, modify DN, and search requests.  Any
+   *                   search requests must be configured with an
+   *                   {@code AsyncSearchResultListener}.
+   *
+   * @return  The list of {@code AsyncRequestID} objects that may be used to
+   *          retrieve the results for the operations.  The order of elements in
+   *          this list will correspond to the order of the provided requests.
+   *
+   * @throws  LDAPException  If there is a problem with any of the requests, if
+   *                         this connection is operating in synchronous mode,
+   *                         or if this connection is not established.
+   */
+  public List<AsyncRequestID> processRequestsAsync(
+                                   final List<? extends LDAPRequest> requests)
+         throws LDAPException
+  {
+    ensureNotNull(requests);
+
+    if (synchronousMode())
+    {
+      throw new LDAPException(ResultCode.NOT_SUPPORTED,
+           ERR_ASYNC_NOT_SUPPORTED_IN_SYNCHRONOUS_MODE.get());
+    }
+
+    // Make sure that all the requests are acceptable.
+    for (final LDAPRequest r : requests)
+    {
+      switch (r.getOperationType())
+      {
+        case ADD:
+        case COMPARE:
+        case DELETE:
+        case MODIFY:
+        case MODIFY_DN:
+          // These operation types are always acceptable for asynchronous
+          // processing.
+          break;
+
+        case SEARCH:
+          // Search operations will only be acceptable if they have been
+          // configured with an async search result listener.
+          final SearchRequest searchRequest = (SearchRequest) r;
+          if (! (searchRequest.getSearchResultListener() instanceof
+                 AsyncSearchResultListener))
+          {
+            throw new LDAPException(ResultCode.PARAM_ERROR,
+                 ERR_POOL_PROCESS_REQUESTS_ASYNC_SEARCH_NOT_ASYNC.get(
+                      String.valueOf(r)));
+          }
+          break;
+
+        case ABANDON:
+        case BIND:
+        case EXTENDED:
+        case UNBIND:
+        default:
+          // These operation types are never acceptable for asynchronous
+          // processing.
+          throw new LDAPException(ResultCode.PARAM_ERROR,
+               ERR_POOL_PROCESS_REQUESTS_ASYNC_OP_NOT_ASYNC.get(
+                    String.valueOf(r)));
+      }
+    }
+
+    if (needsReconnect.compareAndSet(true, false))
+    {
+      reconnect();
+    }
+
+    final LDAPConnectionInternals internals = connectionInternals;
+    if (internals == null)
+    {
+      throw new LDAPException(ResultCode.SERVER_DOWN,
+                              ERR_CONN_NOT_ESTABLISHED.get());
+    }
+
+
+    // Issue all of the requests.  They will be encoded into the pipeline
+    // buffer, which will only be written to the server when it gets large
+    // enough or when all of the requests have been encoded.  If an exception
+    // is encountered while issuing a request, then convert it into an
+    // AsyncRequestID with the exception as the result.
+    final ArrayList<AsyncRequestID> requestIDs =
+         new ArrayList<AsyncRequestID>(requests.size());
+    int firstUnflushedIndex = 0;
+    internals.beginPipeline();
+    try
+    {
+      for (final LDAPRequest r : requests)
+      {
+        // If this connection has a limit on the number of outstanding
+        // asynchronous requests and that limit has been reached, then write
+        // any requests held in the pipeline buffer before waiting for one of
+        // the outstanding requests to complete.  Otherwise, we could end up
+        // waiting for responses to requests that have not yet been sent.
+        if (! asyncRequestPermitAvailable())
+        {
+          flushPipeline(internals, requestIDs, firstUnflushedIndex);
+          firstUnflushedIndex = requestIDs.size();
+        }
+
+        AsyncRequestID requestID = null;
+        try
+        {
+          switch (r.getOperationType())
+          {
+            case ADD:
+              requestID = asyncAdd((AddRequest) r, null);
+              break;
+            case COMPARE:
+              requestID = asyncCompare((CompareRequest) r, null);
+              break;
+            case DELETE:
+              requestID = asyncDelete((DeleteRequest) r, null);
+              break;
+            case MODIFY:
+              requestID = asyncModify((ModifyRequest) r, null);
+              break;
+            case MODIFY_DN:
+              requestID = asyncModifyDN((ModifyDNRequest) r, null);
+              break;
+            case SEARCH:
+              requestID = asyncSearch((SearchRequest) r);
+              break;
+          }
+        }
+        catch (final LDAPException le)
+        {
+          debugException(le);
+          requestID = new AsyncRequestID(r.getLastMessageID(), this);
+          requestID.setResult(le.toLDAPResult());
+        }
+
+        requestIDs.add(requestID);
+
+        if (internals.pipelineFlushNeeded())
+        {
+          flushPipeline(internals, requestIDs, firstUnflushedIndex);
+          firstUnflushedIndex = requestIDs.size();
+        }
+      }
+
+      flushPipeline(internals, requestIDs, firstUnflushedIndex);
+    }
+    finally
+    {
+      internals.endPipeline();
+    }
+
+    lastCommunicationTime = System.currentTimeMillis();
+    return requestIDs;
+  }
+
+
+
+  /**
+   * Writes any requests held in the pipeline buffer for the provided
+   * connection internals to the server.  If a problem is encountered, then all
+   * of the operations whose requests may not have been sent will be updated
+   * with a result that describes the failure.
+   *
+   * @param  internals   The connection internals with the pipeline buffer to
+   *                     be flushed.
+   * @param  requestIDs  The list of async request IDs for the operations that
+   *                     have been issued as part of the pipelined batch.
+   * @param  startIndex  The index of the first element in the list of request
+   *                     IDs whose request may be held in the pipeline buffer.
+   */
+  private void flushPipeline(final LDAPConnectionInternals internals,
+                             final List<AsyncRequestID> requestIDs,
+                             final int startIndex)
+  {
+    try
+    {
+      internals.flushPipeline();
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+
+      final LDAPResult result = le.toLDAPResult();
+      for (int i=startIndex; i < requestIDs.size(); i++)
+      {
+        final AsyncRequestID requestID = requestIDs.get(i);
+        if (! requestID.isDone())
+        {
+          deregisterResponseAcceptor(requestID.getMessageID());
+          requestID.setResult(result);
+        }
+      }
+    }
+  }
+
+
+
   /**
    * Processes the provided generic request and returns the result.  This may
    * be useful for cases in which it is not known what type of operation the
@@ -4562,17 +4889,6 @@ public final class LDAPConnection
 
     cachedSchema = null;
     lastCommunicationTime = -1L;
-
-    synchronized (this)
-    {
-      final Timer t = timer;
-      timer = null;
-
-      if (t != null)
-      {
-        t.cancel();
-      }
-    }
   }
 
 
@@ -4628,18 +4944,16 @@ public final class LDAPConnection
 
 
   /**
-   * Retrieves a timer for use with this connection, creating one if necessary.
+   * Retrieves the timer that should be used to enforce timeouts for
+   * asynchronous operations on this connection.  The same timer is shared by
+   * all connections.
    *
-   * @return  A timer for use with this connection.
+   * @return  The timer that should be used to enforce timeouts for
+   *          asynchronous operations on this connection.
    */
-  synchronized Timer getTimer()
+  HashedWheelTimer getTimer()
   {
-    if (timer == null)
-    {
-      timer = new Timer("Timer thread for " + toString(), true);
-    }
-
-    return timer;
+    return ASYNC_TIMEOUT_TIMER;
   }
 
 
@@ -4973,6 +5287,141 @@ public final class LDAPConnection
 
 
 
+  /**
+   * Retrieves the number of asynchronous operations that have been initiated
+   * on this connection and are still awaiting a response.  If the connection
+   * options specify a maximum number of outstanding asynchronous requests,
+   * then attempts to initiate additional asynchronous operations will block
+   * while this count is at that limit.
+   *
+   * @return  The number of asynchronous operations that have been initiated on
+   *          this connection and are still awaiting a response.
+   */
+  public int getOutstandingAsyncRequestCount()
+  {
+    return outstandingAsyncRequests.get();
+  }
+
+
+
+  /**
+   * Indicates whether an asynchronous request could currently be sent on this
+   * connection without exceeding the maximum number of outstanding
+   * asynchronous requests.
+   *
+   * @return  {@code true} if an asynchronous request could currently be sent
+   *          without waiting, or {@code false} if the limit has been reached.
+   */
+  boolean asyncRequestPermitAvailable()
+  {
+    final int maxOutstanding =
+         connectionOptions.getMaxOutstandingAsyncRequests();
+    return ((maxOutstanding <= 0) ||
+         (outstandingAsyncRequests.get() < maxOutstanding));
+  }
+
+
+
+  /**
+   * Obtains a permit to send an asynchronous request on this connection.  If
+   * the connection options specify a maximum number of outstanding
+   * asynchronous requests and that many requests are already in progress,
+   * then this method will block until one of them completes.  Every call to
+   * this method that returns normally must be matched by exactly one call to
+   * {@link #releaseAsyncRequestPermit}.
+   *
+   * @param  timeoutMillis  The maximum length of time in milliseconds to wait
+   *                        for a permit to become available.  A value that is
+   *                        less than or equal to zero indicates that there
+   *                        should be no limit.
+   *
+   * @throws  LDAPException  If the timeout elapses before a permit becomes
+   *                         available, or if the thread is interrupted while
+   *                         waiting.  The exception will be an
+   *                         {@code AsyncRequestPermitException}, which does
+   *                         not indicate that the connection is unusable.
+   */
+  void acquireAsyncRequestPermit(final long timeoutMillis)
+       throws LDAPException
+  {
+    final int maxOutstanding =
+         connectionOptions.getMaxOutstandingAsyncRequests();
+    if (maxOutstanding <= 0)
+    {
+      outstandingAsyncRequests.incrementAndGet();
+      return;
+    }
+
+    synchronized (asyncRequestPermitLock)
+    {
+      final long stopWaitingTime;
+      if (timeoutMillis > 0L)
+      {
+        stopWaitingTime = System.nanoTime() +
+             TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+      }
+      else
+      {
+        stopWaitingTime = 0L;
+      }
+
+      while (outstandingAsyncRequests.get() >= maxOutstanding)
+      {
+        try
+        {
+          if (timeoutMillis > 0L)
+          {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(
+                 stopWaitingTime - System.nanoTime());
+            if (remainingMillis <= 0L)
+            {
+              throw new AsyncRequestPermitException(ResultCode.TIMEOUT,
+                   ERR_ASYNC_REQUEST_LIMIT_TIMEOUT.get(getHostPort(),
+                        maxOutstanding, timeoutMillis),
+                   null);
+            }
+
+            asyncRequestPermitLock.wait(remainingMillis);
+          }
+          else
+          {
+            asyncRequestPermitLock.wait();
+          }
+        }
+        catch (final InterruptedException ie)
+        {
+          debugException(ie);
+          Thread.currentThread().interrupt();
+          throw new AsyncRequestPermitException(ResultCode.LOCAL_ERROR,
+               ERR_ASYNC_REQUEST_LIMIT_INTERRUPTED.get(getHostPort()), ie);
+        }
+      }
+
+      outstandingAsyncRequests.incrementAndGet();
+    }
+  }
+
+
+
+  /**
+   * Releases a permit previously obtained with
+   * {@link #acquireAsyncRequestPermit}, waking up a thread that may be waiting
+   * to send an asynchronous request.
+   */
+  void releaseAsyncRequestPermit()
+  {
+    outstandingAsyncRequests.decrementAndGet();
+    if (connectionOptions.getMaxOutstandingAsyncRequests() > 0)
+    {
+      synchronized (asyncRequestPermitLock)
+      {
+        asyncRequestPermitLock.notify();
+      }
+    }
+  }
+
+
+
   /**
    * Retrieves the schema from the provided connection.  If the retrieved schema
    * matches schema that's already in use by other connections, the common
@@ -27,10 +27,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.logging.Level;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -70,6 +72,18 @@ final class LDAPConnectionInternals
 
 
 
+  /**
+   * The number of bytes of encoded messages that may be held in the pipeline
+   * buffer before it should be written to the server.
+   */
+  private static final int MAX_PIPELINE_BUFFER_SIZE = 65536;
+
+
+
+  // The buffer used to hold messages that have been encoded as part of a
+  // pipelined batch but not yet written to the server.
+  private ASN1Buffer pipelineBuffer;
+
   // The counter that will be used to obtain the next message ID to use when
   // sending requests to the server.
   private final AtomicInteger nextMessageID;
@@ -86,6 +100,9 @@ final class LDAPConnectionInternals
   // The time that this connection was established.
   private final long connectTime;
 
+  // The send timeout for the most recent message added to the pipeline buffer.
+  private long pipelineSendTimeoutMillis;
+
   // The LDAP connection with which this connection internals is associated.
   private final LDAPConnection connection;
 
@@ -102,9 +119,21 @@ final class LDAPConnectionInternals
   // The socket used to communicate with the directory server.
   private volatile Socket socket;
 
+  // The channel that should be registered with a shared selector thread to
+  // read responses from the server, if a selector reader is to be used.
+  private final SocketChannel selectorChannel;
+
+  // The lock used to ensure that only one thread at a time may send a
+  // pipelined batch of messages over this connection.
+  private final ReentrantLock pipelineLock;
+
   // The address of the server to which the connection is established.
   private final String host;
 
+  // The thread that is currently sending a pipelined batch of messages, if
+  // any.
+  private volatile Thread pipelineThread;
+
 
 
   /**
@@ -153,11 +182,27 @@ final class LDAPConnectionInternals
     synchronousMode = options.useSynchronousMode();
     saslClient      = null;
     socket          = null;
+    pipelineLock    = new ReentrantLock();
+    pipelineThread  = null;
+    pipelineBuffer  = null;
+
+    final boolean useSelectorReader =
+         options.useSelectorReader() && (! synchronousMode);
 
     try
     {
+      final SocketFactory f;
+      if (useSelectorReader)
+      {
+        f = SocketChannelSocketFactory.getSocketFactory(socketFactory);
+      }
+      else
+      {
+        f = socketFactory;
+      }
+
       final ConnectThread connectThread =
-           new ConnectThread(socketFactory, inetAddress, port, timeout);
+           new ConnectThread(f, inetAddress, port, timeout);
       connectThread.start();
       socket = connectThread.getConnectedSocket();
 
@@ -205,7 +250,25 @@ final class LDAPConnectionInternals
                 " to " + soTimeout + "ms.");
       socket.setSoTimeout(soTimeout);
 
-      outputStream     = new BufferedOutputStream(socket.getOutputStream());
+      if (useSelectorReader && (socket.getChannel() != null))
+      {
+        selectorChannel = socket.getChannel();
+        outputStream    =
+             new BufferedOutputStream(new SocketChannelOutputStream(socket));
+      }
+      else
+      {
+        if (useSelectorReader)
+        {
+          debug(Level.INFO, DebugType.CONNECT,
+               "Using a dedicated reader thread for connection " + connection +
+                    " because its socket is not backed by a socket channel.");
+        }
+
+        selectorChannel = null;
+        outputStream    = new BufferedOutputStream(socket.getOutputStream());
+      }
+
       connectionReader = new LDAPConnectionReader(connection, this);
     }
     catch (final IOException ioe)
@@ -230,12 +293,28 @@ final class LDAPConnectionInternals
 
   /**
    * Starts the connection reader for this connection internals.  This will
-   * have no effect if the connection is operating in synchronous mode.
+   * have no effect if the connection is operating in synchronous mode.  If the
+   * connection is configured to use a selector reader, then the connection
+   * reader will be registered with a shared selector thread rather than
+   * started as a thread of its own.
    */
   void startConnectionReader()
   {
     if (! synchronousMode)
     {
+      if (selectorChannel != null)
+      {
+        try
+        {
+          connectionReader.startSelectorReader(selectorChannel);
+          return;
+        }
+        catch (final IOException ioe)
+        {
+          debugException(ioe);
+        }
+      }
+
       connectionReader.start();
     }
   }
@@ -518,6 +597,24 @@ final class LDAPConnectionInternals
                               ERR_CONN_NOT_ESTABLISHED.get());
     }
 
+    if (pipelineThread == Thread.currentThread())
+    {
+      // The message is part of a pipelined batch, so just encode it into the
+      // pipeline buffer.  It will be written when the batch is flushed.
+      try
+      {
+        message.writeTo(pipelineBuffer);
+      }
+      catch (final LDAPRuntimeException lre)
+      {
+        debugException(lre);
+        lre.throwLDAPException();
+      }
+
+      pipelineSendTimeoutMillis = sendTimeoutMillis;
+      return;
+    }
+
     ASN1Buffer buffer = ASN1_BUFFERS.get().get();
     if (buffer == null)
     {
@@ -539,45 +636,7 @@ final class LDAPConnectionInternals
 
     try
     {
-      final int soTimeout = Math.max(0, (int) sendTimeoutMillis);
-      if (debugEnabled())
-      {
-        debug(Level.INFO, DebugType.CONNECT,
-             "Setting the SO_TIMEOUT value for connection " + connection +
-                  " to " + soTimeout + "ms.");
-      }
-      socket.setSoTimeout(soTimeout);
-    }
-    catch (final Exception e)
-    {
-      debugException(e);
-    }
-
-
-    try
-    {
-      final OutputStream os = outputStream;
-      if (saslClient == null)
-      {
-        buffer.writeTo(os);
-      }
-      else
-      {
-        // We need to wrap the data that was read using the SASL client, but we
-        // also need to precede that wrapped data with four bytes that specify
-        // the number of bytes of wrapped data.
-        final byte[] clearBytes = buffer.toByteArray();
-        final byte[] saslBytes =
-             saslClient.wrap(clearBytes, 0, clearBytes.length);
-        final byte[] lengthBytes = new byte[4];
-        lengthBytes[0] = (byte) ((saslBytes.length >> 24) & 0xFF);
-        lengthBytes[1] = (byte) ((saslBytes.length >> 16) & 0xFF);
-        lengthBytes[2] = (byte) ((saslBytes.length >> 8) & 0xFF);
-        lengthBytes[3] = (byte) (saslBytes.length & 0xFF);
-        os.write(lengthBytes);
-        os.write(saslBytes);
-      }
-      os.flush();
+      writeBuffer(buffer, sendTimeoutMillis);
     }
     catch (final IOException ioe)
     {
@@ -630,6 +689,178 @@ final class LDAPConnectionInternals
 
 
 
+  /**
+   * Writes the contents of the provided buffer to the server and flushes the
+   * output stream.
+   *
+   * @param  buffer             The buffer containing the encoded data to be
+   *                            written.
+   * @param  sendTimeoutMillis  The maximum length of time, in milliseconds, to
+   *                            block while trying to send the data.  If this
+   *                            is less than or equal to zero, then no send
+   *                            timeout will be enforced.
+   *
+   * @throws  IOException  If a problem occurs while writing the data.
+   */
+  private void writeBuffer(final ASN1Buffer buffer,
+                           final long sendTimeoutMillis)
+          throws IOException
+  {
+    try
+    {
+      final int soTimeout = Math.max(0, (int) sendTimeoutMillis);
+      if (debugEnabled())
+      {
+        debug(Level.INFO, DebugType.CONNECT,
+             "Setting the SO_TIMEOUT value for connection " + connection +
+                  " to " + soTimeout + "ms.");
+      }
+      socket.setSoTimeout(soTimeout);
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+    }
+
+
+    final OutputStream os = outputStream;
+    if (saslClient == null)
+    {
+      buffer.writeTo(os);
+    }
+    else
+    {
+      // We need to wrap the data that was read using the SASL client, but we
+      // also need to precede that wrapped data with four bytes that specify
+      // the number of bytes of wrapped data.
+      final byte[] clearBytes = buffer.toByteArray();
+      final byte[] saslBytes =
+           saslClient.wrap(clearBytes, 0, clearBytes.length);
+      final byte[] lengthBytes = new byte[4];
+      lengthBytes[0] = (byte) ((saslBytes.length >> 24) & 0xFF);
+      lengthBytes[1] = (byte) ((saslBytes.length >> 16) & 0xFF);
+      lengthBytes[2] = (byte) ((saslBytes.length >> 8) & 0xFF);
+      lengthBytes[3] = (byte) (saslBytes.length & 0xFF);
+      os.write(lengthBytes);
+      os.write(saslBytes);
+    }
+    os.flush();
+  }
+
+
+
+  /**
+   * Indicates that the current thread is about to send a batch of messages
+   * that should be pipelined.  Until {@link #endPipeline} is called, any
+   * message sent by the current thread will be encoded into a buffer rather
+   * than written to the server immediately, and the buffered messages will only
+   * be written when {@link #flushPipeline} is called.  Other threads may
+   * continue to send messages over this connection in the meantime, but only
+   * one thread at a time may send a pipelined batch.
+   */
+  void beginPipeline()
+  {
+    pipelineLock.lock();
+    if (pipelineBuffer == null)
+    {
+      pipelineBuffer = new ASN1Buffer();
+    }
+    else
+    {
+      pipelineBuffer.clear();
+    }
+
+    pipelineSendTimeoutMillis = 0L;
+    pipelineThread = Thread.currentThread();
+  }
+
+
+
+  /**
+   * Indicates whether the pipeline buffer holds enough data that it should be
+   * flushed before encoding any more messages.  This must only be called by
+   * the thread that invoked {@link #beginPipeline}.
+   *
+   * @return  {@code true} if the pipeline buffer should be flushed, or
+   *          {@code false} if not.
+   */
+  boolean pipelineFlushNeeded()
+  {
+    return (pipelineBuffer.length() >= MAX_PIPELINE_BUFFER_SIZE);
+  }
+
+
+
+  /**
+   * Writes all messages held in the pipeline buffer to the server with a
+   * single flush.  This must only be called by the thread that invoked
+   * {@link #beginPipeline}.
+   *
+   * @throws  LDAPException  If a problem occurs while writing the messages.
+   *                         None of the buffered messages should be assumed
+   *                         to have been received by the server.
+   */
+  void flushPipeline()
+       throws LDAPException
+  {
+    if (pipelineBuffer.length() == 0)
+    {
+      return;
+    }
+
+    if (! isConnected())
+    {
+      pipelineBuffer.clear();
+      throw new LDAPException(ResultCode.SERVER_DOWN,
+                              ERR_CONN_NOT_ESTABLISHED.get());
+    }
+
+    try
+    {
+      writeBuffer(pipelineBuffer, pipelineSendTimeoutMillis);
+    }
+    catch (final IOException ioe)
+    {
+      debugException(ioe);
+      throw new LDAPException(ResultCode.SERVER_DOWN,
+           ERR_CONN_SEND_ERROR.get(host + ':' + port, getExceptionMessage(ioe)),
+           ioe);
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      throw new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONN_ENCODE_ERROR.get(host + ':' + port, getExceptionMessage(e)),
+           e);
+    }
+    finally
+    {
+      pipelineBuffer.clear();
+    }
+  }
+
+
+
+  /**
+   * Indicates that the current thread has finished sending a pipelined batch
+   * of messages.  Any messages that remain in the pipeline buffer will be
+   * discarded, so {@link #flushPipeline} should be called first.
+   */
+  void endPipeline()
+  {
+    try
+    {
+      pipelineThread = null;
+      pipelineBuffer.clear();
+    }
+    finally
+    {
+      pipelineLock.unlock();
+    }
+  }
+
+
+
   /**
    * Closes the connection associated with this connection internals.
    */
@@ -547,6 +547,51 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * The name of a system property that can be used to specify the initial
+   * default value for the "use selector reader" behavior.  If this property is
+   * set at the time that this class is loaded, then its value must be either
+   * "true" or "false".  If this property is not set, then a default value of
+   * "false" will be assumed.
+   * <BR><BR>
+   * The full name for this system property is
+   * "com.unboundid.ldap.sdk.LDAPConnectionOptions.defaultUseSelectorReader".
+   */
+  public static final String PROPERTY_DEFAULT_USE_SELECTOR_READER =
+       PROPERTY_PREFIX + "defaultUseSelectorReader";
+
+
+
+  /**
+   * The default value for the setting that controls whether responses for
+   * associated connections should be read by a small set of shared,
+   * selector-based threads rather than by a dedicated reader thread for each
+   * connection.  If the {@link #PROPERTY_DEFAULT_USE_SELECTOR_READER} system
+   * property is set at the time this class is loaded, then its value will be
+   * used.  Otherwise, a default value of {@code false} will be used.
+   */
+  private static final boolean DEFAULT_USE_SELECTOR_READER =
+       getSystemProperty(PROPERTY_DEFAULT_USE_SELECTOR_READER, false);
+
+
+
+  /**
+   * The name of a system property that can be used to specify the number of
+   * shared selector threads that will be used to read responses for
+   * connections configured to use a selector reader.  If this property is set
+   * at the time that the first such connection is established, then its value
+   * must be a positive integer.  If this property is not set, then a default
+   * value based on the number of available CPUs (but no more than four) will
+   * be used.
+   * <BR><BR>
+   * The full name for this system property is
+   * "com.unboundid.ldap.sdk.LDAPConnectionOptions.selectorReaderThreadCount".
+   */
+  public static final String PROPERTY_SELECTOR_READER_THREAD_COUNT =
+       PROPERTY_PREFIX + "selectorReaderThreadCount";
+
+
+
   /**
    * The name of a system property that can be used to specify the initial
    * default value for the "use TCP nodelay" behavior.  If this property is set
@@ -629,6 +674,36 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * The name of a system property that can be used to specify the initial
+   * default value for the maximum number of asynchronous requests that may be
+   * outstanding on a single connection at any given time.  If this property is
+   * set at the time that this class is loaded, then its value must be parseable
+   * as an integer.  If this property is not set, then a default value of "0"
+   * (indicating that no limit should be enforced) will be assumed.
+   * <BR><BR>
+   * The full name for this system property is "com.unboundid.ldap.sdk.
+   * LDAPConnectionOptions.defaultMaxOutstandingAsyncRequests".
+   */
+  public static final String PROPERTY_DEFAULT_MAX_OUTSTANDING_ASYNC_REQUESTS =
+       PROPERTY_PREFIX + "defaultMaxOutstandingAsyncRequests";
+
+
+
+  /**
+   * The default value for the setting that controls the maximum number of
+   * asynchronous requests that may be outstanding on a single connection at
+   * any given time.  If the
+   * {@link #PROPERTY_DEFAULT_MAX_OUTSTANDING_ASYNC_REQUESTS} system property is
+   * set at the time this class is loaded, then its value will be used.
+   * Otherwise, a default value of 0 will be used to indicate that no limit
+   * should be enforced.
+   */
+  private static final int DEFAULT_MAX_OUTSTANDING_ASYNC_REQUESTS =
+       getSystemProperty(PROPERTY_DEFAULT_MAX_OUTSTANDING_ASYNC_REQUESTS, 0);
+
+
+
   /**
    * The name of a system property that can be used to specify the initial
    * default value for the receive buffer size, in bytes.  If this property is
@@ -1118,6 +1193,10 @@ public final class LDAPConnectionOptions
   // the server.
   private boolean useSchema;
 
+  // Indicates whether to use a shared selector-based reader rather than a
+  // dedicated reader thread for each connection.
+  private boolean useSelectorReader;
+
   // Indicates whether to use synchronous mode in which only a single operation
   // may be in progress on associated connections at any given time.
   private boolean useSynchronousMode;
@@ -1138,6 +1217,10 @@ public final class LDAPConnectionOptions
   // from a directory server.
   private int maxMessageSizeBytes;
 
+  // The maximum number of asynchronous requests that may be outstanding on an
+  // associated connection at any given time.
+  private int maxOutstandingAsyncRequests;
+
   // The socket receive buffer size to request.
   private int receiveBufferSizeBytes;
 
@@ -1185,11 +1268,13 @@ public final class LDAPConnectionOptions
     useReuseAddress                = DEFAULT_USE_REUSE_ADDRESS;
     usePooledSchema                = DEFAULT_USE_POOLED_SCHEMA;
     useSchema                      = DEFAULT_USE_SCHEMA;
+    useSelectorReader              = DEFAULT_USE_SELECTOR_READER;
     useSynchronousMode             = DEFAULT_USE_SYNCHRONOUS_MODE;
     useTCPNoDelay                  = DEFAULT_USE_TCP_NODELAY;
     connectTimeoutMillis           = DEFAULT_CONNECT_TIMEOUT_MILLIS;
     lingerTimeoutSeconds           = DEFAULT_LINGER_TIMEOUT_SECONDS;
     maxMessageSizeBytes            = DEFAULT_MAX_MESSAGE_SIZE_BYTES;
+    maxOutstandingAsyncRequests    = DEFAULT_MAX_OUTSTANDING_ASYNC_REQUESTS;
     referralHopLimit               = DEFAULT_REFERRAL_HOP_LIMIT;
     pooledSchemaTimeoutMillis      = DEFAULT_POOLED_SCHEMA_TIMEOUT_MILLIS;
     responseTimeoutMillis          = DEFAULT_RESPONSE_TIMEOUT_MILLIS;
@@ -1232,11 +1317,13 @@ public final class LDAPConnectionOptions
     o.useReuseAddress                 = useReuseAddress;
     o.usePooledSchema                 = usePooledSchema;
     o.useSchema                       = useSchema;
+    o.useSelectorReader               = useSelectorReader;
     o.useSynchronousMode              = useSynchronousMode;
     o.useTCPNoDelay                   = useTCPNoDelay;
     o.connectTimeoutMillis            = connectTimeoutMillis;
     o.lingerTimeoutSeconds            = lingerTimeoutSeconds;
     o.maxMessageSizeBytes             = maxMessageSizeBytes;
+    o.maxOutstandingAsyncRequests     = maxOutstandingAsyncRequests;
     o.pooledSchemaTimeoutMillis       = pooledSchemaTimeoutMillis;
     o.responseTimeoutMillis            = responseTimeoutMillis;
     o.referralConnector               = referralConnector;
@@ -1886,6 +1973,72 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * Indicates whether associated connections should have their responses read
+   * by a small set of shared threads that use a {@code java.nio} selector to
+   * multiplex reads across many connections, rather than by a dedicated
+   * reader thread for each connection.  This can dramatically reduce the
+   * number of threads (and the associated memory and context switching
+   * overhead) for applications that maintain a large number of connections.
+   * <BR><BR>
+   * This setting will only be used for connections operating in asynchronous
+   * mode whose sockets are backed by a {@code SocketChannel}.  Connections
+   * created with the JVM-default socket factory will automatically use
+   * channel-backed sockets when this option is enabled, but connections
+   * created with any other socket factory (including any SSL socket factory)
+   * will continue to use a dedicated reader thread unless that factory creates
+   * channel-backed sockets.  If a connection that uses a selector reader is
+   * later secured with StartTLS or with SASL integrity or confidentiality, it
+   * will transparently switch to using a dedicated reader thread.
+   * <BR><BR>
+   * When a selector reader is used, callbacks like
+   * {@link AsyncResultListener}, {@link AsyncSearchResultListener},
+   * {@link IntermediateResponseListener}, and
+   * {@link UnsolicitedNotificationHandler} methods will not be invoked by a
+   * thread dedicated to the connection, but by a thread from a pool shared by
+   * all connections that use a selector reader.  Callbacks for any one
+   * connection will be invoked one at a time and in the order that the
+   * responses were received, so a callback that takes a long time to complete
+   * will delay the delivery of other responses for that connection, but not
+   * for other connections.
+   * <BR><BR>
+   * Note that if this setting is to be used, then this connection option must
+   * be set on the connection before any attempt is made to establish the
+   * connection.
+   *
+   * @return  {@code true} if associated connections should use a shared
+   *          selector-based reader, or {@code false} if they should use a
+   *          dedicated reader thread.
+   */
+  public boolean useSelectorReader()
+  {
+    return useSelectorReader;
+  }
+
+
+
+  /**
+   * Specifies whether associated connections should have their responses read
+   * by a small set of shared, selector-based threads rather than by a
+   * dedicated reader thread for each connection.  See the documentation for
+   * the {@link #useSelectorReader()} method for information about the
+   * circumstances under which this setting will be used, and about the threads
+   * that will be used to invoke listener callbacks for those connections.
+   * <BR><BR>
+   * Note that if this setting is to be used, then this connection option must
+   * be set on the connection before any attempt is made to establish the
+   * connection.
+   *
+   * @param  useSelectorReader  Indicates whether associated connections should
+   *                            use a shared selector-based reader.
+   */
+  public void setUseSelectorReader(final boolean useSelectorReader)
+  {
+    this.useSelectorReader = useSelectorReader;
+  }
+
+
+
   /**
    * Indicates whether to use the TCP_NODELAY option for the underlying sockets
    * used by associated connections.
@@ -2055,6 +2208,52 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * Retrieves the maximum number of asynchronous requests that may be
+   * outstanding on an associated connection at any given time.  If an attempt
+   * is made to send an asynchronous request while this many requests are
+   * already in progress on the connection, then the caller will be blocked
+   * until one of the outstanding requests completes or until the response
+   * timeout for the new request elapses.
+   *
+   * @return  The maximum number of asynchronous requests that may be
+   *          outstanding on an associated connection at any given time, or 0
+   *          if no limit will be enforced.
+   */
+  public int getMaxOutstandingAsyncRequests()
+  {
+    return maxOutstandingAsyncRequests;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of asynchronous requests that may be
+   * outstanding on an associated connection at any given time.  If an attempt
+   * is made to send an asynchronous request while this many requests are
+   * already in progress on the connection, then the caller will be blocked
+   * until one of the outstanding requests completes or until the response
+   * timeout for the new request elapses.  This makes it possible for an
+   * application that issues a large number of asynchronous requests to avoid
+   * overwhelming the server or accumulating an unbounded number of pending
+   * operations in the client.
+   *
+   * @param  maxOutstandingAsyncRequests  The maximum number of asynchronous
+   *                                      requests that may be outstanding on
+   *                                      an associated connection at any given
+   *                                      time.  A value less than or equal to
+   *                                      zero indicates that no limit should
+   *                                      be enforced.
+   */
+  public void setMaxOutstandingAsyncRequests(
+                   final int maxOutstandingAsyncRequests)
+  {
+    this.maxOutstandingAsyncRequests =
+         Math.max(0, maxOutstandingAsyncRequests);
+  }
+
+
+
   /**
    * Retrieves the disconnect handler to use for associated connections.
    *
@@ -2507,6 +2706,8 @@ public final class LDAPConnectionOptions
     buffer.append(pooledSchemaTimeoutMillis);
     buffer.append(", useSynchronousMode=");
     buffer.append(useSynchronousMode);
+    buffer.append(", useSelectorReader=");
+    buffer.append(useSelectorReader);
     buffer.append(", useTCPNoDelay=");
     buffer.append(useTCPNoDelay);
     buffer.append(", captureConnectStackTrace=");
@@ -2538,6 +2739,8 @@ public final class LDAPConnectionOptions
     buffer.append(abandonOnTimeout);
     buffer.append(", maxMessageSizeBytes=");
     buffer.append(maxMessageSizeBytes);
+    buffer.append(", maxOutstandingAsyncRequests=");
+    buffer.append(maxOutstandingAsyncRequests);
     buffer.append(", receiveBufferSizeBytes=");
     buffer.append(receiveBufferSizeBytes);
     buffer.append(", sendBufferSizeBytes=");
@@ -26,10 +26,10 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -188,6 +188,16 @@ import static com.unboundid.util.Validator.*;
  * {@link #setMaxWaitTimeMillis(long)} method to specify a maximum wait time to
  * allow the pool to wait for a connection to become available rather than
  * throwing an exception if no connections are immediately available.
+ * <BR><BR>
+ * By default, all available connections are held in a single queue.  For
+ * applications with a very large number of threads concurrently checking out
+ * and releasing connections, the pool may be created with a constructor that
+ * allows it to use a striped connection queue.  In that case, connections are
+ * held in a number of lock-free lists, and each thread will prefer the list
+ * to which it most recently released a connection (but will take connections
+ * from the other lists if necessary).  This can reduce contention when
+ * checking out and releasing connections, but connections will not be
+ * retrieved in strict first-in-first-out order.
  */
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 public final class LDAPConnectionPool
@@ -260,7 +270,7 @@ public final class LDAPConnectionPool
   private final LDAPConnectionPoolStatistics poolStatistics;
 
   // The set of connections that are currently available for use.
-  private final LinkedBlockingQueue<LDAPConnection> availableConnections;
+  private final BlockingQueue<LDAPConnection> availableConnections;
 
   // The length of time in milliseconds between periodic health checks against
   // the available connections in this pool.
@@ -618,6 +628,87 @@ public final class LDAPConnectionPool
                             final boolean throwOnConnectFailure,
                             final LDAPConnectionPoolHealthCheck healthCheck)
          throws LDAPException
+  {
+    this(connection, initialConnections, maxConnections,
+         initialConnectThreads, postConnectProcessor, throwOnConnectFailure,
+         healthCheck, false);
+  }
+
+
+
+  /**
+   * Creates a new LDAP connection pool with the specified number of
+   * connections, created as clones of the provided connection.
+   *
+   * @param  connection             The connection to use to provide the
+   *                                template for the other connections to be
+   *                                created.  This connection will be included
+   *                                in the pool.  It must not be {@code null},
+   *                                and it must be established to the target
+   *                                server.  It does not necessarily need to be
+   *                                authenticated if all connections in the pool
+   *                                are to be unauthenticated.
+   * @param  initialConnections     The number of connections to initially
+   *                                establish when the pool is created.  It must
+   *                                be greater than or equal to one.
+   * @param  maxConnections         The maximum number of connections that
+   *                                should be maintained in the pool.  It must
+   *                                be greater than or equal to the initial
+   *                                number of connections.  See the "Pool
+   *                                Connection Management" section of the
+   *                                class-level documentation for an explanation
+   *                                of how the pool treats the maximum number of
+   *                                connections.
+   * @param  initialConnectThreads  The number of concurrent threads to use to
+   *                                establish the initial set of connections.
+   *                                A value greater than one indicates that the
+   *                                attempt to establish connections should be
+   *                                parallelized.
+   * @param  postConnectProcessor   A processor that should be used to perform
+   *                                any post-connect processing for connections
+   *                                in this pool.  It may be {@code null} if no
+   *                                special processing is needed.  Note that
+   *                                this processing will not be invoked on the
+   *                                provided connection that will be used as the
+   *                                first connection in the pool.
+   * @param  throwOnConnectFailure  If an exception should be thrown if a
+   *                                problem is encountered while attempting to
+   *                                create the specified initial number of
+   *                                connections.  If {@code true}, then the
+   *                                attempt to create the pool will fail.if any
+   *                                connection cannot be established.  If
+   *                                {@code false}, then the pool will be created
+   *                                but may have fewer than the initial number
+   *                                of connections (or possibly no connections).
+   * @param  healthCheck            The health check that should be used for
+   *                                connections in this pool.  It may be
+   *                                {@code null} if the default health check
+   *                                should be used.
+   * @param  useStripedQueue        Indicates whether the pool should use a
+   *                                striped queue to hold available
+   *                                connections, which may reduce contention
+   *                                when a large number of threads are
+   *                                concurrently checking out and releasing
+   *                                connections.  If this is {@code false},
+   *                                then a single first-in-first-out queue will
+   *                                be used.
+   *
+   * @throws  LDAPException  If the provided connection cannot be used to
+   *                         initialize the pool, or if a problem occurs while
+   *                         attempting to establish any of the connections.  If
+   *                         this is thrown, then all connections associated
+   *                         with the pool (including the one provided as an
+   *                         argument) will be closed.
+   */
+  public LDAPConnectionPool(final LDAPConnection connection,
+                            final int initialConnections,
+                            final int maxConnections,
+                            final int initialConnectThreads,
+                            final PostConnectProcessor postConnectProcessor,
+                            final boolean throwOnConnectFailure,
+                            final LDAPConnectionPoolHealthCheck healthCheck,
+                            final boolean useStripedQueue)
+         throws LDAPException
   {
     ensureNotNull(connection);
     ensureTrue(initialConnections >= 1,
@@ -640,7 +731,7 @@ public final class LDAPConnectionPool
     numConnections            = maxConnections;
     minConnectionGoal         = 0;
     availableConnections      =
-         new LinkedBlockingQueue<LDAPConnection>(numConnections);
+         createAvailableConnectionQueue(numConnections, useStripedQueue);
 
     if (! connection.isConnected())
     {
@@ -1131,6 +1222,97 @@ public final class LDAPConnectionPool
                             final boolean throwOnConnectFailure,
                             final LDAPConnectionPoolHealthCheck healthCheck)
          throws LDAPException
+  {
+    this(serverSet, bindRequest, initialConnections, maxConnections,
+         initialConnectThreads, postConnectProcessor, throwOnConnectFailure,
+         healthCheck, false);
+  }
+
+
+
+  /**
+   * Creates a new LDAP connection pool with the specified number of
+   * connections, created using the provided server set.
+   *
+   * @param  serverSet              The server set to use to create the
+   *                                connections.  It is acceptable for the
+   *                                server set to create the connections across
+   *                                multiple servers.
+   * @param  bindRequest            The bind request to use to authenticate the
+   *                                connections that are established.  It may be
+   *                                {@code null} if no authentication should be
+   *                                performed on the connections.  Note that if
+   *                                the server set is configured to perform
+   *                                authentication, this bind request should be
+   *                                the same bind request used by the server
+   *                                set.  This is important because even
+   *                                though the server set may be used to
+   *                                perform the initial authentication on a
+   *                                newly established connection, this
+   *                                connection pool may still need to
+   *                                re-authenticate the connection.
+   * @param  initialConnections     The number of connections to initially
+   *                                establish when the pool is created.  It must
+   *                                be greater than or equal to zero.
+   * @param  maxConnections         The maximum number of connections that
+   *                                should be maintained in the pool.  It must
+   *                                be greater than or equal to the initial
+   *                                number of connections, and must not be zero.
+   *                                See the "Pool Connection Management" section
+   *                                of the class-level documentation for an
+   *                                explanation of how the pool treats the
+   *                                maximum number of connections.
+   * @param  initialConnectThreads  The number of concurrent threads to use to
+   *                                establish the initial set of connections.
+   *                                A value greater than one indicates that the
+   *                                attempt to establish connections should be
+   *                                parallelized.
+   * @param  postConnectProcessor   A processor that should be used to perform
+   *                                any post-connect processing for connections
+   *                                in this pool.  It may be {@code null} if no
+   *                                special processing is needed.  Note that if
+   *                                the server set is configured with a
+   *                                non-{@code null} post-connect processor,
+   *                                then the post-connect processor provided
+   *                                to the pool must be {@code null}.
+   * @param  throwOnConnectFailure  If an exception should be thrown if a
+   *                                problem is encountered while attempting to
+   *                                create the specified initial number of
+   *                                connections.  If {@code true}, then the
+   *                                attempt to create the pool will fail if any
+   *                                connection cannot be established.  If
+   *                                {@code false}, then the pool will be created
+   *                                but may have fewer than the initial number
+   *                                of connections (or possibly no connections).
+   * @param  healthCheck            The health check that should be used for
+   *                                connections in this pool.  It may be
+   *                                {@code null} if the default health check
+   *                                should be used.
+   * @param  useStripedQueue        Indicates whether the pool should use a
+   *                                striped queue to hold available
+   *                                connections, which may reduce contention
+   *                                when a large number of threads are
+   *                                concurrently checking out and releasing
+   *                                connections.  If this is {@code false},
+   *                                then a single first-in-first-out queue will
+   *                                be used.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to establish
+   *                         any of the connections and
+   *                         {@code throwOnConnectFailure} is true.  If this is
+   *                         thrown, then all connections associated with the
+   *                         pool will be closed.
+   */
+  public LDAPConnectionPool(final ServerSet serverSet,
+                            final BindRequest bindRequest,
+                            final int initialConnections,
+                            final int maxConnections,
+                            final int initialConnectThreads,
+                            final PostConnectProcessor postConnectProcessor,
+                            final boolean throwOnConnectFailure,
+                            final LDAPConnectionPoolHealthCheck healthCheck,
+                            final boolean useStripedQueue)
+         throws LDAPException
   {
     ensureNotNull(serverSet);
     ensureTrue(initialConnections >= 0,
@@ -1225,7 +1407,7 @@ public final class LDAPConnectionPool
     numConnections = maxConnections;
 
     availableConnections =
-         new LinkedBlockingQueue<LDAPConnection>(numConnections);
+         createAvailableConnectionQueue(numConnections, useStripedQueue);
     availableConnections.addAll(connList);
 
     failedReplaceCount                 =
@@ -1245,6 +1427,32 @@ public final class LDAPConnectionPool
 
 
 
+  /**
+   * Creates the queue that will be used to hold the available connections for
+   * this pool.
+   *
+   * @param  capacity         The maximum number of connections that may be
+   *                          held in the queue.
+   * @param  useStripedQueue  Indicates whether to use a striped queue rather
+   *                          than a single first-in-first-out queue.
+   *
+   * @return  The queue that will be used to hold available connections.
+   */
+  private static BlockingQueue<LDAPConnection> createAvailableConnectionQueue(
+                      final int capacity, final boolean useStripedQueue)
+  {
+    if (useStripedQueue)
+    {
+      return new StripedConnectionQueue(capacity);
+    }
+    else
+    {
+      return new LinkedBlockingQueue<LDAPConnection>(capacity);
+    }
+  }
+
+
+
   /**
    * Creates a new LDAP connection for use in this pool.
    *
@@ -1475,6 +1683,7 @@ public final class LDAPConnectionPool
     // Finish setting up the connection.
     c.setConnectionPoolName(connectionPoolName);
     poolStatistics.incrementNumSuccessfulConnectionAttempts();
+    poolStatistics.updateTLSHandshakeStatistics(c);
 
     return c;
   }
@@ -1889,47 +2098,39 @@ public final class LDAPConnectionPool
       return null;
     }
 
-    final HashSet<LDAPConnection> examinedConnections =
-         new HashSet<LDAPConnection>(numConnections);
-    while (true)
+    // Only consider connections established to the specified server, and remove
+    // each one from the queue before using it so that it can't also be checked
+    // out by another thread.
+    for (final LDAPConnection conn :
+         new ArrayList<LDAPConnection>(availableConnections))
     {
-      final LDAPConnection conn = availableConnections.poll();
-      if (conn == null)
+      if (! (conn.getConnectedAddress().equals(host) &&
+             (port == conn.getConnectedPort())))
       {
-        poolStatistics.incrementNumFailedCheckouts();
-        return null;
+        continue;
       }
 
-      if (examinedConnections.contains(conn))
+      if (! availableConnections.remove(conn))
       {
-        availableConnections.offer(conn);
-        poolStatistics.incrementNumFailedCheckouts();
-        return null;
+        continue;
       }
 
-      if (conn.getConnectedAddress().equals(host) &&
-          (port == conn.getConnectedPort()))
+      try
       {
-        try
-        {
-          healthCheck.ensureConnectionValidForCheckout(conn);
-          poolStatistics.incrementNumSuccessfulCheckoutsWithoutWaiting();
-          return conn;
-        }
-        catch (final LDAPException le)
-        {
-          debugException(le);
-          poolStatistics.incrementNumConnectionsClosedDefunct();
-          handleDefunctConnection(conn);
-          continue;
-        }
+        healthCheck.ensureConnectionValidForCheckout(conn);
+        poolStatistics.incrementNumSuccessfulCheckoutsWithoutWaiting();
+        return conn;
       }
-
-      if (availableConnections.offer(conn))
+      catch (final LDAPException le)
       {
-        examinedConnections.add(conn);
+        debugException(le);
+        poolStatistics.incrementNumConnectionsClosedDefunct();
+        handleDefunctConnection(conn);
       }
     }
+
+    poolStatistics.incrementNumFailedCheckouts();
+    return null;
   }
 
 
@@ -2299,6 +2500,14 @@ public final class LDAPConnectionPool
       return false;
     }
 
+    // Don't close a connection while asynchronous operations that were
+    // initiated on it are still awaiting a response.  It will be checked again
+    // the next time it is released or examined by the health check.
+    if (connection.getOutstandingAsyncRequestCount() > 0)
+    {
+      return false;
+    }
+
     // If there is a minimum disconnect interval, then make sure that we have
     // not closed another expired connection too recently.
     final long currentTime = System.currentTimeMillis();
@@ -2816,32 +3025,24 @@ public final class LDAPConnectionPool
     }
 
 
-    // Create a set used to hold connections that we've already examined.  If we
-    // encounter the same connection twice, then we know that we don't need to
-    // do any more work.
-    final HashSet<LDAPConnection> examinedConnections =
-         new HashSet<LDAPConnection>(numConnections);
+    // Examine a snapshot of the connections that are currently available.
+    // Each connection is removed from the queue while it is being examined, so
+    // connections that are returned to the queue (which may be placed where
+    // they would be the next ones retrieved) and any replacement connections
+    // will not be examined again.
+    final ArrayList<LDAPConnection> connectionsToExamine =
+         new ArrayList<LDAPConnection>(availableConnections);
     int numExamined = 0;
     int numDefunct = 0;
     int numExpired = 0;
 
-    for (int i=0; i < numConnections; i++)
+    for (final LDAPConnection conn : connectionsToExamine)
     {
-      LDAPConnection conn = availableConnections.poll();
-      if (conn == null)
+      // Skip any connection that has been checked out since the snapshot was
+      // taken.
+      if (! availableConnections.remove(conn))
       {
-        break;
-      }
-      else if (examinedConnections.contains(conn))
-      {
-        if (! availableConnections.offer(conn))
-        {
-          conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_UNNEEDED,
-                                 null, null);
-          poolStatistics.incrementNumConnectionsClosedUnneeded();
-          conn.terminate(null);
-        }
-        break;
+        continue;
       }
 
       numExamined++;
@@ -2849,11 +3050,7 @@ public final class LDAPConnectionPool
       {
         numDefunct++;
         poolStatistics.incrementNumConnectionsClosedDefunct();
-        conn = handleDefunctConnection(conn);
-        if (conn != null)
-        {
-          examinedConnections.add(conn);
-        }
+        handleDefunctConnection(conn);
       }
       else
       {
@@ -2866,7 +3063,6 @@ public final class LDAPConnectionPool
             final LDAPConnection newConnection = createConnection();
             if (availableConnections.offer(newConnection))
             {
-              examinedConnections.add(newConnection);
               conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_EXPIRED,
                    null, null);
               conn.terminate(null);
@@ -2911,11 +3107,7 @@ public final class LDAPConnectionPool
               conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_DEFUNCT,
                    ERR_POOL_HEALTH_CHECK_CONN_CLOSED.get(), null);
               poolStatistics.incrementNumConnectionsClosedDefunct();
-              conn = handleDefunctConnection(conn);
-              if (conn != null)
-              {
-                examinedConnections.add(conn);
-              }
+              handleDefunctConnection(conn);
               continue;
             }
             else if (response instanceof ExtendedResult)
@@ -2941,11 +3133,7 @@ public final class LDAPConnectionPool
                 conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_DEFUNCT,
                      ERR_POOL_HEALTH_CHECK_CONN_CLOSED.get(), null);
                 poolStatistics.incrementNumConnectionsClosedDefunct();
-                conn = handleDefunctConnection(conn);
-                if (conn != null)
-                {
-                  examinedConnections.add(conn);
-                }
+                handleDefunctConnection(conn);
                 continue;
               }
             }
@@ -2964,11 +3152,7 @@ public final class LDAPConnectionPool
                    ERR_POOL_HEALTH_CHECK_READ_FAILURE.get(
                         getExceptionMessage(le)), le);
               poolStatistics.incrementNumConnectionsClosedDefunct();
-              conn = handleDefunctConnection(conn);
-              if (conn != null)
-              {
-                examinedConnections.add(conn);
-              }
+              handleDefunctConnection(conn);
               continue;
             }
           }
@@ -2980,11 +3164,7 @@ public final class LDAPConnectionPool
                  ERR_POOL_HEALTH_CHECK_READ_FAILURE.get(getExceptionMessage(e)),
                  e);
             poolStatistics.incrementNumConnectionsClosedDefunct();
-            conn = handleDefunctConnection(conn);
-            if (conn != null)
-            {
-              examinedConnections.add(conn);
-            }
+            handleDefunctConnection(conn);
             continue;
           }
           finally
@@ -3005,11 +3185,7 @@ public final class LDAPConnectionPool
                 conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_DEFUNCT,
                      null, e);
                 poolStatistics.incrementNumConnectionsClosedDefunct();
-                conn = handleDefunctConnection(conn);
-                if (conn != null)
-                {
-                  examinedConnections.add(conn);
-                }
+                handleDefunctConnection(conn);
                 continue;
               }
             }
@@ -3019,11 +3195,7 @@ public final class LDAPConnectionPool
         try
         {
           hc.ensureConnectionValidForContinuedUse(conn);
-          if (availableConnections.offer(conn))
-          {
-            examinedConnections.add(conn);
-          }
-          else
+          if (! availableConnections.offer(conn))
           {
             conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_UNNEEDED,
                                    null, null);
@@ -3036,11 +3208,7 @@ public final class LDAPConnectionPool
           debugException(e);
           numDefunct++;
           poolStatistics.incrementNumConnectionsClosedDefunct();
-          conn = handleDefunctConnection(conn);
-          if (conn != null)
-          {
-            examinedConnections.add(conn);
-          }
+          handleDefunctConnection(conn);
         }
       }
     }
@@ -3087,6 +3255,20 @@ public final class LDAPConnectionPool
 
 
 
+  /**
+   * Retrieves the queue that is used to hold the available connections for
+   * this pool.  This is only intended for testing purposes.
+   *
+   * @return  The queue that is used to hold the available connections for this
+   *          pool.
+   */
+  BlockingQueue<LDAPConnection> getAvailableConnectionQueue()
+  {
+    return availableConnections;
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
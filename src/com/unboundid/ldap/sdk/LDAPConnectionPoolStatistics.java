@@ -23,8 +23,11 @@ package com.unboundid.ldap.sdk;
 
 
 import java.io.Serializable;
+import java.util.EnumMap;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLSession;
 
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.Mutable;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
@@ -65,7 +68,18 @@ import com.unboundid.util.ThreadSafetyLevel;
  *       the pool.</LI>
  *   <LI>The number of failed attempts to create a new connection for use in the
  *       pool.</LI>
+ *   <LI>The number of new connections secured with TLS that resumed an
+ *       existing TLS session, and the number that required a full TLS
+ *       handshake.</LI>
  * </UL>
+ * <BR><BR>
+ * In addition, if the {@link #setCollectResponseTimeHistograms} method has
+ * been used to enable it, then a histogram of the response times for each
+ * type of operation will be maintained across all connections in the pool.
+ * Response time histograms are not collected by default.  To avoid having
+ * every connection in the pool update the same histogram, response times are
+ * recorded in a number of stripes, and each thread uses the stripe associated
+ * with its thread ID.  The stripes are merged when a histogram is retrieved.
  */
 @Mutable()
 @ThreadSafety(level=ThreadSafetyLevel.MOSTLY_THREADSAFE)
@@ -95,9 +109,17 @@ public final class LDAPConnectionPoolStatistics
   // The number of failed attempts to create a connection for use in the pool.
   private final AtomicLong numFailedConnectionAttempts;
 
+  // The number of connections created for use in the pool that were secured
+  // with a full TLS handshake.
+  private final AtomicLong numFullTLSHandshakes;
+
   // The number of valid connections released back to the pool.
   private final AtomicLong numReleasedValid;
 
+  // The number of connections created for use in the pool that were secured
+  // by resuming an existing TLS session.
+  private final AtomicLong numResumedTLSSessions;
+
   // The number of successful attempts to check out a connection from the pool.
   private final AtomicLong numSuccessfulCheckouts;
 
@@ -119,6 +141,12 @@ public final class LDAPConnectionPoolStatistics
   // The connection pool with which these statistics are associated.
   private final AbstractConnectionPool pool;
 
+  // The stripes of histograms of response times for each type of operation
+  // processed on connections in the pool, or null if they are not being
+  // collected.
+  private volatile EnumMap<OperationType,LatencyHistogram>[]
+       responseTimeHistograms;
+
 
 
   /**
@@ -143,6 +171,9 @@ public final class LDAPConnectionPoolStatistics
     numSuccessfulCheckoutsWithoutWait   = new AtomicLong(0L);
     numFailedCheckouts                  = new AtomicLong(0L);
     numReleasedValid                    = new AtomicLong(0L);
+    numFullTLSHandshakes                = new AtomicLong(0L);
+    numResumedTLSSessions               = new AtomicLong(0L);
+    responseTimeHistograms              = null;
   }
 
 
@@ -163,6 +194,16 @@ public final class LDAPConnectionPoolStatistics
     numSuccessfulCheckoutsWithoutWait.set(0L);
     numFailedCheckouts.set(0L);
     numReleasedValid.set(0L);
+    numFullTLSHandshakes.set(0L);
+    numResumedTLSSessions.set(0L);
+
+    final EnumMap<OperationType,LatencyHistogram>[] stripes =
+         responseTimeHistograms;
+    if (stripes != null)
+    {
+      responseTimeHistograms =
+           createResponseTimeHistogramStripes(stripes.length);
+    }
   }
 
 
@@ -436,6 +477,69 @@ public final class LDAPConnectionPoolStatistics
 
 
 
+  /**
+   * Retrieves the number of connections created for use in the pool that were
+   * secured with TLS (either when they were established or through
+   * pre-authentication post-connect processing like StartTLS) and that
+   * required a full TLS handshake.
+   *
+   * @return  The number of connections created for use in the pool that
+   *          required a full TLS handshake.
+   */
+  public long getNumFullTLSHandshakes()
+  {
+    return numFullTLSHandshakes.get();
+  }
+
+
+
+  /**
+   * Retrieves the number of connections created for use in the pool that were
+   * secured with TLS (either when they were established or through
+   * pre-authentication post-connect processing like StartTLS) by resuming an
+   * existing TLS session rather than performing a full handshake.  Sessions
+   * can only be resumed if the connections are created with socket factories
+   * that share an {@code SSLContext}, like those created by the same
+   * {@link com.unboundid.util.ssl.SSLUtil} instance.
+   *
+   * @return  The number of connections created for use in the pool that
+   *          resumed an existing TLS session.
+   */
+  public long getNumResumedTLSSessions()
+  {
+    return numResumedTLSSessions.get();
+  }
+
+
+
+  /**
+   * Updates the TLS handshake statistics for the provided newly-created
+   * connection.  A connection whose TLS session was created before the
+   * connection was established is considered to have resumed that session.
+   * This will have no effect if the connection is not secured with TLS.
+   *
+   * @param  connection  The newly-created connection.
+   */
+  void updateTLSHandshakeStatistics(final LDAPConnection connection)
+  {
+    final SSLSession sslSession = connection.getSSLSession();
+    if ((sslSession == null) || (! sslSession.isValid()))
+    {
+      return;
+    }
+
+    if (sslSession.getCreationTime() < connection.getConnectTime())
+    {
+      numResumedTLSSessions.incrementAndGet();
+    }
+    else
+    {
+      numFullTLSHandshakes.incrementAndGet();
+    }
+  }
+
+
+
   /**
    * Retrieves the number of connections currently available for use in the
    * pool, if that information is available.
@@ -466,6 +570,148 @@ public final class LDAPConnectionPoolStatistics
 
 
 
+  /**
+   * Indicates whether histograms of the response times for each type of
+   * operation are being collected for connections in the pool.
+   *
+   * @return  {@code true} if response time histograms are being collected, or
+   *          {@code false} if not.
+   */
+  public boolean collectResponseTimeHistograms()
+  {
+    return (responseTimeHistograms != null);
+  }
+
+
+
+  /**
+   * Specifies whether histograms of the response times for each type of
+   * operation should be collected for connections in the pool.  Enabling this
+   * will add a small amount of overhead to the processing for each operation.
+   * If response time histograms are already being collected, then enabling
+   * them again will have no effect.  Disabling them will discard any response
+   * times that have already been recorded.
+   *
+   * @param  collectResponseTimeHistograms  Indicates whether response time
+   *                                        histograms should be collected.
+   */
+  public void setCollectResponseTimeHistograms(
+                   final boolean collectResponseTimeHistograms)
+  {
+    setCollectResponseTimeHistograms(collectResponseTimeHistograms,
+         Runtime.getRuntime().availableProcessors());
+  }
+
+
+
+  /**
+   * Specifies whether histograms of the response times for each type of
+   * operation should be collected for connections in the pool, using the
+   * specified number of stripes if they are enabled.
+   *
+   * @param  collectResponseTimeHistograms  Indicates whether response time
+   *                                        histograms should be collected.
+   * @param  numStripes                     The number of stripes to use for
+   *                                        the histograms.  If this is less
+   *                                        than one, then a single stripe will
+   *                                        be used.
+   */
+  void setCollectResponseTimeHistograms(
+            final boolean collectResponseTimeHistograms, final int numStripes)
+  {
+    if (! collectResponseTimeHistograms)
+    {
+      responseTimeHistograms = null;
+    }
+    else if (responseTimeHistograms == null)
+    {
+      responseTimeHistograms = createResponseTimeHistogramStripes(numStripes);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a histogram of the response times in nanoseconds for all
+   * operations of the specified type processed on connections in the pool
+   * since response time histograms were enabled or the statistics were last
+   * reset.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        histogram.  It must not be {@code null}.
+   *
+   * @return  A snapshot of the histogram of the response times for the
+   *          specified type of operation, or {@code null} if response time
+   *          histograms are not being collected.
+   */
+  public LatencyHistogram getResponseTimeHistogram(
+                               final OperationType operationType)
+  {
+    final EnumMap<OperationType,LatencyHistogram>[] stripes =
+         responseTimeHistograms;
+    if (stripes == null)
+    {
+      return null;
+    }
+
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (final EnumMap<OperationType,LatencyHistogram> stripe : stripes)
+    {
+      histogram.add(stripe.get(operationType));
+    }
+
+    return histogram;
+  }
+
+
+
+  /**
+   * Records the provided response time in the histogram for the specified type
+   * of operation, if response time histograms are being collected.
+   *
+   * @param  operationType  The type of operation that was processed.
+   * @param  responseTime   The length of time in nanoseconds between sending
+   *                        the request and receiving the response.
+   */
+  void recordResponseTime(final OperationType operationType,
+                          final long responseTime)
+  {
+    final EnumMap<OperationType,LatencyHistogram>[] stripes =
+         responseTimeHistograms;
+    if (stripes != null)
+    {
+      final int stripe = (int) ((Thread.currentThread().getId() & 0x7FFFFFFFL) %
+           stripes.length);
+      stripes[stripe].get(operationType).record(responseTime);
+    }
+  }
+
+
+
+  /**
+   * Creates a new set of empty response time histogram stripes.
+   *
+   * @param  numStripes  The number of stripes to create.  If this is less than
+   *                     one, then a single stripe will be created.
+   *
+   * @return  The array of stripes that was created.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static EnumMap<OperationType,LatencyHistogram>[]
+               createResponseTimeHistogramStripes(final int numStripes)
+  {
+    final int n = Math.max(1, numStripes);
+    final EnumMap<OperationType,LatencyHistogram>[] stripes = new EnumMap[n];
+    for (int i=0; i < n; i++)
+    {
+      stripes[i] = LDAPConnectionStatistics.createResponseTimeHistograms();
+    }
+
+    return stripes;
+  }
+
+
+
   /**
    * Retrieves a string representation of this LDAP connection pool statistics
    * object.
@@ -502,6 +748,8 @@ public final class LDAPConnectionPoolStatistics
     final long successfulCheckouts = numSuccessfulCheckouts.get();
     final long failedCheckouts     = numFailedCheckouts.get();
     final long releasedValid       = numReleasedValid.get();
+    final long fullTLSHandshakes   = numFullTLSHandshakes.get();
+    final long resumedTLSSessions  = numResumedTLSSessions.get();
 
     buffer.append("LDAPConnectionPoolStatistics(numAvailableConnections=");
     buffer.append(availableConns);
@@ -523,6 +771,10 @@ public final class LDAPConnectionPoolStatistics
     buffer.append(failedCheckouts);
     buffer.append(", numReleasedValid=");
     buffer.append(releasedValid);
+    buffer.append(", numFullTLSHandshakes=");
+    buffer.append(fullTLSHandshakes);
+    buffer.append(", numResumedTLSSessions=");
+    buffer.append(resumedTLSSessions);
     buffer.append(')');
   }
 }
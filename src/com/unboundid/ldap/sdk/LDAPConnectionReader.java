@@ -23,14 +23,20 @@ package com.unboundid.ldap.sdk;
 
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -76,10 +82,18 @@ final class LDAPConnectionReader
   // Indicates whether a request has been made to close the associated socket.
   private volatile boolean closeRequested;
 
+  // The buffer used to hold data read from the server when responses are read
+  // by a shared selector thread.  It will only be accessed by that thread
+  // while the reader is registered with the selector.
+  private ByteBuffer selectorReadBuffer;
+
   // The map that will be used to associate message IDs with the corresponding
   // response acceptors.
   private final ConcurrentHashMap<Integer,ResponseAcceptor> acceptorMap;
 
+  // The maximum size in bytes of a message that may be read from the server.
+  private final int maxMessageSize;
+
   // The exception encountered during StartTLS processing.
   private volatile Exception startTLSException;
 
@@ -94,6 +108,25 @@ final class LDAPConnectionReader
   // The LDAP connection with which this reader is associated.
   private final LDAPConnection connection;
 
+  // Indicates whether a task has been scheduled to run the pending deliveries
+  // for responses read by a selector thread.
+  private final AtomicBoolean deliveryScheduled;
+
+  // The queue of deliveries for responses read by a selector thread that have
+  // not yet been processed.
+  private final ConcurrentLinkedQueue<Runnable> pendingDeliveries;
+
+  // The task used to process pending deliveries for responses read by a
+  // selector thread.
+  private final Runnable deliveryTask;
+
+  // The selector thread with which this reader is registered, if responses
+  // are being read by a shared selector thread rather than by this thread.
+  private volatile LDAPConnectionSelector selector;
+
+  // The channel with which this reader is registered with a selector thread.
+  private volatile SocketChannel selectorChannel;
+
   // The socket with which this reader is associated.
   private volatile Socket socket;
 
@@ -134,8 +167,9 @@ final class LDAPConnectionReader
     socket               = connectionInternals.getSocket();
     inputStream          = new BufferedInputStream(socket.getInputStream(),
                                                    DEFAULT_INPUT_BUFFER_SIZE);
-    asn1StreamReader = new ASN1StreamReader(inputStream,
-         connection.getConnectionOptions().getMaxMessageSize());
+    maxMessageSize       =
+         connection.getConnectionOptions().getMaxMessageSize();
+    asn1StreamReader     = new ASN1StreamReader(inputStream, maxMessageSize);
 
     acceptorMap          = new ConcurrentHashMap<Integer,ResponseAcceptor>();
     closeRequested       = false;
@@ -143,6 +177,19 @@ final class LDAPConnectionReader
     startTLSException    = null;
     startTLSOutputStream = null;
     startTLSSleeper      = new WakeableSleeper();
+    selector             = null;
+    selectorChannel      = null;
+    selectorReadBuffer   = null;
+    deliveryScheduled    = new AtomicBoolean(false);
+    pendingDeliveries    = new ConcurrentLinkedQueue<Runnable>();
+    deliveryTask         = new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        runPendingDeliveries();
+      }
+    };
   }
 
 
@@ -204,6 +251,407 @@ final class LDAPConnectionReader
 
 
 
+  /**
+   * Registers this connection reader with a shared selector thread rather than
+   * starting a dedicated thread to read responses from the server.  The
+   * provided channel will be placed in non-blocking mode.
+   *
+   * @param  channel  The channel from which responses should be read.
+   *
+   * @throws  IOException  If a problem occurs while registering with the
+   *                       selector thread.
+   */
+  void startSelectorReader(final SocketChannel channel)
+       throws IOException
+  {
+    selectorReadBuffer = ByteBuffer.allocate(DEFAULT_INPUT_BUFFER_SIZE);
+    selectorChannel    = channel;
+
+    try
+    {
+      selector = LDAPConnectionSelector.register(this, channel);
+    }
+    catch (final IOException ioe)
+    {
+      debugException(ioe);
+      selectorReadBuffer = null;
+      selectorChannel    = null;
+      throw ioe;
+    }
+  }
+
+
+
+  /**
+   * Reads any data that is available from the provided channel and delivers
+   * any complete responses that it contains.  This will only be invoked by the
+   * selector thread with which this reader is registered.  Responses will not
+   * be delivered by the selector thread itself, but will be queued so that they
+   * can be delivered by a separate thread in the order they were read.
+   *
+   * @param  channel  The channel from which to read the data.
+   *
+   * @return  {@code true} if this reader should remain registered with the
+   *          selector, or {@code false} if the connection has been closed.
+   */
+  boolean readAvailableData(final SocketChannel channel)
+  {
+    if (closeRequested || (selector == null))
+    {
+      return false;
+    }
+
+    try
+    {
+      ByteBuffer buffer = selectorReadBuffer;
+      if (channel.read(buffer) < 0)
+      {
+        // This should only happen if the socket has been closed.
+        connection.setDisconnectInfo(
+             DisconnectType.SERVER_CLOSED_WITHOUT_NOTICE, null, null);
+        @SuppressWarnings("deprecation")
+        final boolean autoReconnect =
+             connection.getConnectionOptions().autoReconnect();
+        if ((! closeRequested) && (! connection.unbindRequestSent()) &&
+            autoReconnect)
+        {
+          connection.setNeedsReconnect();
+        }
+        else
+        {
+          closeRequested = true;
+          queueClose(null);
+        }
+        return false;
+      }
+
+      buffer.flip();
+      int requiredBytes = -1;
+      try
+      {
+        while (true)
+        {
+          requiredBytes = getEncodedMessageLength(buffer);
+          if ((requiredBytes < 0) || (requiredBytes > buffer.remaining()))
+          {
+            break;
+          }
+
+          // The read buffer will be reused, so decode the message from a
+          // read-only view of it.  That prevents the decoded values from
+          // referencing the buffer, so each value is copied into an array of
+          // its own, and a value that the caller keeps won't retain the rest
+          // of the message.
+          final ByteBuffer messageBuffer = buffer.asReadOnlyBuffer();
+          messageBuffer.limit(messageBuffer.position() + requiredBytes);
+          buffer.position(buffer.position() + requiredBytes);
+
+          final ASN1StreamReader reader =
+               new ASN1StreamReader(messageBuffer, maxMessageSize);
+          final LDAPResponse response = LDAPMessage.readLDAPResponseFrom(
+               reader, true, connection.getCachedSchema());
+          queueDelivery(new Runnable()
+          {
+            @Override()
+            public void run()
+            {
+              deliverResponse(response);
+            }
+          });
+
+          if (closeRequested)
+          {
+            return false;
+          }
+        }
+      }
+      finally
+      {
+        buffer.compact();
+      }
+
+      // If the next message won't fit in the buffer, then allocate a bigger
+      // one.  If the buffer is empty and has previously been expanded, then
+      // shrink it so that idle connections don't hold on to a lot of memory.
+      if (requiredBytes > buffer.capacity())
+      {
+        final ByteBuffer newBuffer = ByteBuffer.allocate(requiredBytes);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+      }
+      else if ((buffer.position() == 0) &&
+               (buffer.capacity() > DEFAULT_INPUT_BUFFER_SIZE))
+      {
+        buffer = ByteBuffer.allocate(DEFAULT_INPUT_BUFFER_SIZE);
+      }
+
+      selectorReadBuffer = buffer;
+      return true;
+    }
+    catch (final Exception e)
+    {
+      if (closeRequested || connection.closeRequested())
+      {
+        // This exception resulted from the connection being closed in a way
+        // that we already knew about.
+        debugException(Level.FINEST, e);
+        return false;
+      }
+
+      debugException(e);
+
+      // We should terminate the connection regardless of the type of
+      // exception, but might want to customize the debug message.
+      Throwable t = e;
+      if ((e instanceof LDAPException) && (e.getCause() != null))
+      {
+        t = e.getCause();
+      }
+
+      final String message;
+      Level debugLevel = Level.SEVERE;
+      if (t instanceof IOException)
+      {
+        connection.setDisconnectInfo(DisconnectType.IO_ERROR, null, t);
+        message = ERR_READER_CLOSING_DUE_TO_IO_EXCEPTION.get(
+             connection.getHostPort(), getExceptionMessage(t));
+        debugLevel = Level.WARNING;
+      }
+      else if ((t instanceof ASN1Exception) || (t instanceof LDAPException))
+      {
+        connection.setDisconnectInfo(DisconnectType.DECODE_ERROR, null, t);
+        message = ERR_READER_CLOSING_DUE_TO_ASN1_EXCEPTION.get(
+             connection.getHostPort(), getExceptionMessage(t));
+      }
+      else
+      {
+        connection.setDisconnectInfo(DisconnectType.LOCAL_ERROR, null, t);
+        message = ERR_READER_CLOSING_DUE_TO_EXCEPTION.get(
+             connection.getHostPort(), getExceptionMessage(t));
+      }
+
+      debug(debugLevel, DebugType.LDAP, message, t);
+
+      // If the connection is configured to try to auto-reconnect, then set
+      // things up to do that.  Otherwise, terminate the connection.
+      @SuppressWarnings("deprecation")
+      final boolean autoReconnect =
+           connection.getConnectionOptions().autoReconnect();
+      if (autoReconnect)
+      {
+        try
+        {
+          connection.setNeedsReconnect();
+        }
+        catch (final Exception e2)
+        {
+          debugException(e2);
+        }
+      }
+      else
+      {
+        closeRequested = true;
+        queueClose(message);
+      }
+
+      return false;
+    }
+  }
+
+
+
+  /**
+   * Queues the provided delivery so that it will be processed by a response
+   * delivery thread after any deliveries that have already been queued for
+   * this connection.
+   *
+   * @param  delivery  The delivery to be queued.
+   */
+  private void queueDelivery(final Runnable delivery)
+  {
+    pendingDeliveries.add(delivery);
+    if (deliveryScheduled.compareAndSet(false, true))
+    {
+      LDAPConnectionSelector.executeDelivery(deliveryTask);
+    }
+  }
+
+
+
+  /**
+   * Queues a request to close the connection, so that any responses that were
+   * read before the connection was found to be closed will be delivered before
+   * outstanding operations are notified of the closure.
+   *
+   * @param  message  A message with additional information about the reason
+   *                  for the closure, if available.
+   */
+  private void queueClose(final String message)
+  {
+    queueDelivery(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        closeInternal(true, message);
+      }
+    });
+  }
+
+
+
+  /**
+   * Processes all of the deliveries that have been queued for this connection.
+   * It will continue until the queue is empty, and it will ensure that
+   * deliveries queued while it is finishing up are not left behind.
+   */
+  private void runPendingDeliveries()
+  {
+    while (true)
+    {
+      Runnable delivery = pendingDeliveries.poll();
+      while (delivery != null)
+      {
+        try
+        {
+          delivery.run();
+        }
+        catch (final Throwable t)
+        {
+          debugException(t);
+        }
+
+        delivery = pendingDeliveries.poll();
+      }
+
+      deliveryScheduled.set(false);
+      if (pendingDeliveries.isEmpty() ||
+          (! deliveryScheduled.compareAndSet(false, true)))
+      {
+        return;
+      }
+    }
+  }
+
+
+
+  /**
+   * Examines the BER type and length at the current position of the provided
+   * buffer to determine the total number of bytes in the encoded LDAP message
+   * that starts at that position.  The position of the buffer will not be
+   * altered.
+   *
+   * @param  buffer  The buffer to examine.
+   *
+   * @return  The total number of bytes (including the BER type and length) in
+   *          the encoded message, or -1 if the buffer does not yet contain
+   *          enough data to make the determination.
+   *
+   * @throws  ASN1Exception  If the length is malformed or exceeds the maximum
+   *                         allowed message size.
+   */
+  private int getEncodedMessageLength(final ByteBuffer buffer)
+          throws ASN1Exception
+  {
+    final int pos = buffer.position();
+    if (buffer.remaining() < 2)
+    {
+      return -1;
+    }
+
+    final int firstLengthByte = buffer.get(pos+1) & 0xFF;
+    if ((firstLengthByte & 0x80) == 0x00)
+    {
+      return 2 + firstLengthByte;
+    }
+
+    final int numLengthBytes = firstLengthByte & 0x7F;
+    if ((numLengthBytes < 1) || (numLengthBytes > 4))
+    {
+      throw new ASN1Exception(
+           ERR_CONNREADER_SELECTOR_INVALID_LENGTH.get(numLengthBytes));
+    }
+
+    if (buffer.remaining() < (2 + numLengthBytes))
+    {
+      return -1;
+    }
+
+    int length = 0;
+    for (int i=0; i < numLengthBytes; i++)
+    {
+      length = (length << 8) | (buffer.get(pos + 2 + i) & 0xFF);
+    }
+
+    if ((length < 0) || ((maxMessageSize > 0) && (length > maxMessageSize)))
+    {
+      throw new ASN1Exception(ERR_CONNREADER_SELECTOR_LENGTH_EXCEEDS_MAX.get(
+           length, maxMessageSize));
+    }
+
+    return 2 + numLengthBytes + length;
+  }
+
+
+
+  /**
+   * Ensures that responses for this connection will be read by this thread
+   * rather than by a shared selector thread.  If the reader is currently
+   * registered with a selector thread, then it will be deregistered, the
+   * channel will be placed back in blocking mode, any data that has already
+   * been read but not yet processed will be preserved, and this thread will be
+   * started.  This is necessary for processing that needs to alter the way
+   * that data is read from the server, like StartTLS and SASL QoP.
+   *
+   * @param  saslClient  The SASL client that should be used to decode data
+   *                     read by the dedicated reader thread, or {@code null}
+   *                     if no SASL QoP should be applied.
+   *
+   * @throws  IOException  If a problem occurs while switching to a dedicated
+   *                       reader thread.
+   */
+  private void ensureDedicatedReaderThread(final SaslClient saslClient)
+          throws IOException
+  {
+    final LDAPConnectionSelector s = selector;
+    if (s == null)
+    {
+      return;
+    }
+
+    s.deregister(this, selectorChannel, true);
+    selector        = null;
+    selectorChannel = null;
+
+    final ByteBuffer buffer = selectorReadBuffer;
+    selectorReadBuffer = null;
+
+    InputStream is = socket.getInputStream();
+    buffer.flip();
+    if (buffer.hasRemaining())
+    {
+      final byte[] unprocessedBytes = new byte[buffer.remaining()];
+      buffer.get(unprocessedBytes);
+      is = new SequenceInputStream(new ByteArrayInputStream(unprocessedBytes),
+           is);
+    }
+
+    inputStream = new BufferedInputStream(is, DEFAULT_INPUT_BUFFER_SIZE);
+    asn1StreamReader = new ASN1StreamReader(inputStream, maxMessageSize);
+    if (saslClient != null)
+    {
+      InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+    }
+
+    // Set the thread reference before starting the thread so that callers
+    // waiting on StartTLS processing don't mistake it for a dead reader.
+    thread = this;
+    start();
+  }
+
+
+
   /**
    * Operates in a loop, reading data from the server and decoding the
    * responses, and associating them with their corresponding requests.
@@ -406,122 +854,7 @@ final class LDAPConnectionReader
           }
         }
 
-        debugLDAPResult(response, connection);
-        connection.setLastCommunicationTime();
-
-        final ResponseAcceptor responseAcceptor;
-        if ((response instanceof SearchResultEntry) ||
-            (response instanceof SearchResultReference))
-        {
-          responseAcceptor = acceptorMap.get(response.getMessageID());
-        }
-        else if (response instanceof IntermediateResponse)
-        {
-          final IntermediateResponse ir = (IntermediateResponse) response;
-          responseAcceptor = acceptorMap.get(response.getMessageID());
-           IntermediateResponseListener l = null;
-          if (responseAcceptor instanceof LDAPRequest)
-          {
-            final LDAPRequest r = (LDAPRequest) responseAcceptor;
-            l = r.getIntermediateResponseListener();
-
-          }
-          else if (responseAcceptor instanceof IntermediateResponseListener)
-          {
-            l = (IntermediateResponseListener) responseAcceptor;
-          }
-
-          if (l == null)
-          {
-            debug(Level.WARNING, DebugType.LDAP,
-                  WARN_INTERMEDIATE_RESPONSE_WITH_NO_LISTENER.get(
-                       String.valueOf(ir)));
-          }
-          else
-          {
-            try
-            {
-              l.intermediateResponseReturned(ir);
-            }
-            catch (final Exception e)
-            {
-              debugException(e);
-            }
-          }
-          continue;
-        }
-        else
-        {
-          responseAcceptor = acceptorMap.remove(response.getMessageID());
-        }
-
-
-        if (responseAcceptor == null)
-        {
-          if ((response instanceof ExtendedResult) &&
-              (response.getMessageID() == 0))
-          {
-            // This is an intermediate response message, so handle it
-            // appropriately.
-            ExtendedResult extendedResult = (ExtendedResult) response;
-
-            final String oid = extendedResult.getOID();
-            if (NoticeOfDisconnectionExtendedResult.
-                     NOTICE_OF_DISCONNECTION_RESULT_OID.equals(oid))
-            {
-              extendedResult = new NoticeOfDisconnectionExtendedResult(
-                                        extendedResult);
-              connection.setDisconnectInfo(
-                   DisconnectType.SERVER_CLOSED_WITH_NOTICE,
-                   extendedResult.getDiagnosticMessage(), null);
-            }
-            else if (InteractiveTransactionAbortedExtendedResult.
-                          INTERACTIVE_TRANSACTION_ABORTED_RESULT_OID.equals(
-                               oid))
-            {
-              extendedResult = new InteractiveTransactionAbortedExtendedResult(
-                                        extendedResult);
-            }
-
-            final UnsolicitedNotificationHandler handler =
-                 connection.getConnectionOptions().
-                      getUnsolicitedNotificationHandler();
-            if (handler == null)
-            {
-              if (debugEnabled(DebugType.LDAP))
-              {
-                debug(Level.WARNING, DebugType.LDAP,
-                     WARN_READER_UNHANDLED_UNSOLICITED_NOTIFICATION.get(
-                          response));
-              }
-            }
-            else
-            {
-              handler.handleUnsolicitedNotification(connection,
-                                                    extendedResult);
-            }
-            continue;
-          }
-
-          if (debugEnabled(DebugType.LDAP))
-          {
-            debug(Level.WARNING, DebugType.LDAP,
-                  WARN_READER_NO_ACCEPTOR.get(response));
-          }
-          continue;
-        }
-
-        try
-        {
-          responseAcceptor.responseReceived(response);
-        }
-        catch (final LDAPException le)
-        {
-          debugException(le);
-          debug(Level.WARNING, DebugType.LDAP,
-                ERR_READER_ACCEPTOR_ERROR.get(String.valueOf(response),
-                     connection.getHostPort(), getExceptionMessage(le)), le);
-        }
+        deliverResponse(response);
       }
       catch (final Exception e)
       {
@@ -603,6 +936,135 @@ final class LDAPConnectionReader
 
 
 
+  /**
+   * Delivers the provided response to the appropriate response acceptor,
+   * intermediate response listener, or unsolicited notification handler.
+   *
+   * @param  response  The response to be delivered.  It must not be
+   *                   {@code null}.
+   */
+  private void deliverResponse(final LDAPResponse response)
+  {
+    debugLDAPResult(response, connection);
+    connection.setLastCommunicationTime();
+
+    final ResponseAcceptor responseAcceptor;
+    if ((response instanceof SearchResultEntry) ||
+        (response instanceof SearchResultReference))
+    {
+      responseAcceptor = acceptorMap.get(response.getMessageID());
+    }
+    else if (response instanceof IntermediateResponse)
+    {
+      final IntermediateResponse ir = (IntermediateResponse) response;
+      responseAcceptor = acceptorMap.get(response.getMessageID());
+      IntermediateResponseListener l = null;
+      if (responseAcceptor instanceof LDAPRequest)
+      {
+        final LDAPRequest r = (LDAPRequest) responseAcceptor;
+        l = r.getIntermediateResponseListener();
+
+      }
+      else if (responseAcceptor instanceof IntermediateResponseListener)
+      {
+        l = (IntermediateResponseListener) responseAcceptor;
+      }
+
+      if (l == null)
+      {
+        debug(Level.WARNING, DebugType.LDAP,
+              WARN_INTERMEDIATE_RESPONSE_WITH_NO_LISTENER.get(
+                   String.valueOf(ir)));
+      }
+      else
+      {
+        try
+        {
+          l.intermediateResponseReturned(ir);
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+      }
+      return;
+    }
+    else
+    {
+      responseAcceptor = acceptorMap.remove(response.getMessageID());
+    }
+
+
+    if (responseAcceptor == null)
+    {
+      if ((response instanceof ExtendedResult) &&
+          (response.getMessageID() == 0))
+      {
+        // This is an intermediate response message, so handle it
+        // appropriately.
+        ExtendedResult extendedResult = (ExtendedResult) response;
+
+        final String oid = extendedResult.getOID();
+        if (NoticeOfDisconnectionExtendedResult.
+                 NOTICE_OF_DISCONNECTION_RESULT_OID.equals(oid))
+        {
+          extendedResult = new NoticeOfDisconnectionExtendedResult(
+                                    extendedResult);
+          connection.setDisconnectInfo(
+               DisconnectType.SERVER_CLOSED_WITH_NOTICE,
+               extendedResult.getDiagnosticMessage(), null);
+        }
+        else if (InteractiveTransactionAbortedExtendedResult.
+                      INTERACTIVE_TRANSACTION_ABORTED_RESULT_OID.equals(
+                           oid))
+        {
+          extendedResult = new InteractiveTransactionAbortedExtendedResult(
+                                    extendedResult);
+        }
+
+        final UnsolicitedNotificationHandler handler =
+             connection.getConnectionOptions().
+                  getUnsolicitedNotificationHandler();
+        if (handler == null)
+        {
+          if (debugEnabled(DebugType.LDAP))
+          {
+            debug(Level.WARNING, DebugType.LDAP,
+                 WARN_READER_UNHANDLED_UNSOLICITED_NOTIFICATION.get(
+                      response));
+          }
+        }
+        else
+        {
+          handler.handleUnsolicitedNotification(connection,
+                                                extendedResult);
+        }
+        return;
+      }
+
+      if (debugEnabled(DebugType.LDAP))
+      {
+        debug(Level.WARNING, DebugType.LDAP,
+              WARN_READER_NO_ACCEPTOR.get(response));
+      }
+      return;
+    }
+
+    try
+    {
+      responseAcceptor.responseReceived(response);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      debug(Level.WARNING, DebugType.LDAP,
+            ERR_READER_ACCEPTOR_ERROR.get(String.valueOf(response),
+                 connection.getHostPort(), getExceptionMessage(le)), le);
+    }
+  }
+
+
+
   /**
    * Reads a response from the server, blocking if necessary until the response
    * has been received.  This should only be used for connections operating in
@@ -872,6 +1334,18 @@ final class LDAPConnectionReader
       {
         InternalSDKHelper.setSoTimeout(connection, 50);
 
+        try
+        {
+          ensureDedicatedReaderThread(null);
+        }
+        catch (final IOException ioe)
+        {
+          debugException(ioe);
+          throw new LDAPException(ResultCode.LOCAL_ERROR,
+               ERR_CONNREADER_STARTTLS_FAILED.get(getExceptionMessage(ioe)),
+               ioe);
+        }
+
         while (true)
         {
           if (startTLSOutputStream != null)
@@ -916,10 +1390,29 @@ final class LDAPConnectionReader
    *
    * @param  saslClient  The SASL client to use to decode data read over this
    *                     connection.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to apply the
+   *                         SASL client.
    */
   void applySASLQoP(final SaslClient saslClient)
+       throws LDAPException
   {
-    InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+    if (selector == null)
+    {
+      InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+      return;
+    }
+
+    try
+    {
+      ensureDedicatedReaderThread(saslClient);
+    }
+    catch (final IOException ioe)
+    {
+      debugException(ioe);
+      throw new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONNREADER_SASL_QOP_FAILED.get(getExceptionMessage(ioe)), ioe);
+    }
   }
 
 
@@ -934,6 +1427,20 @@ final class LDAPConnectionReader
    {
      closeRequested = true;
 
+     final LDAPConnectionSelector s = selector;
+     if (s != null)
+     {
+       selector = null;
+       try
+       {
+         s.deregister(this, selectorChannel, false);
+       }
+       catch (final Exception e)
+       {
+         debugException(e);
+       }
+     }
+
      for (int i=0; i < 5; i++)
      {
        try
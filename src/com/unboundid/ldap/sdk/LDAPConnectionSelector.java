@@ -0,0 +1,496 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+import com.unboundid.util.DebugType;
+import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.LDAPSDKThreadFactory;
+
+import static com.unboundid.util.Debug.*;
+
+
+
+/**
+ * This class provides a thread that uses a {@code java.nio} selector to read
+ * responses for any number of LDAP connections.  A small, fixed set of these
+ * threads is shared by all connections configured to use a selector reader
+ * (as per the {@link LDAPConnectionOptions#useSelectorReader()} setting), so
+ * that applications with a large number of connections do not need a
+ * dedicated reader thread for each of them.  Complete responses are decoded
+ * by the associated {@link LDAPConnectionReader} on the selector thread, but
+ * they are delivered to the appropriate response acceptor, listener, or
+ * unsolicited notification handler by a separate pool of delivery threads.
+ * Responses for any single connection are delivered one at a time and in the
+ * order they were read, but a listener that takes a long time to process a
+ * response will not prevent data from being read for other connections.
+ */
+@InternalUseOnly()
+final class LDAPConnectionSelector
+      extends Thread
+{
+  /**
+   * The number of selector threads that will be used.
+   */
+  private static final int NUM_SELECTOR_THREADS;
+  static
+  {
+    final int defaultThreadCount =
+         Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    final int configuredThreadCount = LDAPConnectionOptions.getSystemProperty(
+         LDAPConnectionOptions.PROPERTY_SELECTOR_READER_THREAD_COUNT,
+         defaultThreadCount);
+    if (configuredThreadCount > 0)
+    {
+      NUM_SELECTOR_THREADS = configuredThreadCount;
+    }
+    else
+    {
+      NUM_SELECTOR_THREADS = defaultThreadCount;
+    }
+  }
+
+
+
+  /**
+   * The set of selector threads that have been created.  Elements will be
+   * created on demand.
+   */
+  private static final LDAPConnectionSelector[] SELECTORS =
+       new LDAPConnectionSelector[NUM_SELECTOR_THREADS];
+
+
+
+  /**
+   * The executor that will be used to deliver responses read by the selector
+   * threads.  Threads will be created as needed and will exit after they have
+   * been idle for a while.
+   */
+  private static final ExecutorService DELIVERY_EXECUTOR =
+       Executors.newCachedThreadPool(new LDAPSDKThreadFactory(
+            "LDAP connection selector response delivery", true));
+
+
+
+  // The queue of registration changes that need to be applied by the selector
+  // thread.
+  private final ConcurrentLinkedQueue<RegistrationChange> pendingChanges;
+
+  // The selector used to multiplex reads across connections.
+  private final Selector selector;
+
+  // The set of connection readers currently registered with this selector.
+  private final Set<LDAPConnectionReader> registeredReaders;
+
+
+
+  /**
+   * Creates a new selector thread with the provided index.
+   *
+   * @param  index  The index for this selector thread.
+   *
+   * @throws  IOException  If a problem occurs while opening the selector.
+   */
+  private LDAPConnectionSelector(final int index)
+          throws IOException
+  {
+    setName("LDAP connection selector reader " + index);
+    setDaemon(true);
+
+    selector          = Selector.open();
+    pendingChanges    = new ConcurrentLinkedQueue<RegistrationChange>();
+    registeredReaders = Collections.newSetFromMap(
+         new ConcurrentHashMap<LDAPConnectionReader,Boolean>());
+  }
+
+
+
+  /**
+   * Registers the provided connection reader with the least busy selector
+   * thread so that responses will be read and dispatched as they become
+   * available.  The channel will be placed in non-blocking mode.
+   *
+   * @param  reader   The connection reader to be registered.
+   * @param  channel  The channel from which responses should be read.
+   *
+   * @return  The selector thread with which the reader has been registered.
+   *
+   * @throws  IOException  If a problem occurs while registering the reader.
+   */
+  static LDAPConnectionSelector register(final LDAPConnectionReader reader,
+                                         final SocketChannel channel)
+         throws IOException
+  {
+    final LDAPConnectionSelector s = getLeastBusySelector();
+
+    channel.configureBlocking(false);
+    s.registeredReaders.add(reader);
+    s.pendingChanges.add(new RegistrationChange(reader, channel, true, null));
+    s.selector.wakeup();
+    return s;
+  }
+
+
+
+  /**
+   * Retrieves the selector thread with the fewest registered connections,
+   * creating and starting threads as necessary.
+   *
+   * @return  The selector thread with the fewest registered connections.
+   *
+   * @throws  IOException  If a problem occurs while creating a new selector
+   *                       thread.
+   */
+  private static LDAPConnectionSelector getLeastBusySelector()
+          throws IOException
+  {
+    synchronized (SELECTORS)
+    {
+      LDAPConnectionSelector leastBusy = null;
+      for (int i=0; i < SELECTORS.length; i++)
+      {
+        if (SELECTORS[i] == null)
+        {
+          SELECTORS[i] = new LDAPConnectionSelector(i);
+          SELECTORS[i].start();
+          return SELECTORS[i];
+        }
+
+        if ((leastBusy == null) ||
+            (SELECTORS[i].registeredReaders.size() <
+             leastBusy.registeredReaders.size()))
+        {
+          leastBusy = SELECTORS[i];
+        }
+      }
+
+      return leastBusy;
+    }
+  }
+
+
+
+  /**
+   * Deregisters the provided connection reader from this selector so that no
+   * further data will be read for it.
+   *
+   * @param  reader               The connection reader to be deregistered.
+   * @param  channel              The channel with which the reader was
+   *                              registered.
+   * @param  restoreBlockingMode  Indicates whether the channel should be placed
+   *                              back in blocking mode so that it may be read
+   *                              by a dedicated reader thread.  If this is
+   *                              {@code true}, then this method will not
+   *                              return until the reader has been completely
+   *                              deregistered.
+   *
+   * @throws  IOException  If a problem occurs while restoring blocking mode
+   *                       for the channel.
+   */
+  void deregister(final LDAPConnectionReader reader,
+                  final SocketChannel channel,
+                  final boolean restoreBlockingMode)
+       throws IOException
+  {
+    if (Thread.currentThread() == this)
+    {
+      applyDeregistration(reader, channel, restoreBlockingMode);
+      return;
+    }
+
+    final CountDownLatch latch;
+    if (restoreBlockingMode)
+    {
+      latch = new CountDownLatch(1);
+    }
+    else
+    {
+      latch = null;
+    }
+
+    final RegistrationChange change =
+         new RegistrationChange(reader, channel, false, latch);
+    pendingChanges.add(change);
+    selector.wakeup();
+
+    if (latch != null)
+    {
+      boolean interrupted = false;
+      while (true)
+      {
+        try
+        {
+          latch.await();
+          break;
+        }
+        catch (final InterruptedException ie)
+        {
+          debugException(ie);
+          interrupted = true;
+        }
+      }
+
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+
+      if (change.exception != null)
+      {
+        throw change.exception;
+      }
+    }
+  }
+
+
+
+  /**
+   * Operates in a loop, waiting for data to become available on any of the
+   * registered channels and handing it off to the associated connection
+   * reader.
+   */
+  @Override()
+  public void run()
+  {
+    while (true)
+    {
+      try
+      {
+        selector.select();
+        applyPendingChanges();
+
+        final Iterator<SelectionKey> iterator =
+             selector.selectedKeys().iterator();
+        while (iterator.hasNext())
+        {
+          final SelectionKey key = iterator.next();
+          iterator.remove();
+
+          if (! key.isValid())
+          {
+            continue;
+          }
+
+          final LDAPConnectionReader reader =
+               (LDAPConnectionReader) key.attachment();
+          if (! reader.readAvailableData((SocketChannel) key.channel()))
+          {
+            key.cancel();
+            registeredReaders.remove(reader);
+          }
+        }
+      }
+      catch (final Throwable t)
+      {
+        // This should never happen, but we can't let it kill the selector
+        // thread because other connections depend on it.
+        debugException(t);
+        debug(Level.SEVERE, DebugType.LDAP,
+             "Unexpected error in LDAP connection selector reader " +
+                  getName(),
+             t);
+      }
+    }
+  }
+
+
+
+  /**
+   * Applies any pending registration changes.  This must only be invoked by
+   * the selector thread.
+   */
+  private void applyPendingChanges()
+  {
+    while (true)
+    {
+      final RegistrationChange change = pendingChanges.poll();
+      if (change == null)
+      {
+        return;
+      }
+
+      if (change.register)
+      {
+        try
+        {
+          change.channel.register(selector, SelectionKey.OP_READ,
+               change.reader);
+        }
+        catch (final Exception e)
+        {
+          // This will most likely happen if the connection has already been
+          // closed.
+          debugException(e);
+          registeredReaders.remove(change.reader);
+        }
+      }
+      else
+      {
+        try
+        {
+          applyDeregistration(change.reader, change.channel,
+               (change.latch != null));
+        }
+        catch (final IOException ioe)
+        {
+          debugException(ioe);
+          change.exception = ioe;
+        }
+        finally
+        {
+          if (change.latch != null)
+          {
+            change.latch.countDown();
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Deregisters the provided channel from this selector.  This must only be
+   * invoked by the selector thread.
+   *
+   * @param  reader               The connection reader to be deregistered.
+   * @param  channel              The channel to be deregistered.
+   * @param  restoreBlockingMode  Indicates whether to place the channel back in
+   *                              blocking mode.
+   *
+   * @throws  IOException  If a problem occurs while restoring blocking mode
+   *                       for the channel.
+   */
+  private void applyDeregistration(final LDAPConnectionReader reader,
+                                   final SocketChannel channel,
+                                   final boolean restoreBlockingMode)
+          throws IOException
+  {
+    registeredReaders.remove(reader);
+
+    final SelectionKey key = channel.keyFor(selector);
+    if (key != null)
+    {
+      key.cancel();
+    }
+
+    if (restoreBlockingMode)
+    {
+      // The channel isn't actually deregistered until the next selection
+      // operation, and it can't be placed in blocking mode until then.
+      selector.selectNow();
+      channel.configureBlocking(true);
+    }
+  }
+
+
+
+  /**
+   * Schedules the provided task to be run by one of the threads used to deliver
+   * responses read by the selector threads.
+   *
+   * @param  task  The task to be run.  It must not be {@code null}.
+   */
+  static void executeDelivery(final Runnable task)
+  {
+    DELIVERY_EXECUTOR.execute(task);
+  }
+
+
+
+  /**
+   * Retrieves the number of connections currently registered with this
+   * selector thread.
+   *
+   * @return  The number of connections currently registered with this
+   *          selector thread.
+   */
+  int getNumRegisteredConnections()
+  {
+    return registeredReaders.size();
+  }
+
+
+
+  /**
+   * This class holds information about a registration change that needs to be
+   * applied by the selector thread.
+   */
+  private static final class RegistrationChange
+  {
+    // Indicates whether this is a registration rather than a deregistration.
+    private final boolean register;
+
+    // A latch that will be released when the change has been applied, if the
+    // caller is waiting for it.
+    private final CountDownLatch latch;
+
+    // The connection reader with which the change is associated.
+    private final LDAPConnectionReader reader;
+
+    // The channel with which the change is associated.
+    private final SocketChannel channel;
+
+    // An exception caught while applying the change.
+    private volatile IOException exception;
+
+
+
+    /**
+     * Creates a new registration change with the provided information.
+     *
+     * @param  reader    The connection reader with which the change is
+     *                   associated.
+     * @param  channel   The channel with which the change is associated.
+     * @param  register  Indicates whether this is a registration rather than a
+     *                   deregistration.
+     * @param  latch     A latch that will be released when the change has been
+     *                   applied, or {@code null} if no one is waiting.
+     */
+    private RegistrationChange(final LDAPConnectionReader reader,
+                               final SocketChannel channel,
+                               final boolean register,
+                               final CountDownLatch latch)
+    {
+      this.reader   = reader;
+      this.channel  = channel;
+      this.register = register;
+      this.latch    = latch;
+
+      exception = null;
+    }
+  }
+}
@@ -24,8 +24,10 @@ package com.unboundid.ldap.sdk;
 
 import java.io.Serializable;
 import java.text.DecimalFormat;
+import java.util.EnumMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.Mutable;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
@@ -50,6 +52,13 @@ import com.unboundid.util.ThreadSafetyLevel;
  *   <LI>The average response time (in milliseconds or nanoseconds) for each
  *       type of operation processed on the connection.</LI>
  * </UL>
+ * <BR><BR>
+ * In addition, if the {@link #setCollectResponseTimeHistograms} method has
+ * been used to enable it, then a histogram of the response times will be
+ * maintained for each type of operation so that percentiles may be obtained
+ * rather than just averages.  Response time histograms are not collected by
+ * default.  They may also be collected for all connections in a connection
+ * pool through the associated {@link LDAPConnectionPoolStatistics} object.
  */
 @Mutable()
 @ThreadSafety(level=ThreadSafetyLevel.MOSTLY_THREADSAFE)
@@ -158,6 +167,15 @@ public final class LDAPConnectionStatistics
   // The total length of time spent waiting for search done responses.
   private final AtomicLong totalSearchResponseTime;
 
+  // The histograms of response times for each type of operation, or null if
+  // response time histograms are not being collected.
+  private volatile EnumMap<OperationType,LatencyHistogram>
+       responseTimeHistograms;
+
+  // The statistics for the connection pool with which the associated
+  // connection is associated, if any.
+  private transient volatile LDAPConnectionPoolStatistics poolStatistics;
+
 
 
   /**
@@ -196,6 +214,8 @@ public final class LDAPConnectionStatistics
     totalModifyResponseTime     = new AtomicLong(0L);
     totalModifyDNResponseTime   = new AtomicLong(0L);
     totalSearchResponseTime     = new AtomicLong(0L);
+    responseTimeHistograms      = null;
+    poolStatistics              = null;
   }
 
 
@@ -235,6 +255,11 @@ public final class LDAPConnectionStatistics
     totalModifyResponseTime.set(0L);
     totalModifyDNResponseTime.set(0L);
     totalSearchResponseTime.set(0L);
+
+    if (responseTimeHistograms != null)
+    {
+      responseTimeHistograms = createResponseTimeHistograms();
+    }
   }
 
 
@@ -360,6 +385,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalAddResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.ADD, responseTime);
     }
   }
 
@@ -490,6 +516,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalBindResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.BIND, responseTime);
     }
   }
 
@@ -623,6 +650,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalCompareResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.COMPARE, responseTime);
     }
   }
 
@@ -756,6 +784,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalDeleteResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.DELETE, responseTime);
     }
   }
 
@@ -893,6 +922,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalExtendedResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.EXTENDED, responseTime);
     }
   }
 
@@ -1026,6 +1056,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalModifyResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.MODIFY, responseTime);
     }
   }
 
@@ -1164,6 +1195,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalModifyDNResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.MODIFY_DN, responseTime);
     }
   }
 
@@ -1337,6 +1369,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalSearchResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.SEARCH, responseTime);
     }
   }
 
@@ -1445,6 +1478,141 @@ public final class LDAPConnectionStatistics
 
 
 
+  /**
+   * Indicates whether histograms of the response times for each type of
+   * operation are being collected for the associated connection.
+   *
+   * @return  {@code true} if response time histograms are being collected, or
+   *          {@code false} if not.
+   */
+  public boolean collectResponseTimeHistograms()
+  {
+    return (responseTimeHistograms != null);
+  }
+
+
+
+  /**
+   * Specifies whether histograms of the response times for each type of
+   * operation should be collected for the associated connection.  Enabling
+   * this will add a small amount of overhead to the processing for each
+   * operation.  If response time histograms are already being collected, then
+   * enabling them again will have no effect.  Disabling them will discard any
+   * response times that have already been recorded.
+   *
+   * @param  collectResponseTimeHistograms  Indicates whether response time
+   *                                        histograms should be collected.
+   */
+  public void setCollectResponseTimeHistograms(
+                   final boolean collectResponseTimeHistograms)
+  {
+    if (! collectResponseTimeHistograms)
+    {
+      responseTimeHistograms = null;
+    }
+    else if (responseTimeHistograms == null)
+    {
+      responseTimeHistograms = createResponseTimeHistograms();
+    }
+  }
+
+
+
+  /**
+   * Retrieves a histogram of the response times in nanoseconds for all
+   * operations of the specified type processed on the associated connection
+   * since response time histograms were enabled or the statistics were last
+   * reset.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        histogram.  It must not be {@code null}.
+   *
+   * @return  A snapshot of the histogram of the response times for the
+   *          specified type of operation, or {@code null} if response time
+   *          histograms are not being collected.
+   */
+  public LatencyHistogram getResponseTimeHistogram(
+                               final OperationType operationType)
+  {
+    final EnumMap<OperationType,LatencyHistogram> histograms =
+         responseTimeHistograms;
+    if (histograms == null)
+    {
+      return null;
+    }
+
+    return histograms.get(operationType).getSnapshot(false);
+  }
+
+
+
+  /**
+   * Specifies the statistics for the connection pool with which the associated
+   * connection is associated.  Response times will also be recorded in the
+   * pool statistics if it is collecting response time histograms.
+   *
+   * @param  poolStatistics  The statistics for the connection pool with which
+   *                         the associated connection is associated.  It may
+   *                         be {@code null} if the connection is not part of
+   *                         a pool.
+   */
+  void setConnectionPoolStatistics(
+            final LDAPConnectionPoolStatistics poolStatistics)
+  {
+    this.poolStatistics = poolStatistics;
+  }
+
+
+
+  /**
+   * Records the provided response time in the histogram for the specified type
+   * of operation, and in the histogram for the associated connection pool, if
+   * either is being collected.
+   *
+   * @param  operationType  The type of operation that was processed.
+   * @param  responseTime   The length of time in nanoseconds between sending
+   *                        the request and receiving the response.
+   */
+  private void recordResponseTime(final OperationType operationType,
+                                  final long responseTime)
+  {
+    final EnumMap<OperationType,LatencyHistogram> histograms =
+         responseTimeHistograms;
+    if (histograms != null)
+    {
+      histograms.get(operationType).record(responseTime);
+    }
+
+    final LDAPConnectionPoolStatistics ps = poolStatistics;
+    if (ps != null)
+    {
+      ps.recordResponseTime(operationType, responseTime);
+    }
+  }
+
+
+
+  /**
+   * Creates a new set of empty response time histograms, with one histogram
+   * for each type of operation.
+   *
+   * @return  The map that was created.
+   */
+  static EnumMap<OperationType,LatencyHistogram>
+              createResponseTimeHistograms()
+  {
+    final EnumMap<OperationType,LatencyHistogram> histograms =
+         new EnumMap<OperationType,LatencyHistogram>(OperationType.class);
+    for (final OperationType t : OperationType.values())
+    {
+      histograms.put(t, new LatencyHistogram());
+    }
+
+    return histograms;
+  }
+
+
+
   /**
    * Retrieves a string representation of this LDAP connection statistics
    * object.
@@ -569,6 +569,7 @@ public final class LDAPThreadLocalConnectionPool
     // Finish setting up the connection.
     c.setConnectionPoolName(connectionPoolName);
     poolStatistics.incrementNumSuccessfulConnectionAttempts();
+    poolStatistics.updateTLSHandshakeStatistics(c);
 
     return c;
   }
@@ -1152,6 +1153,14 @@ public final class LDAPThreadLocalConnectionPool
       return false;
     }
 
+    // Don't close a connection while asynchronous operations that were
+    // initiated on it are still awaiting a response.  It will be checked again
+    // the next time it is released or examined by the health check.
+    if (connection.getOutstandingAsyncRequestCount() > 0)
+    {
+      return false;
+    }
+
     // If there is a minimum disconnect interval, then make sure that we have
     // not closed another expired connection too recently.
     final long currentTime = System.currentTimeMillis();
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import com.unboundid.util.InternalUseOnly;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+
+
+
+/**
+ * This class provides an output stream that writes directly to a socket
+ * channel.  Unlike the output stream provided by a channel-backed socket, it
+ * may be used regardless of whether the channel is in blocking or non-blocking
+ * mode.  If the channel is in non-blocking mode and the socket send buffer is
+ * full, then the write will block (for up to the socket's SO_TIMEOUT) until
+ * the channel becomes writable.
+ */
+@InternalUseOnly()
+final class SocketChannelOutputStream
+      extends OutputStream
+{
+  // The channel to which data will be written.
+  private final SocketChannel channel;
+
+  // The socket with which the channel is associated.
+  private final Socket socket;
+
+
+
+  /**
+   * Creates a new socket channel output stream that will write to the channel
+   * associated with the provided socket.
+   *
+   * @param  socket  The socket to which data should be written.  It must be
+   *                 backed by a socket channel.
+   */
+  SocketChannelOutputStream(final Socket socket)
+  {
+    this.socket = socket;
+
+    channel = socket.getChannel();
+  }
+
+
+
+  /**
+   * Writes the provided byte to the channel.
+   *
+   * @param  b  The byte to be written.
+   *
+   * @throws  IOException  If a problem occurs while writing the data.
+   */
+  @Override()
+  public void write(final int b)
+         throws IOException
+  {
+    write(new byte[] { (byte) (b & 0xFF) }, 0, 1);
+  }
+
+
+
+  /**
+   * Writes the provided data to the channel.
+   *
+   * @param  b    The array containing the data to be written.
+   * @param  off  The position in the array at which the data to write starts.
+   * @param  len  The number of bytes to be written.
+   *
+   * @throws  IOException  If a problem occurs while writing the data.
+   */
+  @Override()
+  public void write(final byte[] b, final int off, final int len)
+         throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+    Selector writeSelector = null;
+
+    try
+    {
+      while (buffer.hasRemaining())
+      {
+        if (channel.write(buffer) > 0)
+        {
+          continue;
+        }
+
+        // The socket send buffer is full and the channel is in non-blocking
+        // mode.  Wait for the channel to become writable.  This should be
+        // rare, so we'll use a temporary selector rather than maintaining
+        // one for each connection.
+        if (writeSelector == null)
+        {
+          writeSelector = Selector.open();
+        }
+
+        final SelectionKey key =
+             channel.register(writeSelector, SelectionKey.OP_WRITE);
+        final int timeoutMillis = socket.getSoTimeout();
+        final int numSelected = writeSelector.select(timeoutMillis);
+        key.cancel();
+        writeSelector.selectNow();
+
+        if ((numSelected == 0) && (timeoutMillis > 0))
+        {
+          throw new SocketTimeoutException(
+               ERR_CHANNEL_OUTPUT_STREAM_WRITE_TIMEOUT.get(timeoutMillis));
+        }
+      }
+    }
+    finally
+    {
+      if (writeSelector != null)
+      {
+        writeSelector.close();
+      }
+    }
+  }
+
+
+
+  /**
+   * Closes this output stream and the underlying channel.
+   *
+   * @throws  IOException  If a problem occurs while closing the channel.
+   */
+  @Override()
+  public void close()
+         throws IOException
+  {
+    channel.close();
+  }
+}
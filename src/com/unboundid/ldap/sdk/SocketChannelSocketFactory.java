@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import javax.net.SocketFactory;
+
+import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.SynchronizedSocketFactory;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a socket factory that creates sockets that are backed
+ * by a {@code java.nio.channels.SocketChannel}, so that they may be used in
+ * conjunction with a selector.  It is used in place of the JVM-default socket
+ * factory for connections configured to use a selector reader.
+ */
+@InternalUseOnly()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class SocketChannelSocketFactory
+      extends SocketFactory
+{
+  /**
+   * The singleton instance of this socket factory.
+   */
+  private static final SocketChannelSocketFactory INSTANCE =
+       new SocketChannelSocketFactory();
+
+
+
+  /**
+   * Creates a new instance of this socket factory.
+   */
+  private SocketChannelSocketFactory()
+  {
+    // No implementation is required.
+  }
+
+
+
+  /**
+   * Retrieves the socket factory that should be used to create the socket for
+   * a connection configured to use a selector reader.  If the provided socket
+   * factory is the JVM-default socket factory (possibly wrapped in a
+   * synchronized socket factory), then a socket factory that creates
+   * channel-backed sockets will be returned.  Otherwise, the provided factory
+   * will be returned so that any custom socket creation logic is preserved.
+   *
+   * @param  socketFactory  The socket factory configured for the connection.
+   *
+   * @return  The socket factory that should be used to create the socket.
+   */
+  static SocketFactory getSocketFactory(final SocketFactory socketFactory)
+  {
+    SocketFactory f = socketFactory;
+    if (f instanceof SynchronizedSocketFactory)
+    {
+      f = ((SynchronizedSocketFactory) f).getWrappedSocketFactory();
+    }
+
+    if ((f == null) || (f == SocketFactory.getDefault()))
+    {
+      return INSTANCE;
+    }
+    else
+    {
+      return socketFactory;
+    }
+  }
+
+
+
+  /**
+   * Creates a new unconnected socket that is backed by a socket channel.
+   *
+   * @return  The socket that was created.
+   *
+   * @throws  IOException  If a problem occurs while creating the socket.
+   */
+  @Override()
+  public Socket createSocket()
+         throws IOException
+  {
+    return SocketChannel.open().socket();
+  }
+
+
+
+  /**
+   * Creates a new socket to the specified server.
+   *
+   * @param  host  The host to which the connection should be established.
+   * @param  port  The port to which the connection should be established.
+   *
+   * @return  The socket that was created.
+   *
+   * @throws  IOException  If a problem occurs while creating the socket.
+   */
+  @Override()
+  public Socket createSocket(final String host, final int port)
+         throws IOException
+  {
+    return connect(new InetSocketAddress(host, port), null);
+  }
+
+
+
+  /**
+   * Creates a new socket to the specified server.
+   *
+   * @param  host          The host to which the connection should be
+   *                       established.
+   * @param  port          The port to which the connection should be
+   *                       established.
+   * @param  localAddress  The local address to use for the connection.
+   * @param  localPort     The local port to use for the connection.
+   *
+   * @return  The socket that was created.
+   *
+   * @throws  IOException  If a problem occurs while creating the socket.
+   */
+  @Override()
+  public Socket createSocket(final String host, final int port,
+                             final InetAddress localAddress,
+                             final int localPort)
+         throws IOException
+  {
+    return connect(new InetSocketAddress(host, port),
+         new InetSocketAddress(localAddress, localPort));
+  }
+
+
+
+  /**
+   * Creates a new socket to the specified server.
+   *
+   * @param  address  The address to which the connection should be established.
+   * @param  port     The port to which the connection should be established.
+   *
+   * @return  The socket that was created.
+   *
+   * @throws  IOException  If a problem occurs while creating the socket.
+   */
+  @Override()
+  public Socket createSocket(final InetAddress address, final int port)
+         throws IOException
+  {
+    return connect(new InetSocketAddress(address, port), null);
+  }
+
+
+
+  /**
+   * Creates a new socket to the specified server.
+   *
+   * @param  address       The address to which the connection should be
+   *                       established.
+   * @param  port          The port to which the connection should be
+   *                       established.
+   * @param  localAddress  The local address to use for the connection.
+   * @param  localPort     The local port to use for the connection.
+   *
+   * @return  The socket that was created.
+   *
+   * @throws  IOException  If a problem occurs while creating the socket.
+   */
+  @Override()
+  public Socket createSocket(final InetAddress address, final int port,
+                             final InetAddress localAddress,
+                             final int localPort)
+         throws IOException
+  {
+    return connect(new InetSocketAddress(address, port),
+         new InetSocketAddress(localAddress, localPort));
+  }
+
+
+
+  /**
+   * Creates a channel-backed socket, optionally binds it to the given local
+   * address, and connects it to the given remote address.
+   *
+   * @param  remoteAddress  The remote address to which the socket should be
+   *                        connected.
+   * @param  localAddress   The local address to which the socket should be
+   *                        bound, or {@code null} if it does not need to be
+   *                        explicitly bound.
+   *
+   * @return  The connected socket.
+   *
+   * @throws  IOException  If a problem occurs while creating or connecting the
+   *                       socket.
+   */
+  private static Socket connect(final InetSocketAddress remoteAddress,
+                                final InetSocketAddress localAddress)
+          throws IOException
+  {
+    final Socket socket = SocketChannel.open().socket();
+
+    try
+    {
+      if (localAddress != null)
+      {
+        socket.bind(localAddress);
+      }
+
+      socket.connect(remoteAddress);
+      return socket;
+    }
+    catch (final IOException ioe)
+    {
+      socket.close();
+      throw ioe;
+    }
+  }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a bounded blocking queue implementation that may be used
+ * to hold the available connections in a connection pool.  Rather than
+ * funneling every checkout and release through a single lock, connections are
+ * held in a number of lock-free stripes.  Each thread has a home stripe that it
+ * uses first when returning and retrieving connections, and if its home stripe
+ * is empty then it will attempt to steal a connection from one of the other
+ * stripes.  A lock is only used when a thread needs to block while waiting for
+ * a connection to become available.
+ * <BR><BR>
+ * Because connections may be retrieved in a different order than that in which
+ * they were released, this queue does not guarantee FIFO ordering.  Iteration
+ * is weakly consistent and operates on a snapshot of the connections that were
+ * available when the iterator was created.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class StripedConnectionQueue
+      extends AbstractQueue<LDAPConnection>
+      implements BlockingQueue<LDAPConnection>
+{
+  // The number of connections currently held in the queue.  This is reserved
+  // before a connection is added to a stripe, and released after a connection
+  // has been removed from a stripe.
+  private final AtomicInteger count;
+
+  // The number of threads that are currently blocked waiting for a connection.
+  private final AtomicInteger numWaiters;
+
+  // The condition that will be used to notify blocked threads that a
+  // connection has become available.
+  private final Condition notEmpty;
+
+  // The maximum number of connections that may be held in the queue.
+  private final int capacity;
+
+  // The lock that will be used when blocking while waiting for a connection.
+  private final ReentrantLock waitLock;
+
+  // The stripes that hold the available connections.
+  private final ConcurrentLinkedDeque<LDAPConnection>[] stripes;
+
+
+
+  /**
+   * Creates a new striped connection queue with the specified capacity and a
+   * number of stripes based on the number of available processors.
+   *
+   * @param  capacity  The maximum number of connections that may be held in
+   *                   the queue.  It must be greater than zero.
+   */
+  StripedConnectionQueue(final int capacity)
+  {
+    this(capacity, Runtime.getRuntime().availableProcessors());
+  }
+
+
+
+  /**
+   * Creates a new striped connection queue with the specified capacity and
+   * number of stripes.
+   *
+   * @param  capacity    The maximum number of connections that may be held in
+   *                     the queue.  It must be greater than zero.
+   * @param  numStripes  The number of stripes to use.  If this is less than
+   *                     one, then a single stripe will be used.  If it is
+   *                     greater than the capacity, then the capacity will be
+   *                     used as the number of stripes.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  StripedConnectionQueue(final int capacity, final int numStripes)
+  {
+    ensureTrue(capacity > 0,
+         "StripedConnectionQueue.capacity must be greater than zero.");
+
+    this.capacity = capacity;
+
+    final int n = Math.max(1, Math.min(capacity, numStripes));
+    stripes = new ConcurrentLinkedDeque[n];
+    for (int i=0; i < n; i++)
+    {
+      stripes[i] = new ConcurrentLinkedDeque<LDAPConnection>();
+    }
+
+    count      = new AtomicInteger(0);
+    numWaiters = new AtomicInteger(0);
+    waitLock   = new ReentrantLock();
+    notEmpty   = waitLock.newCondition();
+  }
+
+
+
+  /**
+   * Retrieves the number of stripes used by this queue.
+   *
+   * @return  The number of stripes used by this queue.
+   */
+  int getNumStripes()
+  {
+    return stripes.length;
+  }
+
+
+
+  /**
+   * Retrieves the index of the home stripe for the current thread.
+   *
+   * @return  The index of the home stripe for the current thread.
+   */
+  private int getHomeStripeIndex()
+  {
+    return (int) ((Thread.currentThread().getId() & 0x7FFFFFFFL) %
+         stripes.length);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean offer(final LDAPConnection connection)
+  {
+    ensureNotNull(connection);
+
+    while (true)
+    {
+      final int c = count.get();
+      if (c >= capacity)
+      {
+        return false;
+      }
+
+      if (count.compareAndSet(c, c+1))
+      {
+        break;
+      }
+    }
+
+    // Add the connection to the front of the home stripe so that it is likely
+    // to be the next connection retrieved by this thread.
+    stripes[getHomeStripeIndex()].offerFirst(connection);
+
+    if (numWaiters.get() > 0)
+    {
+      waitLock.lock();
+      try
+      {
+        notEmpty.signal();
+      }
+      finally
+      {
+        waitLock.unlock();
+      }
+    }
+
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean offer(final LDAPConnection connection, final long timeout,
+                       final TimeUnit unit)
+  {
+    // This queue will never block when adding connections.
+    return offer(connection);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void put(final LDAPConnection connection)
+  {
+    if (! offer(connection))
+    {
+      throw new IllegalStateException("Queue full");
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection poll()
+  {
+    if (count.get() <= 0)
+    {
+      return null;
+    }
+
+    final int homeIndex = getHomeStripeIndex();
+    LDAPConnection connection = stripes[homeIndex].pollFirst();
+    if (connection == null)
+    {
+      // Steal from the back of the other stripes, which are the connections
+      // that are least likely to be wanted by the threads that own them.
+      for (int i=1; i < stripes.length; i++)
+      {
+        connection = stripes[(homeIndex + i) % stripes.length].pollLast();
+        if (connection != null)
+        {
+          break;
+        }
+      }
+    }
+
+    if (connection != null)
+    {
+      count.decrementAndGet();
+    }
+
+    return connection;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection poll(final long timeout, final TimeUnit unit)
+         throws InterruptedException
+  {
+    LDAPConnection connection = poll();
+    if (connection != null)
+    {
+      return connection;
+    }
+
+    long nanos = unit.toNanos(timeout);
+    waitLock.lockInterruptibly();
+    try
+    {
+      numWaiters.incrementAndGet();
+      try
+      {
+        while (true)
+        {
+          connection = poll();
+          if ((connection != null) || (nanos <= 0L))
+          {
+            return connection;
+          }
+
+          nanos = notEmpty.awaitNanos(nanos);
+        }
+      }
+      finally
+      {
+        numWaiters.decrementAndGet();
+      }
+    }
+    finally
+    {
+      waitLock.unlock();
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection take()
+         throws InterruptedException
+  {
+    LDAPConnection connection = poll();
+    while (connection == null)
+    {
+      connection = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    return connection;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection peek()
+  {
+    for (final ConcurrentLinkedDeque<LDAPConnection> stripe : stripes)
+    {
+      final LDAPConnection connection = stripe.peekFirst();
+      if (connection != null)
+      {
+        return connection;
+      }
+    }
+
+    return null;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean remove(final Object o)
+  {
+    if (o == null)
+    {
+      return false;
+    }
+
+    for (final ConcurrentLinkedDeque<LDAPConnection> stripe : stripes)
+    {
+      if (stripe.removeFirstOccurrence(o))
+      {
+        count.decrementAndGet();
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int size()
+  {
+    return Math.max(0, count.get());
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int remainingCapacity()
+  {
+    return Math.max(0, capacity - count.get());
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int drainTo(final Collection<? super LDAPConnection> c)
+  {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int drainTo(final Collection<? super LDAPConnection> c,
+                     final int maxElements)
+  {
+    ensureNotNull(c);
+
+    int numDrained = 0;
+    while (numDrained < maxElements)
+    {
+      final LDAPConnection connection = poll();
+      if (connection == null)
+      {
+        break;
+      }
+
+      c.add(connection);
+      numDrained++;
+    }
+
+    return numDrained;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public Iterator<LDAPConnection> iterator()
+  {
+    final ArrayList<LDAPConnection> connections =
+         new ArrayList<LDAPConnection>(capacity);
+    for (final ConcurrentLinkedDeque<LDAPConnection> stripe : stripes)
+    {
+      connections.addAll(stripe);
+    }
+
+    return Collections.unmodifiableList(connections).iterator();
+  }
+}
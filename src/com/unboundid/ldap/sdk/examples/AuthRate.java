@@ -49,6 +49,7 @@ import com.unboundid.util.FixedRateBarrier;
 import com.unboundid.util.FormattableColumn;
 import com.unboundid.util.HorizontalAlignment;
 import com.unboundid.util.LDAPCommandLineTool;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.OutputFormat;
 import com.unboundid.util.RateAdjustor;
@@ -157,6 +158,16 @@ import static com.unboundid.util.StaticUtils.*;
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
  *       display-friendly format.</LI>
+ *   <LI>"--latencyPercentiles" -- Include the 50th, 90th, 99th, and 99.9th
+ *       percentile and maximum authentication durations for each interval and
+ *       for the overall run in the output.</LI>
+ *   <LI>"--correctForCoordinatedOmission" -- Indicates that the
+ *       authentication durations used for the latency percentiles should be
+ *       corrected for coordinated omission by also accounting for the
+ *       authentications that would have been attempted at the target rate
+ *       while a slow authentication was in progress.  This may only be used in
+ *       conjunction with the "--latencyPercentiles" argument and either the
+ *       "--ratePerSecond" or "--variableRateData" argument.</LI>
  * </UL>
  */
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
@@ -182,9 +193,17 @@ public final class AuthRate
   // without a search.
   private BooleanArgument bindOnly;
 
+  // The argument used to indicate whether to correct authentication durations
+  // for coordinated omission.
+  private BooleanArgument correctForCoordinatedOmission;
+
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
+  // The argument used to indicate whether to include latency percentiles in
+  // the output.
+  private BooleanArgument latencyPercentiles;
+
   // The argument used to indicate that bind requests should include the
   // password policy request control.
   private BooleanArgument passwordPolicyRequestControl;
@@ -253,6 +272,11 @@ public final class AuthRate
   // A wakeable sleeper that will be used to sleep between reporting intervals.
   private final WakeableSleeper sleeper;
 
+  // The barrier used to determine the expected interval between
+  // authentications when correcting authentication durations for coordinated
+  // omission.
+  private volatile FixedRateBarrier coordinatedOmissionBarrier;
+
 
 
   /**
@@ -665,6 +689,24 @@ public final class AuthRate
     parser.addArgument(sampleRateFile);
     parser.addExclusiveArgumentSet(variableRateData, sampleRateFile);
 
+    description = "Indicates that the authentication durations used for " +
+                  "the latency percentiles should be corrected for " +
+                  "coordinated omission.  If an authentication takes longer " +
+                  "than the interval at which each thread is expected to " +
+                  "attempt authentications to achieve the target rate, then " +
+                  "the durations of the authentications that would have " +
+                  "been attempted in the meantime will also be accounted " +
+                  "for.  This may only be used in conjunction with the " +
+                  "--latencyPercentiles argument and either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    correctForCoordinatedOmission = new BooleanArgument(null,
+         "correctForCoordinatedOmission", 1, description);
+    correctForCoordinatedOmission.setArgumentGroupName(
+         "Rate Management Arguments");
+    correctForCoordinatedOmission.addLongIdentifier(
+         "correct-for-coordinated-omission", true);
+    parser.addArgument(correctForCoordinatedOmission);
+
     description = "The number of intervals to complete before beginning " +
                   "overall statistics collection.  Specifying a nonzero " +
                   "number of warm-up intervals gives the client and server " +
@@ -703,11 +745,27 @@ public final class AuthRate
     csvFormat = new BooleanArgument('c', "csv", 1, description);
     parser.addArgument(csvFormat);
 
+    description = "Include the 50th, 90th, 99th, and 99.9th percentile and " +
+                  "maximum authentication durations for each interval and " +
+                  "for the overall run in the output.";
+    latencyPercentiles = new BooleanArgument(null, "latencyPercentiles", 1,
+         description);
+    latencyPercentiles.addLongIdentifier("latency-percentiles", true);
+    parser.addArgument(latencyPercentiles);
+
     description = "Specifies the seed to use for the random number generator.";
     randomSeed = new IntegerArgument('R', "randomSeed", false, 1, "{value}",
          description);
     randomSeed.addLongIdentifier("random-seed", true);
     parser.addArgument(randomSeed);
+
+
+    // The correctForCoordinatedOmission argument can only be used if latency
+    // percentiles are requested and a target rate is provided.
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         latencyPercentiles);
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         ratePerSecond, variableRateData);
   }
 
 
@@ -868,6 +926,11 @@ public final class AuthRate
            new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
     }
 
+    if (correctForCoordinatedOmission.isPresent())
+    {
+      coordinatedOmissionBarrier = fixedRateBarrier;
+    }
+
 
     // If --variableRateData was specified, then initialize a RateAdjustor.
     RateAdjustor rateAdjustor = null;
@@ -956,18 +1019,30 @@ public final class AuthRate
       outputFormat = OutputFormat.COLUMNS;
     }
 
+    final ArrayList<FormattableColumn> columns =
+         new ArrayList<FormattableColumn>(15);
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Auths/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Avg Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Errors/Sec"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Recent");
+    }
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Auths/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Avg Dur ms"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Overall");
+    }
+
     final ColumnFormatter formatter = new ColumnFormatter(includeTimestamp,
          timeFormat, outputFormat, " ",
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Auths/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Avg Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Errors/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Auths/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Avg Dur ms"));
+         columns.toArray(new FormattableColumn[columns.size()]));
 
 
     // Create values to use for statistics collection.
@@ -976,6 +1051,10 @@ public final class AuthRate
     final AtomicLong        authDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter     = new ResultCodeCounter();
 
+    final LatencyHistogram overallHistogram = new LatencyHistogram();
+    final LatencyHistogram[] latencyHistograms =
+         new LatencyHistogram[numThreads.getValue()];
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -986,6 +1065,8 @@ public final class AuthRate
     final AuthRateThread[] threads = new AuthRateThread[numThreads.getValue()];
     for (int i=0; i < threads.length; i++)
     {
+      latencyHistograms[i] = new LatencyHistogram();
+
       final LDAPConnection searchConnection;
       final LDAPConnection bindConnection;
       try
@@ -1005,7 +1086,8 @@ public final class AuthRate
            dnPattern, scopeArg.getValue(), filterPattern, attrs,
            userPassword.getValue(), bindOnly.isPresent(), authType.getValue(),
            searchControl.getValues(), bindControls, barrier, authCounter,
-           authDurations, errorCounter, rcCounter, fixedRateBarrier);
+           authDurations, latencyHistograms[i], errorCounter, rcCounter,
+           fixedRateBarrier);
       threads[i].start();
     }
 
@@ -1097,6 +1179,9 @@ public final class AuthRate
       final double recentAuthRate = recentNumAuths / numSeconds;
       final double recentErrorRate  = recentNumErrors / numSeconds;
 
+      final LatencyHistogram recentHistogram =
+           LatencyPercentiles.getIntervalHistogram(latencyHistograms);
+
       final double recentAvgDuration;
       if (recentNumAuths > 0L)
       {
@@ -1107,10 +1192,24 @@ public final class AuthRate
         recentAvgDuration = 0.0d;
       }
 
+      final ArrayList<Object> row = new ArrayList<Object>(15);
+      row.add(recentAuthRate);
+      row.add(recentAvgDuration);
+      row.add(recentErrorRate);
+      if (latencyPercentiles.isPresent())
+      {
+        LatencyPercentiles.addValues(row, recentHistogram);
+      }
+
       if (warmUp && (remainingWarmUpIntervals > 0))
       {
-        out(formatter.formatRow(recentAuthRate, recentAvgDuration,
-             recentErrorRate, "warming up", "warming up"));
+        row.add("warming up");
+        row.add("warming up");
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addPlaceholders(row, "warming up");
+        }
+        out(formatter.formatRow(row.toArray()));
 
         remainingWarmUpIntervals--;
         if (remainingWarmUpIntervals == 0)
@@ -1145,8 +1244,15 @@ public final class AuthRate
           overallAvgDuration = 0.0d;
         }
 
-        out(formatter.formatRow(recentAuthRate, recentAvgDuration,
-             recentErrorRate, overallAuthRate, overallAvgDuration));
+        overallHistogram.add(recentHistogram);
+
+        row.add(overallAuthRate);
+        row.add(overallAvgDuration);
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addValues(row, overallHistogram);
+        }
+        out(formatter.formatRow(row.toArray()));
 
         lastNumAuths    = numAuths;
         lastNumErrors   = numErrors;
@@ -1221,6 +1327,24 @@ public final class AuthRate
 
 
 
+  /**
+   * Retrieves the length of time in nanoseconds that is expected to elapse
+   * between authentications on each thread at the current target rate, for
+   * use in correcting authentication durations for coordinated omission.
+   *
+   * @return  The length of time in nanoseconds that is expected to elapse
+   *          between authentications on each thread, or zero if
+   *          authentication durations should not be corrected for coordinated
+   *          omission.
+   */
+  long getCoordinatedOmissionIntervalNanos()
+  {
+    return LatencyPercentiles.getExpectedIntervalNanos(
+         coordinatedOmissionBarrier, numThreads.getValue());
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
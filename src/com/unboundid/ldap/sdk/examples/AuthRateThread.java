@@ -43,6 +43,7 @@ import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.util.Debug;
 import com.unboundid.util.FixedRateBarrier;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ResultCodeCounter;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ValuePattern;
@@ -97,6 +98,9 @@ final class AuthRateThread
   // The value that will be updated with total duration of the searches.
   private final AtomicLong authDurations;
 
+  // The histogram used to record the durations of the authentications.
+  private final LatencyHistogram latencyHistogram;
+
   // The counter used to track the number of errors encountered while searching.
   private final AtomicLong errorCounter;
 
@@ -174,6 +178,8 @@ final class AuthRateThread
    *                           total number of authentications performed.
    * @param  authDurations     A value that will be used to keep track of the
    *                           total duration for all authentications.
+   * @param  latencyHistogram  The histogram that will be used to record the
+   *                           duration of each authentication.
    * @param  errorCounter      A value that will be used to keep track of the
    *                           number of errors encountered while searching.
    * @param  rcCounter         The result code counter to use for keeping track
@@ -192,6 +198,7 @@ final class AuthRateThread
                  final List<Control> bindControls,
                  final CyclicBarrier startBarrier,
                  final AtomicLong authCounter, final AtomicLong authDurations,
+                 final LatencyHistogram latencyHistogram,
                  final AtomicLong errorCounter,
                  final ResultCodeCounter rcCounter,
                  final FixedRateBarrier rateBarrier)
@@ -208,6 +215,7 @@ final class AuthRateThread
     this.bindOnly         = bindOnly;
     this.authCounter      = authCounter;
     this.authDurations    = authDurations;
+    this.latencyHistogram = latencyHistogram;
     this.errorCounter     = errorCounter;
     this.rcCounter        = rcCounter;
     this.startBarrier     = startBarrier;
@@ -427,8 +435,11 @@ final class AuthRateThread
       }
       finally
       {
+        final long durationNanos = System.nanoTime() - startTime;
         authCounter.incrementAndGet();
-        authDurations.addAndGet(System.nanoTime() - startTime);
+        authDurations.addAndGet(durationNanos);
+        latencyHistogram.record(durationNanos,
+             authRate.getCoordinatedOmissionIntervalNanos());
       }
     }
 
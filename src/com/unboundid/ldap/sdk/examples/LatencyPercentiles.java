@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.examples;
+
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.util.FixedRateBarrier;
+import com.unboundid.util.FormattableColumn;
+import com.unboundid.util.HorizontalAlignment;
+import com.unboundid.util.LatencyHistogram;
+import com.unboundid.util.ObjectPair;
+
+
+
+/**
+ * This class provides a set of utility methods that may be used by the rate
+ * tools to report latency percentiles.
+ */
+final class LatencyPercentiles
+{
+  /**
+   * The percentiles that will be reported, in addition to the maximum value.
+   */
+  private static final double[] PERCENTILES = { 50.0d, 90.0d, 99.0d, 99.9d };
+
+
+
+  /**
+   * The labels that will be used for the percentile columns, including the
+   * maximum value column.
+   */
+  private static final String[] COLUMN_LABELS =
+  {
+    "50% Dur ms",
+    "90% Dur ms",
+    "99% Dur ms",
+    "99.9% Dur ms",
+    "Max Dur ms"
+  };
+
+
+
+  /**
+   * Prevent this class from being instantiated.
+   */
+  private LatencyPercentiles()
+  {
+    // No implementation is required.
+  }
+
+
+
+  /**
+   * Adds columns for the latency percentiles to the provided list.
+   *
+   * @param  columns  The list to which the columns should be added.
+   * @param  label    The label that should appear above the percentile labels
+   *                  for each column (for example, "Recent" or "Overall").
+   */
+  static void addColumns(final List<FormattableColumn> columns,
+                         final String label)
+  {
+    for (final String columnLabel : COLUMN_LABELS)
+    {
+      columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, label,
+           columnLabel));
+    }
+  }
+
+
+
+  /**
+   * Adds the latency percentiles from the provided histogram, in
+   * milliseconds, to the provided row.  The histogram is expected to contain
+   * durations in nanoseconds.
+   *
+   * @param  row        The row to which the values should be added.
+   * @param  histogram  The histogram from which to obtain the values.
+   */
+  static void addValues(final List<Object> row,
+                        final LatencyHistogram histogram)
+  {
+    for (final double percentile : PERCENTILES)
+    {
+      row.add(histogram.getValueAtPercentile(percentile) / 1000000.0d);
+    }
+
+    row.add(histogram.getMaxValue() / 1000000.0d);
+  }
+
+
+
+  /**
+   * Adds the provided value to the provided row in place of each latency
+   * percentile.
+   *
+   * @param  row    The row to which the values should be added.
+   * @param  value  The value to add for each latency percentile.
+   */
+  static void addPlaceholders(final List<Object> row, final String value)
+  {
+    for (int i=0; i < COLUMN_LABELS.length; i++)
+    {
+      row.add(value);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a histogram containing all of the values recorded in the
+   * provided histograms since they were last reset, and resets them.
+   *
+   * @param  histograms  The histograms for which to obtain the values.
+   *
+   * @return  A histogram containing all of the values recorded in the provided
+   *          histograms since they were last reset.
+   */
+  static LatencyHistogram getIntervalHistogram(
+                               final LatencyHistogram[] histograms)
+  {
+    final LatencyHistogram intervalHistogram = new LatencyHistogram();
+    for (final LatencyHistogram h : histograms)
+    {
+      intervalHistogram.add(h.getSnapshot(true));
+    }
+
+    return intervalHistogram;
+  }
+
+
+
+  /**
+   * Retrieves the length of time in nanoseconds that is expected to elapse
+   * between operations on each thread when operations are issued at the
+   * current target rate of the provided barrier.  This may be used to correct
+   * operation durations for coordinated omission.
+   *
+   * @param  barrier     The barrier used to control the rate of operations.
+   *                     It may be {@code null} if no correction should be
+   *                     performed.
+   * @param  numThreads  The number of threads issuing operations.
+   *
+   * @return  The length of time in nanoseconds that is expected to elapse
+   *          between operations on each thread, or zero if no correction
+   *          should be performed.
+   */
+  static long getExpectedIntervalNanos(final FixedRateBarrier barrier,
+                                       final int numThreads)
+  {
+    if (barrier == null)
+    {
+      return 0L;
+    }
+
+    final ObjectPair<Long,Integer> targetRate = barrier.getTargetRate();
+    if (targetRate.getSecond() <= 0)
+    {
+      return 0L;
+    }
+
+    return TimeUnit.MILLISECONDS.toNanos(targetRate.getFirst()) * numThreads /
+         targetRate.getSecond();
+  }
+}
@@ -50,6 +50,7 @@ import com.unboundid.util.FixedRateBarrier;
 import com.unboundid.util.FormattableColumn;
 import com.unboundid.util.HorizontalAlignment;
 import com.unboundid.util.LDAPCommandLineTool;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.OutputFormat;
 import com.unboundid.util.RateAdjustor;
@@ -153,6 +154,16 @@ import static com.unboundid.util.StaticUtils.*;
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
  *       display-friendly format.</LI>
+ *   <LI>"--latencyPercentiles" -- Include the 50th, 90th, 99th, and 99.9th
+ *       percentile and maximum modify durations for each interval and for the
+ *       overall run in the output.</LI>
+ *   <LI>"--correctForCoordinatedOmission" -- Indicates that the modify
+ *       durations used for the latency percentiles should be corrected for
+ *       coordinated omission by also accounting for the modifications that
+ *       would have been issued at the target rate while a slow modification
+ *       was in progress.  This may only be used in conjunction with the
+ *       "--latencyPercentiles" argument and either the "--ratePerSecond" or
+ *       "--variableRateData" argument.</LI>
  * </UL>
  */
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
@@ -170,6 +181,10 @@ public final class ModRate
   // Indicates whether a request has been made to stop running.
   private final AtomicBoolean stopRequested;
 
+  // The argument used to indicate whether to correct modify durations for
+  // coordinated omission.
+  private BooleanArgument correctForCoordinatedOmission;
+
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
@@ -177,6 +192,10 @@ public final class ModRate
   // of replace.
   private BooleanArgument increment;
 
+  // The argument used to indicate whether to include latency percentiles in
+  // the output.
+  private BooleanArgument latencyPercentiles;
+
   // Indicates that modify requests should include the permissive modify request
   // control.
   private BooleanArgument permissiveModify;
@@ -262,6 +281,10 @@ public final class ModRate
   // A wakeable sleeper that will be used to sleep between reporting intervals.
   private final WakeableSleeper sleeper;
 
+  // The barrier used to determine the expected interval between modifications
+  // when correcting modify durations for coordinated omission.
+  private volatile FixedRateBarrier coordinatedOmissionBarrier;
+
 
 
   /**
@@ -712,6 +735,24 @@ public final class ModRate
     parser.addArgument(sampleRateFile);
     parser.addExclusiveArgumentSet(variableRateData, sampleRateFile);
 
+    description = "Indicates that the modify durations used for the " +
+                  "latency percentiles should be corrected for coordinated " +
+                  "omission.  If a modification takes longer than the " +
+                  "interval at which each thread is expected to issue " +
+                  "modifications to achieve the target rate, then the " +
+                  "durations of the modifications that would have been " +
+                  "issued in the meantime will also be accounted for.  This " +
+                  "may only be used in conjunction with the " +
+                  "--latencyPercentiles argument and either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    correctForCoordinatedOmission = new BooleanArgument(null,
+         "correctForCoordinatedOmission", 1, description);
+    correctForCoordinatedOmission.setArgumentGroupName(
+         "Rate Management Arguments");
+    correctForCoordinatedOmission.addLongIdentifier(
+         "correct-for-coordinated-omission", true);
+    parser.addArgument(correctForCoordinatedOmission);
+
     description = "The number of intervals to complete before beginning " +
                   "overall statistics collection.  Specifying a nonzero " +
                   "number of warm-up intervals gives the client and server " +
@@ -750,6 +791,14 @@ public final class ModRate
     csvFormat = new BooleanArgument('c', "csv", 1, description);
     parser.addArgument(csvFormat);
 
+    description = "Include the 50th, 90th, 99th, and 99.9th percentile and " +
+                  "maximum modify durations for each interval and for the " +
+                  "overall run in the output.";
+    latencyPercentiles = new BooleanArgument(null, "latencyPercentiles", 1,
+         description);
+    latencyPercentiles.addLongIdentifier("latency-percentiles", true);
+    parser.addArgument(latencyPercentiles);
+
     description = "Specifies the seed to use for the random number generator.";
     randomSeed = new IntegerArgument('R', "randomSeed", false, 1, "{value}",
          description);
@@ -766,6 +815,14 @@ public final class ModRate
     // increment argument is provided.
     parser.addExclusiveArgumentSet(increment, valueLength);
     parser.addExclusiveArgumentSet(increment, valueCount);
+
+
+    // The correctForCoordinatedOmission argument can only be used if latency
+    // percentiles are requested and a target rate is provided.
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         latencyPercentiles);
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         ratePerSecond, variableRateData);
   }
 
 
@@ -967,6 +1024,11 @@ public final class ModRate
            new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
     }
 
+    if (correctForCoordinatedOmission.isPresent())
+    {
+      coordinatedOmissionBarrier = fixedRateBarrier;
+    }
+
 
     // If --variableRateData was specified, then initialize a RateAdjustor.
     RateAdjustor rateAdjustor = null;
@@ -1040,18 +1102,30 @@ public final class ModRate
       outputFormat = OutputFormat.COLUMNS;
     }
 
+    final ArrayList<FormattableColumn> columns =
+         new ArrayList<FormattableColumn>(15);
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Mods/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Avg Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Errors/Sec"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Recent");
+    }
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Mods/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Avg Dur ms"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Overall");
+    }
+
     final ColumnFormatter formatter = new ColumnFormatter(includeTimestamp,
          timeFormat, outputFormat, " ",
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Mods/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Avg Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Errors/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Mods/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Avg Dur ms"));
+         columns.toArray(new FormattableColumn[columns.size()]));
 
 
     // Create values to use for statistics collection.
@@ -1060,6 +1134,10 @@ public final class ModRate
     final AtomicLong        modDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter    = new ResultCodeCounter();
 
+    final LatencyHistogram overallHistogram = new LatencyHistogram();
+    final LatencyHistogram[] latencyHistograms =
+         new LatencyHistogram[numThreads.getValue()];
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1075,6 +1153,8 @@ public final class ModRate
     final ModRateThread[] threads = new ModRateThread[numThreads.getValue()];
     for (int i=0; i < threads.length; i++)
     {
+      latencyHistograms[i] = new LatencyHistogram();
+
       final LDAPConnection connection;
       try
       {
@@ -1093,7 +1173,8 @@ public final class ModRate
            increment.isPresent(), incrementAmount.getValue(), controlArray,
            authzIDPattern, random.nextLong(),
            iterationsBeforeReconnect.getValue(), barrier, modCounter,
-           modDurations, errorCounter, rcCounter, fixedRateBarrier);
+           modDurations, latencyHistograms[i], errorCounter, rcCounter,
+           fixedRateBarrier);
       threads[i].start();
     }
 
@@ -1185,6 +1266,9 @@ public final class ModRate
       final double recentModRate = recentNumMods / numSeconds;
       final double recentErrorRate  = recentNumErrors / numSeconds;
 
+      final LatencyHistogram recentHistogram =
+           LatencyPercentiles.getIntervalHistogram(latencyHistograms);
+
       final double recentAvgDuration;
       if (recentNumMods > 0L)
       {
@@ -1195,10 +1279,24 @@ public final class ModRate
         recentAvgDuration = 0.0d;
       }
 
+      final ArrayList<Object> row = new ArrayList<Object>(15);
+      row.add(recentModRate);
+      row.add(recentAvgDuration);
+      row.add(recentErrorRate);
+      if (latencyPercentiles.isPresent())
+      {
+        LatencyPercentiles.addValues(row, recentHistogram);
+      }
+
       if (warmUp && (remainingWarmUpIntervals > 0))
       {
-        out(formatter.formatRow(recentModRate, recentAvgDuration,
-             recentErrorRate, "warming up", "warming up"));
+        row.add("warming up");
+        row.add("warming up");
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addPlaceholders(row, "warming up");
+        }
+        out(formatter.formatRow(row.toArray()));
 
         remainingWarmUpIntervals--;
         if (remainingWarmUpIntervals == 0)
@@ -1233,8 +1331,15 @@ public final class ModRate
           overallAvgDuration = 0.0d;
         }
 
-        out(formatter.formatRow(recentModRate, recentAvgDuration,
-             recentErrorRate, overallAuthRate, overallAvgDuration));
+        overallHistogram.add(recentHistogram);
+
+        row.add(overallAuthRate);
+        row.add(overallAvgDuration);
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addValues(row, overallHistogram);
+        }
+        out(formatter.formatRow(row.toArray()));
 
         lastNumMods     = numMods;
         lastNumErrors   = numErrors;
@@ -1307,6 +1412,23 @@ public final class ModRate
 
 
 
+  /**
+   * Retrieves the length of time in nanoseconds that is expected to elapse
+   * between modifications on each thread at the current target rate, for use
+   * in correcting modify durations for coordinated omission.
+   *
+   * @return  The length of time in nanoseconds that is expected to elapse
+   *          between modifications on each thread, or zero if modify
+   *          durations should not be corrected for coordinated omission.
+   */
+  long getCoordinatedOmissionIntervalNanos()
+  {
+    return LatencyPercentiles.getExpectedIntervalNanos(
+         coordinatedOmissionBarrier, numThreads.getValue());
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -39,6 +39,7 @@ import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.controls.ProxiedAuthorizationV2RequestControl;
 import com.unboundid.util.Debug;
 import com.unboundid.util.FixedRateBarrier;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ResultCodeCounter;
 import com.unboundid.util.ValuePattern;
 
@@ -96,6 +97,9 @@ final class ModRateThread
   // The connection to use for the modifications.
   private LDAPConnection connection;
 
+  // The histogram used to record the durations of the modifications.
+  private final LatencyHistogram latencyHistogram;
+
   // The number of iterations to request on a connection before closing and
   // re-establishing it.
   private final long iterationsBeforeReconnect;
@@ -171,6 +175,9 @@ final class ModRateThread
    * @param  modDurations               A value that will be used to keep track
    *                                    of the total duration for all
    *                                    modifications.
+   * @param  latencyHistogram           The histogram that will be used to
+   *                                    record the duration of each
+   *                                    modification.
    * @param  errorCounter               A value that will be used to keep track
    *                                    of the number of errors encountered
    *                                    while processing.
@@ -189,7 +196,9 @@ final class ModRateThread
                 final Control[] modifyControls, final ValuePattern authzID,
                 final long randomSeed, final long iterationsBeforeReconnect,
                 final CyclicBarrier startBarrier, final AtomicLong modCounter,
-                final AtomicLong modDurations, final AtomicLong errorCounter,
+                final AtomicLong modDurations,
+                final LatencyHistogram latencyHistogram,
+                final AtomicLong errorCounter,
                 final ResultCodeCounter rcCounter,
                 final FixedRateBarrier rateBarrier)
   {
@@ -210,6 +219,7 @@ final class ModRateThread
     this.iterationsBeforeReconnect = iterationsBeforeReconnect;
     this.modCounter                = modCounter;
     this.modDurations              = modDurations;
+    this.latencyHistogram          = latencyHistogram;
     this.errorCounter              = errorCounter;
     this.rcCounter                 = rcCounter;
     this.startBarrier              = startBarrier;
@@ -366,8 +376,11 @@ final class ModRateThread
         }
       }
 
+      final long durationNanos = System.nanoTime() - startTime;
       modCounter.incrementAndGet();
-      modDurations.addAndGet(System.nanoTime() - startTime);
+      modDurations.addAndGet(durationNanos);
+      latencyHistogram.record(durationNanos,
+           modRate.getCoordinatedOmissionIntervalNanos());
     }
 
     if (connection != null)
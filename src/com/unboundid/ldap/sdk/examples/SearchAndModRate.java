@@ -51,6 +51,7 @@ import com.unboundid.util.FixedRateBarrier;
 import com.unboundid.util.FormattableColumn;
 import com.unboundid.util.HorizontalAlignment;
 import com.unboundid.util.LDAPCommandLineTool;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.OutputFormat;
 import com.unboundid.util.RateAdjustor;
@@ -176,6 +177,16 @@ import static com.unboundid.util.StaticUtils.*;
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
  *       display-friendly format.</LI>
+ *   <LI>"--latencyPercentiles" -- Include the 50th, 90th, 99th, and 99.9th
+ *       percentile and maximum search and modify durations for each interval
+ *       and for the overall run in the output.</LI>
+ *   <LI>"--correctForCoordinatedOmission" -- Indicates that the search
+ *       durations used for the latency percentiles should be corrected for
+ *       coordinated omission by also accounting for the searches that would
+ *       have been issued at the target rate while a slow search was in
+ *       progress.  This may only be used in conjunction with the
+ *       "--latencyPercentiles" argument and either the "--ratePerSecond" or
+ *       "--variableRateData" argument.</LI>
  * </UL>
  */
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
@@ -193,9 +204,17 @@ public final class SearchAndModRate
   // Indicates whether a request has been made to stop running.
   private final AtomicBoolean stopRequested;
 
+  // The argument used to indicate whether to correct search durations for
+  // coordinated omission.
+  private BooleanArgument correctForCoordinatedOmission;
+
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
+  // The argument used to indicate whether to include latency percentiles in
+  // the output.
+  private BooleanArgument latencyPercentiles;
+
   // Indicates that modify requests should include the permissive modify request
   // control.
   private BooleanArgument permissiveModify;
@@ -293,6 +312,10 @@ public final class SearchAndModRate
   // A wakeable sleeper that will be used to sleep between reporting intervals.
   private final WakeableSleeper sleeper;
 
+  // The barrier used to determine the expected interval between searches when
+  // correcting search durations for coordinated omission.
+  private volatile FixedRateBarrier coordinatedOmissionBarrier;
+
 
 
   /**
@@ -779,6 +802,24 @@ public final class SearchAndModRate
     parser.addArgument(sampleRateFile);
     parser.addExclusiveArgumentSet(variableRateData, sampleRateFile);
 
+    description = "Indicates that the search durations used for the " +
+                  "latency percentiles should be corrected for coordinated " +
+                  "omission.  If a search takes longer than the interval at " +
+                  "which each thread is expected to issue searches to " +
+                  "achieve the target rate, then the durations of the " +
+                  "searches that would have been issued in the meantime " +
+                  "will also be accounted for.  Modify durations are not " +
+                  "corrected.  This may only be used in conjunction with " +
+                  "the --latencyPercentiles argument and either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    correctForCoordinatedOmission = new BooleanArgument(null,
+         "correctForCoordinatedOmission", 1, description);
+    correctForCoordinatedOmission.setArgumentGroupName(
+         "Rate Management Arguments");
+    correctForCoordinatedOmission.addLongIdentifier(
+         "correct-for-coordinated-omission", true);
+    parser.addArgument(correctForCoordinatedOmission);
+
     description = "The number of intervals to complete before beginning " +
                   "overall statistics collection.  Specifying a nonzero " +
                   "number of warm-up intervals gives the client and server " +
@@ -816,11 +857,27 @@ public final class SearchAndModRate
     csvFormat = new BooleanArgument('c', "csv", 1, description);
     parser.addArgument(csvFormat);
 
+    description = "Include the 50th, 90th, 99th, and 99.9th percentile and " +
+                  "maximum search and modify durations for each interval " +
+                  "and for the overall run in the output.";
+    latencyPercentiles = new BooleanArgument(null, "latencyPercentiles", 1,
+         description);
+    latencyPercentiles.addLongIdentifier("latency-percentiles", true);
+    parser.addArgument(latencyPercentiles);
+
     description = "Specifies the seed to use for the random number generator.";
     randomSeed = new IntegerArgument('R', "randomSeed", false, 1, "{value}",
          description);
     randomSeed.addLongIdentifier("random-seed", true);
     parser.addArgument(randomSeed);
+
+
+    // The correctForCoordinatedOmission argument can only be used if latency
+    // percentiles are requested and a target rate is provided.
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         latencyPercentiles);
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         ratePerSecond, variableRateData);
   }
 
 
@@ -1060,6 +1117,11 @@ public final class SearchAndModRate
            new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
     }
 
+    if (correctForCoordinatedOmission.isPresent())
+    {
+      coordinatedOmissionBarrier = fixedRateBarrier;
+    }
+
 
     // If --variableRateData was specified, then initialize a RateAdjustor.
     RateAdjustor rateAdjustor = null;
@@ -1133,26 +1195,40 @@ public final class SearchAndModRate
       outputFormat = OutputFormat.COLUMNS;
     }
 
+    final ArrayList<FormattableColumn> columns =
+         new ArrayList<FormattableColumn>(29);
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Searches/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Srch Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Mods/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Mod Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Errors/Sec"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Recent Srch");
+      LatencyPercentiles.addColumns(columns, "Recent Mod");
+    }
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Searches/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Srch Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Mods/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Mod Dur ms"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Overall Srch");
+      LatencyPercentiles.addColumns(columns, "Overall Mod");
+    }
+
     final ColumnFormatter formatter = new ColumnFormatter(includeTimestamp,
          timeFormat, outputFormat, " ",
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Searches/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Srch Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Mods/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Mod Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Errors/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Searches/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Srch Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Mods/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Mod Dur ms"));
+         columns.toArray(new FormattableColumn[columns.size()]));
 
 
     // Create values to use for statistics collection.
@@ -1163,6 +1239,13 @@ public final class SearchAndModRate
     final AtomicLong        searchDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter       = new ResultCodeCounter();
 
+    final LatencyHistogram overallSearchHistogram = new LatencyHistogram();
+    final LatencyHistogram overallModHistogram = new LatencyHistogram();
+    final LatencyHistogram[] searchHistograms =
+         new LatencyHistogram[numThreads.getValue()];
+    final LatencyHistogram[] modHistograms =
+         new LatencyHistogram[numThreads.getValue()];
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1175,6 +1258,9 @@ public final class SearchAndModRate
          new SearchAndModRateThread[numThreads.getValue()];
     for (int i=0; i < threads.length; i++)
     {
+      searchHistograms[i] = new LatencyHistogram();
+      modHistograms[i] = new LatencyHistogram();
+
       final LDAPConnection connection;
       try
       {
@@ -1194,7 +1280,8 @@ public final class SearchAndModRate
            simplePageSize.getValue(), searchControls, modifyControls,
            iterationsBeforeReconnect.getValue(), random.nextLong(), barrier,
            searchCounter, modCounter, searchDurations, modDurations,
-           errorCounter, rcCounter, fixedRateBarrier);
+           searchHistograms[i], modHistograms[i], errorCounter, rcCounter,
+           fixedRateBarrier);
       threads[i].start();
     }
 
@@ -1298,6 +1385,11 @@ public final class SearchAndModRate
       final double recentModRate = recentNumMods / numSeconds;
       final double recentErrorRate  = recentNumErrors / numSeconds;
 
+      final LatencyHistogram recentSearchHistogram =
+           LatencyPercentiles.getIntervalHistogram(searchHistograms);
+      final LatencyHistogram recentModHistogram =
+           LatencyPercentiles.getIntervalHistogram(modHistograms);
+
       final double recentAvgSearchDuration;
       if (recentNumSearches > 0L)
       {
@@ -1320,11 +1412,30 @@ public final class SearchAndModRate
         recentAvgModDuration = 0.0d;
       }
 
+      final ArrayList<Object> row = new ArrayList<Object>(29);
+      row.add(recentSearchRate);
+      row.add(recentAvgSearchDuration);
+      row.add(recentModRate);
+      row.add(recentAvgModDuration);
+      row.add(recentErrorRate);
+      if (latencyPercentiles.isPresent())
+      {
+        LatencyPercentiles.addValues(row, recentSearchHistogram);
+        LatencyPercentiles.addValues(row, recentModHistogram);
+      }
+
       if (warmUp && (remainingWarmUpIntervals > 0))
       {
-        out(formatter.formatRow(recentSearchRate, recentAvgSearchDuration,
-             recentModRate, recentAvgModDuration, recentErrorRate, "warming up",
-             "warming up", "warming up", "warming up"));
+        row.add("warming up");
+        row.add("warming up");
+        row.add("warming up");
+        row.add("warming up");
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addPlaceholders(row, "warming up");
+          LatencyPercentiles.addPlaceholders(row, "warming up");
+        }
+        out(formatter.formatRow(row.toArray()));
 
         remainingWarmUpIntervals--;
         if (remainingWarmUpIntervals == 0)
@@ -1372,10 +1483,19 @@ public final class SearchAndModRate
           overallAvgModDuration = 0.0d;
         }
 
-        out(formatter.formatRow(recentSearchRate, recentAvgSearchDuration,
-             recentModRate, recentAvgModDuration, recentErrorRate,
-             overallSearchRate, overallAvgSearchDuration, overallModRate,
-             overallAvgModDuration));
+        overallSearchHistogram.add(recentSearchHistogram);
+        overallModHistogram.add(recentModHistogram);
+
+        row.add(overallSearchRate);
+        row.add(overallAvgSearchDuration);
+        row.add(overallModRate);
+        row.add(overallAvgModDuration);
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addValues(row, overallSearchHistogram);
+          LatencyPercentiles.addValues(row, overallModHistogram);
+        }
+        out(formatter.formatRow(row.toArray()));
 
         lastNumSearches    = numSearches;
         lastNumMods        = numMods;
@@ -1451,6 +1571,23 @@ public final class SearchAndModRate
 
 
 
+  /**
+   * Retrieves the length of time in nanoseconds that is expected to elapse
+   * between searches on each thread at the current target rate, for use in
+   * correcting search durations for coordinated omission.
+   *
+   * @return  The length of time in nanoseconds that is expected to elapse
+   *          between searches on each thread, or zero if search durations
+   *          should not be corrected for coordinated omission.
+   */
+  long getCoordinatedOmissionIntervalNanos()
+  {
+    return LatencyPercentiles.getExpectedIntervalNanos(
+         coordinatedOmissionBarrier, numThreads.getValue());
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
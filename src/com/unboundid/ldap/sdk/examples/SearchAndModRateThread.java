@@ -47,6 +47,7 @@ import com.unboundid.ldap.sdk.controls.ProxiedAuthorizationV2RequestControl;
 import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
 import com.unboundid.util.Debug;
 import com.unboundid.util.FixedRateBarrier;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ResultCodeCounter;
 import com.unboundid.util.ValuePattern;
 
@@ -103,6 +104,12 @@ final class SearchAndModRateThread
   // The connection to use for the searches.
   private LDAPConnection connection;
 
+  // The histogram used to record the durations of the modifications.
+  private final LatencyHistogram modHistogram;
+
+  // The histogram used to record the durations of the searches.
+  private final LatencyHistogram searchHistogram;
+
   // The set of controls that should be included in modify requests.
   private final List<Control> modifyControls;
 
@@ -193,6 +200,11 @@ final class SearchAndModRateThread
    * @param  modDurations               A value that will be used to keep track
    *                                    of the total duration for all
    *                                    modifications.
+   * @param  searchHistogram            The histogram that will be used to
+   *                                    record the duration of each search.
+   * @param  modHistogram               The histogram that will be used to
+   *                                    record the duration of each
+   *                                    modification.
    * @param  errorCounter               A value that will be used to keep track
    *                                    of the number of errors encountered
    *                                    while searching.
@@ -214,7 +226,9 @@ final class SearchAndModRateThread
        final long randomSeed, final CyclicBarrier startBarrier,
        final AtomicLong searchCounter, final AtomicLong modCounter,
        final AtomicLong searchDurations, final AtomicLong modDurations,
-       final AtomicLong errorCounter, final ResultCodeCounter rcCounter,
+       final LatencyHistogram searchHistogram,
+       final LatencyHistogram modHistogram, final AtomicLong errorCounter,
+       final ResultCodeCounter rcCounter,
        final FixedRateBarrier rateBarrier)
   {
     setName("SearchAndModRate Thread " + threadNumber);
@@ -236,6 +250,8 @@ final class SearchAndModRateThread
     this.modCounter                 = modCounter;
     this.searchDurations            = searchDurations;
     this.modDurations               = modDurations;
+    this.searchHistogram            = searchHistogram;
+    this.modHistogram               = modHistogram;
     this.errorCounter               = errorCounter;
     this.rcCounter                  = rcCounter;
     this.startBarrier               = startBarrier;
@@ -446,8 +462,10 @@ searchLoop:
             }
             finally
             {
+              final long modDurationNanos = System.nanoTime() - modStartTime;
               modCounter.incrementAndGet();
-              modDurations.addAndGet(System.nanoTime() - modStartTime);
+              modDurations.addAndGet(modDurationNanos);
+              modHistogram.record(modDurationNanos);
             }
           }
 
@@ -487,8 +505,11 @@ searchLoop:
       }
       finally
       {
+        final long searchDurationNanos = System.nanoTime() - searchStartTime;
         searchCounter.incrementAndGet();
-        searchDurations.addAndGet(System.nanoTime() - searchStartTime);
+        searchDurations.addAndGet(searchDurationNanos);
+        searchHistogram.record(searchDurationNanos,
+             searchAndModRate.getCoordinatedOmissionIntervalNanos());
       }
     }
 
@@ -52,6 +52,7 @@ import com.unboundid.util.FixedRateBarrier;
 import com.unboundid.util.FormattableColumn;
 import com.unboundid.util.HorizontalAlignment;
 import com.unboundid.util.LDAPCommandLineTool;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ObjectPair;
 import com.unboundid.util.OutputFormat;
 import com.unboundid.util.RateAdjustor;
@@ -180,6 +181,16 @@ import static com.unboundid.util.StaticUtils.*;
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
  *       display-friendly format.</LI>
+ *   <LI>"--latencyPercentiles" -- Include the 50th, 90th, 99th, and 99.9th
+ *       percentile and maximum search durations for each interval and for the
+ *       overall run in the output.</LI>
+ *   <LI>"--correctForCoordinatedOmission" -- Indicates that the search
+ *       durations used for the latency percentiles should be corrected for
+ *       coordinated omission by also accounting for the searches that would
+ *       have been issued at the target rate while a slow search was in
+ *       progress.  This may only be used in conjunction with the
+ *       "--latencyPercentiles" argument and either the "--ratePerSecond" or
+ *       "--variableRateData" argument.</LI>
  * </UL>
  */
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
@@ -200,9 +211,17 @@ public final class SearchRate
   // The argument used to indicate whether to operate in asynchronous mode.
   private BooleanArgument asynchronousMode;
 
+  // The argument used to indicate whether to correct search durations for
+  // coordinated omission.
+  private BooleanArgument correctForCoordinatedOmission;
+
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
+  // The argument used to indicate whether to include latency percentiles in
+  // the output.
+  private BooleanArgument latencyPercentiles;
+
   // The argument used to indicate whether to suppress information about error
   // result codes.
   private BooleanArgument suppressErrors;
@@ -294,6 +313,10 @@ public final class SearchRate
   // A wakeable sleeper that will be used to sleep between reporting intervals.
   private final WakeableSleeper sleeper;
 
+  // The barrier used to determine the expected interval between searches when
+  // correcting search durations for coordinated omission.
+  private volatile FixedRateBarrier coordinatedOmissionBarrier;
+
 
 
   /**
@@ -751,6 +774,23 @@ public final class SearchRate
     parser.addArgument(sampleRateFile);
     parser.addExclusiveArgumentSet(variableRateData, sampleRateFile);
 
+    description = "Indicates that the search durations used for the " +
+                  "latency percentiles should be corrected for coordinated " +
+                  "omission.  If a search takes longer than the interval " +
+                  "at which each thread is expected to issue searches to " +
+                  "achieve the target rate, then the durations of the " +
+                  "searches that would have been issued in the meantime " +
+                  "will also be accounted for.  This may only be used in " +
+                  "conjunction with the --latencyPercentiles argument and " +
+                  "either the --ratePerSecond or --variableRateData argument.";
+    correctForCoordinatedOmission = new BooleanArgument(null,
+         "correctForCoordinatedOmission", 1, description);
+    correctForCoordinatedOmission.setArgumentGroupName(
+         "Rate Management Arguments");
+    correctForCoordinatedOmission.addLongIdentifier(
+         "correct-for-coordinated-omission", true);
+    parser.addArgument(correctForCoordinatedOmission);
+
     description = "The number of intervals to complete before beginning " +
                   "overall statistics collection.  Specifying a nonzero " +
                   "number of warm-up intervals gives the client and server " +
@@ -804,6 +844,14 @@ public final class SearchRate
     csvFormat = new BooleanArgument('c', "csv", 1, description);
     parser.addArgument(csvFormat);
 
+    description = "Include the 50th, 90th, 99th, and 99.9th percentile and " +
+                  "maximum search durations for each interval and for the " +
+                  "overall run in the output.";
+    latencyPercentiles = new BooleanArgument(null, "latencyPercentiles", 1,
+         description);
+    latencyPercentiles.addLongIdentifier("latency-percentiles", true);
+    parser.addArgument(latencyPercentiles);
+
     description = "Specifies the seed to use for the random number generator.";
     randomSeed = new IntegerArgument('R', "randomSeed", false, 1, "{value}",
          description);
@@ -816,6 +864,13 @@ public final class SearchRate
     parser.addDependentArgumentSet(maxOutstandingRequests, asynchronousMode);
 
     parser.addExclusiveArgumentSet(asynchronousMode, simplePageSize);
+
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         latencyPercentiles);
+    parser.addDependentArgumentSet(correctForCoordinatedOmission,
+         ratePerSecond, variableRateData);
+    parser.addExclusiveArgumentSet(asynchronousMode,
+         correctForCoordinatedOmission);
   }
 
 
@@ -1076,6 +1131,11 @@ public final class SearchRate
            new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
     }
 
+    if (correctForCoordinatedOmission.isPresent())
+    {
+      coordinatedOmissionBarrier = fixedRateBarrier;
+    }
+
 
     // If --variableRateData was specified, then initialize a RateAdjustor.
     RateAdjustor rateAdjustor = null;
@@ -1162,20 +1222,32 @@ public final class SearchRate
       outputFormat = OutputFormat.COLUMNS;
     }
 
+    final ArrayList<FormattableColumn> columns =
+         new ArrayList<FormattableColumn>(16);
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Searches/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Avg Dur ms"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Entries/Srch"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
+         "Errors/Sec"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Recent");
+    }
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Searches/Sec"));
+    columns.add(new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
+         "Avg Dur ms"));
+    if (latencyPercentiles.isPresent())
+    {
+      LatencyPercentiles.addColumns(columns, "Overall");
+    }
+
     final ColumnFormatter formatter = new ColumnFormatter(includeTimestamp,
          timeFormat, outputFormat, " ",
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Searches/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Avg Dur ms"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Entries/Srch"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Recent",
-                  "Errors/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Searches/Sec"),
-         new FormattableColumn(12, HorizontalAlignment.RIGHT, "Overall",
-                  "Avg Dur ms"));
+         columns.toArray(new FormattableColumn[columns.size()]));
 
 
     // Create values to use for statistics collection.
@@ -1185,6 +1257,10 @@ public final class SearchRate
     final AtomicLong        searchDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter       = new ResultCodeCounter();
 
+    final LatencyHistogram overallHistogram = new LatencyHistogram();
+    final LatencyHistogram[] latencyHistograms =
+         new LatencyHistogram[numThreads.getValue()];
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1196,6 +1272,8 @@ public final class SearchRate
          new SearchRateThread[numThreads.getValue()];
     for (int i=0; i < threads.length; i++)
     {
+      latencyHistograms[i] = new LatencyHistogram();
+
       final LDAPConnection connection;
       try
       {
@@ -1215,8 +1293,8 @@ public final class SearchRate
            typesOnly.isPresent(), filterPattern, attrs, authzIDPattern,
            simplePageSize.getValue(), controlList,
            iterationsBeforeReconnect.getValue(), barrier, searchCounter,
-           entryCounter, searchDurations, errorCounter, rcCounter,
-           fixedRateBarrier, asyncSemaphore);
+           entryCounter, searchDurations, latencyHistograms[i], errorCounter,
+           rcCounter, fixedRateBarrier, asyncSemaphore);
       threads[i].start();
     }
 
@@ -1313,6 +1391,9 @@ public final class SearchRate
       final double recentSearchRate = recentNumSearches / numSeconds;
       final double recentErrorRate  = recentNumErrors / numSeconds;
 
+      final LatencyHistogram recentHistogram =
+           LatencyPercentiles.getIntervalHistogram(latencyHistograms);
+
       final double recentAvgDuration;
       final double recentEntriesPerSearch;
       if (recentNumSearches > 0L)
@@ -1327,11 +1408,26 @@ public final class SearchRate
       }
 
 
+      final ArrayList<Object> row = new ArrayList<Object>(16);
+      row.add(recentSearchRate);
+      row.add(recentAvgDuration);
+      row.add(recentEntriesPerSearch);
+      row.add(recentErrorRate);
+      if (latencyPercentiles.isPresent())
+      {
+        LatencyPercentiles.addValues(row, recentHistogram);
+      }
+
+
       if (warmUp && (remainingWarmUpIntervals > 0))
       {
-        out(formatter.formatRow(recentSearchRate, recentAvgDuration,
-             recentEntriesPerSearch, recentErrorRate, "warming up",
-             "warming up"));
+        row.add("warming up");
+        row.add("warming up");
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addPlaceholders(row, "warming up");
+        }
+        out(formatter.formatRow(row.toArray()));
 
         remainingWarmUpIntervals--;
         if (remainingWarmUpIntervals == 0)
@@ -1366,9 +1462,15 @@ public final class SearchRate
           overallAvgDuration = 0.0d;
         }
 
-        out(formatter.formatRow(recentSearchRate, recentAvgDuration,
-             recentEntriesPerSearch, recentErrorRate, overallSearchRate,
-             overallAvgDuration));
+        overallHistogram.add(recentHistogram);
+
+        row.add(overallSearchRate);
+        row.add(overallAvgDuration);
+        if (latencyPercentiles.isPresent())
+        {
+          LatencyPercentiles.addValues(row, overallHistogram);
+        }
+        out(formatter.formatRow(row.toArray()));
 
         lastNumSearches = numSearches;
         lastNumEntries  = numEntries;
@@ -1471,6 +1573,23 @@ public final class SearchRate
 
 
 
+  /**
+   * Retrieves the length of time in nanoseconds that is expected to elapse
+   * between searches on each thread at the current target rate, for use in
+   * correcting search durations for coordinated omission.
+   *
+   * @return  The length of time in nanoseconds that is expected to elapse
+   *          between searches on each thread, or zero if search durations
+   *          should not be corrected for coordinated omission.
+   */
+  long getCoordinatedOmissionIntervalNanos()
+  {
+    return LatencyPercentiles.getExpectedIntervalNanos(
+         coordinatedOmissionBarrier, numThreads.getValue());
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
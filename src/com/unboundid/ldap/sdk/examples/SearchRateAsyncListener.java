@@ -32,6 +32,7 @@ import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ResultCodeCounter;
 
 
@@ -62,6 +63,9 @@ final class SearchRateAsyncListener
   // The value that will be updated with total duration of the searches.
   private final AtomicLong searchDurations;
 
+  // The histogram used to record the durations of the searches.
+  private final LatencyHistogram latencyHistogram;
+
   // The result code for the search.
   private final AtomicReference<ResultCode> resultCode;
 
@@ -80,35 +84,39 @@ final class SearchRateAsyncListener
   /**
    * Creates a new instance of this listener with the provided information.
    *
-   * @param  searchCounter    A value that will be used to keep track of the
-   *                          total number of searches performed.
-   * @param  entryCounter     A value that will be used to keep track of the
-   *                          total number of entries returned.
-   * @param  searchDurations  A value that will be used to keep track of the
-   *                          total duration for all searches.
-   * @param  errorCounter     A value that will be used to keep track of the
-   *                          number of errors encountered while searching.
-   * @param  rcCounter        The result code counter to use for keeping track
-   *                          of the result codes for failed operations.
-   * @param  asyncSemaphore   The semaphore used ot limit the total number of
-   *                          outstanding asynchronous requests.
-   * @param  resultCode       The result code for the search thread.
+   * @param  searchCounter     A value that will be used to keep track of the
+   *                           total number of searches performed.
+   * @param  entryCounter      A value that will be used to keep track of the
+   *                           total number of entries returned.
+   * @param  searchDurations   A value that will be used to keep track of the
+   *                           total duration for all searches.
+   * @param  latencyHistogram  The histogram that will be used to record the
+   *                           duration of the search.
+   * @param  errorCounter      A value that will be used to keep track of the
+   *                           number of errors encountered while searching.
+   * @param  rcCounter         The result code counter to use for keeping track
+   *                           of the result codes for failed operations.
+   * @param  asyncSemaphore    The semaphore used ot limit the total number of
+   *                           outstanding asynchronous requests.
+   * @param  resultCode        The result code for the search thread.
    */
   SearchRateAsyncListener(final AtomicLong searchCounter,
                           final AtomicLong entryCounter,
                           final AtomicLong searchDurations,
+                          final LatencyHistogram latencyHistogram,
                           final AtomicLong errorCounter,
                           final ResultCodeCounter rcCounter,
                           final Semaphore asyncSemaphore,
                           final AtomicReference<ResultCode> resultCode)
   {
-    this.searchCounter   = searchCounter;
-    this.entryCounter    = entryCounter;
-    this.searchDurations = searchDurations;
-    this.errorCounter    = errorCounter;
-    this.rcCounter       = rcCounter;
-    this.asyncSemaphore  = asyncSemaphore;
-    this.resultCode      = resultCode;
+    this.searchCounter    = searchCounter;
+    this.entryCounter     = entryCounter;
+    this.searchDurations  = searchDurations;
+    this.latencyHistogram = latencyHistogram;
+    this.errorCounter     = errorCounter;
+    this.rcCounter        = rcCounter;
+    this.asyncSemaphore   = asyncSemaphore;
+    this.resultCode       = resultCode;
 
     startTime = System.nanoTime();
   }
@@ -145,7 +153,9 @@ final class SearchRateAsyncListener
   public void searchResultReceived(final AsyncRequestID requestID,
                                    final SearchResult searchResult)
   {
-    searchDurations.addAndGet(System.nanoTime() - startTime);
+    final long durationNanos = System.nanoTime() - startTime;
+    searchDurations.addAndGet(durationNanos);
+    latencyHistogram.record(durationNanos);
 
     if (asyncSemaphore != null)
     {
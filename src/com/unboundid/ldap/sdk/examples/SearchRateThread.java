@@ -46,6 +46,7 @@ import com.unboundid.ldap.sdk.controls.ProxiedAuthorizationV2RequestControl;
 import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
 import com.unboundid.util.Debug;
 import com.unboundid.util.FixedRateBarrier;
+import com.unboundid.util.LatencyHistogram;
 import com.unboundid.util.ResultCodeCounter;
 import com.unboundid.util.ValuePattern;
 
@@ -90,6 +91,9 @@ final class SearchRateThread
   // Indicates whether to operate in asynchronous mode.
   private final boolean async;
 
+  // The histogram used to record the durations of the searches.
+  private final LatencyHistogram latencyHistogram;
+
   // The connection to use for the searches.
   private LDAPConnection connection;
 
@@ -192,6 +196,8 @@ final class SearchRateThread
    *                                    of the total number of entries returned.
    * @param  searchDurations            A value that will be used to keep track
    *                                    of the total duration for all searches.
+   * @param  latencyHistogram           The histogram that will be used to
+   *                                    record the duration of each search.
    * @param  errorCounter               A value that will be used to keep track
    *                                    of the number of errors encountered
    *                                    while searching.
@@ -219,6 +225,7 @@ final class SearchRateThread
                    final AtomicLong searchCounter,
                    final AtomicLong entryCounter,
                    final AtomicLong searchDurations,
+                   final LatencyHistogram latencyHistogram,
                    final AtomicLong errorCounter,
                    final ResultCodeCounter rcCounter,
                    final FixedRateBarrier rateBarrier,
@@ -241,6 +248,7 @@ final class SearchRateThread
     this.searchCounter             = searchCounter;
     this.entryCounter              = entryCounter;
     this.searchDurations           = searchDurations;
+    this.latencyHistogram          = latencyHistogram;
     this.errorCounter              = errorCounter;
     this.rcCounter                 = rcCounter;
     this.startBarrier              = startBarrier;
@@ -353,8 +361,8 @@ final class SearchRateThread
         }
 
         final SearchRateAsyncListener listener = new SearchRateAsyncListener(
-             searchCounter, entryCounter, searchDurations, errorCounter,
-             rcCounter, asyncSemaphore, resultCode);
+             searchCounter, entryCounter, searchDurations, latencyHistogram,
+             errorCounter, rcCounter, asyncSemaphore, resultCode);
 
         try
         {
@@ -486,8 +494,11 @@ final class SearchRateThread
           }
         }
 
+        final long durationNanos = System.nanoTime() - startTime;
         searchCounter.incrementAndGet();
-        searchDurations.addAndGet(System.nanoTime() - startTime);
+        searchDurations.addAndGet(durationNanos);
+        latencyHistogram.record(durationNanos,
+             searchRate.getCoordinatedOmissionIntervalNanos());
         entryCounter.addAndGet(entriesReturned);
       }
     }
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.CompiledFilter;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
@@ -66,7 +67,7 @@ public final class AddAttributeTransformation
   private final DN baseDN;
 
   // The filter to use to identify entries to which to add the attribute.
-  private final Filter filter;
+  private final CompiledFilter filter;
 
   // The schema to use when processing.
   private final Schema schema;
@@ -182,12 +183,12 @@ public final class AddAttributeTransformation
     // filter.
     if (filter == null)
     {
-      this.filter = Filter.createANDFilter();
+      this.filter = new CompiledFilter(Filter.createANDFilter(), s);
       examineFilter = false;
     }
     else
     {
-      this.filter = filter;
+      this.filter = new CompiledFilter(filter, s);
       if (filter.getFilterType() == Filter.FILTER_TYPE_AND)
       {
         examineFilter = (filter.getComponents().length > 0);
@@ -254,7 +255,7 @@ public final class AddAttributeTransformation
     // return the original entry.
     try
     {
-      if (examineFilter && (! filter.matchesEntry(e, schema)))
+      if (examineFilter && (! filter.matchesEntry(e)))
       {
         return e;
       }
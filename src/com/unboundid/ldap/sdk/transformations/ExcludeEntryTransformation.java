@@ -25,6 +25,7 @@ package com.unboundid.ldap.sdk.transformations;
 import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.unboundid.ldap.sdk.CompiledFilter;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
@@ -73,6 +74,10 @@ public final class ExcludeEntryTransformation
   // The filter to use to identify entries to exclude.
   private final Filter filter;
 
+  // A compiled representation of the filter.  It is not serialized, and will
+  // be re-created as needed after deserialization.
+  private transient volatile CompiledFilter compiledFilter;
+
   // The schema to use when processing.
   private final Schema schema;
 
@@ -175,6 +180,28 @@ public final class ExcludeEntryTransformation
         allEntriesMatchFilter = false;
       }
     }
+
+    compiledFilter = new CompiledFilter(this.filter, s);
+  }
+
+
+
+  /**
+   * Retrieves the compiled representation of the filter, creating it if
+   * necessary (e.g., after this transformation has been deserialized).
+   *
+   * @return  The compiled representation of the filter.
+   */
+  private CompiledFilter getCompiledFilter()
+  {
+    CompiledFilter f = compiledFilter;
+    if (f == null)
+    {
+      f = new CompiledFilter(filter, schema);
+      compiledFilter = f;
+    }
+
+    return f;
   }
 
 
@@ -212,7 +239,8 @@ public final class ExcludeEntryTransformation
     boolean matchesFilter;
     try
     {
-      matchesFilter = (allEntriesMatchFilter || filter.matchesEntry(e, schema));
+      matchesFilter =
+           (allEntriesMatchFilter || getCompiledFilter().matchesEntry(e));
     }
     catch (final Exception ex)
     {
@@ -174,6 +174,23 @@ public final class LDIFReader
 
 
 
+  /**
+   * When reading from a memory-mapped file, this specifies the approximate
+   * size in bytes of each chunk that will be split into records by a single
+   * thread.
+   */
+  private static final long MAPPED_CHUNK_SIZE = 1024L * 1024L;
+
+
+
+  /**
+   * When reading from a memory-mapped file, this specifies the number of
+   * chunks per parse thread that will be split into records at a time.
+   */
+  private static final int MAPPED_CHUNKS_PER_THREAD = 4;
+
+
+
   /**
    * Special entry used internally to signal that the LDIFReaderEntryTranslator
    * has signalled that a read Entry should be skipped by returning null,
@@ -214,9 +231,17 @@ public final class LDIFReader
 
 
 
-  // The buffered reader that will be used to read LDIF data.
+  // The buffered reader that will be used to read LDIF data.  This will be
+  // null when reading from a memory-mapped file.
   private final BufferedReader reader;
 
+  // The memory-mapped file from which the LDIF data will be read, if any.
+  private final MappedLDIFFile mappedFile;
+
+  // Indicates whether this reader has been closed.  This is only used when
+  // reading from a memory-mapped file.
+  private volatile boolean mappedFileClosed;
+
   // The behavior that should be exhibited when encountering duplicate attribute
   // values.
   private volatile DuplicateValueBehavior duplicateValueBehavior;
@@ -342,6 +367,118 @@ public final class LDIFReader
 
 
 
+  /**
+   * Creates a new LDIF reader that will read data from the specified file and
+   * parses the LDIF records asynchronously using the specified number of
+   * threads, optionally memory-mapping the file.
+   * <BR><BR>
+   * When the file is memory-mapped, it is divided into chunks at record
+   * boundaries (that is, at blank lines), and the parse threads are used both
+   * to split those chunks into records and to parse the records, so that
+   * reading is no longer limited by a single thread that reads the file one
+   * line at a time.  Records are still returned in the order in which they
+   * appear in the file, and line numbers in any exceptions still refer to
+   * lines in the file.  The file must be UTF-8-encoded, and it must not be
+   * altered while it is being read.
+   *
+   * @param  file                    The file from which the data is to be
+   *                                 read.  It must not be {@code null}.
+   * @param  numParseThreads         If this value is greater than zero, then
+   *                                 the specified number of threads will be
+   *                                 used to asynchronously read and parse the
+   *                                 LDIF file.
+   * @param  entryTranslator         The LDIFReaderEntryTranslator to apply to
+   *                                 entries before they are returned.  This is
+   *                                 normally {@code null}, which causes entries
+   *                                 to be returned unaltered.
+   * @param  changeRecordTranslator  The LDIFReaderChangeRecordTranslator to
+   *                                 apply to change records before they are
+   *                                 returned.  This is normally {@code null},
+   *                                 which causes change records to be returned
+   *                                 unaltered.
+   * @param  memoryMap               Indicates whether to memory-map the file.
+   *                                 This will be ignored if the number of parse
+   *                                 threads is zero.
+   *
+   * @throws  IOException  If a problem occurs while opening or mapping the
+   *                       file.
+   *
+   * @see #LDIFReader(BufferedReader, int, LDIFReaderEntryTranslator)
+   *      constructor for more details about asynchronous processing.
+   */
+  public LDIFReader(final File file, final int numParseThreads,
+              final LDIFReaderEntryTranslator entryTranslator,
+              final LDIFReaderChangeRecordTranslator changeRecordTranslator,
+              final boolean memoryMap)
+         throws IOException
+  {
+    this(createReaderForFile(file, numParseThreads, memoryMap),
+         createMappedFile(file, numParseThreads, memoryMap), numParseThreads,
+         entryTranslator, changeRecordTranslator);
+  }
+
+
+
+  /**
+   * Creates a buffered reader for the provided file if it is not going to be
+   * memory-mapped.
+   *
+   * @param  file             The file to be read.  It must not be
+   *                          {@code null}.
+   * @param  numParseThreads  The number of parse threads to use.
+   * @param  memoryMap        Indicates whether to memory-map the file.
+   *
+   * @return  The buffered reader to use to read the file, or {@code null} if
+   *          the file will be memory-mapped.
+   *
+   * @throws  IOException  If a problem occurs while opening the file.
+   */
+  private static BufferedReader createReaderForFile(final File file,
+                                     final int numParseThreads,
+                                     final boolean memoryMap)
+          throws IOException
+  {
+    ensureNotNull(file);
+
+    if (memoryMap && (numParseThreads > 0))
+    {
+      return null;
+    }
+
+    return new BufferedReader(new InputStreamReader(new FileInputStream(file),
+         Charset.forName("UTF-8")), DEFAULT_BUFFER_SIZE);
+  }
+
+
+
+  /**
+   * Memory-maps the provided file if appropriate.
+   *
+   * @param  file             The file to be read.  It must not be
+   *                          {@code null}.
+   * @param  numParseThreads  The number of parse threads to use.
+   * @param  memoryMap        Indicates whether to memory-map the file.
+   *
+   * @return  The memory-mapped file, or {@code null} if the file should not be
+   *          memory-mapped.
+   *
+   * @throws  IOException  If a problem occurs while mapping the file.
+   */
+  private static MappedLDIFFile createMappedFile(final File file,
+                                     final int numParseThreads,
+                                     final boolean memoryMap)
+          throws IOException
+  {
+    if (memoryMap && (numParseThreads > 0))
+    {
+      return new MappedLDIFFile(file);
+    }
+
+    return null;
+  }
+
+
+
   /**
    * Creates a new LDIF reader that will read data from the specified files in
    * the order in which they are provided and optionally parses the LDIF records
@@ -750,11 +887,47 @@ public final class LDIFReader
               final LDIFReaderEntryTranslator entryTranslator,
               final LDIFReaderChangeRecordTranslator changeRecordTranslator)
   {
-    ensureNotNull(reader);
+    this(reader, null, numParseThreads, entryTranslator,
+         changeRecordTranslator);
+  }
+
+
+
+  /**
+   * Creates a new LDIF reader that will read data from either the provided
+   * buffered reader or the provided memory-mapped file.
+   *
+   * @param  reader                  The buffered reader that will be used to
+   *                                 read the LDIF data.  It must be
+   *                                 {@code null} if and only if a
+   *                                 memory-mapped file is provided.
+   * @param  mappedFile              The memory-mapped file from which the LDIF
+   *                                 data will be read, if any.  If this is
+   *                                 provided, then the number of parse threads
+   *                                 must be greater than zero.
+   * @param  numParseThreads         The number of threads to use to read and
+   *                                 parse the LDIF data.
+   * @param  entryTranslator         The LDIFReaderEntryTranslator to apply to
+   *                                 entries before they are returned, if any.
+   * @param  changeRecordTranslator  The LDIFReaderChangeRecordTranslator to
+   *                                 apply to change records before they are
+   *                                 returned, if any.
+   */
+  private LDIFReader(final BufferedReader reader,
+               final MappedLDIFFile mappedFile, final int numParseThreads,
+               final LDIFReaderEntryTranslator entryTranslator,
+               final LDIFReaderChangeRecordTranslator changeRecordTranslator)
+  {
+    if (mappedFile == null)
+    {
+      ensureNotNull(reader);
+    }
     ensureTrue(numParseThreads >= 0,
                "LDIFReader.numParseThreads must not be negative.");
 
     this.reader = reader;
+    this.mappedFile = mappedFile;
+    mappedFileClosed = false;
     this.entryTranslator = entryTranslator;
     this.changeRecordTranslator = changeRecordTranslator;
 
@@ -796,8 +969,17 @@ public final class LDIFReader
            <UnparsedLDIFRecord, LDIFRecord>(pendingQueue, parallelParser,
                                             asyncParsedRecords);
 
-      final LineReaderThread lineReaderThread = new LineReaderThread();
-      lineReaderThread.start();
+      if (mappedFile == null)
+      {
+        final LineReaderThread lineReaderThread = new LineReaderThread();
+        lineReaderThread.start();
+      }
+      else
+      {
+        final MappedFileReaderThread mappedFileReaderThread =
+             new MappedFileReaderThread(numParseThreads);
+        mappedFileReaderThread.start();
+      }
     }
   }
 
@@ -928,7 +1110,14 @@ public final class LDIFReader
   public void close()
          throws IOException
   {
-    reader.close();
+    if (reader == null)
+    {
+      mappedFileClosed = true;
+    }
+    else
+    {
+      reader.close();
+    }
 
     if (isAsync())
     {
@@ -4355,6 +4544,298 @@ public final class LDIFReader
 
 
 
+  /**
+   * When processing a memory-mapped file in asynchronous mode, this thread is
+   * responsible for dividing the file into chunks, using multiple threads to
+   * split those chunks into raw, unparsed records, and submitting the records
+   * for processing in the order in which they appear in the file.
+   */
+  private final class MappedFileReaderThread
+       extends Thread
+  {
+    // The number of chunks that will be split into records at a time.
+    private final int chunksPerBatch;
+
+    // Splits chunks of the file into unparsed records in parallel.
+    private final ParallelProcessor<Long,MappedLDIFChunk> chunkSplitter;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param  numParseThreads  The number of threads to use to split chunks of
+     *                          the file into records.
+     */
+    private MappedFileReaderThread(final int numParseThreads)
+    {
+      super("Asynchronous LDIF memory-mapped file reader");
+      setDaemon(true);
+
+      chunksPerBatch = numParseThreads * MAPPED_CHUNKS_PER_THREAD;
+
+      final LDAPSDKThreadFactory threadFactory =
+           new LDAPSDKThreadFactory("LDIFReader Chunk Splitter", true, null);
+      chunkSplitter = new ParallelProcessor<Long,MappedLDIFChunk>(
+           new ChunkSplitter(), threadFactory, numParseThreads, 1);
+    }
+
+
+
+    /**
+     * Splits the file into records and submits them for processing until the
+     * entire file has been read or the reader is closed.
+     */
+    @Override()
+    public void run()
+    {
+      try
+      {
+        final long numChunks = (mappedFile.size() + MAPPED_CHUNK_SIZE - 1L) /
+             MAPPED_CHUNK_SIZE;
+        long nextChunk = 0L;
+        long lineNumberBase = 0L;
+        while (nextChunk < numChunks)
+        {
+          final int batchSize =
+               (int) Math.min(chunksPerBatch, (numChunks - nextChunk));
+          final ArrayList<Long> chunkIDs = new ArrayList<Long>(batchSize);
+          for (int i=0; i < batchSize; i++)
+          {
+            chunkIDs.add(nextChunk++);
+          }
+
+          for (final Result<Long,MappedLDIFChunk> result :
+               chunkSplitter.processAll(chunkIDs))
+          {
+            final Throwable failureCause = result.getFailureCause();
+            if (failureCause != null)
+            {
+              if (failureCause instanceof Exception)
+              {
+                asyncParser.submit(
+                     new UnparsedLDIFRecord((Exception) failureCause));
+              }
+              else
+              {
+                asyncParser.submit(
+                     new UnparsedLDIFRecord(new IOException(failureCause)));
+              }
+              return;
+            }
+
+            final MappedLDIFChunk chunk = result.getOutput();
+            for (final UnparsedLDIFRecord r : chunk.getRecords())
+            {
+              if (mappedFileClosed)
+              {
+                return;
+              }
+
+              asyncParser.submit(adjustLineNumbers(r, lineNumberBase));
+            }
+
+            lineNumberBase += chunk.getNumLines();
+          }
+        }
+
+        asyncParser.submit(new UnparsedLDIFRecord(
+             new ArrayList<StringBuilder>(0), duplicateValueBehavior,
+             trailingSpaceBehavior, schema, -1));
+      }
+      catch (final InterruptedException e)
+      {
+        debugException(e);
+        // If this thread is interrupted, then someone wants us to stop
+        // processing, so that's what we'll do.
+        Thread.currentThread().interrupt();
+      }
+      finally
+      {
+        try
+        {
+          chunkSplitter.shutdown();
+          asyncParser.shutdown();
+        }
+        catch (final InterruptedException e)
+        {
+          debugException(e);
+          Thread.currentThread().interrupt();
+        }
+        finally
+        {
+          asyncParsingComplete.set(true);
+        }
+      }
+    }
+
+
+
+    /**
+     * Converts the line numbers in the provided record, which are relative to
+     * the start of the chunk that contained it, to line numbers relative to the
+     * start of the file.
+     *
+     * @param  r               The record whose line numbers should be
+     *                         adjusted.
+     * @param  lineNumberBase  The number of lines in the file before the start
+     *                         of the chunk containing the record.
+     *
+     * @return  A record with line numbers relative to the start of the file.
+     */
+    private UnparsedLDIFRecord adjustLineNumbers(final UnparsedLDIFRecord r,
+                                                 final long lineNumberBase)
+    {
+      final Exception failureCause = r.getFailureCause();
+      if (failureCause == null)
+      {
+        return new UnparsedLDIFRecord(r.getLineList(),
+             r.getDuplicateValueBehavior(), r.getTrailingSpaceBehavior(),
+             r.getSchema(), (lineNumberBase + r.getFirstLineNumber()));
+      }
+      else if (failureCause instanceof LDIFException)
+      {
+        // The only problem that can be encountered while splitting a chunk
+        // into records is a record that starts with a continuation line.
+        final LDIFException le = (LDIFException) failureCause;
+        final long lineNumber = lineNumberBase + le.getLineNumber();
+        return new UnparsedLDIFRecord(new LDIFException(
+             ERR_READ_UNEXPECTED_FIRST_SPACE.get(lineNumber), lineNumber,
+             le.mayContinueReading()));
+      }
+      else
+      {
+        return r;
+      }
+    }
+  }
+
+
+
+  /**
+   * Used to split a chunk of a memory-mapped file into unparsed records.  The
+   * chunk with a given ID contains all of the records that begin between the
+   * first record boundary at or after the position of the chunk ID times the
+   * chunk size, and the first record boundary at or after the position of the
+   * next chunk ID times the chunk size.  Because those boundaries can be found
+   * independently, the chunks can be split in parallel.
+   */
+  private final class ChunkSplitter
+          implements Processor<Long,MappedLDIFChunk>
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public MappedLDIFChunk process(final Long input)
+           throws IOException
+    {
+      final long chunkID = input;
+      final long start =
+           mappedFile.findRecordBoundary(chunkID * MAPPED_CHUNK_SIZE);
+      final long end =
+           mappedFile.findRecordBoundary((chunkID + 1L) * MAPPED_CHUNK_SIZE);
+      if (start >= end)
+      {
+        return new MappedLDIFChunk(new ArrayList<UnparsedLDIFRecord>(0), 0L);
+      }
+
+      // Use a synchronous reader for the chunk so that records are split in
+      // exactly the same way as when reading a file one line at a time.  Line
+      // numbers will be relative to the start of the chunk.
+      final int bufferSize =
+           (int) Math.max(1L, Math.min((end - start), DEFAULT_BUFFER_SIZE));
+      final LDIFReader chunkReader = new LDIFReader(new BufferedReader(
+           new InputStreamReader(mappedFile.getInputStream(start, end),
+                Charset.forName("UTF-8")),
+           bufferSize));
+      chunkReader.duplicateValueBehavior = duplicateValueBehavior;
+      chunkReader.trailingSpaceBehavior = trailingSpaceBehavior;
+      chunkReader.schema = schema;
+
+      final ArrayList<UnparsedLDIFRecord> records =
+           new ArrayList<UnparsedLDIFRecord>(100);
+      while (true)
+      {
+        final UnparsedLDIFRecord r;
+        try
+        {
+          r = chunkReader.readUnparsedRecord();
+        }
+        catch (final LDIFException e)
+        {
+          debugException(e);
+          records.add(new UnparsedLDIFRecord(e));
+          continue;
+        }
+
+        if (r.isEOF())
+        {
+          break;
+        }
+
+        records.add(r);
+      }
+
+      return new MappedLDIFChunk(records,
+           mappedFile.countLineFeeds(start, end));
+    }
+  }
+
+
+
+  /**
+   * This represents the unparsed records read from a single chunk of a
+   * memory-mapped file, along with the number of lines in that chunk.
+   */
+  private static final class MappedLDIFChunk
+  {
+    private final List<UnparsedLDIFRecord> records;
+    private final long numLines;
+
+
+
+    /**
+     * Constructor.
+     *
+     * @param  records   The unparsed records read from the chunk, with line
+     *                   numbers relative to the start of the chunk.
+     * @param  numLines  The number of lines in the chunk.
+     */
+    private MappedLDIFChunk(final List<UnparsedLDIFRecord> records,
+                            final long numLines)
+    {
+      this.records  = records;
+      this.numLines = numLines;
+    }
+
+
+
+    /**
+     * Retrieves the unparsed records read from the chunk.
+     *
+     * @return  The unparsed records read from the chunk.
+     */
+    private List<UnparsedLDIFRecord> getRecords()
+    {
+      return records;
+    }
+
+
+
+    /**
+     * Retrieves the number of lines in the chunk.
+     *
+     * @return  The number of lines in the chunk.
+     */
+    private long getNumLines()
+    {
+      return numLines;
+    }
+  }
+
+
+
   /**
    * Used to parse Records asynchronously.
    */
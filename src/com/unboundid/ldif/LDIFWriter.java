@@ -25,6 +25,7 @@ package com.unboundid.ldif;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.FileOutputStream;
 import java.io.BufferedOutputStream;
@@ -43,6 +44,7 @@ import com.unboundid.util.parallel.ParallelProcessor;
 import com.unboundid.util.parallel.Result;
 import com.unboundid.util.parallel.Processor;
 
+import static com.unboundid.ldif.LDIFMessages.*;
 import static com.unboundid.util.Debug.*;
 import static com.unboundid.util.StaticUtils.*;
 import static com.unboundid.util.Validator.*;
@@ -138,6 +140,18 @@ public final class LDIFWriter
   private final ParallelProcessor<LDIFRecord,ByteStringBuffer>
        toLdifBytesInvoker;
 
+  // The maximum number of records written through the single-record methods
+  // that may be held before they are converted to LDIF in parallel.  A value
+  // of zero indicates that those methods should operate synchronously.
+  private int parallelBatchSize = 0;
+
+  // The records that have been provided to the single-record write methods
+  // but have not yet been written, along with the comment (which may be null)
+  // to write before each of them.  These will only be used when operating in
+  // batched parallel mode.
+  private final ArrayList<LDIFRecord> pendingRecords;
+  private final ArrayList<String> pendingComments;
+
 
 
   /**
@@ -298,6 +312,8 @@ public final class LDIFWriter
     this.entryTranslator = entryTranslator;
     this.changeRecordTranslator = changeRecordTranslator;
     buffer = new ByteStringBuffer();
+    pendingRecords = new ArrayList<LDIFRecord>(0);
+    pendingComments = new ArrayList<String>(0);
 
     if (outputStream instanceof BufferedOutputStream)
     {
@@ -365,6 +381,7 @@ public final class LDIFWriter
   public void flush()
          throws IOException
   {
+    writePendingRecords();
     writer.flush();
   }
 
@@ -378,6 +395,28 @@ public final class LDIFWriter
    */
   public void close()
          throws IOException
+  {
+    try
+    {
+      writePendingRecords();
+    }
+    finally
+    {
+      closeInternal();
+    }
+  }
+
+
+
+  /**
+   * Shuts down the parallel processor, if any, and closes the underlying LDIF
+   * target.
+   *
+   * @throws  IOException  If a problem occurs while closing the underlying LDIF
+   *                       target.
+   */
+  private void closeInternal()
+          throws IOException
   {
     try
     {
@@ -430,6 +469,64 @@ public final class LDIFWriter
 
 
 
+  /**
+   * Retrieves the maximum number of records provided to the
+   * {@code writeEntry}, {@code writeChangeRecord}, and {@code writeLDIFRecord}
+   * methods that may be held before they are converted to LDIF in parallel.
+   *
+   * @return  The maximum number of records that may be held before they are
+   *          converted to LDIF in parallel, or zero if those methods will
+   *          operate synchronously.
+   */
+  public int getParallelBatchSize()
+  {
+    return parallelBatchSize;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of records provided to the
+   * {@code writeEntry}, {@code writeChangeRecord}, and {@code writeLDIFRecord}
+   * methods that may be held before they are converted to LDIF in parallel.
+   * This only has an effect if the writer was created with a positive number
+   * of parallel threads.
+   * <BR><BR>
+   * If this is greater than zero, then the records passed to those methods
+   * will not be translated, encoded, and written immediately.  Rather, they
+   * will be accumulated until the batch is full (or until a comment or version
+   * header is written, or until the writer is flushed or closed), and then
+   * the configured worker threads will be used to apply any translator and
+   * convert them to LDIF.  The records will still be written in the order in
+   * which they were provided.  However, because a record may be held for some
+   * time after the write method returns, the caller must not alter any record
+   * that has been passed to this writer until it has been flushed, and any
+   * translator must be threadsafe.  Also, any problem encountered while
+   * writing a record may not be reported until a later write, flush, or close.
+   * If a problem is encountered with any record in a batch, then all of the
+   * other records in that batch will still be written before the exception
+   * for the first failed record is thrown.
+   *
+   * @param  parallelBatchSize  The maximum number of records that may be held
+   *                            before they are converted to LDIF in parallel.
+   *                            A value that is less than or equal to zero
+   *                            indicates that the single-record write methods
+   *                            should operate synchronously.
+   */
+  public void setParallelBatchSize(final int parallelBatchSize)
+  {
+    if (parallelBatchSize > 0)
+    {
+      this.parallelBatchSize = parallelBatchSize;
+    }
+    else
+    {
+      this.parallelBatchSize = 0;
+    }
+  }
+
+
+
   /**
    * Indicates whether the LDIF writer should generate comments that attempt to
    * provide unencoded representations (with special characters escaped) of any
@@ -481,6 +578,7 @@ public final class LDIFWriter
   public void writeVersionHeader()
          throws IOException
   {
+    writePendingRecords();
     writer.write(VERSION_1_HEADER_BYTES);
   }
 
@@ -516,6 +614,12 @@ public final class LDIFWriter
   {
     ensureNotNull(entry);
 
+    if (useParallelBatches())
+    {
+      addPendingRecord(entry, comment);
+      return;
+    }
+
     final Entry e;
     if (entryTranslator == null)
     {
@@ -574,6 +678,12 @@ public final class LDIFWriter
   {
     ensureNotNull(changeRecord);
 
+    if (useParallelBatches())
+    {
+      addPendingRecord(changeRecord, comment);
+      return;
+    }
+
     final LDIFChangeRecord r;
     if (changeRecordTranslator == null)
     {
@@ -630,6 +740,12 @@ public final class LDIFWriter
   {
     ensureNotNull(record);
 
+    if (useParallelBatches())
+    {
+      addPendingRecord(record, comment);
+      return;
+    }
+
     final LDIFRecord r;
     if ((entryTranslator != null) && (record instanceof Entry))
     {
@@ -696,6 +812,8 @@ public final class LDIFWriter
     }
     else
     {
+      writePendingRecords();
+
       final List<Result<LDIFRecord,ByteStringBuffer>> results =
            toLdifBytesInvoker.processAll(ldifRecords);
       for (final Result<LDIFRecord,ByteStringBuffer> result: results)
@@ -714,6 +832,119 @@ public final class LDIFWriter
 
 
 
+  /**
+   * Indicates whether records provided to the single-record write methods
+   * should be accumulated and converted to LDIF in parallel batches.
+   *
+   * @return  {@code true} if records should be processed in parallel batches,
+   *          or {@code false} if they should be written synchronously.
+   */
+  private boolean useParallelBatches()
+  {
+    return ((toLdifBytesInvoker != null) && (parallelBatchSize > 0));
+  }
+
+
+
+  /**
+   * Adds the provided record to the pending batch, writing the batch if it has
+   * become full.
+   *
+   * @param  record   The record to be added.  It must not be {@code null}.
+   * @param  comment  The comment to be written before the record.  It may be
+   *                  {@code null} if no comment is to be written.
+   *
+   * @throws  IOException  If a problem occurs while writing the LDIF data.
+   */
+  private void addPendingRecord(final LDIFRecord record, final String comment)
+          throws IOException
+  {
+    pendingRecords.add(record);
+    pendingComments.add(comment);
+
+    if (pendingRecords.size() >= parallelBatchSize)
+    {
+      writePendingRecords();
+    }
+  }
+
+
+
+  /**
+   * Uses the parallel processor to convert any pending records to LDIF and
+   * writes them, in order, to the LDIF target.  If any of the records could
+   * not be converted, then all of the others will still be written before the
+   * failure for the first of them is thrown.
+   *
+   * @throws  IOException  If a problem occurs while writing the LDIF data.
+   */
+  private void writePendingRecords()
+          throws IOException
+  {
+    if (pendingRecords.isEmpty())
+    {
+      return;
+    }
+
+    try
+    {
+      final List<Result<LDIFRecord,ByteStringBuffer>> results;
+      try
+      {
+        results = toLdifBytesInvoker.processAll(pendingRecords);
+      }
+      catch (final InterruptedException e)
+      {
+        debugException(e);
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+             ERR_LDIF_WRITER_INTERRUPTED.get(getExceptionMessage(e)));
+      }
+
+      // Clear the pending records before writing anything, since writing a
+      // comment will attempt to write any pending records first.
+      pendingRecords.clear();
+
+      Throwable firstFailure = null;
+      for (int i=0; i < results.size(); i++)
+      {
+        final Result<LDIFRecord,ByteStringBuffer> result = results.get(i);
+        final Throwable failureCause = result.getFailureCause();
+        if (failureCause != null)
+        {
+          if (firstFailure == null)
+          {
+            firstFailure = failureCause;
+          }
+          continue;
+        }
+
+        final ByteStringBuffer encodedBytes = result.getOutput();
+        if (encodedBytes != null)
+        {
+          final String comment = pendingComments.get(i);
+          if (comment != null)
+          {
+            writeComment(comment, false, false);
+          }
+
+          encodedBytes.write(writer);
+          writer.write(EOL_BYTES);
+        }
+      }
+
+      rethrow(firstFailure);
+    }
+    finally
+    {
+      // The records and comments must always be discarded together so that
+      // a subsequent batch will not pair records with the wrong comments.
+      pendingRecords.clear();
+      pendingComments.clear();
+    }
+  }
+
+
 
   /**
    * Writes the provided comment to the LDIF target, wrapping long lines as
@@ -733,6 +964,8 @@ public final class LDIFWriter
          throws IOException
   {
     ensureNotNull(comment);
+    writePendingRecords();
+
     if (spaceBefore)
     {
       writer.write(EOL_BYTES);
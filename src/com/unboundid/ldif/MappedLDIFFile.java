@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides read-only, memory-mapped access to the contents of an
+ * LDIF file so that multiple threads can independently locate record
+ * boundaries and read the records in different portions of the file.  Files
+ * larger than 2GB are mapped in multiple segments.
+ * <BR><BR>
+ * A record boundary is the start of an empty line.  Because LDIF continuation
+ * lines always begin with a space, an empty line can never be part of a
+ * record (or of a comment), and the file can always be safely split at any of
+ * them.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class MappedLDIFFile
+{
+  /**
+   * The number of bits used to address a position within a single segment.
+   */
+  private static final int SEGMENT_BITS = 30;
+
+
+
+  /**
+   * The maximum number of bytes in a single mapped segment.
+   */
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+
+
+  /**
+   * The mask used to obtain a position within a single segment.
+   */
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1L;
+
+
+
+  // The total size of the file, in bytes.
+  private final long size;
+
+  // The mapped segments that make up the file.
+  private final MappedByteBuffer[] segments;
+
+
+
+  /**
+   * Memory-maps the provided file.
+   *
+   * @param  file  The file to be mapped.  It must not be {@code null}.
+   *
+   * @throws  IOException  If a problem occurs while opening or mapping the
+   *                       file.
+   */
+  MappedLDIFFile(final File file)
+       throws IOException
+  {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try
+    {
+      final FileChannel channel = raf.getChannel();
+      size = channel.size();
+
+      final int numSegments = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+      segments = new MappedByteBuffer[numSegments];
+      for (int i=0; i < numSegments; i++)
+      {
+        final long start = ((long) i) << SEGMENT_BITS;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+             Math.min(SEGMENT_SIZE, (size - start)));
+      }
+    }
+    finally
+    {
+      // The mappings remain valid after the file has been closed.
+      raf.close();
+    }
+  }
+
+
+
+  /**
+   * Retrieves the size of the file, in bytes.
+   *
+   * @return  The size of the file, in bytes.
+   */
+  long size()
+  {
+    return size;
+  }
+
+
+
+  /**
+   * Retrieves the byte at the specified position in the file.
+   *
+   * @param  pos  The position of the byte to retrieve.  It must be greater
+   *              than or equal to zero and less than the size of the file.
+   *
+   * @return  The byte at the specified position.
+   */
+  byte get(final long pos)
+  {
+    return segments[(int) (pos >>> SEGMENT_BITS)].get(
+         (int) (pos & SEGMENT_MASK));
+  }
+
+
+
+  /**
+   * Retrieves the position of the first record boundary at or after the
+   * specified position.  The start of the file is always a record boundary,
+   * as is the end of the file.
+   *
+   * @param  pos  The position at which to begin looking.
+   *
+   * @return  The position of the first record boundary at or after the
+   *          specified position.
+   */
+  long findRecordBoundary(final long pos)
+  {
+    if (pos <= 0L)
+    {
+      return 0L;
+    }
+    else if (pos >= size)
+    {
+      return size;
+    }
+
+    // Find the start of the first line at or after the given position.
+    long lineStart = pos;
+    if (get(pos - 1L) != '\n')
+    {
+      lineStart = findNextLineStart(pos);
+    }
+
+    while (lineStart < size)
+    {
+      final byte b = get(lineStart);
+      if ((b == '\n') ||
+          ((b == '\r') && ((lineStart + 1L) < size) &&
+           (get(lineStart + 1L) == '\n')))
+      {
+        return lineStart;
+      }
+
+      lineStart = findNextLineStart(lineStart);
+    }
+
+    return size;
+  }
+
+
+
+  /**
+   * Retrieves the position immediately after the next line feed at or after
+   * the specified position.
+   *
+   * @param  pos  The position at which to begin looking.
+   *
+   * @return  The position immediately after the next line feed, or the size of
+   *          the file if there are no more line feeds.
+   */
+  private long findNextLineStart(final long pos)
+  {
+    for (long p=pos; p < size; p++)
+    {
+      if (get(p) == '\n')
+      {
+        return p + 1L;
+      }
+    }
+
+    return size;
+  }
+
+
+
+  /**
+   * Retrieves the number of line feeds in the specified portion of the file.
+   *
+   * @param  start  The position of the first byte to examine.
+   * @param  end    The position immediately after the last byte to examine.
+   *
+   * @return  The number of line feeds in the specified portion of the file.
+   */
+  long countLineFeeds(final long start, final long end)
+  {
+    long count = 0L;
+    for (long p=start; p < end; p++)
+    {
+      if (get(p) == '\n')
+      {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+
+
+  /**
+   * Retrieves an input stream that may be used to read the specified portion
+   * of the file.
+   *
+   * @param  start  The position of the first byte to read.
+   * @param  end    The position immediately after the last byte to read.
+   *
+   * @return  An input stream that may be used to read the specified portion
+   *          of the file.
+   */
+  InputStream getInputStream(final long start, final long end)
+  {
+    return new SegmentInputStream(start, end);
+  }
+
+
+
+  /**
+   * An input stream that reads a portion of the mapped file.  Multiple
+   * streams may be used concurrently.
+   */
+  private final class SegmentInputStream
+          extends InputStream
+  {
+    // The position immediately after the last byte to read.
+    private final long end;
+
+    // The position of the next byte to read.
+    private long pos;
+
+
+
+    /**
+     * Creates a new input stream for the specified portion of the file.
+     *
+     * @param  start  The position of the first byte to read.
+     * @param  end    The position immediately after the last byte to read.
+     */
+    private SegmentInputStream(final long start, final long end)
+    {
+      this.end = end;
+      pos = start;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int read()
+    {
+      if (pos >= end)
+      {
+        return -1;
+      }
+
+      return (get(pos++) & 0xFF);
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int read(final byte[] b, final int off, final int len)
+    {
+      if (len == 0)
+      {
+        return 0;
+      }
+
+      if (pos >= end)
+      {
+        return -1;
+      }
+
+      // Only read up to the end of the current segment so that a single bulk
+      // get can be used.
+      final int segment = (int) (pos >>> SEGMENT_BITS);
+      final int segmentPos = (int) (pos & SEGMENT_MASK);
+      final long segmentRemaining = segments[segment].limit() - segmentPos;
+      final int length =
+           (int) Math.min(len, Math.min(segmentRemaining, (end - pos)));
+
+      // The shared segments are never repositioned, so each read uses its own
+      // duplicate view.
+      final ByteBuffer view = segments[segment].duplicate();
+      view.position(segmentPos);
+      view.get(b, off, length);
+
+      pos += length;
+      return length;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int available()
+    {
+      return (int) Math.min(Integer.MAX_VALUE, (end - pos));
+    }
+  }
+}
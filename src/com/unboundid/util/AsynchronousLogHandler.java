@@ -0,0 +1,695 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static com.unboundid.util.UtilityMessages.*;
+
+
+
+/**
+ * This class provides a Java logging handler that may be used to publish log
+ * records to another handler in a background thread, so that the threads that
+ * generate log records do not need to wait for them to be formatted and
+ * written.  Records will be held in a bounded queue until the background
+ * thread can publish them to the wrapped handler, and the wrapped handler will
+ * be flushed whenever a specified number of records have been published to it
+ * since it was last flushed, or whenever a specified length of time has passed
+ * since the oldest unflushed record was published to it, whichever comes
+ * first.  If a record is published while the queue is full, then the
+ * configured {@link AsynchronousLogQueueFullBehavior} will determine whether
+ * the publishing thread should wait for space to become available or whether
+ * the record should be discarded.
+ * <BR><BR>
+ * The {@link #flush} method will wait for all records queued before it was
+ * called to be published to the wrapped handler, and will then flush the
+ * wrapped handler.  Because that means waiting for the background thread, it
+ * should not be called after each record if the cost of writing records is
+ * to be kept out of the publishing threads.  The
+ * {@link com.unboundid.ldap.listener.AccessLogRequestHandler} will not flush
+ * this handler after each record.  The {@link #close} method will wait for all
+ * queued records to be published to the wrapped handler before flushing and
+ * closing it.
+ * <BR><BR>
+ * The level and filter for this handler will be used to determine whether a
+ * record should be queued, but the wrapped handler will be responsible for
+ * formatting the records and may apply its own level and filter.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class AsynchronousLogHandler
+       extends Handler
+{
+  /**
+   * The default maximum number of records that may be held in the queue.
+   */
+  public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+
+
+  /**
+   * The default maximum number of records that may be published to the wrapped
+   * handler before it will be flushed.
+   */
+  public static final int DEFAULT_MAX_RECORDS_BETWEEN_FLUSHES = 1000;
+
+
+
+  /**
+   * The default maximum length of time in milliseconds that may pass after a
+   * record is published to the wrapped handler before it will be flushed.
+   */
+  public static final long DEFAULT_MAX_FLUSH_DELAY_MILLIS = 1000L;
+
+
+
+  /**
+   * The record that will be placed in the queue to indicate that the
+   * background thread should exit.  It will not be published to the wrapped
+   * handler.
+   */
+  private static final LogRecord CLOSE_RECORD = new LogRecord(Level.OFF, "");
+
+
+
+  // The queue that holds the records that have not yet been published to the
+  // wrapped handler.
+  private final ArrayBlockingQueue<LogRecord> queue;
+
+  // Indicates whether this handler has been closed.
+  private final AtomicBoolean closed;
+
+  // The total number of records that have been discarded because the queue was
+  // full.
+  private final AtomicLong discardedRecordCount;
+
+  // The number of records that have been discarded because the queue was full
+  // but have not yet been reported to the wrapped handler.
+  private final AtomicLong unreportedDiscardedRecordCount;
+
+  // The behavior to exhibit if a record is published while the queue is full.
+  private final AsynchronousLogQueueFullBehavior queueFullBehavior;
+
+  // The handler to which records will be published.
+  private final Handler wrappedHandler;
+
+  // The maximum number of records that may be published to the wrapped handler
+  // before it will be flushed.
+  private final int maxRecordsBetweenFlushes;
+
+  // The maximum length of time in nanoseconds that may pass after a record is
+  // published to the wrapped handler before it will be flushed.
+  private final long maxFlushDelayNanos;
+
+  // The thread that will publish records to the wrapped handler.
+  private final Thread writerThread;
+
+
+
+  /**
+   * Creates a new asynchronous log handler that will publish records to the
+   * provided handler using the default settings.  The publishing thread will
+   * block if the queue is full.
+   *
+   * @param  wrappedHandler  The handler to which records will be published.  It
+   *                         must not be {@code null}.
+   */
+  public AsynchronousLogHandler(final Handler wrappedHandler)
+  {
+    this(wrappedHandler, DEFAULT_QUEUE_SIZE,
+         AsynchronousLogQueueFullBehavior.BLOCK,
+         DEFAULT_MAX_RECORDS_BETWEEN_FLUSHES, DEFAULT_MAX_FLUSH_DELAY_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new asynchronous log handler with the provided settings.
+   *
+   * @param  wrappedHandler            The handler to which records will be
+   *                                   published.  It must not be
+   *                                   {@code null}.
+   * @param  queueSize                 The maximum number of records that may
+   *                                   be held in the queue while waiting to be
+   *                                   published to the wrapped handler.  It
+   *                                   must be greater than zero.
+   * @param  queueFullBehavior         The behavior to exhibit if a record is
+   *                                   published while the queue is full.  It
+   *                                   must not be {@code null}.
+   * @param  maxRecordsBetweenFlushes  The maximum number of records that may
+   *                                   be published to the wrapped handler
+   *                                   before it will be flushed.  It must be
+   *                                   greater than zero.
+   * @param  maxFlushDelayMillis       The maximum length of time in
+   *                                   milliseconds that may pass after a
+   *                                   record is published to the wrapped
+   *                                   handler before it will be flushed.  It
+   *                                   must be greater than zero.
+   */
+  public AsynchronousLogHandler(final Handler wrappedHandler,
+              final int queueSize,
+              final AsynchronousLogQueueFullBehavior queueFullBehavior,
+              final int maxRecordsBetweenFlushes,
+              final long maxFlushDelayMillis)
+  {
+    Validator.ensureNotNull(wrappedHandler, queueFullBehavior);
+    Validator.ensureTrue((queueSize > 0),
+         "AsynchronousLogHandler.queueSize must be greater than zero.");
+    Validator.ensureTrue((maxRecordsBetweenFlushes > 0),
+         "AsynchronousLogHandler.maxRecordsBetweenFlushes must be greater " +
+              "than zero.");
+    Validator.ensureTrue((maxFlushDelayMillis > 0L),
+         "AsynchronousLogHandler.maxFlushDelayMillis must be greater than " +
+              "zero.");
+
+    this.wrappedHandler           = wrappedHandler;
+    this.queueFullBehavior        = queueFullBehavior;
+    this.maxRecordsBetweenFlushes = maxRecordsBetweenFlushes;
+
+    maxFlushDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxFlushDelayMillis);
+
+    queue = new ArrayBlockingQueue<LogRecord>(queueSize);
+    closed = new AtomicBoolean(false);
+    discardedRecordCount = new AtomicLong(0L);
+    unreportedDiscardedRecordCount = new AtomicLong(0L);
+
+    writerThread = new Thread(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        publishQueuedRecords();
+      }
+    },
+    "Asynchronous Log Handler Writer for " +
+         wrappedHandler.getClass().getName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+
+
+  /**
+   * Retrieves the handler to which records will be published.
+   *
+   * @return  The handler to which records will be published.
+   */
+  public Handler getWrappedHandler()
+  {
+    return wrappedHandler;
+  }
+
+
+
+  /**
+   * Retrieves the behavior that this handler will exhibit if a record is
+   * published while the queue is full.
+   *
+   * @return  The behavior that this handler will exhibit if a record is
+   *          published while the queue is full.
+   */
+  public AsynchronousLogQueueFullBehavior getQueueFullBehavior()
+  {
+    return queueFullBehavior;
+  }
+
+
+
+  /**
+   * Retrieves the number of records that are currently held in the queue
+   * waiting to be published to the wrapped handler.
+   *
+   * @return  The number of records that are currently held in the queue
+   *          waiting to be published to the wrapped handler.
+   */
+  public int getQueuedRecordCount()
+  {
+    return queue.size();
+  }
+
+
+
+  /**
+   * Retrieves the total number of records that have been discarded because
+   * they were published while the queue was full.  This will always be zero if
+   * the queue full behavior is {@code BLOCK}.
+   *
+   * @return  The total number of records that have been discarded because they
+   *          were published while the queue was full.
+   */
+  public long getDiscardedRecordCount()
+  {
+    return discardedRecordCount.get();
+  }
+
+
+
+  /**
+   * Adds the provided record to the queue so that it will be published to the
+   * wrapped handler by the background thread.  The record will be ignored if
+   * this handler has been closed or if it is not loggable based on the level
+   * and filter for this handler.
+   *
+   * @param  record  The record to be published.
+   */
+  @Override()
+  public void publish(final LogRecord record)
+  {
+    if ((record == null) || closed.get() || (! isLoggable(record)))
+    {
+      return;
+    }
+
+    switch (queueFullBehavior)
+    {
+      case BLOCK:
+        try
+        {
+          queue.put(record);
+        }
+        catch (final InterruptedException ie)
+        {
+          Debug.debugException(ie);
+          Thread.currentThread().interrupt();
+          discardedRecordCount.incrementAndGet();
+        }
+        break;
+
+      case DISCARD:
+        if (! queue.offer(record))
+        {
+          discardedRecordCount.incrementAndGet();
+        }
+        break;
+
+      case DISCARD_AND_COUNT:
+      default:
+        if (! queue.offer(record))
+        {
+          discardedRecordCount.incrementAndGet();
+          unreportedDiscardedRecordCount.incrementAndGet();
+        }
+        break;
+    }
+  }
+
+
+
+  /**
+   * Waits for all records that were queued before this method was called to be
+   * published to the wrapped handler, and then flushes the wrapped handler.
+   * If this handler has been closed, then this method will return immediately,
+   * since all records will have been flushed when it was closed.
+   */
+  @Override()
+  public void flush()
+  {
+    if (closed.get())
+    {
+      return;
+    }
+
+    // If this is called by the background thread (e.g., from within the
+    // wrapped handler), then all earlier records have already been published.
+    if (Thread.currentThread() == writerThread)
+    {
+      flushWrappedHandler();
+      return;
+    }
+
+    // Queue a flush request behind any existing records, regardless of the
+    // queue full behavior, and wait for the background thread to process it.
+    // If the handler is closed in the meantime, then the background thread
+    // may exit without seeing the request, but it will have flushed all
+    // records before exiting.
+    final FlushRecord flushRecord = new FlushRecord();
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          queue.put(flushRecord);
+          break;
+        }
+        catch (final InterruptedException ie)
+        {
+          Debug.debugException(ie);
+          interrupted = true;
+        }
+      }
+
+      while (writerThread.isAlive())
+      {
+        try
+        {
+          if (flushRecord.await(100L))
+          {
+            break;
+          }
+        }
+        catch (final InterruptedException ie)
+        {
+          Debug.debugException(ie);
+          interrupted = true;
+        }
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+
+
+  /**
+   * Closes this handler.  This method will wait for all queued records to be
+   * published to the wrapped handler, and will then flush and close the
+   * wrapped handler.  Any records published to this handler after it has been
+   * closed will be ignored.
+   */
+  @Override()
+  public void close()
+  {
+    if (! closed.compareAndSet(false, true))
+    {
+      return;
+    }
+
+    boolean interrupted = false;
+    while (true)
+    {
+      try
+      {
+        queue.put(CLOSE_RECORD);
+        break;
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        interrupted = true;
+      }
+    }
+
+    while (writerThread.isAlive())
+    {
+      try
+      {
+        writerThread.join();
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        interrupted = true;
+      }
+    }
+
+    wrappedHandler.close();
+
+    if (interrupted)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+  /**
+   * Publishes records from the queue to the wrapped handler until the close
+   * record is encountered, flushing the wrapped handler as appropriate.  This
+   * will be invoked by the background thread.
+   */
+  private void publishQueuedRecords()
+  {
+    final ArrayList<LogRecord> batch =
+         new ArrayList<LogRecord>(maxRecordsBetweenFlushes);
+    int unflushedRecords = 0;
+    long flushDeadline = 0L;
+
+    while (true)
+    {
+      final LogRecord firstRecord;
+      try
+      {
+        if (unflushedRecords == 0)
+        {
+          firstRecord = queue.take();
+        }
+        else
+        {
+          final long waitNanos = flushDeadline - System.nanoTime();
+          if (waitNanos > 0L)
+          {
+            firstRecord = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+          }
+          else
+          {
+            firstRecord = null;
+          }
+        }
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        continue;
+      }
+
+      if (firstRecord == null)
+      {
+        flushWrappedHandler();
+        unflushedRecords = 0;
+        continue;
+      }
+
+      batch.add(firstRecord);
+      queue.drainTo(batch, maxRecordsBetweenFlushes - 1);
+
+      boolean closeRequested = false;
+      for (final LogRecord r : batch)
+      {
+        if (r == CLOSE_RECORD)
+        {
+          closeRequested = true;
+        }
+        else if (r instanceof FlushRecord)
+        {
+          reportDiscardedRecords();
+          flushWrappedHandler();
+          unflushedRecords = 0;
+          ((FlushRecord) r).flushComplete();
+        }
+        else
+        {
+          if (unflushedRecords == 0)
+          {
+            flushDeadline = System.nanoTime() + maxFlushDelayNanos;
+          }
+
+          publishToWrappedHandler(r);
+          unflushedRecords++;
+        }
+      }
+      batch.clear();
+
+      if (reportDiscardedRecords())
+      {
+        unflushedRecords++;
+      }
+
+      if (closeRequested)
+      {
+        // Publish any records that may have been queued by threads that
+        // started publishing before the handler was closed.
+        final ArrayList<FlushRecord> flushRecords =
+             new ArrayList<FlushRecord>(1);
+        LogRecord r = queue.poll();
+        while (r != null)
+        {
+          if (r instanceof FlushRecord)
+          {
+            flushRecords.add((FlushRecord) r);
+          }
+          else if (r != CLOSE_RECORD)
+          {
+            publishToWrappedHandler(r);
+          }
+          r = queue.poll();
+        }
+
+        flushWrappedHandler();
+        for (final FlushRecord flushRecord : flushRecords)
+        {
+          flushRecord.flushComplete();
+        }
+        return;
+      }
+
+      if (unflushedRecords >= maxRecordsBetweenFlushes)
+      {
+        flushWrappedHandler();
+        unflushedRecords = 0;
+      }
+    }
+  }
+
+
+
+  /**
+   * Publishes a record to the wrapped handler with the number of records that
+   * have been discarded since the last time they were reported, if any.
+   *
+   * @return  {@code true} if a record was published, or {@code false} if no
+   *          records have been discarded since they were last reported.
+   */
+  private boolean reportDiscardedRecords()
+  {
+    final long discardedCount = unreportedDiscardedRecordCount.getAndSet(0L);
+    if (discardedCount > 0L)
+    {
+      publishToWrappedHandler(new LogRecord(Level.WARNING,
+           WARN_ASYNC_LOG_HANDLER_DISCARDED_RECORDS.get(discardedCount)));
+      return true;
+    }
+
+    return false;
+  }
+
+
+
+  /**
+   * Publishes the provided record to the wrapped handler, reporting any
+   * exception that it throws to this handler's error manager.
+   *
+   * @param  record  The record to be published.
+   */
+  private void publishToWrappedHandler(final LogRecord record)
+  {
+    try
+    {
+      wrappedHandler.publish(record);
+    }
+    catch (final RuntimeException re)
+    {
+      Debug.debugException(re);
+      reportError(null, re, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+
+
+  /**
+   * Flushes the wrapped handler, reporting any exception that it throws to
+   * this handler's error manager.
+   */
+  private void flushWrappedHandler()
+  {
+    try
+    {
+      wrappedHandler.flush();
+    }
+    catch (final RuntimeException re)
+    {
+      Debug.debugException(re);
+      reportError(null, re, ErrorManager.FLUSH_FAILURE);
+    }
+  }
+
+
+
+  /**
+   * This class provides a record that may be placed in the queue to request
+   * that the background thread flush the wrapped handler once all records
+   * queued ahead of it have been published.  It will not be published to the
+   * wrapped handler.
+   */
+  private static final class FlushRecord
+          extends LogRecord
+  {
+    /**
+     * The serial version UID for this serializable class.
+     */
+    private static final long serialVersionUID = 2470181207365264113L;
+
+
+
+    // The latch that will be released once the flush has completed.
+    private final transient CountDownLatch latch;
+
+
+
+    /**
+     * Creates a new flush record.
+     */
+    private FlushRecord()
+    {
+      super(Level.OFF, "");
+
+      latch = new CountDownLatch(1);
+    }
+
+
+
+    /**
+     * Indicates that the requested flush has completed.
+     */
+    private void flushComplete()
+    {
+      latch.countDown();
+    }
+
+
+
+    /**
+     * Waits for up to the specified length of time for the requested flush to
+     * complete.
+     *
+     * @param  timeoutMillis  The maximum length of time in milliseconds to
+     *                        wait.
+     *
+     * @return  {@code true} if the flush has completed, or {@code false} if
+     *          not.
+     *
+     * @throws  InterruptedException  If the thread is interrupted while
+     *                                waiting.
+     */
+    private boolean await(final long timeoutMillis)
+            throws InterruptedException
+    {
+      return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+}
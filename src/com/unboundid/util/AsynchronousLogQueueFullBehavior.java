@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+/**
+ * This enum defines the set of behaviors that an
+ * {@link AsynchronousLogHandler} may exhibit if a record is published while its
+ * queue is full.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public enum AsynchronousLogQueueFullBehavior
+{
+  /**
+   * Indicates that the thread publishing the record should block until space
+   * becomes available in the queue.  No records will be lost, but the
+   * performance of the publishing thread will be limited by the rate at which
+   * the wrapped handler can write records.
+   */
+  BLOCK,
+
+
+
+  /**
+   * Indicates that the record should be silently discarded.  The number of
+   * records discarded will be available through the
+   * {@link AsynchronousLogHandler#getDiscardedRecordCount} method.
+   */
+  DISCARD,
+
+
+
+  /**
+   * Indicates that the record should be discarded, and that a record indicating
+   * the number of records that were discarded should be written to the wrapped
+   * handler once space becomes available in the queue.
+   */
+  DISCARD_AND_COUNT;
+}
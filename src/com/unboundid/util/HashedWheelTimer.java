@@ -0,0 +1,628 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+/**
+ * This class provides a timer that may be used to schedule a large number of
+ * tasks to be run after a delay, with very low overhead for scheduling and
+ * canceling them.  It is intended for cases like enforcing timeouts, in which
+ * most scheduled tasks will be canceled before they are due to run, and in
+ * which it is acceptable for a task to run slightly later than requested.
+ * <BR><BR>
+ * Scheduled tasks are held in a circular array of buckets (the "wheel"), and
+ * a single background thread advances through the wheel one bucket per tick,
+ * running any tasks in the current bucket that are due.  Scheduling and
+ * canceling a task are both constant-time operations that do not require
+ * acquiring any locks.  A canceled task will never be run, and it is removed
+ * from the wheel by the background thread on its next tick rather than
+ * lingering until its scheduled time.  A task may run up to one tick later
+ * than the requested delay, but never earlier.  The background thread is not
+ * created until the first task is scheduled, and it waits without ticking
+ * whenever there are no scheduled tasks.
+ * <BR><BR>
+ * All tasks are run by the background thread, so they should complete
+ * quickly.  Any exception thrown by a task will be caught and ignored.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class HashedWheelTimer
+{
+  /**
+   * The state for a timeout that has not yet been canceled or expired.
+   */
+  private static final int STATE_SCHEDULED = 0;
+
+
+
+  /**
+   * The state for a timeout that has been canceled.
+   */
+  private static final int STATE_CANCELED = 1;
+
+
+
+  /**
+   * The state for a timeout that has expired.
+   */
+  private static final int STATE_EXPIRED = 2;
+
+
+
+  // Indicates whether the background thread has been started.
+  private final AtomicBoolean started;
+
+  // The number of timeouts that have been scheduled but have not yet been
+  // canceled or expired.
+  private final AtomicInteger numScheduled;
+
+  // The timeouts that have been canceled but may still need to be removed from
+  // the wheel.
+  private final ConcurrentLinkedQueue<Timeout> canceledTimeouts;
+
+  // The timeouts that have been scheduled but not yet added to the wheel.
+  private final ConcurrentLinkedQueue<Timeout> pendingTimeouts;
+
+  // The buckets that make up the wheel.  They will only be accessed by the
+  // background thread.
+  private final Bucket[] wheel;
+
+  // The mask used to map a tick to its bucket in the wheel.
+  private final int mask;
+
+  // The duration of each tick, in nanoseconds.
+  private final long tickDurationNanos;
+
+  // The value of System.nanoTime() when this timer was created.  Deadlines are
+  // expressed relative to this time.
+  private final long startTimeNanos;
+
+  // The object used to wait for timeouts to be scheduled while idle.
+  private final Object idleLock;
+
+  // The name to use for the background thread.
+  private final String threadName;
+
+  // Indicates whether this timer has been shut down.
+  private volatile boolean shutDown;
+
+  // The background thread used to expire timeouts.
+  private volatile Thread workerThread;
+
+
+
+  /**
+   * Creates a new hashed wheel timer with the provided settings.
+   *
+   * @param  threadName          The name to use for the background thread.  It
+   *                             must not be {@code null}.
+   * @param  tickDurationMillis  The duration of each tick, in milliseconds.
+   *                             This controls the precision of the timer.  It
+   *                             must be greater than zero.
+   * @param  ticksPerWheel       The number of buckets in the wheel.  It will be
+   *                             rounded up to the next power of two.  It must
+   *                             be greater than zero.
+   */
+  public HashedWheelTimer(final String threadName,
+                          final long tickDurationMillis,
+                          final int ticksPerWheel)
+  {
+    Validator.ensureNotNull(threadName);
+    Validator.ensureTrue(tickDurationMillis > 0L,
+         "HashedWheelTimer.tickDurationMillis must be greater than zero.");
+    Validator.ensureTrue(((ticksPerWheel > 0) && (ticksPerWheel <= 1073741824)),
+         "HashedWheelTimer.ticksPerWheel must be between 1 and 2^30.");
+
+    this.threadName = threadName;
+
+    int wheelSize = 1;
+    while (wheelSize < ticksPerWheel)
+    {
+      wheelSize <<= 1;
+    }
+
+    wheel = new Bucket[wheelSize];
+    for (int i=0; i < wheelSize; i++)
+    {
+      wheel[i] = new Bucket();
+    }
+
+    mask              = wheelSize - 1;
+    tickDurationNanos = TimeUnit.MILLISECONDS.toNanos(tickDurationMillis);
+    startTimeNanos    = System.nanoTime();
+    started           = new AtomicBoolean(false);
+    numScheduled      = new AtomicInteger(0);
+    canceledTimeouts  = new ConcurrentLinkedQueue<Timeout>();
+    pendingTimeouts   = new ConcurrentLinkedQueue<Timeout>();
+    idleLock          = new Object();
+    shutDown          = false;
+    workerThread      = null;
+  }
+
+
+
+  /**
+   * Retrieves the duration of each tick, in milliseconds.
+   *
+   * @return  The duration of each tick, in milliseconds.
+   */
+  public long getTickDurationMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(tickDurationNanos);
+  }
+
+
+
+  /**
+   * Retrieves the number of buckets in the wheel.
+   *
+   * @return  The number of buckets in the wheel.
+   */
+  public int getTicksPerWheel()
+  {
+    return wheel.length;
+  }
+
+
+
+  /**
+   * Retrieves the number of tasks that have been scheduled but have not yet
+   * been canceled or run.
+   *
+   * @return  The number of tasks that have been scheduled but have not yet been
+   *          canceled or run.
+   */
+  public int getNumScheduledTasks()
+  {
+    return numScheduled.get();
+  }
+
+
+
+  /**
+   * Schedules the provided task to be run after the specified delay.
+   *
+   * @param  task         The task to be run.  It must not be {@code null}.
+   * @param  delayMillis  The length of time in milliseconds to wait before
+   *                      running the task.  A value that is less than or equal
+   *                      to zero indicates that the task should be run on the
+   *                      next tick.
+   *
+   * @return  A timeout object that may be used to cancel the task.
+   */
+  public Timeout schedule(final Runnable task, final long delayMillis)
+  {
+    Validator.ensureNotNull(task);
+    Validator.ensureFalse(shutDown,
+         "HashedWheelTimer.schedule must not be called after the timer has " +
+              "been shut down.");
+
+    if (started.compareAndSet(false, true))
+    {
+      final Thread t = new Thread(new Worker(), threadName);
+      t.setDaemon(true);
+      workerThread = t;
+      t.start();
+    }
+
+    final long deadlineNanos = System.nanoTime() - startTimeNanos +
+         TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMillis));
+    final Timeout timeout = new Timeout(this, task, deadlineNanos);
+
+    final int count = numScheduled.incrementAndGet();
+    pendingTimeouts.add(timeout);
+
+    if (count == 1)
+    {
+      // The background thread may be idle, so make sure that it is awake.
+      synchronized (idleLock)
+      {
+        idleLock.notifyAll();
+      }
+    }
+
+    return timeout;
+  }
+
+
+
+  /**
+   * Shuts down this timer.  Any tasks that have not yet been run will not be
+   * run, and no more tasks may be scheduled.
+   */
+  public void shutDown()
+  {
+    shutDown = true;
+
+    synchronized (idleLock)
+    {
+      idleLock.notifyAll();
+    }
+
+    final Thread t = workerThread;
+    if (t != null)
+    {
+      t.interrupt();
+    }
+  }
+
+
+
+  /**
+   * Removes any canceled timeouts from the wheel.  This must only be called by
+   * the background thread.
+   */
+  private void removeCanceledTimeouts()
+  {
+    while (true)
+    {
+      final Timeout t = canceledTimeouts.poll();
+      if (t == null)
+      {
+        return;
+      }
+
+      if (t.bucket != null)
+      {
+        t.bucket.remove(t);
+      }
+    }
+  }
+
+
+
+  /**
+   * Adds any newly-scheduled timeouts to the appropriate buckets in the wheel.
+   * This must only be called by the background thread.
+   *
+   * @param  tick  The current tick.
+   */
+  private void addPendingTimeouts(final long tick)
+  {
+    while (true)
+    {
+      final Timeout t = pendingTimeouts.poll();
+      if (t == null)
+      {
+        return;
+      }
+
+      if (t.state.get() != STATE_SCHEDULED)
+      {
+        continue;
+      }
+
+      final long expireTick = t.deadlineNanos / tickDurationNanos;
+      t.remainingRounds = (expireTick - tick) / wheel.length;
+      wheel[(int) (Math.max(expireTick, tick) & mask)].add(t);
+    }
+  }
+
+
+
+  /**
+   * Runs any tasks in the provided bucket that are due, and removes any
+   * canceled timeouts from it.  This must only be called by the background
+   * thread.
+   *
+   * @param  bucket  The bucket to process.
+   */
+  private static void expireTimeouts(final Bucket bucket)
+  {
+    Timeout t = bucket.head;
+    while (t != null)
+    {
+      final Timeout next = t.next;
+      if (t.remainingRounds <= 0L)
+      {
+        bucket.remove(t);
+        t.expire();
+      }
+      else if (t.isCanceled())
+      {
+        bucket.remove(t);
+      }
+      else
+      {
+        t.remainingRounds--;
+      }
+
+      t = next;
+    }
+  }
+
+
+
+  /**
+   * This class provides a handle for a task that has been scheduled with a
+   * hashed wheel timer, and may be used to cancel it.
+   */
+  @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+  public static final class Timeout
+  {
+    // The state of this timeout.
+    private final AtomicInteger state;
+
+    // The timer with which this timeout is associated.
+    private final HashedWheelTimer timer;
+
+    // The deadline for this timeout, relative to the start time for the timer.
+    private final long deadlineNanos;
+
+    // The task to run when this timeout expires.
+    private final Runnable task;
+
+    // The following fields will only be accessed by the background thread.
+    private Bucket bucket;
+    private long remainingRounds;
+    private Timeout next;
+    private Timeout previous;
+
+
+
+    /**
+     * Creates a new timeout with the provided information.
+     *
+     * @param  timer          The timer with which this timeout is associated.
+     * @param  task           The task to run when this timeout expires.
+     * @param  deadlineNanos  The deadline for this timeout, relative to the
+     *                        start time for the timer.
+     */
+    private Timeout(final HashedWheelTimer timer, final Runnable task,
+                    final long deadlineNanos)
+    {
+      this.timer         = timer;
+      this.task          = task;
+      this.deadlineNanos = deadlineNanos;
+
+      state = new AtomicInteger(STATE_SCHEDULED);
+    }
+
+
+
+    /**
+     * Attempts to cancel the associated task.
+     *
+     * @return  {@code true} if the task was canceled, or {@code false} if it
+     *          had already been canceled or run.
+     */
+    public boolean cancel()
+    {
+      if (state.compareAndSet(STATE_SCHEDULED, STATE_CANCELED))
+      {
+        timer.numScheduled.decrementAndGet();
+        timer.canceledTimeouts.add(this);
+        return true;
+      }
+
+      return false;
+    }
+
+
+
+    /**
+     * Indicates whether the associated task has been canceled.
+     *
+     * @return  {@code true} if the associated task has been canceled, or
+     *          {@code false} if not.
+     */
+    public boolean isCanceled()
+    {
+      return (state.get() == STATE_CANCELED);
+    }
+
+
+
+    /**
+     * Indicates whether the associated task has been run (or is currently
+     * running).
+     *
+     * @return  {@code true} if the associated task has been run, or
+     *          {@code false} if not.
+     */
+    public boolean isExpired()
+    {
+      return (state.get() == STATE_EXPIRED);
+    }
+
+
+
+    /**
+     * Runs the associated task if it has not been canceled.
+     */
+    private void expire()
+    {
+      if (! state.compareAndSet(STATE_SCHEDULED, STATE_EXPIRED))
+      {
+        return;
+      }
+
+      timer.numScheduled.decrementAndGet();
+
+      try
+      {
+        task.run();
+      }
+      catch (final Throwable t)
+      {
+        Debug.debugException(t);
+      }
+    }
+  }
+
+
+
+  /**
+   * This class provides a doubly-linked list of the timeouts that fall into a
+   * single bucket of the wheel.  It will only be accessed by the background
+   * thread.
+   */
+  private static final class Bucket
+  {
+    // The first timeout in this bucket.
+    private Timeout head;
+
+    // The last timeout in this bucket.
+    private Timeout tail;
+
+
+
+    /**
+     * Adds the provided timeout to the end of this bucket.
+     *
+     * @param  t  The timeout to add.
+     */
+    private void add(final Timeout t)
+    {
+      t.bucket = this;
+      if (head == null)
+      {
+        head = t;
+        tail = t;
+      }
+      else
+      {
+        tail.next = t;
+        t.previous = tail;
+        tail = t;
+      }
+    }
+
+
+
+    /**
+     * Removes the provided timeout from this bucket.
+     *
+     * @param  t  The timeout to remove.
+     */
+    private void remove(final Timeout t)
+    {
+      if (t.previous == null)
+      {
+        head = t.next;
+      }
+      else
+      {
+        t.previous.next = t.next;
+      }
+
+      if (t.next == null)
+      {
+        tail = t.previous;
+      }
+      else
+      {
+        t.next.previous = t.previous;
+      }
+
+      t.bucket   = null;
+      t.next     = null;
+      t.previous = null;
+    }
+  }
+
+
+
+  /**
+   * This class provides the logic for the background thread that advances
+   * through the wheel and runs any tasks that are due.
+   */
+  private final class Worker
+          implements Runnable
+  {
+    /**
+     * Advances through the wheel until the timer is shut down.
+     */
+    @Override()
+    public void run()
+    {
+      long tick = 0L;
+      while (! shutDown)
+      {
+        // If there are no scheduled timeouts, then wait until there are rather
+        // than waking up on every tick.  Any ticks that elapse while we are
+        // idle can be skipped because there can't be anything for them to
+        // expire.
+        if (numScheduled.get() <= 0)
+        {
+          removeCanceledTimeouts();
+          synchronized (idleLock)
+          {
+            while ((numScheduled.get() <= 0) && (! shutDown))
+            {
+              try
+              {
+                idleLock.wait();
+              }
+              catch (final InterruptedException ie)
+              {
+                Debug.debugException(ie);
+              }
+            }
+          }
+
+          tick = Math.max(tick,
+               (System.nanoTime() - startTimeNanos) / tickDurationNanos);
+          continue;
+        }
+
+
+        // Wait until the end of the current tick.
+        final long tickEndNanos = (tick + 1L) * tickDurationNanos;
+        while (! shutDown)
+        {
+          final long sleepNanos =
+               tickEndNanos - (System.nanoTime() - startTimeNanos);
+          if (sleepNanos <= 0L)
+          {
+            break;
+          }
+
+          try
+          {
+            Thread.sleep((sleepNanos + 999_999L) / 1_000_000L);
+          }
+          catch (final InterruptedException ie)
+          {
+            Debug.debugException(ie);
+          }
+        }
+
+        if (shutDown)
+        {
+          break;
+        }
+
+        removeCanceledTimeouts();
+        addPendingTimeouts(tick);
+        expireTimeouts(wheel[(int) (tick & mask)]);
+        tick++;
+      }
+    }
+  }
+}
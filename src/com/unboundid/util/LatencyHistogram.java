@@ -0,0 +1,441 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+
+/**
+ * This class provides a histogram that may be used to record durations (for
+ * example, the processing times of operations) and to estimate the
+ * percentiles of the recorded values.  It does not place any requirement on
+ * the unit of the values recorded, although nanoseconds will typically be
+ * used.
+ * <BR><BR>
+ * Values are counted in buckets whose boundaries are spaced logarithmically,
+ * with each power of two divided into 32 equally-sized buckets.  Values less
+ * than 32 are counted exactly, and the value reported for any percentile of
+ * larger values will be no more than about three percent greater than the
+ * actual value at that percentile.  The histogram uses a fixed amount of
+ * memory regardless of the number or range of the values recorded.
+ * <BR><BR>
+ * Values may be recorded concurrently by any number of threads without
+ * locking, although contention will be reduced if each thread records values
+ * in its own histogram and those histograms are merged with the
+ * {@link #add} method when results are needed.  The
+ * {@link #getSnapshot(boolean)} method may be used to obtain (and optionally
+ * reset) the values recorded over an interval while other threads continue to
+ * record values.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class LatencyHistogram
+       implements Serializable
+{
+  /**
+   * The number of bits used to identify the sub-bucket within each power of
+   * two.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+
+
+
+  /**
+   * The number of sub-buckets for each power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+
+
+  /**
+   * The total number of buckets needed to hold any non-negative long value.
+   */
+  private static final int BUCKET_COUNT =
+       (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+
+
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = 4521061906715334223L;
+
+
+
+  // The largest value that has been recorded.
+  private final AtomicLong maxValue;
+
+  // The sum of all values that have been recorded.
+  private final AtomicLong totalValue;
+
+  // The number of values that have been recorded in each bucket.
+  private final AtomicLongArray counts;
+
+
+
+  /**
+   * Creates a new, empty latency histogram.
+   */
+  public LatencyHistogram()
+  {
+    maxValue = new AtomicLong(0L);
+    totalValue = new AtomicLong(0L);
+    counts = new AtomicLongArray(BUCKET_COUNT);
+  }
+
+
+
+  /**
+   * Records the provided value.
+   *
+   * @param  value  The value to record.  A negative value will be recorded as
+   *                zero.
+   */
+  public void record(final long value)
+  {
+    final long v = Math.max(value, 0L);
+    counts.incrementAndGet(getBucketIndex(v));
+    totalValue.addAndGet(v);
+
+    long currentMax = maxValue.get();
+    while ((v > currentMax) && (! maxValue.compareAndSet(currentMax, v)))
+    {
+      currentMax = maxValue.get();
+    }
+  }
+
+
+
+  /**
+   * Records the provided value, along with additional values to correct for
+   * coordinated omission.  If a value is expected to be recorded at a fixed
+   * interval (for example, because operations are issued at a fixed rate) but
+   * the provided value is longer than that interval, then the operations that
+   * should have been started during that time were delayed, and their
+   * durations would otherwise be under-represented in the histogram.  In that
+   * case, this method will also record the values
+   * {@code value - expectedInterval}, {@code value - 2*expectedInterval}, and
+   * so on for as long as they are at least as large as the expected interval.
+   *
+   * @param  value             The value to record.  A negative value will be
+   *                           recorded as zero.
+   * @param  expectedInterval  The expected interval between recorded values.
+   *                           If this is less than or equal to zero, then no
+   *                           correction will be performed.
+   */
+  public void record(final long value, final long expectedInterval)
+  {
+    record(value);
+
+    if (expectedInterval <= 0L)
+    {
+      return;
+    }
+
+    long missingValue = value - expectedInterval;
+    while (missingValue >= expectedInterval)
+    {
+      record(missingValue);
+      missingValue -= expectedInterval;
+    }
+  }
+
+
+
+  /**
+   * Adds all of the values recorded in the provided histogram to this
+   * histogram.
+   *
+   * @param  histogram  The histogram whose values should be added to this
+   *                    histogram.  It must not be {@code null}.
+   */
+  public void add(final LatencyHistogram histogram)
+  {
+    for (int i=0; i < BUCKET_COUNT; i++)
+    {
+      final long count = histogram.counts.get(i);
+      if (count != 0L)
+      {
+        counts.addAndGet(i, count);
+      }
+    }
+
+    totalValue.addAndGet(histogram.totalValue.get());
+
+    final long v = histogram.maxValue.get();
+    long currentMax = maxValue.get();
+    while ((v > currentMax) && (! maxValue.compareAndSet(currentMax, v)))
+    {
+      currentMax = maxValue.get();
+    }
+  }
+
+
+
+  /**
+   * Retrieves a histogram containing the values that have been recorded in
+   * this histogram, optionally resetting this histogram so that it only
+   * includes values recorded after the snapshot was taken.  Each value
+   * recorded concurrently with a call to this method will be reflected in
+   * either the snapshot or this histogram, but not both.
+   *
+   * @param  reset  Indicates whether this histogram should be reset.
+   *
+   * @return  A histogram containing the values that have been recorded in this
+   *          histogram.
+   */
+  public LatencyHistogram getSnapshot(final boolean reset)
+  {
+    final LatencyHistogram snapshot = new LatencyHistogram();
+    for (int i=0; i < BUCKET_COUNT; i++)
+    {
+      final long count;
+      if (reset)
+      {
+        count = counts.getAndSet(i, 0L);
+      }
+      else
+      {
+        count = counts.get(i);
+      }
+
+      if (count != 0L)
+      {
+        snapshot.counts.set(i, count);
+      }
+    }
+
+    if (reset)
+    {
+      snapshot.totalValue.set(totalValue.getAndSet(0L));
+      snapshot.maxValue.set(maxValue.getAndSet(0L));
+    }
+    else
+    {
+      snapshot.totalValue.set(totalValue.get());
+      snapshot.maxValue.set(maxValue.get());
+    }
+
+    return snapshot;
+  }
+
+
+
+  /**
+   * Retrieves the number of values that have been recorded.
+   *
+   * @return  The number of values that have been recorded.
+   */
+  public long getCount()
+  {
+    long count = 0L;
+    for (int i=0; i < BUCKET_COUNT; i++)
+    {
+      count += counts.get(i);
+    }
+
+    return count;
+  }
+
+
+
+  /**
+   * Retrieves the largest value that has been recorded.
+   *
+   * @return  The largest value that has been recorded, or zero if no values
+   *          have been recorded.
+   */
+  public long getMaxValue()
+  {
+    return maxValue.get();
+  }
+
+
+
+  /**
+   * Retrieves the average of the values that have been recorded.
+   *
+   * @return  The average of the values that have been recorded, or zero if no
+   *          values have been recorded.
+   */
+  public double getMeanValue()
+  {
+    final long count = getCount();
+    if (count == 0L)
+    {
+      return 0.0d;
+    }
+
+    return 1.0d * totalValue.get() / count;
+  }
+
+
+
+  /**
+   * Retrieves an estimate of the value at the specified percentile, which is
+   * the smallest value such that at least the specified percentage of the
+   * recorded values are less than or equal to it.  The value returned will be
+   * the largest value that would have been counted in the same bucket, but
+   * will never be greater than the largest value recorded.
+   *
+   * @param  percentile  The percentile for which to retrieve the value.  It
+   *                     must be between 0.0 and 100.0, inclusive.
+   *
+   * @return  An estimate of the value at the specified percentile, or zero if
+   *          no values have been recorded.
+   */
+  public long getValueAtPercentile(final double percentile)
+  {
+    Validator.ensureTrue(((percentile >= 0.0d) && (percentile <= 100.0d)),
+         "LatencyHistogram.percentile must be between 0.0 and 100.0.");
+
+    final long[] countArray = new long[BUCKET_COUNT];
+    long totalCount = 0L;
+    for (int i=0; i < BUCKET_COUNT; i++)
+    {
+      countArray[i] = counts.get(i);
+      totalCount += countArray[i];
+    }
+
+    if (totalCount == 0L)
+    {
+      return 0L;
+    }
+
+    final long targetCount =
+         Math.max(1L, (long) Math.ceil(percentile * totalCount / 100.0d));
+    final long max = maxValue.get();
+
+    long cumulativeCount = 0L;
+    for (int i=0; i < BUCKET_COUNT; i++)
+    {
+      cumulativeCount += countArray[i];
+      if (cumulativeCount >= targetCount)
+      {
+        return Math.min(getBucketUpperBound(i), max);
+      }
+    }
+
+    return max;
+  }
+
+
+
+  /**
+   * Retrieves the index of the bucket in which the provided value should be
+   * counted.
+   *
+   * @param  value  The non-negative value for which to retrieve the bucket
+   *                index.
+   *
+   * @return  The index of the bucket in which the provided value should be
+   *          counted.
+   */
+  static int getBucketIndex(final long value)
+  {
+    if (value < SUB_BUCKET_COUNT)
+    {
+      return (int) value;
+    }
+
+    final int highestBit = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+    final int shift = highestBit - SUB_BUCKET_BITS;
+    final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+  }
+
+
+
+  /**
+   * Retrieves the largest value that would be counted in the bucket with the
+   * specified index.
+   *
+   * @param  index  The index of the bucket for which to retrieve the upper
+   *                bound.
+   *
+   * @return  The largest value that would be counted in the bucket with the
+   *          specified index.
+   */
+  static long getBucketUpperBound(final int index)
+  {
+    if (index < SUB_BUCKET_COUNT)
+    {
+      return index;
+    }
+
+    final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    final long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+    final long upperBound = ((subBucket + 1L) << shift) - 1L;
+    if (upperBound < 0L)
+    {
+      return Long.MAX_VALUE;
+    }
+
+    return upperBound;
+  }
+
+
+
+  /**
+   * Retrieves a string representation of this histogram.
+   *
+   * @return  A string representation of this histogram.
+   */
+  @Override()
+  public String toString()
+  {
+    final StringBuilder buffer = new StringBuilder();
+    toString(buffer);
+    return buffer.toString();
+  }
+
+
+
+  /**
+   * Appends a string representation of this histogram to the provided buffer.
+   *
+   * @param  buffer  The buffer to which the string representation should be
+   *                 appended.
+   */
+  public void toString(final StringBuilder buffer)
+  {
+    buffer.append("LatencyHistogram(count=");
+    buffer.append(getCount());
+    buffer.append(", mean=");
+    buffer.append(getMeanValue());
+    buffer.append(", p50=");
+    buffer.append(getValueAtPercentile(50.0d));
+    buffer.append(", p90=");
+    buffer.append(getValueAtPercentile(90.0d));
+    buffer.append(", p99=");
+    buffer.append(getValueAtPercentile(99.0d));
+    buffer.append(", p99.9=");
+    buffer.append(getValueAtPercentile(99.9d));
+    buffer.append(", max=");
+    buffer.append(getMaxValue());
+    buffer.append(')');
+  }
+}
@@ -35,10 +35,12 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
@@ -64,6 +66,17 @@ import static com.unboundid.util.ssl.SSLMessages.*;
  * TLSv1, TLSv1.1, and TLSv1.2 protocols will be enabled by default (if the JVM
  * supports them), with TLSv1.2 being the preferred protocol.
  * <BR><BR>
+ * All socket factories created by the same {@code SSLUtil} instance for the
+ * same protocol and provider will share a single {@code SSLContext}, and
+ * therefore a single TLS session cache.  This allows new connections created
+ * with those socket factories (for example, connections created to replace
+ * expired or defunct connections in a connection pool) to resume an existing
+ * session with the server rather than performing a full handshake.  The size of
+ * the session cache and the length of time that sessions may be resumed can be
+ * configured with the {@link #setSessionCacheSize} and
+ * {@link #setSessionTimeoutSeconds} methods.  The {@code createSSLContext}
+ * methods always create a new {@code SSLContext}.
+ * <BR><BR>
  * <H2>Example 1</H2>
  * The following example demonstrates the use of the SSL helper to create an
  * SSL-based LDAP connection that will blindly trust any certificate that the
@@ -174,6 +187,18 @@ public final class SSLUtil
   // The set of key managers to be used.
   private final KeyManager[] keyManagers;
 
+  // The SSL contexts that have been created for use by socket factories,
+  // indexed by protocol and provider.
+  private final ConcurrentHashMap<String,SSLContext> sslContexts;
+
+  // The maximum number of sessions to cache for each SSL context, or -1 if the
+  // JVM default should be used.
+  private volatile int sessionCacheSize;
+
+  // The maximum length of time in seconds that a cached session may be
+  // resumed, or -1 if the JVM default should be used.
+  private volatile int sessionTimeoutSeconds;
+
   // The set of trust managers to be used.
   private final TrustManager[] trustManagers;
 
@@ -189,6 +214,10 @@ public final class SSLUtil
   {
     keyManagers   = null;
     trustManagers = null;
+
+    sslContexts           = new ConcurrentHashMap<String,SSLContext>(10);
+    sessionCacheSize      = -1;
+    sessionTimeoutSeconds = -1;
   }
 
 
@@ -216,6 +245,10 @@ public final class SSLUtil
     {
       trustManagers = new TrustManager[] { trustManager };
     }
+
+    sslContexts           = new ConcurrentHashMap<String,SSLContext>(10);
+    sessionCacheSize      = -1;
+    sessionTimeoutSeconds = -1;
   }
 
 
@@ -243,6 +276,10 @@ public final class SSLUtil
     {
       this.trustManagers = trustManagers;
     }
+
+    sslContexts           = new ConcurrentHashMap<String,SSLContext>(10);
+    sessionCacheSize      = -1;
+    sessionTimeoutSeconds = -1;
   }
 
 
@@ -281,6 +318,10 @@ public final class SSLUtil
     {
       trustManagers = new TrustManager[] { trustManager };
     }
+
+    sslContexts           = new ConcurrentHashMap<String,SSLContext>(10);
+    sessionCacheSize      = -1;
+    sessionTimeoutSeconds = -1;
   }
 
 
@@ -320,6 +361,10 @@ public final class SSLUtil
     {
       this.trustManagers = trustManagers;
     }
+
+    sslContexts           = new ConcurrentHashMap<String,SSLContext>(10);
+    sessionCacheSize      = -1;
+    sessionTimeoutSeconds = -1;
   }
 
 
@@ -392,6 +437,7 @@ public final class SSLUtil
 
     final SSLContext sslContext = SSLContext.getInstance(protocol);
     sslContext.init(keyManagers, trustManagers, null);
+    applySessionSettings(sslContext);
     return sslContext;
   }
 
@@ -422,11 +468,204 @@ public final class SSLUtil
 
     final SSLContext sslContext = SSLContext.getInstance(protocol, provider);
     sslContext.init(keyManagers, trustManagers, null);
+    applySessionSettings(sslContext);
     return sslContext;
   }
 
 
 
+  /**
+   * Retrieves an SSL context for use in creating socket factories with the
+   * specified protocol and provider, creating and caching it if necessary.
+   *
+   * @param  protocol  The SSL protocol to use.  It must not be {@code null}.
+   * @param  provider  The name of the provider to use for cryptographic
+   *                   operations.  It may be {@code null} if the default
+   *                   provider should be used.
+   *
+   * @return  The SSL context to use.
+   *
+   * @throws  GeneralSecurityException  If a problem occurs while creating or
+   *                                    initializing the SSL context.
+   */
+  private SSLContext getCachedSSLContext(final String protocol,
+                                         final String provider)
+          throws GeneralSecurityException
+  {
+    ensureNotNull(protocol);
+
+    final String key;
+    if (provider == null)
+    {
+      key = protocol;
+    }
+    else
+    {
+      key = protocol + ':' + provider;
+    }
+
+    final SSLContext cachedContext = sslContexts.get(key);
+    if (cachedContext != null)
+    {
+      return cachedContext;
+    }
+
+    final SSLContext sslContext;
+    if (provider == null)
+    {
+      sslContext = createSSLContext(protocol);
+    }
+    else
+    {
+      sslContext = createSSLContext(protocol, provider);
+    }
+
+    final SSLContext existingContext = sslContexts.putIfAbsent(key, sslContext);
+    if (existingContext == null)
+    {
+      return sslContext;
+    }
+    else
+    {
+      return existingContext;
+    }
+  }
+
+
+
+  /**
+   * Applies the configured session cache size and session timeout to the
+   * client and server session contexts for the provided SSL context.
+   *
+   * @param  sslContext  The SSL context to update.
+   */
+  private void applySessionSettings(final SSLContext sslContext)
+  {
+    final int cacheSize = sessionCacheSize;
+    final int timeout   = sessionTimeoutSeconds;
+    if ((cacheSize < 0) && (timeout < 0))
+    {
+      return;
+    }
+
+    final SSLSessionContext[] sessionContexts =
+    {
+      sslContext.getClientSessionContext(),
+      sslContext.getServerSessionContext()
+    };
+
+    for (final SSLSessionContext c : sessionContexts)
+    {
+      if (c == null)
+      {
+        continue;
+      }
+
+      if (cacheSize >= 0)
+      {
+        c.setSessionCacheSize(cacheSize);
+      }
+
+      if (timeout >= 0)
+      {
+        c.setSessionTimeout(timeout);
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of TLS sessions that will be cached for
+   * each SSL context created by this instance.
+   *
+   * @return  The maximum number of TLS sessions that will be cached for each
+   *          SSL context created by this instance, zero if there is no limit,
+   *          or -1 if the JVM default will be used.
+   */
+  public int getSessionCacheSize()
+  {
+    return sessionCacheSize;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of TLS sessions that should be cached for
+   * each SSL context created by this instance.  The setting will be applied to
+   * SSL contexts created after it is set, as well as to the SSL contexts
+   * already shared by socket factories created by this instance.
+   *
+   * @param  sessionCacheSize  The maximum number of TLS sessions that should
+   *                           be cached.  A value of zero indicates that there
+   *                           should be no limit, and a negative value
+   *                           indicates that the JVM default should be used.
+   */
+  public void setSessionCacheSize(final int sessionCacheSize)
+  {
+    if (sessionCacheSize < 0)
+    {
+      this.sessionCacheSize = -1;
+    }
+    else
+    {
+      this.sessionCacheSize = sessionCacheSize;
+    }
+
+    for (final SSLContext c : sslContexts.values())
+    {
+      applySessionSettings(c);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the maximum length of time in seconds that a cached TLS session
+   * may be resumed for SSL contexts created by this instance.
+   *
+   * @return  The maximum length of time in seconds that a cached TLS session
+   *          may be resumed, zero if there is no limit, or -1 if the JVM
+   *          default will be used.
+   */
+  public int getSessionTimeoutSeconds()
+  {
+    return sessionTimeoutSeconds;
+  }
+
+
+
+  /**
+   * Specifies the maximum length of time in seconds that a cached TLS session
+   * may be resumed for SSL contexts created by this instance.  The setting
+   * will be applied to SSL contexts created after it is set, as well as to the
+   * SSL contexts already shared by socket factories created by this instance.
+   *
+   * @param  sessionTimeoutSeconds  The maximum length of time in seconds that a
+   *                                cached TLS session may be resumed.  A value
+   *                                of zero indicates that there should be no
+   *                                limit, and a negative value indicates that
+   *                                the JVM default should be used.
+   */
+  public void setSessionTimeoutSeconds(final int sessionTimeoutSeconds)
+  {
+    if (sessionTimeoutSeconds < 0)
+    {
+      this.sessionTimeoutSeconds = -1;
+    }
+    else
+    {
+      this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+    }
+
+    for (final SSLContext c : sslContexts.values())
+    {
+      applySessionSettings(c);
+    }
+  }
+
+
+
   /**
    * Creates an SSL socket factory using the configured key and trust manager
    * providers.  It will use the protocol returned by the
@@ -441,7 +680,8 @@ public final class SSLUtil
          throws GeneralSecurityException
   {
     return new SetEnabledProtocolsSSLSocketFactory(
-         createSSLContext().getSocketFactory(),
+         getCachedSSLContext(DEFAULT_SSL_PROTOCOL.get(), null).
+              getSocketFactory(),
          ENABLED_SSL_PROTOCOLS.get());
   }
 
@@ -466,7 +706,7 @@ public final class SSLUtil
          throws GeneralSecurityException
   {
     return new SetEnabledProtocolsSSLSocketFactory(
-         createSSLContext(protocol).getSocketFactory(), protocol);
+         getCachedSSLContext(protocol, null).getSocketFactory(), protocol);
   }
 
 
@@ -491,7 +731,9 @@ public final class SSLUtil
                                                  final String provider)
          throws GeneralSecurityException
   {
-    return createSSLContext(protocol, provider).getSocketFactory();
+    ensureNotNull(protocol, provider);
+
+    return getCachedSSLContext(protocol, provider).getSocketFactory();
   }
 
 
@@ -511,7 +753,8 @@ public final class SSLUtil
          throws GeneralSecurityException
   {
     return new SetEnabledProtocolsSSLServerSocketFactory(
-         createSSLContext().getServerSocketFactory(),
+         getCachedSSLContext(DEFAULT_SSL_PROTOCOL.get(), null).
+              getServerSocketFactory(),
          ENABLED_SSL_PROTOCOLS.get());
   }
 
@@ -538,7 +781,8 @@ public final class SSLUtil
          throws GeneralSecurityException
   {
     return new SetEnabledProtocolsSSLServerSocketFactory(
-         createSSLContext(protocol).getServerSocketFactory(), protocol);
+         getCachedSSLContext(protocol, null).getServerSocketFactory(),
+         protocol);
   }
 
 
@@ -566,7 +810,9 @@ public final class SSLUtil
                                      final String provider)
          throws GeneralSecurityException
   {
-    return createSSLContext(protocol, provider).getServerSocketFactory();
+    ensureNotNull(protocol, provider);
+
+    return getCachedSSLContext(protocol, provider).getServerSocketFactory();
   }
 
 
@@ -50,6 +50,14 @@ import static com.unboundid.util.ssl.SSLMessages.*;
  * it.  By default, it will use the default trust store format for the JVM
  * (e.g., "JKS" for Sun-provided Java implementations), but alternate formats
  * like PKCS12 may be used.
+ * <BR><BR>
+ * The trust managers created from the contents of the trust store will be
+ * cached so that the trust store does not need to be read and parsed for every
+ * certificate chain that is examined.  The trust store file will be reloaded if
+ * its last modified time or size changes.  By default, the file is examined for
+ * changes each time a certificate chain is checked, but a refresh interval may
+ * be specified so that the file will only be examined at most once per
+ * interval.
  */
 @NotMutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
@@ -71,6 +79,15 @@ public final class TrustStoreTrustManager
 
 
 
+  /**
+   * The default refresh interval that will be used if none is specified.  A
+   * value of zero indicates that the trust store file should be examined for
+   * changes each time a certificate chain is checked.
+   */
+  public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 0L;
+
+
+
   // Indicates whether to automatically trust expired or not-yet-valid
   // certificates.
   private final boolean examineValidityDates;
@@ -78,12 +95,20 @@ public final class TrustStoreTrustManager
   // The PIN to use to access the trust store.
   private final char[] trustStorePIN;
 
+  // The minimum length of time in milliseconds between checks to determine
+  // whether the trust store file has changed.
+  private final long refreshIntervalMillis;
+
   // The path to the trust store file.
   private final String trustStoreFile;
 
   // The format to use for the trust store file.
   private final String trustStoreFormat;
 
+  // The trust managers most recently loaded from the trust store file, or null
+  // if they have not yet been loaded.
+  private transient volatile CachedTrustManagers cachedTrustManagers;
+
 
 
   /**
@@ -165,6 +190,40 @@ public final class TrustStoreTrustManager
                                 final char[] trustStorePIN,
                                 final String trustStoreFormat,
                                 final boolean examineValidityDates)
+  {
+    this(trustStoreFile, trustStorePIN, trustStoreFormat,
+         examineValidityDates, DEFAULT_REFRESH_INTERVAL_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new instance of this trust store trust manager that will trust
+   * all certificates in the specified file with the specified constraints.
+   *
+   * @param  trustStoreFile         The path to the trust store file to use.
+   *                                It must not be {@code null}.
+   * @param  trustStorePIN          The PIN to use to access the contents of
+   *                                the trust store.  It may be {@code null} if
+   *                                no PIN is required.
+   * @param  trustStoreFormat       The format to use for the trust store.  It
+   *                                may be {@code null} if the default format
+   *                                should be used.
+   * @param  examineValidityDates   Indicates whether to reject certificates if
+   *                                the current time is outside the validity
+   *                                window for the certificate.
+   * @param  refreshIntervalMillis  The minimum length of time in milliseconds
+   *                                between checks to determine whether the
+   *                                trust store file has been updated.  A value
+   *                                that is less than or equal to zero
+   *                                indicates that the file should be examined
+   *                                each time a certificate chain is checked.
+   */
+  public TrustStoreTrustManager(final String trustStoreFile,
+                                final char[] trustStorePIN,
+                                final String trustStoreFormat,
+                                final boolean examineValidityDates,
+                                final long refreshIntervalMillis)
   {
     ensureNotNull(trustStoreFile);
 
@@ -172,6 +231,15 @@ public final class TrustStoreTrustManager
     this.trustStorePIN        = trustStorePIN;
     this.examineValidityDates = examineValidityDates;
 
+    if (refreshIntervalMillis > 0L)
+    {
+      this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+    else
+    {
+      this.refreshIntervalMillis = 0L;
+    }
+
     if (trustStoreFormat == null)
     {
       this.trustStoreFormat = KeyStore.getDefaultType();
@@ -224,6 +292,22 @@ public final class TrustStoreTrustManager
 
 
 
+  /**
+   * Retrieves the minimum length of time in milliseconds between checks to
+   * determine whether the trust store file has been updated.
+   *
+   * @return  The minimum length of time in milliseconds between checks to
+   *          determine whether the trust store file has been updated, or zero
+   *          if the file will be examined each time a certificate chain is
+   *          checked.
+   */
+  public long getRefreshIntervalMillis()
+  {
+    return refreshIntervalMillis;
+  }
+
+
+
   /**
    * Retrieves a set of trust managers that may be used to determine whether the
    * provided certificate chain should be trusted.  It will also check the
@@ -237,8 +321,7 @@ public final class TrustStoreTrustManager
    * @throws  CertificateException  If the provided client certificate chain
    *                                should not be trusted.
    */
-  private synchronized X509TrustManager[] getTrustManagers(
-                                               final X509Certificate[] chain)
+  private X509TrustManager[] getTrustManagers(final X509Certificate[] chain)
           throws CertificateException
   {
     if (examineValidityDates)
@@ -250,6 +333,13 @@ public final class TrustStoreTrustManager
       }
     }
 
+    final long currentTime = System.currentTimeMillis();
+    final CachedTrustManagers cached = cachedTrustManagers;
+    if ((cached != null) && (currentTime < cached.nextCheckTime))
+    {
+      return cached.trustManagers;
+    }
+
     final File f = new File(trustStoreFile);
     if (! f.exists())
     {
@@ -257,6 +347,55 @@ public final class TrustStoreTrustManager
            ERR_TRUSTSTORE_NO_SUCH_FILE.get(trustStoreFile));
     }
 
+    final long lastModified = f.lastModified();
+    final long length = f.length();
+    if ((cached != null) && cached.matches(lastModified, length))
+    {
+      if (refreshIntervalMillis > 0L)
+      {
+        cachedTrustManagers = new CachedTrustManagers(cached.trustManagers,
+             lastModified, length, (currentTime + refreshIntervalMillis));
+      }
+
+      return cached.trustManagers;
+    }
+
+
+    // The trust store has not yet been loaded or has changed since it was last
+    // loaded.  Make sure that only one thread loads it at a time, and check
+    // again in case another thread has already done so.
+    synchronized (this)
+    {
+      final CachedTrustManagers c = cachedTrustManagers;
+      if ((c != null) && c.matches(lastModified, length))
+      {
+        return c.trustManagers;
+      }
+
+      final X509TrustManager[] trustManagers = loadTrustManagers(f);
+      cachedTrustManagers = new CachedTrustManagers(trustManagers,
+           lastModified, length, (currentTime + refreshIntervalMillis));
+      return trustManagers;
+    }
+  }
+
+
+
+  /**
+   * Reads the trust store file and creates a set of trust managers from its
+   * contents.
+   *
+   * @param  f  The trust store file to read.
+   *
+   * @return  The set of trust managers created from the trust store file.
+   *
+   * @throws  CertificateException  If a problem is encountered while reading
+   *                                the trust store file or creating the trust
+   *                                managers.
+   */
+  private X509TrustManager[] loadTrustManagers(final File f)
+          throws CertificateException
+  {
     final KeyStore ks;
     try
     {
@@ -339,8 +478,8 @@ public final class TrustStoreTrustManager
    *                                should not be trusted.
    */
   @Override()
-  public synchronized void checkClientTrusted(final X509Certificate[] chain,
-                                final String authType)
+  public void checkClientTrusted(final X509Certificate[] chain,
+                                 final String authType)
          throws CertificateException
   {
     for (final X509TrustManager m : getTrustManagers(chain))
@@ -363,8 +502,8 @@ public final class TrustStoreTrustManager
    *                                should not be trusted.
    */
   @Override()
-  public synchronized void checkServerTrusted(final X509Certificate[] chain,
-                                final String authType)
+  public void checkServerTrusted(final X509Certificate[] chain,
+                                 final String authType)
          throws CertificateException
   {
     for (final X509TrustManager m : getTrustManagers(chain))
@@ -382,8 +521,73 @@ public final class TrustStoreTrustManager
    * @return  The accepted issuer certificates for this trust manager.
    */
   @Override()
-  public synchronized X509Certificate[] getAcceptedIssuers()
+  public X509Certificate[] getAcceptedIssuers()
   {
     return NO_CERTIFICATES;
   }
+
+
+
+  /**
+   * This class holds a set of trust managers loaded from the trust store file,
+   * along with the information needed to determine whether the file has
+   * changed since they were loaded.
+   */
+  private static final class CachedTrustManagers
+  {
+    // The last modified time of the trust store file when it was loaded.
+    private final long lastModified;
+
+    // The size of the trust store file when it was loaded.
+    private final long length;
+
+    // The time at which the trust store file should next be examined for
+    // changes.
+    private final long nextCheckTime;
+
+    // The trust managers created from the trust store file.
+    private final X509TrustManager[] trustManagers;
+
+
+
+    /**
+     * Creates a new cached set of trust managers with the provided
+     * information.
+     *
+     * @param  trustManagers  The trust managers created from the trust store
+     *                        file.
+     * @param  lastModified   The last modified time of the trust store file
+     *                        when it was loaded.
+     * @param  length         The size of the trust store file when it was
+     *                        loaded.
+     * @param  nextCheckTime  The time at which the trust store file should next
+     *                        be examined for changes.
+     */
+    private CachedTrustManagers(final X509TrustManager[] trustManagers,
+                                final long lastModified, final long length,
+                                final long nextCheckTime)
+    {
+      this.trustManagers = trustManagers;
+      this.lastModified  = lastModified;
+      this.length        = length;
+      this.nextCheckTime = nextCheckTime;
+    }
+
+
+
+    /**
+     * Indicates whether the trust store file still appears to be the same as
+     * when these trust managers were loaded.
+     *
+     * @param  lastModified  The current last modified time for the file.
+     * @param  length        The current size of the file.
+     *
+     * @return  {@code true} if the file does not appear to have changed, or
+     *          {@code false} if it should be reloaded.
+     */
+    private boolean matches(final long lastModified, final long length)
+    {
+      return ((this.lastModified == lastModified) && (this.length == length));
+    }
+  }
 }
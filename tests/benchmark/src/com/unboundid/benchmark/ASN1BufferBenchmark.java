@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.unboundid.asn1.ASN1Buffer;
+import com.unboundid.asn1.ASN1BufferSequence;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.protocol.SearchResultEntryProtocolOp;
+
+
+
+/**
+ * This class provides a set of benchmarks for encoding data with the
+ * {@code ASN1Buffer} class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ASN1BufferBenchmark
+{
+  // The buffer to use for encoding.
+  private ASN1Buffer buffer;
+
+  // The search result entry message to encode.
+  private LDAPMessage searchResultEntryMessage;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   */
+  @Setup()
+  public void setUp()
+  {
+    buffer = new ASN1Buffer();
+    searchResultEntryMessage = new LDAPMessage(1,
+         new SearchResultEntryProtocolOp(BenchmarkData.createUserEntry(1)));
+  }
+
+
+
+  /**
+   * Encodes a simple sequence of primitive elements.
+   *
+   * @return  The number of bytes encoded.
+   */
+  @Benchmark()
+  public int encodeSequence()
+  {
+    buffer.clear();
+
+    final ASN1BufferSequence sequence = buffer.beginSequence();
+    buffer.addInteger(12345);
+    buffer.addOctetString("uid=user.1,ou=People,dc=example,dc=com");
+    buffer.addBoolean(true);
+    buffer.addEnumerated(2);
+    buffer.addNull();
+    sequence.end();
+
+    return buffer.length();
+  }
+
+
+
+  /**
+   * Encodes an LDAP message containing a search result entry.
+   *
+   * @return  The number of bytes encoded.
+   */
+  @Benchmark()
+  public int encodeSearchResultEntry()
+  {
+    buffer.clear();
+    searchResultEntryMessage.writeTo(buffer);
+    return buffer.length();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.unboundid.asn1.ASN1Buffer;
+import com.unboundid.asn1.ASN1Element;
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.protocol.LDAPResponse;
+import com.unboundid.ldap.protocol.SearchResultEntryProtocolOp;
+
+
+
+/**
+ * This class provides a set of benchmarks for decoding data with the
+ * {@code ASN1StreamReader} class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ASN1StreamReaderBenchmark
+{
+  // The encoded representation of a search result entry message.
+  private byte[] encodedSearchResultEntry;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   */
+  @Setup()
+  public void setUp()
+  {
+    final ASN1Buffer buffer = new ASN1Buffer();
+    new LDAPMessage(1, new SearchResultEntryProtocolOp(
+         BenchmarkData.createUserEntry(1))).writeTo(buffer);
+    encodedSearchResultEntry = buffer.toByteArray();
+  }
+
+
+
+  /**
+   * Reads the search result entry message as a generic ASN.1 element.
+   *
+   * @return  The element that was read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public ASN1Element readElement()
+         throws Exception
+  {
+    final ASN1StreamReader reader = new ASN1StreamReader(
+         new ByteArrayInputStream(encodedSearchResultEntry));
+    return reader.readElement();
+  }
+
+
+
+  /**
+   * Decodes the search result entry message from an input stream.
+   *
+   * @return  The response that was decoded.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public LDAPResponse decodeSearchResultEntryFromStream()
+         throws Exception
+  {
+    final ASN1StreamReader reader = new ASN1StreamReader(
+         new ByteArrayInputStream(encodedSearchResultEntry));
+    return LDAPMessage.readLDAPResponseFrom(reader, true);
+  }
+
+
+
+  /**
+   * Decodes the search result entry message from a byte buffer.
+   *
+   * @return  The response that was decoded.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public LDAPResponse decodeSearchResultEntryFromBuffer()
+         throws Exception
+  {
+    final ASN1StreamReader reader =
+         new ASN1StreamReader(ByteBuffer.wrap(encodedSearchResultEntry));
+    return LDAPMessage.readLDAPResponseFrom(reader, true);
+  }
+}
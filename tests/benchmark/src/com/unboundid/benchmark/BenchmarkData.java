@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.io.ByteArrayOutputStream;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFWriter;
+
+
+
+/**
+ * This class provides data that may be used by multiple benchmarks.
+ */
+final class BenchmarkData
+{
+  /**
+   * Prevents this utility class from being instantiated.
+   */
+  private BenchmarkData()
+  {
+    // No implementation is required.
+  }
+
+
+
+  /**
+   * Creates a representative user entry with the specified index.
+   *
+   * @param  index  The index to use to make the entry unique.
+   *
+   * @return  The entry that was created.
+   */
+  static Entry createUserEntry(final int index)
+  {
+    return new Entry("uid=user." + index + ",ou=People,dc=example,dc=com",
+         new Attribute("objectClass", "top", "person", "organizationalPerson",
+              "inetOrgPerson"),
+         new Attribute("uid", "user." + index),
+         new Attribute("givenName", "User"),
+         new Attribute("sn", String.valueOf(index)),
+         new Attribute("cn", "User " + index),
+         new Attribute("initials", "U" + index),
+         new Attribute("employeeNumber", String.valueOf(index)),
+         new Attribute("mail", "user." + index + "@example.com"),
+         new Attribute("userPassword", "password"),
+         new Attribute("telephoneNumber",
+              "+1 512 555 " + String.format("%04d", index % 10000)),
+         new Attribute("homePhone",
+              "+1 512 555 " + String.format("%04d", (index + 1) % 10000)),
+         new Attribute("postalAddress",
+              "User " + index + "$1234 Main Street$Austin, TX 78701"),
+         new Attribute("description",
+              "This is the description for user." + index + '.'));
+  }
+
+
+
+  /**
+   * Creates the LDIF representation of the specified number of user entries.
+   *
+   * @param  numEntries  The number of entries to include.
+   *
+   * @return  The bytes that comprise the LDIF representation of the entries.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  static byte[] createUserLDIF(final int numEntries)
+         throws Exception
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final LDIFWriter ldifWriter = new LDIFWriter(outputStream);
+    for (int i=0; i < numEntries; i++)
+    {
+      ldifWriter.writeEntry(createUserEntry(i));
+    }
+    ldifWriter.close();
+
+    return outputStream.toByteArray();
+  }
+}
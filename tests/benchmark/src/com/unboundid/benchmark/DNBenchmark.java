@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.unboundid.ldap.sdk.DN;
+
+
+
+/**
+ * This class provides a set of benchmarks for parsing and normalizing DNs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DNBenchmark
+{
+  /**
+   * The string representation of the DN to use for the benchmarks.
+   */
+  private static final String DN_STRING =
+       "UID=User.1234, OU=People, DC=Example, DC=Com";
+
+
+
+  // The base DN to use when determining whether a DN is a descendant.
+  private DN baseDN;
+
+  // The parsed representation of the DN.
+  private DN dn;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Setup()
+  public void setUp()
+         throws Exception
+  {
+    baseDN = new DN("dc=example,dc=com");
+    dn = new DN(DN_STRING);
+  }
+
+
+
+  /**
+   * Parses the DN string.
+   *
+   * @return  The DN that was parsed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public DN parse()
+         throws Exception
+  {
+    return new DN(DN_STRING);
+  }
+
+
+
+  /**
+   * Parses and normalizes the DN string.
+   *
+   * @return  The normalized representation of the DN.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public String normalize()
+         throws Exception
+  {
+    return DN.normalize(DN_STRING);
+  }
+
+
+
+  /**
+   * Determines whether a previously parsed DN is a descendant of a base DN.
+   *
+   * @return  The result of the determination.
+   */
+  @Benchmark()
+  public boolean isDescendantOf()
+  {
+    return dn.isDescendantOf(baseDN, false);
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.unboundid.ldap.sdk.CompiledFilter;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of benchmarks for parsing filters and evaluating
+ * them against entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark
+{
+  /**
+   * The string representation of a simple equality filter.
+   */
+  private static final String SIMPLE_FILTER = "(uid=user.1)";
+
+
+
+  /**
+   * The string representation of a more complex filter.
+   */
+  private static final String COMPLEX_FILTER =
+       "(&(objectClass=inetOrgPerson)(|(uid=user.1)(mail=user.1*))" +
+            "(!(description=*disabled*))(employeeNumber>=0))";
+
+
+
+  // The entry to use when evaluating filters.
+  private Entry entry;
+
+  // The parsed representation of the simple filter.
+  private Filter simpleFilter;
+
+  // The parsed representation of the complex filter.
+  private Filter complexFilter;
+
+  // The compiled representation of the simple filter.
+  private CompiledFilter compiledSimpleFilter;
+
+  // The compiled representation of the complex filter.
+  private CompiledFilter compiledComplexFilter;
+
+  // The schema to use when evaluating filters.
+  private Schema schema;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Setup()
+  public void setUp()
+         throws Exception
+  {
+    entry = BenchmarkData.createUserEntry(1);
+    simpleFilter = Filter.create(SIMPLE_FILTER);
+    complexFilter = Filter.create(COMPLEX_FILTER);
+
+    schema = Schema.getDefaultStandardSchema();
+    compiledSimpleFilter = new CompiledFilter(simpleFilter, schema);
+    compiledComplexFilter = new CompiledFilter(complexFilter, schema);
+  }
+
+
+
+  /**
+   * Parses a simple equality filter.
+   *
+   * @return  The filter that was parsed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public Filter createSimpleFilter()
+         throws Exception
+  {
+    return Filter.create(SIMPLE_FILTER);
+  }
+
+
+
+  /**
+   * Parses a complex filter.
+   *
+   * @return  The filter that was parsed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public Filter createComplexFilter()
+         throws Exception
+  {
+    return Filter.create(COMPLEX_FILTER);
+  }
+
+
+
+  /**
+   * Evaluates a simple equality filter against an entry.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntrySimpleFilter()
+         throws Exception
+  {
+    return simpleFilter.matchesEntry(entry);
+  }
+
+
+
+  /**
+   * Evaluates a complex filter against an entry.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntryComplexFilter()
+         throws Exception
+  {
+    return complexFilter.matchesEntry(entry);
+  }
+
+
+
+  /**
+   * Evaluates a simple equality filter against an entry using the provided
+   * schema.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntrySimpleFilterWithSchema()
+         throws Exception
+  {
+    return simpleFilter.matchesEntry(entry, schema);
+  }
+
+
+
+  /**
+   * Evaluates a complex filter against an entry using the provided schema.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntryComplexFilterWithSchema()
+         throws Exception
+  {
+    return complexFilter.matchesEntry(entry, schema);
+  }
+
+
+
+  /**
+   * Evaluates the compiled representation of a simple equality filter against
+   * an entry.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntryCompiledSimpleFilter()
+         throws Exception
+  {
+    return compiledSimpleFilter.matchesEntry(entry);
+  }
+
+
+
+  /**
+   * Evaluates the compiled representation of a complex filter against an
+   * entry.
+   *
+   * @return  The result of the evaluation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public boolean matchesEntryCompiledComplexFilter()
+         throws Exception
+  {
+    return compiledComplexFilter.matchesEntry(entry);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+
+
+
+/**
+ * This class provides a set of benchmarks for checking out connections from
+ * and processing operations with an {@code LDAPConnectionPool} that is
+ * connected to an in-memory directory server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+public class LDAPConnectionPoolBenchmark
+{
+  /**
+   * Indicates whether the pool should use a striped available connection
+   * queue.
+   */
+  @Param({ "false", "true" })
+  public boolean useStripedQueue;
+
+
+
+  // The in-memory directory server to which the pool is connected.
+  private InMemoryDirectoryServer ds;
+
+  // The connection pool to use for the benchmarks.
+  private LDAPConnectionPool pool;
+
+
+
+  /**
+   * Starts the in-memory directory server and creates the connection pool.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Setup()
+  public void setUp()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig config =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    ds = new InMemoryDirectoryServer(config);
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    ds.add(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+    ds.add(BenchmarkData.createUserEntry(1));
+    ds.startListening();
+
+    final LDAPConnection conn = ds.getConnection();
+    pool = new LDAPConnectionPool(conn, 10, 10, 1, null, true, null,
+         useStripedQueue);
+    pool.setMaxWaitTimeMillis(10000L);
+  }
+
+
+
+  /**
+   * Closes the connection pool and shuts down the in-memory directory server.
+   */
+  @TearDown()
+  public void tearDown()
+  {
+    pool.close();
+    ds.shutDown(true);
+  }
+
+
+
+  /**
+   * Checks out a connection from the pool and releases it.
+   *
+   * @return  The connection that was checked out.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public LDAPConnection checkoutAndRelease()
+         throws Exception
+  {
+    final LDAPConnection conn = pool.getConnection();
+    pool.releaseConnection(conn);
+    return conn;
+  }
+
+
+
+  /**
+   * Retrieves an entry using the connection pool.
+   *
+   * @return  The entry that was retrieved.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  public SearchResultEntry getEntry()
+         throws Exception
+  {
+    return pool.getEntry("uid=user.1,ou=People,dc=example,dc=com");
+  }
+}
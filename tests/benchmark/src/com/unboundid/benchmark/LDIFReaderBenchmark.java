@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFReader;
+
+
+
+/**
+ * This class provides a set of benchmarks for reading entries with the
+ * {@code LDIFReader} class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LDIFReaderBenchmark
+{
+  /**
+   * The number of entries to read in each invocation.
+   */
+  private static final int NUM_ENTRIES = 1000;
+
+
+
+  // The LDIF representation of the entries to read.
+  private byte[] ldifBytes;
+
+  // A file containing the LDIF representation of the entries to read.
+  private File ldifFile;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Setup()
+  public void setUp()
+         throws Exception
+  {
+    ldifBytes = BenchmarkData.createUserLDIF(NUM_ENTRIES);
+
+    ldifFile = File.createTempFile("ldapsdk-benchmark-", ".ldif");
+    ldifFile.deleteOnExit();
+
+    final FileOutputStream outputStream = new FileOutputStream(ldifFile);
+    try
+    {
+      outputStream.write(ldifBytes);
+    }
+    finally
+    {
+      outputStream.close();
+    }
+  }
+
+
+
+  /**
+   * Removes the temporary LDIF file.
+   */
+  @TearDown()
+  public void tearDown()
+  {
+    ldifFile.delete();
+  }
+
+
+
+  /**
+   * Reads all of the entries with a single parse thread.  The time reported
+   * will be the average time to read each entry.
+   *
+   * @return  The number of entries read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  @OperationsPerInvocation(NUM_ENTRIES)
+  public int readEntry()
+         throws Exception
+  {
+    return readEntries(0);
+  }
+
+
+
+  /**
+   * Reads all of the entries with multiple parse threads.  The time reported
+   * will be the average time to read each entry.
+   *
+   * @return  The number of entries read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  @OperationsPerInvocation(NUM_ENTRIES)
+  public int readEntryParallel()
+         throws Exception
+  {
+    return readEntries(4);
+  }
+
+
+
+  /**
+   * Reads all of the entries from a memory-mapped file with multiple parse
+   * threads.  The time reported will be the average time to read each entry.
+   *
+   * @return  The number of entries read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  @OperationsPerInvocation(NUM_ENTRIES)
+  public int readEntryMemoryMapped()
+         throws Exception
+  {
+    return readEntries(new LDIFReader(ldifFile, 4, null, null, true));
+  }
+
+
+
+  /**
+   * Reads all of the entries using the specified number of parse threads.
+   *
+   * @param  numParseThreads  The number of parse threads to use.
+   *
+   * @return  The number of entries read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private int readEntries(final int numParseThreads)
+          throws Exception
+  {
+    return readEntries(new LDIFReader(new ByteArrayInputStream(ldifBytes),
+         numParseThreads));
+  }
+
+
+
+  /**
+   * Reads all of the entries from the provided LDIF reader.
+   *
+   * @param  ldifReader  The LDIF reader to use.  It will be closed before
+   *                     returning.
+   *
+   * @return  The number of entries read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static int readEntries(final LDIFReader ldifReader)
+          throws Exception
+  {
+    int count = 0;
+    try
+    {
+      Entry entry = ldifReader.readEntry();
+      while (entry != null)
+      {
+        count++;
+        entry = ldifReader.readEntry();
+      }
+    }
+    finally
+    {
+      ldifReader.close();
+    }
+
+    return count;
+  }
+}
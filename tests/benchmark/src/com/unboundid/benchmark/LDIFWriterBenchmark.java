@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.benchmark;
+
+
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFWriter;
+
+
+
+/**
+ * This class provides a set of benchmarks for writing entries with the
+ * {@code LDIFWriter} class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LDIFWriterBenchmark
+{
+  /**
+   * The number of entries to write in each invocation.
+   */
+  private static final int NUM_ENTRIES = 1000;
+
+
+
+  // The output stream to which the LDIF will be written.
+  private ByteArrayOutputStream outputStream;
+
+  // The entries to be written.
+  private List<Entry> entries;
+
+
+
+  /**
+   * Prepares the data for the benchmarks.
+   */
+  @Setup()
+  public void setUp()
+  {
+    outputStream = new ByteArrayOutputStream(NUM_ENTRIES * 1024);
+
+    entries = new ArrayList<Entry>(NUM_ENTRIES);
+    for (int i=0; i < NUM_ENTRIES; i++)
+    {
+      entries.add(BenchmarkData.createUserEntry(i));
+    }
+  }
+
+
+
+  /**
+   * Writes all of the entries with a single thread.  The time reported will be
+   * the average time to write each entry.
+   *
+   * @return  The number of bytes written.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  @OperationsPerInvocation(NUM_ENTRIES)
+  public int writeEntry()
+         throws Exception
+  {
+    outputStream.reset();
+
+    final LDIFWriter ldifWriter = new LDIFWriter(outputStream);
+    for (final Entry e : entries)
+    {
+      ldifWriter.writeEntry(e);
+    }
+    ldifWriter.close();
+
+    return outputStream.size();
+  }
+
+
+
+  /**
+   * Writes all of the entries using the parallel LDIF writer support.  The
+   * time reported will be the average time to write each entry.
+   *
+   * @return  The number of bytes written.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Benchmark()
+  @OperationsPerInvocation(NUM_ENTRIES)
+  public int writeLDIFRecordsParallel()
+         throws Exception
+  {
+    outputStream.reset();
+
+    final LDIFWriter ldifWriter = new LDIFWriter(outputStream, 4);
+    ldifWriter.writeLDIFRecords(entries);
+    ldifWriter.close();
+
+    return outputStream.size();
+  }
+}
@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -1585,4 +1586,192 @@ public class ASN1StreamReaderTestCase
 
     reader.readUTCTime();
   }
+
+
+
+  /**
+   * Tests the {@code readElement} method when reading from heap and direct
+   * byte buffers.
+   *
+   * @param  element  The ASN.1 element to use for the tests.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="genericElements")
+  public void testReadElementFromBuffer(final ASN1Element element)
+         throws Exception
+  {
+    final byte[] elementBytes = element.encode();
+
+    final ByteBuffer directBuffer =
+         ByteBuffer.allocateDirect(elementBytes.length);
+    directBuffer.put(elementBytes);
+    directBuffer.flip();
+
+    for (final ByteBuffer buffer :
+         new ByteBuffer[] { ByteBuffer.wrap(elementBytes), directBuffer })
+    {
+      final ASN1StreamReader reader = new ASN1StreamReader(buffer);
+
+      assertEquals(reader.peek(), (element.getType() & 0xFF));
+
+      final ASN1Element e = reader.readElement();
+      assertNotNull(e);
+      assertEquals(e, element);
+      assertTrue(Arrays.equals(e.encode(), elementBytes));
+
+      assertEquals(reader.peek(), -1);
+      assertNull(reader.readElement());
+      reader.close();
+
+      assertEquals(reader.getTotalBytesRead(), (long) elementBytes.length);
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when reading a variety of elements from a buffer that
+   * is a slice of a larger array, and ensures that octet string values
+   * reference the backing array rather than a copy of it.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReadFromBufferSlice()
+         throws Exception
+  {
+    final byte[] encodedSequence = new ASN1Sequence(
+         new ASN1OctetString("uid=test.user,dc=example,dc=com"),
+         new ASN1Integer(12345),
+         new ASN1Boolean(true),
+         new ASN1Set(
+              new ASN1OctetString("value1"),
+              new ASN1OctetString((byte) 0x80, "value2")),
+         new ASN1OctetString("skipped")).encode();
+
+    final byte[] array = new byte[encodedSequence.length + 10];
+    System.arraycopy(encodedSequence, 0, array, 5, encodedSequence.length);
+
+    final ByteBuffer buffer =
+         ByteBuffer.wrap(array, 5, encodedSequence.length).slice();
+    final ASN1StreamReader reader = new ASN1StreamReader(buffer, 1024);
+
+    final ASN1StreamReaderSequence sequence = reader.beginSequence();
+    assertNotNull(sequence);
+    assertEquals(reader.readString(), "uid=test.user,dc=example,dc=com");
+    assertEquals(reader.readInteger(), Integer.valueOf(12345));
+    assertEquals(reader.readBoolean(), Boolean.TRUE);
+
+    final ASN1StreamReaderSet set = reader.beginSet();
+    assertTrue(set.hasMoreElements());
+    final ASN1OctetString value1 = reader.readOctetString();
+    assertEquals(value1.getType(), ASN1Constants.UNIVERSAL_OCTET_STRING_TYPE);
+    assertEquals(value1.stringValue(), "value1");
+    assertTrue(set.hasMoreElements());
+    final ASN1OctetString value2 = reader.readOctetString();
+    assertEquals(value2.getType(), (byte) 0x80);
+    assertEquals(value2.stringValue(), "value2");
+    assertFalse(set.hasMoreElements());
+
+    assertTrue(sequence.hasMoreElements());
+    assertEquals(reader.readElement(), new ASN1OctetString("skipped"));
+    assertFalse(sequence.hasMoreElements());
+    assertNull(reader.readOctetString());
+    assertEquals(reader.getTotalBytesRead(), (long) encodedSequence.length);
+
+    // Alter the backing array and verify that the change is visible through
+    // the octet string, which indicates that the value was not copied.
+    final int value1Pos = StaticUtils.toUTF8String(array).indexOf("value1");
+    array[value1Pos] = (byte) 'V';
+    assertEquals(value1.getValue(), StaticUtils.getBytes("Value1"));
+  }
+
+
+
+  /**
+   * Ensures that octet string values read from a read-only buffer are copied
+   * rather than referencing the array that holds the buffer's data.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReadFromReadOnlyBufferCopiesValues()
+         throws Exception
+  {
+    final byte[] encodedSequence = new ASN1Sequence(
+         new ASN1OctetString("value1"),
+         new ASN1OctetString("value2")).encode();
+
+    final byte[] array = new byte[encodedSequence.length + 10];
+    System.arraycopy(encodedSequence, 0, array, 5, encodedSequence.length);
+
+    final ByteBuffer buffer = ByteBuffer.wrap(array).asReadOnlyBuffer();
+    buffer.position(5);
+    buffer.limit(5 + encodedSequence.length);
+    final ASN1StreamReader reader = new ASN1StreamReader(buffer, 1024);
+
+    final ASN1StreamReaderSequence sequence = reader.beginSequence();
+    assertNotNull(sequence);
+    final ASN1OctetString value1 = reader.readOctetString();
+    assertEquals(value1.stringValue(), "value1");
+    final ASN1Element value2 = reader.readElement();
+    assertEquals(value2, new ASN1OctetString("value2"));
+    assertFalse(sequence.hasMoreElements());
+    assertEquals(buffer.position(), 5 + encodedSequence.length);
+
+    // Alter the backing array and verify that the change is not visible
+    // through the values that were read.
+    final String arrayString = StaticUtils.toUTF8String(array);
+    array[arrayString.indexOf("value1")] = (byte) 'V';
+    array[arrayString.indexOf("value2")] = (byte) 'V';
+    assertEquals(value1.getValue(), StaticUtils.getBytes("value1"));
+    assertEquals(value2.getValue(), StaticUtils.getBytes("value2"));
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to read an element from a buffer that does
+   * not contain the entire value.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { IOException.class })
+  public void testReadFromBufferNotEnoughValueBytes()
+         throws Exception
+  {
+    final byte[] elementBytes = { (byte) 0x04, (byte) 0x05, (byte) 0x00 };
+
+    final ASN1StreamReader reader =
+         new ASN1StreamReader(ByteBuffer.wrap(elementBytes));
+    reader.readOctetString();
+  }
+
+
+
+  /**
+   * Tests the {@code readOctetString} method when reading from an input
+   * stream.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReadOctetStringFromInputStream()
+         throws Exception
+  {
+    final byte[] elementBytes =
+         new ASN1OctetString((byte) 0x81, "foo").encode();
+
+    final ASN1StreamReader reader =
+         new ASN1StreamReader(new ByteArrayInputStream(elementBytes));
+
+    final ASN1OctetString s = reader.readOctetString();
+    assertNotNull(s);
+    assertEquals(s.getType(), (byte) 0x81);
+    assertEquals(s.stringValue(), "foo");
+
+    assertNull(reader.readOctetString());
+    reader.close();
+  }
 }
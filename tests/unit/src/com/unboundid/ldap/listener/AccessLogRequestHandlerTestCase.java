@@ -37,6 +37,7 @@ import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.util.AsynchronousLogHandler;
 import com.unboundid.util.MemoryBasedLogHandler;
 import com.unboundid.util.MinimalLogFormatter;
 
@@ -626,6 +627,64 @@ public final class AccessLogRequestHandlerTestCase
 
 
 
+  /**
+   * Provides test coverage for an access log request handler that uses an
+   * asynchronous log handler.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAsynchronousLogHandler()
+         throws Exception
+  {
+    final MemoryBasedLogHandler memoryHandler = new MemoryBasedLogHandler();
+    memoryHandler.setFormatter(new MinimalLogFormatter());
+    memoryHandler.setLevel(Level.INFO);
+
+    final AsynchronousLogHandler asyncHandler =
+         new AsynchronousLogHandler(memoryHandler);
+
+    final LDAPListener listener = new LDAPListener(new LDAPListenerConfig(0,
+         new AccessLogRequestHandler(asyncHandler,
+              new CannedResponseRequestHandler())));
+    listener.startListening();
+
+    try
+    {
+      final LDAPConnection conn =
+           new LDAPConnection("127.0.0.1", listener.getListenPort());
+      for (int i=0; i < 10; i++)
+      {
+        conn.search("dc=example,dc=com", SearchScope.BASE, "(objectClass=*)");
+      }
+      conn.close();
+
+      // We should eventually get a CONNECT message, a request and result
+      // message for each search, an UNBIND message, and a DISCONNECT message.
+      final long stopWaitingTime = System.currentTimeMillis() + 10000L;
+      while ((memoryHandler.size() < 23) &&
+           (System.currentTimeMillis() < stopWaitingTime))
+      {
+        Thread.sleep(1L);
+      }
+
+      final String[] messages = memoryHandler.getMessages(false);
+      assertEquals(messages.length, 23);
+      assertTrue(messages[0].contains(" CONNECT "), messages[0]);
+      assertTrue(messages[1].contains(" SEARCH REQUEST "), messages[1]);
+      assertTrue(messages[2].contains(" SEARCH RESULT "), messages[2]);
+      assertTrue(messages[22].contains(" DISCONNECT "), messages[22]);
+      assertEquals(asyncHandler.getDiscardedRecordCount(), 0L);
+    }
+    finally
+    {
+      listener.shutDown(true);
+      asyncHandler.close();
+    }
+  }
+
+
+
   /**
    * Waits for the available message count to be greater than or equal to the
    * provided value.
@@ -26,11 +26,17 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.asn1.ASN1OctetString;
 import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.CompareRequest;
@@ -38,7 +44,9 @@ import com.unboundid.ldap.sdk.CompareResult;
 import com.unboundid.ldap.sdk.DeleteRequest;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.IntermediateResponse;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPResult;
 import com.unboundid.ldap.sdk.LDAPSearchException;
@@ -51,13 +59,24 @@ import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchResultReference;
 import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.ldap.sdk.controls.AssertionRequestControl;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityRequestControl;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityResponseControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncDoneControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncInfoIntermediateResponse;
+import com.unboundid.ldap.sdk.controls.ContentSyncInfoType;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestMode;
+import com.unboundid.ldap.sdk.controls.ContentSyncState;
+import com.unboundid.ldap.sdk.controls.ContentSyncStateControl;
+import com.unboundid.ldap.sdk.controls.EntryChangeNotificationControl;
 import com.unboundid.ldap.sdk.controls.ManageDsaITRequestControl;
 import com.unboundid.ldap.sdk.controls.PermissiveModifyRequestControl;
+import com.unboundid.ldap.sdk.controls.PersistentSearchChangeType;
+import com.unboundid.ldap.sdk.controls.PersistentSearchRequestControl;
 import com.unboundid.ldap.sdk.controls.PostReadRequestControl;
 import com.unboundid.ldap.sdk.controls.PostReadResponseControl;
 import com.unboundid.ldap.sdk.controls.PreReadRequestControl;
@@ -2514,6 +2533,611 @@ public final class InMemoryDirectoryControlsTestCase
 
 
 
+  /**
+   * Tests the behavior of the simple paged results control when the server
+   * content is altered while paging through the results, and when a paged
+   * search is abandoned.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSimplePagedResultsCursor()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final LDAPConnection conn = ds.getConnection();
+
+    conn.delete("uid=test.user,ou=People,dc=example,dc=com");
+    for (int i=10; i < 40; i++)
+    {
+      conn.add(generateUserEntry("test." + i, "ou=People,dc=example,dc=com",
+           "Test", String.valueOf(i), "password"));
+    }
+
+
+    // Retrieve the first page of sorted results.
+    final ServerSideSortRequestControl sortControl =
+         new ServerSideSortRequestControl(true, new SortKey("sn"));
+    final SearchRequest searchRequest = new SearchRequest(
+         "ou=People,dc=example,dc=com", SearchScope.ONE,
+         "(objectClass=person)", "sn");
+    searchRequest.setControls(sortControl,
+         new SimplePagedResultsControl(10, true));
+
+    SearchResult searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 10);
+    assertEquals(searchResult.getSearchEntries().get(0).getDN(),
+         "uid=test.10,ou=People,dc=example,dc=com");
+
+    SimplePagedResultsControl pagedResponse =
+         SimplePagedResultsControl.get(searchResult);
+    assertEquals(pagedResponse.getSize(), 30);
+    final ASN1OctetString secondPageCookie = pagedResponse.getCookie();
+    assertTrue(secondPageCookie.getValueLength() > 0);
+
+
+    // Delete an entry that would have been included in the second page, and
+    // add an entry that would also have been included.  Neither should be
+    // included in the next page of results.
+    conn.delete("uid=test.21,ou=People,dc=example,dc=com");
+    conn.add(generateUserEntry("test.20a", "ou=People,dc=example,dc=com",
+         "Test", "20a", "password"));
+
+    searchRequest.setControls(sortControl,
+         new SimplePagedResultsControl(10, secondPageCookie, true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 9);
+    assertEquals(searchResult.getSearchEntries().get(0).getDN(),
+         "uid=test.20,ou=People,dc=example,dc=com");
+    assertEquals(searchResult.getSearchEntries().get(1).getDN(),
+         "uid=test.22,ou=People,dc=example,dc=com");
+
+    pagedResponse = SimplePagedResultsControl.get(searchResult);
+    assertEquals(pagedResponse.getSize(), 30);
+    final ASN1OctetString thirdPageCookie = pagedResponse.getCookie();
+    assertTrue(thirdPageCookie.getValueLength() > 0);
+
+
+    // Abandon the paged search by requesting a page size of zero.
+    searchRequest.setControls(sortControl,
+         new SimplePagedResultsControl(0, thirdPageCookie, true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 0);
+    pagedResponse = SimplePagedResultsControl.get(searchResult);
+    assertEquals(pagedResponse.getCookie().getValueLength(), 0);
+
+
+    // Using the cookie after the search has been abandoned should cause the
+    // search to be processed again, so the results will reflect the changes
+    // made to the data.
+    searchRequest.setControls(sortControl,
+         new SimplePagedResultsControl(10, thirdPageCookie, true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 10);
+    assertEquals(searchResult.getSearchEntries().get(0).getDN(),
+         "uid=test.30,ou=People,dc=example,dc=com");
+
+    pagedResponse = SimplePagedResultsControl.get(searchResult);
+    assertEquals(pagedResponse.getSize(), 30);
+    assertEquals(pagedResponse.getCookie().getValueLength(), 0);
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Ensures that the virtual list view control reflects changes made to the
+   * server content between requests.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testVirtualListViewAfterUpdate()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final LDAPConnection conn = ds.getConnection();
+
+    conn.delete("uid=test.user,ou=People,dc=example,dc=com");
+    for (int i=10; i < 40; i++)
+    {
+      conn.add(generateUserEntry("test." + i, "ou=People,dc=example,dc=com",
+           "Test", String.valueOf(i), "password"));
+    }
+
+    final ServerSideSortRequestControl sortControl =
+         new ServerSideSortRequestControl(true, new SortKey("sn"));
+    final SearchRequest searchRequest = new SearchRequest(
+         "ou=People,dc=example,dc=com", SearchScope.ONE,
+         "(objectClass=person)", "sn");
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl("20", 0, 2, null));
+
+    for (int i=0; i < 2; i++)
+    {
+      final SearchResult searchResult = conn.search(searchRequest);
+      assertEquals(searchResult.getEntryCount(), 3);
+      assertEquals(searchResult.getSearchEntries().get(0).getDN(),
+           "uid=test.20,ou=People,dc=example,dc=com");
+      assertEquals(searchResult.getSearchEntries().get(2).getDN(),
+           "uid=test.22,ou=People,dc=example,dc=com");
+
+      final VirtualListViewResponseControl vlvResponse =
+           VirtualListViewResponseControl.get(searchResult);
+      assertEquals(vlvResponse.getContentCount(), 30);
+      assertEquals(vlvResponse.getTargetPosition(), 11);
+    }
+
+    conn.delete("uid=test.21,ou=People,dc=example,dc=com");
+    conn.add(generateUserEntry("test.1", "ou=People,dc=example,dc=com",
+         "Test", "1", "password"));
+
+    final SearchResult searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 3);
+    assertEquals(searchResult.getSearchEntries().get(0).getDN(),
+         "uid=test.20,ou=People,dc=example,dc=com");
+    assertEquals(searchResult.getSearchEntries().get(1).getDN(),
+         "uid=test.22,ou=People,dc=example,dc=com");
+
+    final VirtualListViewResponseControl vlvResponse =
+         VirtualListViewResponseControl.get(searchResult);
+    assertEquals(vlvResponse.getContentCount(), 30);
+    assertEquals(vlvResponse.getTargetPosition(), 12);
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Provides test coverage for the persistent search request control.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPersistentSearchControl()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final LDAPConnection conn = ds.getConnection();
+    final LDAPConnection updateConn = ds.getConnection();
+
+    final TestQueueingSearchListener listener =
+         new TestQueueingSearchListener();
+    final SearchRequest searchRequest = new SearchRequest(listener,
+         "dc=example,dc=com", SearchScope.SUB, "(uid=*)");
+    searchRequest.addControl(new PersistentSearchRequestControl(
+         PersistentSearchChangeType.allChangeTypes(), false, true));
+    final AsyncRequestID requestID = conn.asyncSearch(searchRequest);
+
+    // Wait for the initial content.  Since it is sent while the search holds
+    // the server's read lock, any change made after it has been received will
+    // be visible to the persistent search.
+    SearchResultEntry e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=test.user,ou=People,dc=example,dc=com");
+    assertNull(e.getControl(
+         EntryChangeNotificationControl.ENTRY_CHANGE_NOTIFICATION_OID));
+
+    updateConn.add(generateUserEntry("ps.1", "ou=People,dc=example,dc=com",
+         "Persistent", "Search", "password"));
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=ps.1,ou=People,dc=example,dc=com");
+    EntryChangeNotificationControl ecn =
+         EntryChangeNotificationControl.get(e);
+    assertNotNull(ecn);
+    assertEquals(ecn.getChangeType(), PersistentSearchChangeType.ADD);
+    assertNull(ecn.getPreviousDN());
+
+    updateConn.modify("dn: uid=ps.1,ou=People,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: foo");
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=ps.1,ou=People,dc=example,dc=com");
+    assertTrue(e.hasAttributeValue("description", "foo"));
+    ecn = EntryChangeNotificationControl.get(e);
+    assertNotNull(ecn);
+    assertEquals(ecn.getChangeType(), PersistentSearchChangeType.MODIFY);
+
+    updateConn.modifyDN("uid=ps.1,ou=People,dc=example,dc=com", "uid=ps.2",
+         true);
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=ps.2,ou=People,dc=example,dc=com");
+    ecn = EntryChangeNotificationControl.get(e);
+    assertNotNull(ecn);
+    assertEquals(ecn.getChangeType(), PersistentSearchChangeType.MODIFY_DN);
+    assertDNsEqual(ecn.getPreviousDN(),
+         "uid=ps.1,ou=People,dc=example,dc=com");
+
+    // A change to an entry that does not match the filter should not be
+    // returned, so the next entry should be for the delete.
+    updateConn.add(
+         "dn: ou=Groups,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: Groups");
+    updateConn.delete("uid=ps.2,ou=People,dc=example,dc=com");
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=ps.2,ou=People,dc=example,dc=com");
+    ecn = EntryChangeNotificationControl.get(e);
+    assertNotNull(ecn);
+    assertEquals(ecn.getChangeType(), PersistentSearchChangeType.DELETE);
+
+    assertEquals(listener.getAvailableEntryCount(), 0);
+
+    conn.abandon(requestID);
+
+
+    // A persistent search may not be combined with the server-side sort
+    // control.
+    final SearchRequest sortedRequest = new SearchRequest(
+         "dc=example,dc=com", SearchScope.SUB, "(uid=*)");
+    sortedRequest.setControls(
+         new PersistentSearchRequestControl(
+              PersistentSearchChangeType.allChangeTypes(), true, true),
+         new ServerSideSortRequestControl(new SortKey("uid")));
+    try
+    {
+      conn.search(sortedRequest);
+      fail("Expected an exception when combining the persistent search and " +
+           "server-side sort controls.");
+    }
+    catch (final LDAPSearchException lse)
+    {
+      assertEquals(lse.getResultCode(), ResultCode.UNWILLING_TO_PERFORM);
+    }
+
+    updateConn.close();
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that a persistent search client that stops reading the
+   * notifications sent to it does not block operations that make changes, or
+   * the delivery of notifications to other persistent searches, and that the
+   * client is sent a search result done message if too many notifications are
+   * left waiting for it.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPersistentSearchClientNotReading()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final String dn = "uid=test.user,ou=People,dc=example,dc=com";
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setResponseTimeoutMillis(30000L);
+    final LDAPConnection stalledConn = ds.getConnection();
+    final LDAPConnection activeConn = ds.getConnection();
+    final LDAPConnection updateConn = ds.getConnection(options);
+
+    // Create a listener that will block the stalled connection's reader
+    // thread until it is told to resume, so that the client will stop reading
+    // data from the server.
+    final CountDownLatch firstEntryReceived = new CountDownLatch(1);
+    final CountDownLatch resumeReading = new CountDownLatch(1);
+    final AtomicReference<SearchResultEntry> lastStalledEntry =
+         new AtomicReference<SearchResultEntry>();
+    final CountDownLatch stalledResultReceived = new CountDownLatch(1);
+    final AtomicReference<SearchResult> stalledResult =
+         new AtomicReference<SearchResult>();
+    final AsyncSearchResultListener stalledListener =
+         new AsyncSearchResultListener()
+         {
+           @Override()
+           public void searchEntryReturned(final SearchResultEntry e)
+           {
+             lastStalledEntry.set(e);
+             firstEntryReceived.countDown();
+             try
+             {
+               resumeReading.await(60L, TimeUnit.SECONDS);
+             }
+             catch (final InterruptedException ie)
+             {
+               Thread.currentThread().interrupt();
+             }
+           }
+
+           @Override()
+           public void searchReferenceReturned(final SearchResultReference r)
+           {
+             // No implementation required.
+           }
+
+           @Override()
+           public void searchResultReceived(final AsyncRequestID requestID,
+                                            final SearchResult result)
+           {
+             stalledResult.set(result);
+             stalledResultReceived.countDown();
+           }
+         };
+
+    final SearchRequest stalledRequest = new SearchRequest(stalledListener,
+         dn, SearchScope.BASE, "(objectClass=*)");
+    stalledRequest.addControl(new PersistentSearchRequestControl(
+         PersistentSearchChangeType.allChangeTypes(), true, false));
+    stalledConn.asyncSearch(stalledRequest);
+
+    // Make changes until the stalled persistent search has been registered
+    // and its listener is blocked.
+    for (int i=0; i < 100; i++)
+    {
+      updateConn.modify(
+           "dn: " + dn,
+           "changetype: modify",
+           "replace: description",
+           "description: stalled registration " + i);
+      if (firstEntryReceived.await(100L, TimeUnit.MILLISECONDS))
+      {
+        break;
+      }
+    }
+    assertEquals(firstEntryReceived.getCount(), 0L);
+
+    final TestQueueingSearchListener activeListener =
+         new TestQueueingSearchListener();
+    final SearchRequest activeRequest = new SearchRequest(activeListener,
+         dn, SearchScope.BASE, "(objectClass=*)");
+    activeRequest.addControl(new PersistentSearchRequestControl(
+         PersistentSearchChangeType.allChangeTypes(), true, false));
+    activeConn.asyncSearch(activeRequest);
+
+    for (int i=0; i < 100; i++)
+    {
+      updateConn.modify(
+           "dn: " + dn,
+           "changetype: modify",
+           "replace: description",
+           "description: active registration " + i);
+      if (activeListener.nextEntry() != null)
+      {
+        break;
+      }
+    }
+
+    // Make enough large changes to fill the socket buffers for the stalled
+    // client.  None of them should block, and the active client should be
+    // notified of all of them.
+    final StringBuilder largeValue = new StringBuilder(100000);
+    for (int i=0; i < 100000; i++)
+    {
+      largeValue.append((char) ('a' + (i % 26)));
+    }
+
+    for (int i=0; i < 200; i++)
+    {
+      updateConn.modify(
+           "dn: " + dn,
+           "changetype: modify",
+           "replace: description",
+           "description: " + i + ':' + largeValue);
+    }
+
+    while (true)
+    {
+      final SearchResultEntry e = activeListener.nextEntry();
+      assertNotNull(e);
+      if (e.getAttributeValue("description").startsWith("199:"))
+      {
+        break;
+      }
+    }
+
+    // Make enough small changes to exceed the number of notifications that
+    // may be left waiting for the stalled client.  The active client should
+    // still be notified of all of them.
+    for (int i=0; i < 10100; i++)
+    {
+      updateConn.modify(
+           "dn: " + dn,
+           "changetype: modify",
+           "replace: description",
+           "description: overflow " + i);
+    }
+
+    while (true)
+    {
+      final SearchResultEntry e = activeListener.nextEntry();
+      assertNotNull(e);
+      if (e.getAttributeValue("description").equals("overflow 10099"))
+      {
+        break;
+      }
+    }
+
+    // Once the stalled client resumes reading, it should be told that its
+    // search has ended rather than waiting for notifications that will never
+    // arrive.
+    resumeReading.countDown();
+
+    assertTrue(stalledResultReceived.await(30L, TimeUnit.SECONDS));
+    assertResultCodeEquals(stalledResult.get(),
+         ResultCode.ADMIN_LIMIT_EXCEEDED);
+    assertFalse(lastStalledEntry.get().getAttributeValue("description").
+         startsWith("overflow "));
+
+    stalledConn.close();
+    activeConn.close();
+    updateConn.close();
+  }
+
+
+
+  /**
+   * Provides test coverage for the content synchronization request control
+   * in refresh-only mode.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testContentSyncRefreshOnly()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final LDAPConnection conn = ds.getConnection();
+
+    conn.add(generateUserEntry("sync.1", "ou=People,dc=example,dc=com",
+         "Content", "Sync", "password"));
+
+    final SearchRequest searchRequest = new SearchRequest(
+         "ou=People,dc=example,dc=com", SearchScope.ONE, "(uid=*)");
+    searchRequest.addControl(new ContentSyncRequestControl(
+         ContentSyncRequestMode.REFRESH_ONLY));
+
+    SearchResult searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 2);
+    final HashSet<UUID> uuids = new HashSet<UUID>(2);
+    for (final SearchResultEntry e : searchResult.getSearchEntries())
+    {
+      final ContentSyncStateControl stateControl =
+           ContentSyncStateControl.get(e);
+      assertNotNull(stateControl);
+      assertEquals(stateControl.getState(), ContentSyncState.ADD);
+      assertNotNull(stateControl.getEntryUUID());
+      uuids.add(stateControl.getEntryUUID());
+    }
+    assertEquals(uuids.size(), 2);
+
+    ContentSyncDoneControl doneControl =
+         ContentSyncDoneControl.get(searchResult);
+    assertNotNull(doneControl);
+    assertFalse(doneControl.refreshDeletes());
+    final ASN1OctetString cookie = doneControl.getCookie();
+    assertNotNull(cookie);
+
+
+    // A client that is already up to date should not get any entries.
+    searchRequest.setControls(new ContentSyncRequestControl(
+         ContentSyncRequestMode.REFRESH_ONLY, cookie, false));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 0);
+    doneControl = ContentSyncDoneControl.get(searchResult);
+    assertNotNull(doneControl);
+    assertTrue(doneControl.refreshDeletes());
+    assertEquals(doneControl.getCookie().getValue(), cookie.getValue());
+
+
+    // After a change, the cookie will be stale.  Without the reload hint, the
+    // client must be told to refresh its content.
+    conn.modify("dn: uid=sync.1,ou=People,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: foo");
+    try
+    {
+      conn.search(searchRequest);
+      fail("Expected an exception when using a stale sync cookie.");
+    }
+    catch (final LDAPSearchException lse)
+    {
+      assertEquals(lse.getResultCode(), ResultCode.E_SYNC_REFRESH_REQUIRED);
+    }
+
+    // With the reload hint, the full content should be returned again.
+    searchRequest.setControls(new ContentSyncRequestControl(
+         ContentSyncRequestMode.REFRESH_ONLY, cookie, true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 2);
+    doneControl = ContentSyncDoneControl.get(searchResult);
+    assertNotNull(doneControl);
+    assertFalse(Arrays.equals(doneControl.getCookie().getValue(),
+         cookie.getValue()));
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Provides test coverage for the content synchronization request control
+   * in refresh and persist mode.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testContentSyncRefreshAndPersist()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final LDAPConnection conn = ds.getConnection();
+    final LDAPConnection updateConn = ds.getConnection();
+
+    final TestQueueingSearchListener listener =
+         new TestQueueingSearchListener();
+    final SearchRequest searchRequest = new SearchRequest(listener,
+         "ou=People,dc=example,dc=com", SearchScope.SUB, "(uid=*)");
+    searchRequest.setIntermediateResponseListener(listener);
+    searchRequest.addControl(new ContentSyncRequestControl(
+         ContentSyncRequestMode.REFRESH_AND_PERSIST));
+    final AsyncRequestID requestID = conn.asyncSearch(searchRequest);
+
+    SearchResultEntry e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=test.user,ou=People,dc=example,dc=com");
+    ContentSyncStateControl stateControl = ContentSyncStateControl.get(e);
+    assertNotNull(stateControl);
+    assertEquals(stateControl.getState(), ContentSyncState.ADD);
+
+    final IntermediateResponse ir = listener.nextIntermediateResponse();
+    assertNotNull(ir);
+    final ContentSyncInfoIntermediateResponse syncInfo =
+         ContentSyncInfoIntermediateResponse.decode(ir);
+    assertEquals(syncInfo.getType(), ContentSyncInfoType.REFRESH_PRESENT);
+    assertTrue(syncInfo.refreshDone());
+    assertNotNull(syncInfo.getCookie());
+
+    updateConn.add(generateUserEntry("sync.1", "ou=People,dc=example,dc=com",
+         "Content", "Sync", "password"));
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=sync.1,ou=People,dc=example,dc=com");
+    stateControl = ContentSyncStateControl.get(e);
+    assertNotNull(stateControl);
+    assertEquals(stateControl.getState(), ContentSyncState.ADD);
+    assertNotNull(stateControl.getCookie());
+    final UUID entryUUID = stateControl.getEntryUUID();
+
+    updateConn.modify("dn: uid=sync.1,ou=People,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: foo");
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertTrue(e.hasAttributeValue("description", "foo"));
+    stateControl = ContentSyncStateControl.get(e);
+    assertNotNull(stateControl);
+    assertEquals(stateControl.getState(), ContentSyncState.MODIFY);
+    assertEquals(stateControl.getEntryUUID(), entryUUID);
+
+    updateConn.delete("uid=sync.1,ou=People,dc=example,dc=com");
+    e = listener.nextEntry();
+    assertNotNull(e);
+    assertEquals(e.getDN(), "uid=sync.1,ou=People,dc=example,dc=com");
+    stateControl = ContentSyncStateControl.get(e);
+    assertNotNull(stateControl);
+    assertEquals(stateControl.getState(), ContentSyncState.DELETE);
+    assertEquals(stateControl.getEntryUUID(), entryUUID);
+
+    conn.abandon(requestID);
+    updateConn.close();
+    conn.close();
+  }
+
+
+
   /**
    * Provides test coverage for the virtual list view request control.
    *
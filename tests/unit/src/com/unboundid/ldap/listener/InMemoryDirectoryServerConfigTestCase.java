@@ -23,6 +23,7 @@ package com.unboundid.ldap.listener;
 
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.EnumSet;
 
 import org.testng.annotations.Test;
@@ -1074,6 +1075,132 @@ public final class InMemoryDirectoryServerConfigTestCase
   }
 
 
+  /**
+   * Provides test coverage for the methods that may be used to get and set the
+   * substring index attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSubstringIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+
+    cfg.setSubstringIndexAttributes("cn");
+    assertEquals(cfg.getSubstringIndexAttributes().size(), 1);
+    assertTrue(cfg.getSubstringIndexAttributes().contains("cn"));
+
+    assertNotNull(cfg.toString());
+
+    final InMemoryDirectoryServerConfig copy =
+         new InMemoryDirectoryServerConfig(cfg);
+    assertEquals(copy.getSubstringIndexAttributes(), cfg.getSubstringIndexAttributes());
+
+    cfg.setSubstringIndexAttributes((String[]) null);
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+
+    cfg.setSubstringIndexAttributes(Arrays.asList("cn", "mail"));
+    assertEquals(cfg.getSubstringIndexAttributes().size(), 2);
+    assertTrue(cfg.getSubstringIndexAttributes().contains("cn"));
+    assertTrue(cfg.getSubstringIndexAttributes().contains("mail"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setSubstringIndexAttributes();
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+  }
+
+
+
+  /**
+   * Provides test coverage for the methods that may be used to get and set the
+   * ordering index attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testOrderingIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+
+    cfg.setOrderingIndexAttributes("uidNumber");
+    assertEquals(cfg.getOrderingIndexAttributes().size(), 1);
+    assertTrue(cfg.getOrderingIndexAttributes().contains("uidNumber"));
+
+    assertNotNull(cfg.toString());
+
+    final InMemoryDirectoryServerConfig copy =
+         new InMemoryDirectoryServerConfig(cfg);
+    assertEquals(copy.getOrderingIndexAttributes(), cfg.getOrderingIndexAttributes());
+
+    cfg.setOrderingIndexAttributes((String[]) null);
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+
+    cfg.setOrderingIndexAttributes(Arrays.asList("uidNumber", "sn"));
+    assertEquals(cfg.getOrderingIndexAttributes().size(), 2);
+    assertTrue(cfg.getOrderingIndexAttributes().contains("uidNumber"));
+    assertTrue(cfg.getOrderingIndexAttributes().contains("sn"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setOrderingIndexAttributes();
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+  }
+
+
+
+  /**
+   * Provides test coverage for the methods that may be used to get and set the
+   * presence index attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPresenceIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+
+    cfg.setPresenceIndexAttributes("description");
+    assertEquals(cfg.getPresenceIndexAttributes().size(), 1);
+    assertTrue(cfg.getPresenceIndexAttributes().contains("description"));
+
+    assertNotNull(cfg.toString());
+
+    final InMemoryDirectoryServerConfig copy =
+         new InMemoryDirectoryServerConfig(cfg);
+    assertEquals(copy.getPresenceIndexAttributes(), cfg.getPresenceIndexAttributes());
+
+    cfg.setPresenceIndexAttributes((String[]) null);
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+
+    cfg.setPresenceIndexAttributes(Arrays.asList("description", "mail"));
+    assertEquals(cfg.getPresenceIndexAttributes().size(), 2);
+    assertTrue(cfg.getPresenceIndexAttributes().contains("description"));
+    assertTrue(cfg.getPresenceIndexAttributes().contains("mail"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setPresenceIndexAttributes();
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+  }
+
+
+
 
   /**
    * Tests the behavior of the methods for interacting with the referential
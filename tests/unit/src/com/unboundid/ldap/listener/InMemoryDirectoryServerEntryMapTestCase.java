@@ -0,0 +1,314 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ReadOnlyEntry;
+import com.unboundid.ldap.sdk.SearchScope;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * {@code InMemoryDirectoryServerEntryMap} class.
+ */
+public final class InMemoryDirectoryServerEntryMapTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * The DNs of the entries to include in the map.
+   */
+  private static final String[] DNS =
+  {
+    "dc=example,dc=com",
+    "ou=People,dc=example,dc=com",
+    "uid=user.1,ou=People,dc=example,dc=com",
+    "uid=user.2,ou=People,dc=example,dc=com",
+    "cn=child,uid=user.2,ou=People,dc=example,dc=com",
+    "ou=Groups,dc=example,dc=com",
+    "cn=group.1,ou=Groups,dc=example,dc=com",
+    "uid=orphan,ou=missing,dc=example,dc=com",
+    "ou=People,dc=example,dc=comm",
+    "dc=example,dc=org",
+    "ou=People,dc=example,dc=org",
+    "o=example.com",
+    "cn=changelog"
+  };
+
+
+
+  /**
+   * Ensures that scoped iteration returns the same entries, in the same
+   * order, as a scan of the entire map.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testScopedIteration()
+         throws Exception
+  {
+    final InMemoryDirectoryServerEntryMap m = createMap();
+    assertEquals(m.size(), DNS.length);
+
+    final List<DN> baseDNs = new ArrayList<DN>();
+    baseDNs.add(DN.NULL_DN);
+    baseDNs.add(new DN("dc=com"));
+    baseDNs.add(new DN("ou=missing,dc=example,dc=com"));
+    for (final String dn : DNS)
+    {
+      baseDNs.add(new DN(dn));
+    }
+
+    final SearchScope[] scopes =
+    {
+      SearchScope.BASE,
+      SearchScope.ONE,
+      SearchScope.SUB,
+      SearchScope.SUBORDINATE_SUBTREE
+    };
+
+    for (final DN baseDN : baseDNs)
+    {
+      for (final SearchScope scope : scopes)
+      {
+        final List<DN> expected = new ArrayList<DN>();
+        for (final DN dn : m.keySet())
+        {
+          if (dn.matchesBaseAndScope(baseDN, scope))
+          {
+            expected.add(dn);
+          }
+        }
+
+        final List<DN> found = new ArrayList<DN>();
+        for (final Map.Entry<DN,ReadOnlyEntry> e : m.getEntries(baseDN, scope))
+        {
+          assertEquals(e.getValue().getParsedDN(), e.getKey());
+          found.add(e.getKey());
+        }
+
+        assertEquals(found, expected,
+             "Mismatch for base " + baseDN + " and scope " + scope);
+        assertEquals(m.countEntries(baseDN, scope), expected.size());
+      }
+    }
+
+    assertEquals(m.getChildDNs(new DN("ou=People,dc=example,dc=com")).size(),
+         2);
+    assertTrue(m.getChildDNs(DN.NULL_DN).isEmpty());
+    assertEquals(m.getChildDNs(new DN("dc=com")).size(), 1);
+    assertTrue(m.getChildDNs(new DN("o=example.com")).isEmpty());
+  }
+
+
+
+  /**
+   * Ensures that the index of immediate subordinates is properly maintained as
+   * entries are added and removed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUpdates()
+         throws Exception
+  {
+    final InMemoryDirectoryServerEntryMap m = createMap();
+    final DN peopleDN = new DN("ou=People,dc=example,dc=com");
+    final DN user1DN = new DN("uid=user.1,ou=People,dc=example,dc=com");
+
+    // Replacing an existing entry should not alter the set of children.
+    final long initialModificationCount = m.getModificationCount();
+    assertNotNull(m.put(user1DN, new ReadOnlyEntry(new Entry(user1DN))));
+    assertEquals(m.getChildDNs(peopleDN).size(), 2);
+    assertEquals(m.getModificationCount(), (initialModificationCount + 1L));
+
+    assertNotNull(m.remove(user1DN));
+    assertNull(m.remove(user1DN));
+    assertEquals(m.getModificationCount(), (initialModificationCount + 2L));
+    assertEquals(m.getChildDNs(peopleDN).size(), 1);
+    assertEquals(m.countEntries(peopleDN, SearchScope.SUB), 3);
+
+    // Remove entries through the entry set iterator.
+    final Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator =
+         m.entrySet().iterator();
+    while (iterator.hasNext())
+    {
+      if (iterator.next().getKey().isDescendantOf(peopleDN, false))
+      {
+        iterator.remove();
+      }
+    }
+
+    assertTrue(m.getChildDNs(peopleDN).isEmpty());
+    assertEquals(m.countEntries(peopleDN, SearchScope.SUB), 1);
+    assertEquals(m.size(), DNS.length - 3);
+
+    m.clear();
+    assertTrue(m.isEmpty());
+    assertTrue(m.getChildDNs(DN.NULL_DN).isEmpty());
+    assertFalse(m.getEntries(DN.NULL_DN, SearchScope.SUB).iterator().
+         hasNext());
+  }
+
+
+
+  /**
+   * Ensures that snapshots are isolated from subsequent changes to the map,
+   * and that the map may be restored from a snapshot.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSnapshots()
+         throws Exception
+  {
+    final InMemoryDirectoryServerEntryMap m = createMap();
+    final InMemoryDirectoryServerEntryMap snapshot = m.snapshot();
+    final TreeMap<DN,ReadOnlyEntry> expected =
+         new TreeMap<DN,ReadOnlyEntry>(m);
+    assertEquals(snapshot, expected);
+
+    final DN peopleDN = new DN("ou=People,dc=example,dc=com");
+    final DN newDN = new DN("uid=user.3,ou=People,dc=example,dc=com");
+    assertNotNull(m.remove(peopleDN));
+    assertNull(m.put(newDN, new ReadOnlyEntry(new Entry(newDN))));
+
+    final Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator =
+         m.getEntries(peopleDN, SearchScope.SUB).iterator();
+    m.clear();
+    assertTrue(m.isEmpty());
+
+    // Neither the snapshot nor an existing iterator should be affected by
+    // changes to the map.
+    assertEquals(snapshot, expected);
+    assertEquals(snapshot.countEntries(peopleDN, SearchScope.SUB), 4);
+
+    final List<DN> iteratedDNs = new ArrayList<DN>();
+    while (iterator.hasNext())
+    {
+      iteratedDNs.add(iterator.next().getKey());
+    }
+    assertEquals(iteratedDNs.size(), 4);
+    assertTrue(iteratedDNs.contains(newDN));
+    assertFalse(iteratedDNs.contains(peopleDN));
+
+    final long modificationCount = m.getModificationCount();
+    m.restore(snapshot);
+    assertEquals(m, expected);
+    assertEquals(m.size(), expected.size());
+    assertTrue(m.getModificationCount() > modificationCount);
+
+    // Changes to the restored map should not affect the snapshot.
+    assertNotNull(m.remove(peopleDN));
+    assertEquals(snapshot, expected);
+    assertFalse(m.containsKey(peopleDN));
+  }
+
+
+
+  /**
+   * Performs a large number of random updates to the map and ensures that it
+   * remains consistent with a {@code TreeMap} that has received the same
+   * updates.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRandomUpdates()
+         throws Exception
+  {
+    final Random random = new Random(1234L);
+    final InMemoryDirectoryServerEntryMap m =
+         new InMemoryDirectoryServerEntryMap();
+    final TreeMap<DN,ReadOnlyEntry> expected =
+         new TreeMap<DN,ReadOnlyEntry>();
+    InMemoryDirectoryServerEntryMap snapshot = m.snapshot();
+    TreeMap<DN,ReadOnlyEntry> expectedSnapshot =
+         new TreeMap<DN,ReadOnlyEntry>();
+
+    for (int i=0; i < 5000; i++)
+    {
+      final DN dn = new DN("uid=user." + random.nextInt(500) + ",ou=" +
+           random.nextInt(5) + ",dc=example,dc=com");
+      if (random.nextBoolean())
+      {
+        final ReadOnlyEntry e = new ReadOnlyEntry(new Entry(dn));
+        assertEquals(m.put(dn, e), expected.put(dn, e));
+      }
+      else
+      {
+        assertEquals(m.remove(dn), expected.remove(dn));
+      }
+
+      assertEquals(m.size(), expected.size());
+
+      if ((i % 500) == 0)
+      {
+        assertEquals(snapshot, expectedSnapshot);
+        assertEquals(new ArrayList<DN>(m.keySet()),
+             new ArrayList<DN>(expected.keySet()));
+
+        snapshot = m.snapshot();
+        expectedSnapshot = new TreeMap<DN,ReadOnlyEntry>(expected);
+      }
+    }
+
+    assertEquals(m, expected);
+    assertEquals(new ArrayList<DN>(m.keySet()),
+         new ArrayList<DN>(expected.keySet()));
+  }
+
+
+
+  /**
+   * Creates an entry map with the test entries.
+   *
+   * @return  The entry map that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static InMemoryDirectoryServerEntryMap createMap()
+          throws Exception
+  {
+    final InMemoryDirectoryServerEntryMap m =
+         new InMemoryDirectoryServerEntryMap();
+    for (int i=DNS.length - 1; i >= 0; i--)
+    {
+      final DN dn = new DN(DNS[i]);
+      assertNull(m.put(dn, new ReadOnlyEntry(new Entry(dn))));
+    }
+
+    return m;
+  }
+}
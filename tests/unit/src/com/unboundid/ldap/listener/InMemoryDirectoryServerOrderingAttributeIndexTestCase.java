@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * InMemoryDirectoryServerOrderingAttributeIndex class.
+ */
+public final class InMemoryDirectoryServerOrderingAttributeIndexTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when trying to create an index when no schema is
+   * available.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithoutSchema()
+         throws Exception
+  {
+    new InMemoryDirectoryServerOrderingAttributeIndex("changeNumber", null);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create an index for an undefined
+   * attribute type.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithUndefinedAttribute()
+         throws Exception
+  {
+    new InMemoryDirectoryServerOrderingAttributeIndex("undefined",
+         Schema.getDefaultStandardSchema());
+  }
+
+
+
+  /**
+   * Tests the behavior of an ordering index for an attribute with integer
+   * syntax, for which the values must be ordered numerically rather than
+   * lexicographically.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testIntegerOrdering()
+         throws Exception
+  {
+    final InMemoryDirectoryServerOrderingAttributeIndex index =
+         new InMemoryDirectoryServerOrderingAttributeIndex("changeNumber",
+              Schema.getDefaultStandardSchema());
+    assertEquals(index.getAttributeType().getNameOrOID(), "changeNumber");
+
+    final ArrayList<Entry> entryList = new ArrayList<Entry>(20);
+    for (int i=1; i <= 20; i++)
+    {
+      entryList.add(new Entry(
+           "dn: changeNumber=" + i + ",cn=changelog",
+           "objectClass: top",
+           "objectClass: changeLogEntry",
+           "changeNumber: " + i,
+           "targetDN: uid=user." + i + ",dc=example,dc=com",
+           "changeType: add"));
+    }
+
+    for (final Entry e : entryList)
+    {
+      index.processAdd(e);
+    }
+    assertEquals(index.copyMap().size(), 20);
+
+    Set<DN> dns =
+         index.getEntriesGreaterThanOrEqualTo(new ASN1OctetString("15"));
+    assertEquals(dns.size(), 6);
+    for (int i=15; i <= 20; i++)
+    {
+      assertTrue(dns.contains(new DN("changeNumber=" + i + ",cn=changelog")));
+    }
+
+    dns = index.getEntriesLessThanOrEqualTo(new ASN1OctetString("9"));
+    assertEquals(dns.size(), 9);
+    for (int i=1; i <= 9; i++)
+    {
+      assertTrue(dns.contains(new DN("changeNumber=" + i + ",cn=changelog")));
+    }
+
+    assertTrue(index.getEntriesGreaterThanOrEqualTo(
+         new ASN1OctetString("21")).isEmpty());
+    assertTrue(index.getEntriesLessThanOrEqualTo(
+         new ASN1OctetString("0")).isEmpty());
+
+    try
+    {
+      index.getEntriesGreaterThanOrEqualTo(
+           new ASN1OctetString("not an integer"));
+      fail("Expected an exception for a malformed integer value");
+    }
+    catch (final LDAPException le)
+    {
+      // This was expected.
+    }
+
+    for (final Entry e : entryList)
+    {
+      index.processDelete(e);
+    }
+    assertTrue(index.copyMap().isEmpty());
+  }
+
+
+
+  /**
+   * Tests the behavior of an ordering index for an attribute with directory
+   * string syntax.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStringOrdering()
+         throws Exception
+  {
+    final InMemoryDirectoryServerOrderingAttributeIndex index =
+         new InMemoryDirectoryServerOrderingAttributeIndex("sn",
+              Schema.getDefaultStandardSchema());
+
+    for (final String sn : new String[] { "Adams", "brown", "Clark", "davis" })
+    {
+      index.processAdd(new Entry(
+           "dn: cn=" + sn + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "cn: " + sn,
+           "sn: " + sn));
+    }
+
+    Set<DN> dns = index.getEntriesGreaterThanOrEqualTo(
+         new ASN1OctetString("C"));
+    assertEquals(dns.size(), 2);
+    assertTrue(dns.contains(new DN("cn=Clark,dc=example,dc=com")));
+    assertTrue(dns.contains(new DN("cn=davis,dc=example,dc=com")));
+
+    dns = index.getEntriesLessThanOrEqualTo(new ASN1OctetString("BROWN"));
+    assertEquals(dns.size(), 2);
+    assertTrue(dns.contains(new DN("cn=Adams,dc=example,dc=com")));
+    assertTrue(dns.contains(new DN("cn=brown,dc=example,dc=com")));
+
+    index.clear();
+    assertTrue(index.copyMap().isEmpty());
+    assertTrue(index.getEntriesGreaterThanOrEqualTo(
+         new ASN1OctetString("a")).isEmpty());
+  }
+}
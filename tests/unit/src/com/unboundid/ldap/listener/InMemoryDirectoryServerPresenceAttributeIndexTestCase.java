@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * InMemoryDirectoryServerPresenceAttributeIndex class.
+ */
+public final class InMemoryDirectoryServerPresenceAttributeIndexTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when trying to create an index when no schema is
+   * available.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithoutSchema()
+         throws Exception
+  {
+    new InMemoryDirectoryServerPresenceAttributeIndex("description", null);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create an index for an undefined
+   * attribute type.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithUndefinedAttribute()
+         throws Exception
+  {
+    new InMemoryDirectoryServerPresenceAttributeIndex("undefined",
+         Schema.getDefaultStandardSchema());
+  }
+
+
+
+  /**
+   * Tests the basic behavior of a presence index, including entries that
+   * reference the attribute using its OID or with options.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPresenceIndex()
+         throws Exception
+  {
+    final InMemoryDirectoryServerPresenceAttributeIndex index =
+         new InMemoryDirectoryServerPresenceAttributeIndex("cn",
+              Schema.getDefaultStandardSchema());
+    assertEquals(index.getAttributeType().getNameOrOID(), "cn");
+    assertTrue(index.getMatchingEntries().isEmpty());
+
+    final Entry withCN = new Entry(
+         "dn: ou=With CN,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "objectClass: extensibleObject",
+         "ou: With CN",
+         "cn: foo");
+    final Entry withOID = new Entry(
+         "dn: ou=With OID,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "objectClass: extensibleObject",
+         "ou: With OID",
+         "2.5.4.3: foo");
+    final Entry withOptions = new Entry(
+         "dn: ou=With Options,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "objectClass: extensibleObject",
+         "ou: With Options",
+         "cn;lang-en: foo");
+    final Entry withoutCN = new Entry(
+         "dn: ou=Without CN,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: Without CN");
+
+    index.processAdd(withCN);
+    index.processAdd(withOID);
+    index.processAdd(withOptions);
+    index.processAdd(withoutCN);
+
+    assertEquals(index.getMatchingEntries().size(), 3);
+    assertTrue(index.getMatchingEntries().contains(
+         new DN("ou=With CN,dc=example,dc=com")));
+    assertTrue(index.getMatchingEntries().contains(
+         new DN("ou=With OID,dc=example,dc=com")));
+    assertTrue(index.getMatchingEntries().contains(
+         new DN("ou=With Options,dc=example,dc=com")));
+
+    index.processDelete(withCN);
+    index.processDelete(withoutCN);
+    assertEquals(index.getMatchingEntries().size(), 2);
+    assertFalse(index.getMatchingEntries().contains(
+         new DN("ou=With CN,dc=example,dc=com")));
+
+    index.clear();
+    assertTrue(index.getMatchingEntries().isEmpty());
+  }
+}
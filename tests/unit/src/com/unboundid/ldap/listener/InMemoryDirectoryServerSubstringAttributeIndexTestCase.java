@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * InMemoryDirectoryServerSubstringAttributeIndex class.
+ */
+public final class InMemoryDirectoryServerSubstringAttributeIndexTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when trying to create an index when no schema is
+   * available.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithoutSchema()
+         throws Exception
+  {
+    new InMemoryDirectoryServerSubstringAttributeIndex("cn", null);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create an index for an undefined
+   * attribute type.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithUndefinedAttribute()
+         throws Exception
+  {
+    new InMemoryDirectoryServerSubstringAttributeIndex("undefined",
+         Schema.getDefaultStandardSchema());
+  }
+
+
+
+  /**
+   * Tests the behavior when interacting with entries that don't have any
+   * values for the associated attribute.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testIndexEntryWithoutAttribute()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSubstringAttributeIndex index =
+         new InMemoryDirectoryServerSubstringAttributeIndex("description",
+              Schema.getDefaultStandardSchema());
+
+    final Entry e = new Entry(
+         "dn: ou=Test,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: Test");
+
+    index.processAdd(e);
+    assertTrue(index.copyMap().isEmpty());
+    assertTrue(index.getCandidateEntries(new ASN1OctetString("Test"), null,
+         null).isEmpty());
+
+    index.processDelete(e);
+    assertTrue(index.copyMap().isEmpty());
+  }
+
+
+
+  /**
+   * Tests the behavior when retrieving candidate entries for substring
+   * components.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetCandidateEntries()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSubstringAttributeIndex index =
+         new InMemoryDirectoryServerSubstringAttributeIndex("cn",
+              Schema.getDefaultStandardSchema());
+    assertEquals(index.getAttributeType().getNameOrOID(), "cn");
+
+    final String[] names =
+    {
+      "Aaron Adams",
+      "Brenda Adamson",
+      "Charles Brown",
+      "Dana Browning"
+    };
+
+    final ArrayList<Entry> entryList = new ArrayList<Entry>(names.length);
+    for (final String name : names)
+    {
+      entryList.add(new Entry(
+           "dn: cn=" + name + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "cn: " + name,
+           "sn: " + name.substring(name.indexOf(' ') + 1)));
+    }
+
+    for (final Entry e : entryList)
+    {
+      index.processAdd(e);
+    }
+
+    Map<ASN1OctetString,TreeSet<DN>> indexMap = index.copyMap();
+    assertFalse(indexMap.isEmpty());
+    assertTrue(indexMap.containsKey(new ASN1OctetString("ada")));
+
+    // Matching is case-insensitive for the cn attribute.
+    Set<DN> candidates = index.getCandidateEntries(null,
+         new ASN1OctetString[] { new ASN1OctetString("ADAMS") }, null);
+    assertNotNull(candidates);
+    assertEquals(candidates.size(), 2);
+    assertTrue(candidates.contains(
+         new DN("cn=Aaron Adams,dc=example,dc=com")));
+    assertTrue(candidates.contains(
+         new DN("cn=Brenda Adamson,dc=example,dc=com")));
+
+    candidates = index.getCandidateEntries(new ASN1OctetString("char"), null,
+         new ASN1OctetString("own"));
+    assertNotNull(candidates);
+    assertEquals(candidates.size(), 1);
+    assertTrue(candidates.contains(
+         new DN("cn=Charles Brown,dc=example,dc=com")));
+
+    candidates = index.getCandidateEntries(null, null,
+         new ASN1OctetString("browning"));
+    assertNotNull(candidates);
+    assertEquals(candidates.size(), 1);
+    assertTrue(candidates.contains(
+         new DN("cn=Dana Browning,dc=example,dc=com")));
+
+    candidates = index.getCandidateEntries(new ASN1OctetString("xyz"), null,
+         null);
+    assertNotNull(candidates);
+    assertTrue(candidates.isEmpty());
+
+    // Components shorter than the n-gram length can't use the index.
+    assertNull(index.getCandidateEntries(new ASN1OctetString("a"),
+         new ASN1OctetString[] { new ASN1OctetString("br") }, null));
+
+    // Removing an entry should remove it from the candidate sets, and removing
+    // all of them should leave the index empty.
+    index.processDelete(entryList.get(0));
+    candidates = index.getCandidateEntries(null,
+         new ASN1OctetString[] { new ASN1OctetString("adams") }, null);
+    assertNotNull(candidates);
+    assertEquals(candidates.size(), 1);
+    assertTrue(candidates.contains(
+         new DN("cn=Brenda Adamson,dc=example,dc=com")));
+
+    for (final Entry e : entryList.subList(1, entryList.size()))
+    {
+      index.processDelete(e);
+    }
+
+    indexMap = index.copyMap();
+    assertTrue(indexMap.isEmpty());
+
+    for (final Entry e : entryList)
+    {
+      index.processAdd(e);
+    }
+    assertFalse(index.copyMap().isEmpty());
+
+    index.clear();
+    assertTrue(index.copyMap().isEmpty());
+  }
+}
@@ -28,11 +28,17 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.asn1.ASN1OctetString;
 import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.CompareRequest;
@@ -44,6 +50,7 @@ import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.DereferencePolicy;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.ExtendedResult;
+import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.InternalSDKHelper;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
@@ -63,6 +70,7 @@ import com.unboundid.ldap.sdk.RootDSE;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchResultReference;
 import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.ldap.sdk.TestUnsolicitedNotificationHandler;
@@ -5855,4 +5863,540 @@ public final class InMemoryDirectoryServerTestCase
 
     ds.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that search operations received on different connections
+   * may be processed concurrently, while write operations remain exclusive.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentReadsAndExclusiveWrites()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds =
+         new InMemoryDirectoryServer("dc=example,dc=com");
+    ds.startListening();
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "description: 0");
+
+    final int numThreads = 5;
+    final LDAPConnection[] conns = new LDAPConnection[numThreads];
+    for (int i=0; i < numThreads; i++)
+    {
+      conns[i] = ds.getConnection();
+    }
+
+    try
+    {
+      // With a processing delay of one second, five concurrent searches
+      // should complete in much less time than it would take to process them
+      // serially.
+      ds.setProcessingDelayMillis(1000L);
+
+      final AtomicInteger successCount = new AtomicInteger(0);
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      final ArrayList<Thread> threads = new ArrayList<Thread>(numThreads);
+      for (final LDAPConnection conn : conns)
+      {
+        final Thread t = new Thread()
+        {
+          @Override()
+          public void run()
+          {
+            try
+            {
+              startLatch.await();
+              if (conn.getEntry("dc=example,dc=com") != null)
+              {
+                successCount.incrementAndGet();
+              }
+            }
+            catch (final Exception e)
+            {
+              // This will be detected by the success count.
+            }
+          }
+        };
+        t.start();
+        threads.add(t);
+      }
+
+      final long startTime = System.currentTimeMillis();
+      startLatch.countDown();
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+      final long elapsedTime = System.currentTimeMillis() - startTime;
+
+      assertEquals(successCount.get(), numThreads);
+      assertTrue(elapsedTime < (numThreads * 1000L),
+           "Concurrent searches took " + elapsedTime + "ms");
+
+
+      // Make sure that concurrent modifications are all applied, and that a
+      // search never sees a partially-applied change.
+      ds.setProcessingDelayMillis(0L);
+      threads.clear();
+      successCount.set(0);
+      final CountDownLatch modifyLatch = new CountDownLatch(1);
+      for (int i=0; i < numThreads; i++)
+      {
+        final LDAPConnection conn = conns[i];
+        final String value = String.valueOf(i + 1);
+        final Thread t = new Thread()
+        {
+          @Override()
+          public void run()
+          {
+            try
+            {
+              modifyLatch.await();
+              for (int j=0; j < 10; j++)
+              {
+                conn.modify("dc=example,dc=com",
+                     new Modification(ModificationType.REPLACE, "description",
+                          value));
+                final SearchResultEntry e =
+                     conn.getEntry("dc=example,dc=com", "description");
+                if ((e != null) &&
+                    (e.getAttributeValues("description").length == 1))
+                {
+                  successCount.incrementAndGet();
+                }
+              }
+            }
+            catch (final Exception e)
+            {
+              // This will be detected by the success count.
+            }
+          }
+        };
+        t.start();
+        threads.add(t);
+      }
+
+      modifyLatch.countDown();
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      assertEquals(successCount.get(), (numThreads * 10));
+      assertEquals(ds.countEntries(false), 1);
+    }
+    finally
+    {
+      ds.setProcessingDelayMillis(0L);
+      for (final LDAPConnection conn : conns)
+      {
+        conn.close();
+      }
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that searches processed using substring, ordering, and
+   * presence indexes return the same results as searches that need to examine
+   * every entry, including after the indexed data has been altered.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSearchWithSubstringOrderingAndPresenceIndexes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig indexedConfig =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    indexedConfig.setSubstringIndexAttributes("cn", "mail");
+    indexedConfig.setOrderingIndexAttributes("employeeNumber", "sn");
+    indexedConfig.setPresenceIndexAttributes("description", "mail");
+
+    final InMemoryDirectoryServer indexedDS =
+         new InMemoryDirectoryServer(indexedConfig);
+    final InMemoryDirectoryServer unindexedDS =
+         new InMemoryDirectoryServer("dc=example,dc=com");
+
+    for (final InMemoryDirectoryServer ds :
+         new InMemoryDirectoryServer[] { indexedDS, unindexedDS })
+    {
+      ds.add(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: domain",
+           "dc: example");
+      ds.add(
+           "dn: ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: People");
+
+      for (int i=0; i < 100; i++)
+      {
+        final Entry e = new Entry(
+             "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: person",
+             "objectClass: organizationalPerson",
+             "objectClass: inetOrgPerson",
+             "uid: user." + i,
+             "givenName: User",
+             "sn: Last" + (char) ('A' + (i % 26)),
+             "cn: User " + i + " Last" + (char) ('A' + (i % 26)),
+             "employeeNumber: " + i);
+        if ((i % 3) == 0)
+        {
+          e.addAttribute("description", "Multiple of three");
+        }
+        if ((i % 2) == 0)
+        {
+          e.addAttribute("mail", "user." + i + "@example.com");
+        }
+        ds.add(e);
+      }
+    }
+
+    final String[] filters =
+    {
+      "(cn=user 1*)",
+      "(cn=*lastc)",
+      "(cn=*ser 5*las*)",
+      "(cn=u*)",
+      "(mail=*@example.com)",
+      "(employeeNumber>=90)",
+      "(employeeNumber<=9)",
+      "(sn>=LastX)",
+      "(sn<=lastb)",
+      "(description=*)",
+      "(mail=*)",
+      "(&(description=*)(employeeNumber>=50)(cn=*last*))",
+      "(|(mail=user.1*)(employeeNumber<=3))",
+      "(&(objectClass=person)(!(mail=*)))"
+    };
+
+    assertSameSearchResults(indexedDS, unindexedDS, filters);
+
+
+    // Make changes to the data and verify that the indexes are updated.
+    for (final InMemoryDirectoryServer ds :
+         new InMemoryDirectoryServer[] { indexedDS, unindexedDS })
+    {
+      ds.modify("uid=user.10,ou=People,dc=example,dc=com",
+           new Modification(ModificationType.REPLACE, "cn", "Changed Name"),
+           new Modification(ModificationType.REPLACE, "employeeNumber", "1000"),
+           new Modification(ModificationType.DELETE, "mail"),
+           new Modification(ModificationType.ADD, "description", "Added"));
+      ds.delete("uid=user.12,ou=People,dc=example,dc=com");
+      ds.modifyDN("uid=user.15,ou=People,dc=example,dc=com", "uid=renamed",
+           true);
+    }
+
+    assertSameSearchResults(indexedDS, unindexedDS, filters);
+    assertSameSearchResults(indexedDS, unindexedDS,
+         "(cn=changed*)",
+         "(employeeNumber>=1000)",
+         "(uid=renamed)");
+
+
+    // Clear the data and make sure that the indexes are cleared as well.
+    for (final InMemoryDirectoryServer ds :
+         new InMemoryDirectoryServer[] { indexedDS, unindexedDS })
+    {
+      ds.clear();
+      ds.add(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: domain",
+           "dc: example");
+    }
+    assertSameSearchResults(indexedDS, unindexedDS, filters);
+  }
+
+
+
+  /**
+   * Ensures that search results which are streamed to a client connection as
+   * they are found match the results obtained from an internal search, in
+   * which entries are collected before being returned.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStreamedSearchResults()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds =
+         new InMemoryDirectoryServer("dc=example,dc=com");
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    ds.add(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+    ds.add(
+         "dn: ou=Referral,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: referral",
+         "objectClass: extensibleObject",
+         "ou: Referral",
+         "ref: ldap://ds.example.com:389/ou=Referral,dc=example,dc=com");
+
+    for (int i=0; i < 100; i++)
+    {
+      ds.add(
+           "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + i,
+           "cn: User " + i,
+           "description: " + (i % 2));
+    }
+
+    ds.startListening();
+    final LDAPConnection conn = ds.getConnection();
+
+    try
+    {
+      final SearchRequest[] requests =
+      {
+        new SearchRequest("dc=example,dc=com", SearchScope.SUB,
+             "(objectClass=*)"),
+        new SearchRequest("ou=People,dc=example,dc=com", SearchScope.ONE,
+             "(description=1)", "cn", "sn"),
+        new SearchRequest("dc=example,dc=com", SearchScope.SUB,
+             "(uid=user.5*)", "1.1"),
+        new SearchRequest(null, "dc=example,dc=com", SearchScope.SUB,
+             DereferencePolicy.NEVER, 0, 0, true, Filter.create("(cn=*)")),
+        new SearchRequest(null, "dc=example,dc=com", SearchScope.SUB,
+             DereferencePolicy.NEVER, 25, 0, false,
+             Filter.create("(objectClass=person)")),
+        new SearchRequest(null, "dc=example,dc=com", SearchScope.SUB,
+             DereferencePolicy.NEVER, 100, 0, false,
+             Filter.create("(objectClass=person)"))
+      };
+
+      for (final SearchRequest request : requests)
+      {
+        SearchResult streamedResult;
+        try
+        {
+          streamedResult = conn.search(request);
+        }
+        catch (final LDAPSearchException lse)
+        {
+          streamedResult = lse.getSearchResult();
+        }
+
+        SearchResult internalResult;
+        try
+        {
+          internalResult = ds.search(request);
+        }
+        catch (final LDAPSearchException lse)
+        {
+          internalResult = lse.getSearchResult();
+        }
+
+        assertEquals(streamedResult.getResultCode(),
+             internalResult.getResultCode());
+        assertEquals(streamedResult.getSearchEntries(),
+             internalResult.getSearchEntries());
+        assertEquals(streamedResult.getReferenceCount(),
+             internalResult.getReferenceCount());
+      }
+    }
+    finally
+    {
+      conn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a client that stops reading the entries returned for
+   * a streamed search does not prevent other clients from making changes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStreamedSearchClientNotReading()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds =
+         new InMemoryDirectoryServer("dc=example,dc=com");
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    ds.add(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+
+    // Make the entries large enough to fill the socket buffers for a client
+    // that isn't reading them.
+    final StringBuilder largeValue = new StringBuilder(100000);
+    for (int i=0; i < 100000; i++)
+    {
+      largeValue.append((char) ('a' + (i % 26)));
+    }
+
+    for (int i=0; i < 200; i++)
+    {
+      ds.add(
+           "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + i,
+           "cn: User " + i,
+           "description: " + largeValue);
+    }
+
+    ds.startListening();
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setResponseTimeoutMillis(30000L);
+    final LDAPConnection stalledConn = ds.getConnection(options);
+    final LDAPConnection updateConn = ds.getConnection(options);
+
+    // Create a listener that will block the stalled connection's reader
+    // thread until it is told to resume, so that the client will stop reading
+    // data from the server.
+    final CountDownLatch firstEntryReceived = new CountDownLatch(1);
+    final CountDownLatch resumeReading = new CountDownLatch(1);
+    final AtomicInteger stalledEntryCount = new AtomicInteger(0);
+    final CountDownLatch stalledResultReceived = new CountDownLatch(1);
+    final AtomicReference<SearchResult> stalledResult =
+         new AtomicReference<SearchResult>();
+    final AsyncSearchResultListener stalledListener =
+         new AsyncSearchResultListener()
+         {
+           @Override()
+           public void searchEntryReturned(final SearchResultEntry e)
+           {
+             stalledEntryCount.incrementAndGet();
+             firstEntryReceived.countDown();
+             try
+             {
+               resumeReading.await(60L, TimeUnit.SECONDS);
+             }
+             catch (final InterruptedException ie)
+             {
+               Thread.currentThread().interrupt();
+             }
+           }
+
+           @Override()
+           public void searchReferenceReturned(final SearchResultReference r)
+           {
+             // No implementation required.
+           }
+
+           @Override()
+           public void searchResultReceived(final AsyncRequestID requestID,
+                                            final SearchResult result)
+           {
+             stalledResult.set(result);
+             stalledResultReceived.countDown();
+           }
+         };
+
+    try
+    {
+      stalledConn.asyncSearch(new SearchRequest(stalledListener,
+           "dc=example,dc=com", SearchScope.SUB, "(objectClass=*)"));
+      assertTrue(firstEntryReceived.await(30L, TimeUnit.SECONDS));
+
+      // Give the server time to fill the socket buffers, and then make sure
+      // that changes can still be made.
+      Thread.sleep(500L);
+
+      updateConn.modify(
+           "dn: uid=user.199,ou=People,dc=example,dc=com",
+           "changetype: modify",
+           "replace: description",
+           "description: changed");
+      updateConn.delete("uid=user.0,ou=People,dc=example,dc=com");
+
+      // Once the stalled client resumes reading, it should get all of the
+      // entries as they were when the search started.
+      resumeReading.countDown();
+      assertTrue(stalledResultReceived.await(30L, TimeUnit.SECONDS));
+      assertResultCodeEquals(stalledResult.get(), ResultCode.SUCCESS);
+      assertEquals(stalledEntryCount.get(), 202);
+    }
+    finally
+    {
+      resumeReading.countDown();
+      stalledConn.close();
+      updateConn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Ensures that the provided servers return the same set of entries for
+   * subtree searches with each of the given filters.
+   *
+   * @param  ds1      The first server to search.
+   * @param  ds2      The second server to search.
+   * @param  filters  The filters to use for the searches.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static void assertSameSearchResults(
+                           final InMemoryDirectoryServer ds1,
+                           final InMemoryDirectoryServer ds2,
+                           final String... filters)
+          throws Exception
+  {
+    for (final String filter : filters)
+    {
+      final List<String> dns1 = new ArrayList<String>();
+      for (final SearchResultEntry e :
+           ds1.search("dc=example,dc=com", SearchScope.SUB, filter).
+                getSearchEntries())
+      {
+        dns1.add(e.getDN());
+      }
+
+      final List<String> dns2 = new ArrayList<String>();
+      for (final SearchResultEntry e :
+           ds2.search("dc=example,dc=com", SearchScope.SUB, filter).
+                getSearchEntries())
+      {
+        dns2.add(e.getDN());
+      }
+
+      assertEquals(dns1, dns2, "Results differ for filter " + filter);
+    }
+  }
 }
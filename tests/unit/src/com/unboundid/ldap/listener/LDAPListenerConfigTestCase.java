@@ -24,12 +24,17 @@ package com.unboundid.ldap.listener;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.net.ssl.SSLContext;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.util.LDAPSDKUsageException;
 import com.unboundid.util.ThrowsOnCreateServerSocketFactory;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
 
 
 
@@ -568,6 +573,88 @@ public final class LDAPListenerConfigTestCase
 
 
 
+  /**
+   * Provides test coverage for the request executor configuration.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRequestExecutor()
+         throws Exception
+  {
+    LDAPListenerConfig c = new LDAPListenerConfig(1234,
+         new CannedResponseRequestHandler());
+    assertNull(c.getRequestExecutor());
+    c = c.duplicate();
+    assertNull(c.getRequestExecutor());
+
+    assertNotNull(c.toString());
+
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    try
+    {
+      c.setRequestExecutor(executor);
+      assertNotNull(c.getRequestExecutor());
+      assertSame(c.getRequestExecutor(), executor);
+      c = c.duplicate();
+      assertNotNull(c.getRequestExecutor());
+      assertSame(c.getRequestExecutor(), executor);
+
+      assertNotNull(c.toString());
+      assertTrue(c.toString().contains("requestExecutorClass="));
+
+      c.setRequestExecutor(null);
+      assertNull(c.getRequestExecutor());
+      c = c.duplicate();
+      assertNull(c.getRequestExecutor());
+
+      assertNotNull(c.toString());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Provides test coverage for the selector thread configuration.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorThreads()
+         throws Exception
+  {
+    LDAPListenerConfig c = new LDAPListenerConfig(1234,
+         new CannedResponseRequestHandler());
+    assertEquals(c.getSelectorThreadCount(), 0);
+    assertNull(c.getSelectorSSLContext());
+    assertFalse(c.toString().contains("selectorThreadCount="));
+
+    c.setSelectorThreadCount(4);
+    c = c.duplicate();
+    assertEquals(c.getSelectorThreadCount(), 4);
+    assertTrue(c.toString().contains("selectorThreadCount=4"));
+    assertTrue(c.toString().contains("useSelectorSSL=false"));
+
+    final SSLContext sslContext =
+         new SSLUtil(new TrustAllTrustManager()).createSSLContext();
+    c.setSelectorSSLContext(sslContext);
+    c = c.duplicate();
+    assertSame(c.getSelectorSSLContext(), sslContext);
+    assertTrue(c.toString().contains("useSelectorSSL=true"));
+
+    c.setSelectorThreadCount(-1);
+    c.setSelectorSSLContext(null);
+    c = c.duplicate();
+    assertEquals(c.getSelectorThreadCount(), 0);
+    assertNull(c.getSelectorSSLContext());
+  }
+
+
+
   /**
    * Provides test coverage for the server socket factory configuration.
    *
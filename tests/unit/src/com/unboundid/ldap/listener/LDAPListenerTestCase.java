@@ -22,13 +22,34 @@ package com.unboundid.ldap.listener;
 
 
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.TestAsyncListener;
+import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
+import com.unboundid.util.ssl.KeyStoreKeyManager;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
 import com.unboundid.util.ThrowsOnAcceptServerSocketFactory;
 import com.unboundid.util.ThrowsOnCreateServerSocketFactory;
 
@@ -143,4 +164,332 @@ public final class LDAPListenerTestCase
 
     listener.shutDown(true);
   }
+
+
+
+  /**
+   * Tests the behavior of a listener that uses a request executor to process
+   * multiple requests from the same connection concurrently.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRequestExecutor()
+         throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         new TestBlockingRequestHandler());
+    config.setRequestExecutor(executor);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    try
+    {
+      final LDAPConnection conn =
+           new LDAPConnection("127.0.0.1", listener.getListenPort());
+
+      // The first search will block until the second search has been
+      // processed, which can only happen if the requests are processed
+      // concurrently.
+      final TestAsyncListener asyncListener = new TestAsyncListener();
+      conn.asyncSearch(new SearchRequest(asyncListener, "cn=wait",
+           SearchScope.BASE, "(objectClass=*)"));
+
+      final SearchResult releaseResult = conn.search("cn=release",
+           SearchScope.BASE, "(objectClass=*)");
+      assertEquals(releaseResult.getResultCode(), ResultCode.SUCCESS);
+
+      asyncListener.waitForResult();
+      assertEquals(asyncListener.getLastResult().getResultCode(),
+           ResultCode.SUCCESS);
+
+      // Bind and extended requests are processed only after outstanding
+      // requests have completed, but should otherwise behave normally.
+      assertEquals(conn.bind("cn=test", "password").getResultCode(),
+           ResultCode.SUCCESS);
+      assertEquals(conn.compare("cn=test", "cn", "test").getResultCode(),
+           ResultCode.COMPARE_TRUE);
+
+      conn.close();
+    }
+    finally
+    {
+      listener.shutDown(true);
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of a listener that uses selector threads to read
+   * requests from clients.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorThreads()
+         throws Exception
+  {
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         new InMemoryRequestHandler(
+              new InMemoryDirectoryServerConfig("dc=example,dc=com")));
+    config.setSelectorThreadCount(2);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    try
+    {
+      verifySelectorListener(new LDAPConnection("127.0.0.1",
+           listener.getListenPort()));
+
+      // The StartTLS extended operation cannot be used with selector threads,
+      // but the connection should remain usable after it is rejected.
+      final LDAPConnection conn =
+           new LDAPConnection("127.0.0.1", listener.getListenPort());
+      try
+      {
+        conn.processExtendedOperation(new StartTLSExtendedRequest(
+             new SSLUtil(new TrustAllTrustManager()).createSSLContext()));
+        fail("Expected an exception when trying to use StartTLS");
+      }
+      catch (final LDAPException le)
+      {
+        // This was expected.
+      }
+      assertNotNull(conn.getRootDSE());
+      conn.close();
+    }
+    finally
+    {
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of a listener that uses selector threads to read
+   * requests from clients over TLS-secured connections, and that uses a
+   * request executor to process them.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorThreadsWithTLS()
+         throws Exception
+  {
+    final File resourceDir = new File(System.getProperty("unit.resource.dir"));
+    final SSLUtil serverSSLUtil = new SSLUtil(
+         new KeyStoreKeyManager(new File(resourceDir, "server.keystore"),
+              "password".toCharArray()),
+         new TrustAllTrustManager());
+    final SSLUtil clientSSLUtil = new SSLUtil(new TrustAllTrustManager());
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         new InMemoryRequestHandler(
+              new InMemoryDirectoryServerConfig("dc=example,dc=com")));
+    config.setSelectorThreadCount(1);
+    config.setSelectorSSLContext(serverSSLUtil.createSSLContext());
+    config.setRequestExecutor(executor);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    try
+    {
+      final LDAPConnection conn = new LDAPConnection(
+           clientSSLUtil.createSSLSocketFactory(), "127.0.0.1",
+           listener.getListenPort());
+      assertNotNull(conn.getSSLSession());
+      verifySelectorListener(conn);
+    }
+    finally
+    {
+      listener.shutDown(true);
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a selector thread stops reading requests from a
+   * client that has too many requests waiting to be processed, and resumes
+   * once they can be processed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorThreadStopsReadingWhenBusy()
+         throws Exception
+  {
+    final LDAPListenerConfig config =
+         new LDAPListenerConfig(0, new TestBlockingRequestHandler());
+    config.setSelectorThreadCount(1);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("127.0.0.1", listener.getListenPort());
+    final LDAPConnection releaseConn =
+         new LDAPConnection("127.0.0.1", listener.getListenPort());
+
+    try
+    {
+      // Start a search that will block, so that none of the subsequent
+      // requests can be processed until it is released.
+      final TestAsyncListener waitListener = new TestAsyncListener();
+      conn.asyncSearch(new SearchRequest(waitListener, "cn=wait",
+           SearchScope.BASE, "(objectClass=*)"));
+
+      // Send far more data than the socket buffers can hold from a separate
+      // thread.  If the server keeps reading requests while they can't be
+      // processed, then all of them will be written.
+      final char[] largeValue = new char[10000];
+      Arrays.fill(largeValue, 'x');
+      final int numAdds = 2000;
+      final TestAsyncListener addListener = new TestAsyncListener();
+      final CountDownLatch addsWritten = new CountDownLatch(1);
+      final AtomicReference<Exception> addException =
+           new AtomicReference<Exception>();
+      final Thread addThread = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int i=0; i < numAdds; i++)
+            {
+              conn.asyncAdd(new AddRequest(
+                   "dn: ou=test " + i + ",dc=example,dc=com",
+                   "objectClass: top",
+                   "objectClass: organizationalUnit",
+                   "ou: test " + i,
+                   "description: " + new String(largeValue)),
+                   addListener);
+            }
+          }
+          catch (final Exception e)
+          {
+            addException.set(e);
+          }
+          finally
+          {
+            addsWritten.countDown();
+          }
+        }
+      };
+      addThread.start();
+
+      assertFalse(addsWritten.await(2L, TimeUnit.SECONDS));
+
+      // Release the blocked search.  All of the remaining requests should be
+      // read and processed.
+      assertEquals(releaseConn.search("cn=release", SearchScope.BASE,
+           "(objectClass=*)").getResultCode(), ResultCode.SUCCESS);
+
+      waitListener.waitForResult();
+      assertTrue(addsWritten.await(60L, TimeUnit.SECONDS));
+      addThread.join();
+      assertNull(addException.get());
+
+      final long stopWaitingTime = System.currentTimeMillis() + 60000L;
+      while (addListener.getWriteResults() < numAdds)
+      {
+        assertTrue(System.currentTimeMillis() < stopWaitingTime);
+        Thread.sleep(10L);
+      }
+    }
+    finally
+    {
+      conn.close();
+      releaseConn.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Verifies that a listener using selector threads can process a variety of
+   * requests, including large and pipelined requests, over multiple
+   * connections.  The listener must use an in-memory request handler with a
+   * base DN of "dc=example,dc=com" that does not yet contain any entries.
+   *
+   * @param  conn  A connection to the listener to be tested.  It will be
+   *               closed by this method.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static void verifySelectorListener(final LDAPConnection conn)
+          throws Exception
+  {
+    conn.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    // Add an entry that is much larger than the initial read buffer.
+    final char[] largeValue = new char[100000];
+    Arrays.fill(largeValue, 'x');
+    conn.add(
+         "dn: ou=large,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: large",
+         "description: " + new String(largeValue));
+
+    final Entry largeEntry = conn.getEntry("ou=large,dc=example,dc=com");
+    assertNotNull(largeEntry);
+    assertEquals(largeEntry.getAttributeValue("description").length(),
+         largeValue.length);
+
+    // Issue a number of pipelined requests on the same connection, along with
+    // requests from other connections.
+    final List<TestAsyncListener> listeners =
+         new ArrayList<TestAsyncListener>(20);
+    final LDAPConnection[] otherConns = new LDAPConnection[3];
+    for (int i=0; i < otherConns.length; i++)
+    {
+      otherConns[i] = new LDAPConnection(conn.getSocketFactory(),
+           conn.getConnectedAddress(), conn.getConnectedPort());
+    }
+
+    for (int i=0; i < 20; i++)
+    {
+      final TestAsyncListener asyncListener = new TestAsyncListener();
+      listeners.add(asyncListener);
+      conn.asyncSearch(new SearchRequest(asyncListener, "dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)"));
+
+      final LDAPConnection otherConn = otherConns[i % otherConns.length];
+      assertEquals(otherConn.search("dc=example,dc=com", SearchScope.SUB,
+           "(objectClass=*)").getEntryCount(), 2);
+    }
+
+    for (final TestAsyncListener asyncListener : listeners)
+    {
+      asyncListener.waitForResult();
+      assertEquals(asyncListener.getLastResult().getResultCode(),
+           ResultCode.SUCCESS);
+    }
+    assertEquals(listeners.get(0).getSearchEntries(), 2);
+
+    for (final LDAPConnection otherConn : otherConns)
+    {
+      otherConn.close();
+    }
+
+    conn.delete("ou=large,dc=example,dc=com");
+    assertNull(conn.getEntry("ou=large,dc=example,dc=com"));
+    conn.close();
+  }
 }
@@ -461,6 +461,87 @@ public final class ReadOnlyInMemoryDirectoryServerConfigTestCase
     }
 
 
+    // Test methods related to substring index attributes.
+    assertNotNull(readOnlyConfig.getSubstringIndexAttributes());
+    assertTrue(readOnlyConfig.getSubstringIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setSubstringIndexAttributes("description");
+      fail("Expected an exception when trying to call " +
+           "setSubstringIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setSubstringIndexAttributes(Arrays.asList("description"));
+      fail("Expected an exception when trying to call " +
+           "setSubstringIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
+    // Test methods related to ordering index attributes.
+    assertNotNull(readOnlyConfig.getOrderingIndexAttributes());
+    assertTrue(readOnlyConfig.getOrderingIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setOrderingIndexAttributes("description");
+      fail("Expected an exception when trying to call " +
+           "setOrderingIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setOrderingIndexAttributes(Arrays.asList("description"));
+      fail("Expected an exception when trying to call " +
+           "setOrderingIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
+    // Test methods related to presence index attributes.
+    assertNotNull(readOnlyConfig.getPresenceIndexAttributes());
+    assertTrue(readOnlyConfig.getPresenceIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setPresenceIndexAttributes("description");
+      fail("Expected an exception when trying to call " +
+           "setPresenceIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setPresenceIndexAttributes(Arrays.asList("description"));
+      fail("Expected an exception when trying to call " +
+           "setPresenceIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
     // Test methods related to referential integrity attributes.
     assertNotNull(readOnlyConfig.getReferentialIntegrityAttributes());
     assertTrue(readOnlyConfig.getReferentialIntegrityAttributes().isEmpty());
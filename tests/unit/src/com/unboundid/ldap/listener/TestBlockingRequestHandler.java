@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.ldap.protocol.AddRequestProtocolOp;
+import com.unboundid.ldap.protocol.AddResponseProtocolOp;
+import com.unboundid.ldap.protocol.BindRequestProtocolOp;
+import com.unboundid.ldap.protocol.BindResponseProtocolOp;
+import com.unboundid.ldap.protocol.CompareRequestProtocolOp;
+import com.unboundid.ldap.protocol.CompareResponseProtocolOp;
+import com.unboundid.ldap.protocol.DeleteRequestProtocolOp;
+import com.unboundid.ldap.protocol.DeleteResponseProtocolOp;
+import com.unboundid.ldap.protocol.ExtendedRequestProtocolOp;
+import com.unboundid.ldap.protocol.ExtendedResponseProtocolOp;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.protocol.ModifyRequestProtocolOp;
+import com.unboundid.ldap.protocol.ModifyResponseProtocolOp;
+import com.unboundid.ldap.protocol.ModifyDNRequestProtocolOp;
+import com.unboundid.ldap.protocol.ModifyDNResponseProtocolOp;
+import com.unboundid.ldap.protocol.SearchRequestProtocolOp;
+import com.unboundid.ldap.protocol.SearchResultDoneProtocolOp;
+import com.unboundid.ldap.sdk.Control;
+import com.unboundid.ldap.sdk.ResultCode;
+
+
+
+/**
+ * This class provides a request handler that may be used to test concurrent
+ * processing of requests from the same client connection.  A search with a
+ * base DN of "cn=wait" will block until a search with a base DN of
+ * "cn=release" has been processed (or until ten seconds have elapsed, in which
+ * case a "timeLimitExceeded" result will be returned).  All other requests
+ * will be handled immediately with a "success" result.
+ */
+public final class TestBlockingRequestHandler
+       extends LDAPListenerRequestHandler
+{
+  // The latch that will be used to release waiting searches.
+  private final CountDownLatch latch;
+
+
+
+  /**
+   * Creates a new instance of this request handler.
+   */
+  public TestBlockingRequestHandler()
+  {
+    latch = new CountDownLatch(1);
+  }
+
+
+
+  /**
+   * Creates a new instance of this request handler that shares the provided
+   * latch.
+   *
+   * @param  latch  The latch that will be used to release waiting searches.
+   */
+  private TestBlockingRequestHandler(final CountDownLatch latch)
+  {
+    this.latch = latch;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public TestBlockingRequestHandler newInstance(
+              final LDAPListenerClientConnection connection)
+  {
+    return new TestBlockingRequestHandler(latch);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processAddRequest(final int messageID,
+                                       final AddRequestProtocolOp request,
+                                       final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new AddResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processBindRequest(final int messageID,
+                                        final BindRequestProtocolOp request,
+                                        final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new BindResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processCompareRequest(final int messageID,
+                          final CompareRequestProtocolOp request,
+                          final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new CompareResponseProtocolOp(
+         ResultCode.COMPARE_TRUE_INT_VALUE, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processDeleteRequest(final int messageID,
+                                          final DeleteRequestProtocolOp request,
+                                          final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new DeleteResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processExtendedRequest(final int messageID,
+                          final ExtendedRequestProtocolOp request,
+                          final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processModifyRequest(final int messageID,
+                                          final ModifyRequestProtocolOp request,
+                                          final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new ModifyResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processModifyDNRequest(final int messageID,
+                          final ModifyDNRequestProtocolOp request,
+                          final List<Control> controls)
+  {
+    return new LDAPMessage(messageID, new ModifyDNResponseProtocolOp(
+         ResultCode.SUCCESS_INT_VALUE, null, null, null));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPMessage processSearchRequest(final int messageID,
+                                          final SearchRequestProtocolOp request,
+                                          final List<Control> controls)
+  {
+    int resultCode = ResultCode.SUCCESS_INT_VALUE;
+    if (request.getBaseDN().equalsIgnoreCase("cn=wait"))
+    {
+      try
+      {
+        if (! latch.await(10L, TimeUnit.SECONDS))
+        {
+          resultCode = ResultCode.TIME_LIMIT_EXCEEDED_INT_VALUE;
+        }
+      }
+      catch (final InterruptedException ie)
+      {
+        resultCode = ResultCode.OTHER_INT_VALUE;
+      }
+    }
+    else if (request.getBaseDN().equalsIgnoreCase("cn=release"))
+    {
+      latch.countDown();
+    }
+
+    return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
+         resultCode, null, null, null), Collections.<Control>emptyList());
+  }
+}
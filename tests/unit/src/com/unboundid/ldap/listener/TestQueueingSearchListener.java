@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
+import com.unboundid.ldap.sdk.IntermediateResponse;
+import com.unboundid.ldap.sdk.IntermediateResponseListener;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchResultReference;
+
+
+
+/**
+ * This class provides an asynchronous search result listener that queues all
+ * of the responses it receives so that they may be examined by test cases
+ * that need to process searches that remain active for an extended period of
+ * time, like persistent searches.
+ */
+public final class TestQueueingSearchListener
+       implements AsyncSearchResultListener, IntermediateResponseListener
+{
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = 4632914734187125620L;
+
+
+
+  // The queue of intermediate responses that have been received.
+  private final LinkedBlockingQueue<IntermediateResponse>
+       intermediateResponses;
+
+  // The queue of search result entries that have been received.
+  private final LinkedBlockingQueue<SearchResultEntry> entries;
+
+  // The queue of search results that have been received.
+  private final LinkedBlockingQueue<SearchResult> results;
+
+
+
+  /**
+   * Creates a new instance of this test listener.
+   */
+  public TestQueueingSearchListener()
+  {
+    intermediateResponses = new LinkedBlockingQueue<IntermediateResponse>();
+    entries               = new LinkedBlockingQueue<SearchResultEntry>();
+    results               = new LinkedBlockingQueue<SearchResult>();
+  }
+
+
+
+  /**
+   * Waits for up to 10 seconds for the next search result entry.
+   *
+   * @return  The next search result entry, or {@code null} if none was
+   *          received in time.
+   *
+   * @throws  InterruptedException  If the thread is interrupted while waiting.
+   */
+  public SearchResultEntry nextEntry()
+         throws InterruptedException
+  {
+    return entries.poll(10L, TimeUnit.SECONDS);
+  }
+
+
+
+  /**
+   * Waits for up to 10 seconds for the next intermediate response.
+   *
+   * @return  The next intermediate response, or {@code null} if none was
+   *          received in time.
+   *
+   * @throws  InterruptedException  If the thread is interrupted while waiting.
+   */
+  public IntermediateResponse nextIntermediateResponse()
+         throws InterruptedException
+  {
+    return intermediateResponses.poll(10L, TimeUnit.SECONDS);
+  }
+
+
+
+  /**
+   * Waits for up to 10 seconds for the search result.
+   *
+   * @return  The search result, or {@code null} if none was received in time.
+   *
+   * @throws  InterruptedException  If the thread is interrupted while waiting.
+   */
+  public SearchResult nextResult()
+         throws InterruptedException
+  {
+    return results.poll(10L, TimeUnit.SECONDS);
+  }
+
+
+
+  /**
+   * Retrieves the number of search result entries that have been received but
+   * not yet retrieved.
+   *
+   * @return  The number of search result entries that are available.
+   */
+  public int getAvailableEntryCount()
+  {
+    return entries.size();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void searchEntryReturned(final SearchResultEntry searchEntry)
+  {
+    entries.add(searchEntry);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void searchReferenceReturned(
+                   final SearchResultReference searchReference)
+  {
+    // No implementation required.
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void searchResultReceived(final AsyncRequestID requestID,
+                                   final SearchResult searchResult)
+  {
+    results.add(searchResult);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void intermediateResponseReturned(
+                   final IntermediateResponse intermediateResponse)
+  {
+    intermediateResponses.add(intermediateResponse);
+  }
+}
@@ -22,12 +22,18 @@ package com.unboundid.ldap.listener;
 
 
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.testng.annotations.Test;
 
 import com.unboundid.asn1.ASN1OctetString;
 import com.unboundid.ldap.sdk.AddRequest;
 import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.DeleteRequest;
+import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.ExtendedRequest;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
@@ -36,6 +42,7 @@ import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.ldap.sdk.ModifyRequest;
 import com.unboundid.ldap.sdk.ModifyDNRequest;
 import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.TestAsyncListener;
 import com.unboundid.ldap.sdk.TestUnsolicitedNotificationHandler;
 import com.unboundid.ldap.sdk.controls.PostReadRequestControl;
 import com.unboundid.ldap.sdk.controls.PostReadResponseControl;
@@ -1307,4 +1314,114 @@ public final class TransactionExtendedOperationHandlerTestCase
     conn.close();
     assertEquals(unsolicitedNotificationHandler.getNotificationCount(), 0);
   }
+
+
+
+  /**
+   * Tests to ensure that pipelined requests that are part of a transaction
+   * are added to it in the order that they were sent when the listener uses
+   * a request executor to process requests concurrently.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPipelinedTransactionWithRequestExecutor()
+         throws Exception
+  {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         new InMemoryRequestHandler(
+              new InMemoryDirectoryServerConfig("dc=example,dc=com")));
+    config.setRequestExecutor(executor);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("127.0.0.1", listener.getListenPort());
+
+    try
+    {
+      conn.add(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: domain",
+           "dc: example");
+
+      final StartTransactionExtendedResult startTxnResult =
+           (StartTransactionExtendedResult) conn.processExtendedOperation(
+                new StartTransactionExtendedRequest());
+      assertResultCodeEquals(startTxnResult, ResultCode.SUCCESS);
+
+      final TransactionSpecificationRequestControl txnControl =
+           new TransactionSpecificationRequestControl(
+                startTxnResult.getTransactionID());
+
+      // Issue requests without waiting for their responses.  Each child entry
+      // can only be added after its parent, and the last modification should
+      // determine the final description value.
+      final List<TestAsyncListener> asyncListeners =
+           new ArrayList<TestAsyncListener>(201);
+
+      final AddRequest parentAddRequest = new AddRequest(
+           "dn: ou=test,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: test");
+      parentAddRequest.setControls(txnControl);
+      TestAsyncListener asyncListener = new TestAsyncListener();
+      asyncListeners.add(asyncListener);
+      conn.asyncAdd(parentAddRequest, asyncListener);
+
+      for (int i=0; i < 100; i++)
+      {
+        final AddRequest addRequest = new AddRequest(
+             "dn: ou=child " + i + ",ou=test,dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: organizationalUnit",
+             "ou: child " + i);
+        addRequest.setControls(txnControl);
+        asyncListener = new TestAsyncListener();
+        asyncListeners.add(asyncListener);
+        conn.asyncAdd(addRequest, asyncListener);
+
+        final ModifyRequest modifyRequest = new ModifyRequest(
+             "dn: ou=test,dc=example,dc=com",
+             "changetype: modify",
+             "replace: description",
+             "description: " + i);
+        modifyRequest.setControls(txnControl);
+        asyncListener = new TestAsyncListener();
+        asyncListeners.add(asyncListener);
+        conn.asyncModify(modifyRequest, asyncListener);
+      }
+
+      for (final TestAsyncListener l : asyncListeners)
+      {
+        l.waitForResult();
+        assertResultCodeEquals(l.getLastResult(), ResultCode.SUCCESS);
+      }
+
+      final EndTransactionExtendedResult endTxnResult =
+           (EndTransactionExtendedResult) conn.processExtendedOperation(
+                new EndTransactionExtendedRequest(
+                     startTxnResult.getTransactionID(), true));
+      assertResultCodeEquals(endTxnResult, ResultCode.SUCCESS);
+
+      final Entry parentEntry = conn.getEntry("ou=test,dc=example,dc=com");
+      assertNotNull(parentEntry);
+      assertEquals(parentEntry.getAttributeValue("description"), "99");
+      for (int i=0; i < 100; i++)
+      {
+        assertNotNull(
+             conn.getEntry("ou=child " + i + ",ou=test,dc=example,dc=com"));
+      }
+    }
+    finally
+    {
+      conn.close();
+      listener.shutDown(true);
+      executor.shutdown();
+    }
+  }
 }
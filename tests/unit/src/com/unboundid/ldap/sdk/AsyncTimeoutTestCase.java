@@ -22,6 +22,9 @@ package com.unboundid.ldap.sdk;
 
 
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.testng.annotations.Test;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
@@ -185,4 +188,75 @@ public final class AsyncTimeoutTestCase
     conn.close();
     ds.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that a listener that blocks while handling a timeout result
+   * will not prevent other asynchronous operations from timing out.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBlockingListenerDoesNotDelayOtherTimeouts()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    final LDAPConnection conn = ds.getConnection();
+    ds.setProcessingDelayMillis(5000L);
+
+    final CountDownLatch releaseLatch = new CountDownLatch(1);
+    final CountDownLatch blockedLatch = new CountDownLatch(1);
+    final AsyncResultListener blockingListener = new AsyncResultListener()
+    {
+      @Override()
+      public void ldapResultReceived(final AsyncRequestID requestID,
+                                     final LDAPResult ldapResult)
+      {
+        blockedLatch.countDown();
+        try
+        {
+          releaseLatch.await(30L, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException ie)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    try
+    {
+      final ModifyRequest blockedRequest = new ModifyRequest(
+           "dn: dc=example,dc=com",
+           "changetype: modify",
+           "replace: description",
+           "description: blocked");
+      blockedRequest.setResponseTimeoutMillis(100L);
+      final AsyncRequestID blockedID =
+           conn.asyncModify(blockedRequest, blockingListener);
+      assertTrue(blockedLatch.await(10L, TimeUnit.SECONDS));
+
+      final ModifyRequest otherRequest = new ModifyRequest(
+           "dn: dc=example,dc=com",
+           "changetype: modify",
+           "replace: description",
+           "description: other");
+      otherRequest.setResponseTimeoutMillis(100L);
+      final AsyncRequestID otherID =
+           conn.asyncModify(otherRequest, new TestAsyncListener());
+      assertResultCodeEquals(otherID.get(10L, TimeUnit.SECONDS),
+           ResultCode.TIMEOUT);
+
+      releaseLatch.countDown();
+      assertResultCodeEquals(blockedID.get(10L, TimeUnit.SECONDS),
+           ResultCode.TIMEOUT);
+    }
+    finally
+    {
+      releaseLatch.countDown();
+      ds.setProcessingDelayMillis(0L);
+      conn.close();
+    }
+  }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the CompiledFilter class.
+ */
+public class CompiledFilterTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Retrieves a set of filter strings that should be evaluated by both the
+   * compiled and uncompiled representations.
+   *
+   * @return  A set of filter strings that should be evaluated by both the
+   *          compiled and uncompiled representations.
+   */
+  @DataProvider(name="filterStrings")
+  public Object[][] getFilterStrings()
+  {
+    return new Object[][]
+    {
+      new Object[] { "(&)" },
+      new Object[] { "(|)" },
+      new Object[] { "(objectClass=*)" },
+      new Object[] { "(objectClass=top)" },
+      new Object[] { "(objectClass=PERSON)" },
+      new Object[] { "(objectClass=groupOfNames)" },
+      new Object[] { "(uid=*)" },
+      new Object[] { "(uid=test.user)" },
+      new Object[] { "(uid=TEST.USER)" },
+      new Object[] { "(UID=Test.User)" },
+      new Object[] { "(userid=test.user)" },
+      new Object[] { "(0.9.2342.19200300.100.1.1=test.user)" },
+      new Object[] { "(uid=other)" },
+      new Object[] { "(cn=*)" },
+      new Object[] { "(cn=test  user)" },
+      new Object[] { "(commonName=Test User)" },
+      new Object[] { "(2.5.4.3=Test User)" },
+      new Object[] { "(cn;lang-en=*)" },
+      new Object[] { "(cn;lang-en=Test User EN)" },
+      new Object[] { "(cn;lang-fr=*)" },
+      new Object[] { "(cn=Test*)" },
+      new Object[] { "(cn=*user)" },
+      new Object[] { "(cn=*st*us*)" },
+      new Object[] { "(cn=T*e*r)" },
+      new Object[] { "(cn=x*)" },
+      new Object[] { "(cn=*ts*)" },
+      new Object[] { "(givenName=test)" },
+      new Object[] { "(sn<=User)" },
+      new Object[] { "(sn>=User)" },
+      new Object[] { "(sn>=V)" },
+      new Object[] { "(sn<=A)" },
+      new Object[] { "(employeeNumber=12345)" },
+      new Object[] { "(employeeNumber>=12)" },
+      new Object[] { "(telephoneNumber=+1 512 555 1234)" },
+      new Object[] { "(telephoneNumber=+15125551234)" },
+      new Object[] { "(telephoneNumber=*555*)" },
+      new Object[] { "(mail=TEST.USER@EXAMPLE.COM)" },
+      new Object[] { "(mail=test.user@example.*)" },
+      new Object[] { "(description=*)" },
+      new Object[] { "(undefinedAttr=foo)" },
+      new Object[] { "(undefinedAttr=*)" },
+      new Object[] { "(&(objectClass=person)(uid=test.user))" },
+      new Object[] { "(&(objectClass=person)(uid=other))" },
+      new Object[] { "(|(uid=other)(cn=test user))" },
+      new Object[] { "(|(uid=other)(cn=another))" },
+      new Object[] { "(!(uid=other))" },
+      new Object[] { "(!(uid=test.user))" },
+      new Object[] { "(&(!(sn<=A))(|(cn=*user)(mail=*)))" },
+    };
+  }
+
+
+
+  /**
+   * Ensures that the compiled representation of a filter yields the same
+   * results as the uncompiled filter, both with and without a schema.
+   *
+   * @param  filterString  The string representation of the filter to test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="filterStrings")
+  public void testMatchesEntry(final String filterString)
+         throws Exception
+  {
+    final Filter filter = Filter.create(filterString);
+    final Schema schema = Schema.getDefaultStandardSchema();
+
+    final Entry[] entries =
+    {
+      new Entry(
+           "dn: uid=test.user,ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: test.user",
+           "givenName: Test",
+           "sn: User",
+           "cn: Test User",
+           "cn;lang-en: Test User EN",
+           "employeeNumber: 12345",
+           "telephoneNumber: +1 512 555 1234",
+           "mail: test.user@example.com"),
+      new Entry(
+           "dn: cn=another,ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "cn: another",
+           "sn: Another"),
+      new Entry(
+           "dn: ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: People"),
+      new Entry("dc=example,dc=com")
+    };
+
+    for (final Schema s : new Schema[] { schema, null })
+    {
+      final CompiledFilter compiledFilter = new CompiledFilter(filter, s);
+      assertSame(compiledFilter.getFilter(), filter);
+      assertSame(compiledFilter.getSchema(), s);
+      assertEquals(compiledFilter.toString(), filter.toString());
+
+      for (final Entry e : entries)
+      {
+        assertEquals(compiledFilter.matchesEntry(e), filter.matchesEntry(e, s),
+             "Mismatch for filter " + filterString + " and entry " + e.getDN() +
+                  " with schema " + (s != null));
+
+        final Entry entryWithSchema =
+             new Entry(e.getDN(), s, e.getAttributes());
+        assertEquals(compiledFilter.matchesEntry(entryWithSchema),
+             filter.matchesEntry(entryWithSchema, s));
+      }
+    }
+  }
+
+
+
+  /**
+   * Ensures that filter types that cannot be evaluated against entries cause
+   * the compiled filter to throw the same exception as the uncompiled filter.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUnsupportedFilterTypes()
+         throws Exception
+  {
+    final Entry e = new Entry(
+         "dn: uid=test.user,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: test.user",
+         "cn: Test User",
+         "sn: User");
+
+    for (final String s : new String[] { "(cn~=test user)", "(cn:=test user)",
+         "(&(cn=*)(cn~=test user))" })
+    {
+      final Filter f = Filter.create(s);
+      final CompiledFilter compiledFilter = new CompiledFilter(f, null);
+
+      ResultCode expected = null;
+      try
+      {
+        f.matchesEntry(e);
+      }
+      catch (final LDAPException le)
+      {
+        expected = le.getResultCode();
+      }
+      assertNotNull(expected);
+
+      try
+      {
+        compiledFilter.matchesEntry(e);
+        fail("Expected an exception when evaluating compiled filter " + s);
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), expected);
+      }
+    }
+  }
+}
@@ -97,11 +97,13 @@ public class LDAPConnectionOptionsTestCase
     assertEquals(opts.getLingerTimeoutSeconds(), 5);
     assertTrue(opts.useReuseAddress());
     assertFalse(opts.useSynchronousMode());
+    assertFalse(opts.useSelectorReader());
     assertTrue(opts.useTCPNoDelay());
     assertEquals(opts.getConnectTimeoutMillis(), 10_000L);
     assertEquals(opts.getResponseTimeoutMillis(), 300_000L);
     assertFalse(opts.abandonOnTimeout());
     assertEquals(opts.getMaxMessageSize(), (20 * 1024 * 1024));
+    assertEquals(opts.getMaxOutstandingAsyncRequests(), 0);
     assertNull(opts.getDisconnectHandler());
     assertNull(opts.getUnsolicitedNotificationHandler());
     assertFalse(opts.captureConnectStackTrace());
@@ -190,6 +192,7 @@ public class LDAPConnectionOptionsTestCase
     opts.setConnectTimeoutMillis(1234);
     opts.setFollowReferrals(true);
     opts.setMaxMessageSize(1234);
+    opts.setMaxOutstandingAsyncRequests(1234);
     opts.setReferralHopLimit(10);
     opts.setReferralConnector(new TestReferralConnector());
     opts.setResponseTimeoutMillis(1234L);
@@ -204,6 +207,7 @@ public class LDAPConnectionOptionsTestCase
     opts.setReceiveBufferSize(1234);
     opts.setSendBufferSize(1234);
     opts.setUseSynchronousMode(true);
+    opts.setUseSelectorReader(true);
     opts.setUseSchema(true);
     opts.setAllowConcurrentSocketFactoryUse(false);
     opts.setSSLSocketVerifier(new HostNameSSLSocketVerifier(true));
@@ -220,6 +224,8 @@ public class LDAPConnectionOptionsTestCase
     assertEquals(dup.getReferralHopLimit(), opts.getReferralHopLimit());
     assertNotNull(dup.getReferralConnector());
     assertEquals(dup.getMaxMessageSize(), opts.getMaxMessageSize());
+    assertEquals(dup.getMaxOutstandingAsyncRequests(),
+                 opts.getMaxOutstandingAsyncRequests());
     assertEquals(dup.getResponseTimeoutMillis(),
                  opts.getResponseTimeoutMillis());
     assertEquals(dup.abandonOnTimeout(), opts.abandonOnTimeout());
@@ -234,6 +240,7 @@ public class LDAPConnectionOptionsTestCase
     assertEquals(dup.getReceiveBufferSize(), 1234);
     assertEquals(dup.getSendBufferSize(), 1234);
     assertEquals(dup.useSynchronousMode(), opts.useSynchronousMode());
+    assertEquals(dup.useSelectorReader(), opts.useSelectorReader());
     assertEquals(dup.useSchema(), opts.useSchema());
     assertEquals(dup.usePooledSchema(), opts.usePooledSchema());
     assertEquals(dup.allowConcurrentSocketFactoryUse(),
@@ -878,6 +885,32 @@ public class LDAPConnectionOptionsTestCase
 
 
 
+  /**
+   * Tests the maximum outstanding async requests functionality.
+   */
+  @Test()
+  public void testMaxOutstandingAsyncRequests()
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+
+    assertEquals(opts.getMaxOutstandingAsyncRequests(), 0);
+    assertNotNull(opts.toString());
+
+    opts.setMaxOutstandingAsyncRequests(100);
+    assertEquals(opts.getMaxOutstandingAsyncRequests(), 100);
+    assertTrue(opts.toString().contains("maxOutstandingAsyncRequests=100"));
+
+    opts.setMaxOutstandingAsyncRequests(0);
+    assertEquals(opts.getMaxOutstandingAsyncRequests(), 0);
+    assertNotNull(opts.toString());
+
+    opts.setMaxOutstandingAsyncRequests(-1);
+    assertEquals(opts.getMaxOutstandingAsyncRequests(), 0);
+    assertNotNull(opts.toString());
+  }
+
+
+
   /**
    * Tests disconnect handler functionality.
    */
@@ -984,6 +1017,29 @@ public class LDAPConnectionOptionsTestCase
 
 
 
+  /**
+   * Tests the ability to get and set the flag that controls whether to use a
+   * shared selector-based reader.
+   */
+  @Test()
+  public void testUseSelectorReader()
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+
+    assertFalse(opts.useSelectorReader());
+    assertNotNull(opts.toString());
+
+    opts.setUseSelectorReader(true);
+    assertTrue(opts.useSelectorReader());
+    assertTrue(opts.toString().contains("useSelectorReader=true"));
+
+    opts.setUseSelectorReader(false);
+    assertFalse(opts.useSelectorReader());
+    assertNotNull(opts.toString());
+  }
+
+
+
   /**
    * Tests the ability to get and set the flag that controls whether to use
    * schema information when reading data from the server.
@@ -26,6 +26,11 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.util.LatencyHistogram;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
+
 
 
 /**
@@ -276,4 +281,160 @@ public class LDAPConnectionPoolStatisticsTestCase
 
     assertNotNull(stats.toString());
   }
+
+
+
+  /**
+   * Tests the behavior of the response time histograms, which should be
+   * aggregated across all connections in the pool.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testResponseTimeHistograms()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    final LDAPConnectionPool pool = ds.getConnectionPool(2);
+    final LDAPConnectionPoolStatistics stats =
+         pool.getConnectionPoolStatistics();
+
+    assertFalse(stats.collectResponseTimeHistograms());
+    assertNull(stats.getResponseTimeHistogram(OperationType.SEARCH));
+
+    stats.setCollectResponseTimeHistograms(true);
+    assertTrue(stats.collectResponseTimeHistograms());
+
+    final LDAPConnection c1 = pool.getConnection();
+    final LDAPConnection c2 = pool.getConnection();
+    c1.getEntry("dc=example,dc=com");
+    c2.getEntry("dc=example,dc=com");
+    c2.compare("dc=example,dc=com", "dc", "example");
+
+    // The individual connections are not collecting histograms.
+    assertNull(c1.getConnectionStatistics().getResponseTimeHistogram(
+         OperationType.SEARCH));
+
+    pool.releaseConnection(c1);
+    pool.releaseConnection(c2);
+
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 2L);
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.COMPARE).getCount(), 1L);
+
+    stats.reset();
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 0L);
+
+    stats.setCollectResponseTimeHistograms(false);
+    pool.getEntry("dc=example,dc=com");
+    assertNull(stats.getResponseTimeHistogram(OperationType.SEARCH));
+
+    pool.close();
+  }
+
+
+
+  /**
+   * Tests the statistics about resumed TLS sessions and full TLS handshakes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTLSHandshakeStatistics()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDSWithSSL(true, false);
+
+    final SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
+    final LDAPConnection conn = new LDAPConnection(
+         sslUtil.createSSLSocketFactory(), "localhost", ds.getListenPort());
+    assertNotNull(conn.getRootDSE());
+
+    Thread.sleep(10L);
+
+    final LDAPConnectionPool pool = new LDAPConnectionPool(conn, 2, 2);
+    final LDAPConnectionPoolStatistics stats =
+         pool.getConnectionPoolStatistics();
+
+    // The connection provided to the pool is not counted, but the additional
+    // connection should have resumed its session.
+    assertEquals(stats.getNumResumedTLSSessions(), 1L);
+    assertEquals(stats.getNumFullTLSHandshakes(), 0L);
+
+    final LDAPConnection c = pool.getConnection();
+    pool.releaseConnection(pool.replaceDefunctConnection(c));
+    assertEquals(stats.getNumResumedTLSSessions(), 2L);
+    assertEquals(stats.getNumFullTLSHandshakes(), 0L);
+    assertTrue(stats.toString().contains("numResumedTLSSessions=2"));
+
+    stats.reset();
+    assertEquals(stats.getNumResumedTLSSessions(), 0L);
+    assertEquals(stats.getNumFullTLSHandshakes(), 0L);
+
+    pool.close();
+
+
+    // Connections that are not secured should not be counted.
+    final LDAPConnectionPool insecurePool =
+         getTestDS(true, false).getConnectionPool(2);
+    final LDAPConnectionPoolStatistics insecureStats =
+         insecurePool.getConnectionPoolStatistics();
+    assertEquals(insecureStats.getNumResumedTLSSessions(), 0L);
+    assertEquals(insecureStats.getNumFullTLSHandshakes(), 0L);
+    insecurePool.close();
+  }
+
+
+
+  /**
+   * Tests that response times recorded concurrently by a number of threads in
+   * different stripes are all reflected in the merged pool histogram.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentResponseTimeHistogramRecording()
+         throws Exception
+  {
+    final LDAPConnectionPoolStatistics stats =
+         new LDAPConnectionPoolStatistics(null);
+    stats.setCollectResponseTimeHistograms(true, 4);
+
+    final Thread[] threads = new Thread[8];
+    for (int i=0; i < threads.length; i++)
+    {
+      final long responseTime = (i + 1) * 1_000_000L;
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          for (int j=0; j < 1000; j++)
+          {
+            stats.recordResponseTime(OperationType.SEARCH, responseTime);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    final LatencyHistogram h =
+         stats.getResponseTimeHistogram(OperationType.SEARCH);
+    assertEquals(h.getCount(), 8000L);
+    assertEquals(h.getMaxValue(), 8_000_000L);
+    assertEquals(h.getMeanValue(), 4_500_000.0d);
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.ADD).getCount(), 0L);
+
+    stats.reset();
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 0L);
+  }
 }
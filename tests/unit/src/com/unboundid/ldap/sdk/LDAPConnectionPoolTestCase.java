@@ -23,8 +23,12 @@ package com.unboundid.ldap.sdk;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -32,6 +36,9 @@ import org.testng.annotations.Test;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.LDAPListener;
+import com.unboundid.ldap.listener.LDAPListenerConfig;
+import com.unboundid.ldap.listener.TestBlockingRequestHandler;
 import com.unboundid.ldap.sdk.controls.ManageDsaITRequestControl;
 import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.ldap.sdk.extensions.WhoAmIExtendedRequest;
@@ -3262,4 +3269,471 @@ public class LDAPConnectionPoolTestCase
     pool.close();
     ds.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that a health check examines every available connection in
+   * a pool that uses a striped queue, including when checking for expired
+   * connections.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStripedConnectionQueueHealthCheck()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnectionPool pool = new LDAPConnectionPool(ds.getConnection(),
+         5, 5, 1, null, true, null, true);
+    assertEquals(pool.getCurrentAvailableConnections(), 5);
+
+    final Set<LDAPConnection> checkedConnections =
+         Collections.synchronizedSet(new HashSet<LDAPConnection>(10));
+    final LDAPConnectionPoolHealthCheck healthCheck =
+         new LDAPConnectionPoolHealthCheck()
+         {
+           @Override()
+           public void ensureConnectionValidForContinuedUse(
+                            final LDAPConnection connection)
+           {
+             checkedConnections.add(connection);
+           }
+         };
+
+    LDAPConnectionPoolHealthCheckResult result =
+         pool.invokeHealthCheck(healthCheck, false);
+    assertEquals(result.getNumExamined(), 5);
+    assertEquals(result.getNumExpired(), 0);
+    assertEquals(result.getNumDefunct(), 0);
+    assertEquals(checkedConnections.size(), 5);
+    assertEquals(pool.getCurrentAvailableConnections(), 5);
+
+    pool.setMaxConnectionAgeMillis(1L);
+    Thread.sleep(10L);
+
+    result = pool.invokeHealthCheck(healthCheck, true);
+    assertEquals(result.getNumExamined(), 5);
+    assertEquals(result.getNumExpired(), 5);
+    assertEquals(result.getNumDefunct(), 0);
+    assertEquals(
+         pool.getConnectionPoolStatistics().getNumConnectionsClosedExpired(),
+         5L);
+    assertEquals(pool.getCurrentAvailableConnections(), 5);
+
+    pool.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that it is possible to check out a connection to a
+   * specific server from a pool that uses a striped queue and has connections
+   * to multiple servers.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStripedConnectionQueueGetConnectionForServer()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds1 = getTestDS(true, false);
+
+    final InMemoryDirectoryServer ds2 = new InMemoryDirectoryServer(
+         new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+    ds2.startListening();
+
+    final LDAPConnection conn1 = ds1.getConnection();
+    final LDAPConnection conn2 = ds2.getConnection();
+    final String host1 = conn1.getConnectedAddress();
+    final int port1 = conn1.getConnectedPort();
+    final String host2 = conn2.getConnectedAddress();
+    final int port2 = conn2.getConnectedPort();
+    conn1.close();
+    conn2.close();
+
+    final RoundRobinServerSet serverSet = new RoundRobinServerSet(
+         new String[] { host1, host2 }, new int[] { port1, port2 });
+    final LDAPConnectionPool pool = new LDAPConnectionPool(serverSet, null, 4,
+         4, 1, null, true, null, true);
+    assertEquals(pool.getCurrentAvailableConnections(), 4);
+
+    try
+    {
+      final ArrayList<LDAPConnection> connList =
+           new ArrayList<LDAPConnection>(4);
+      for (int i=0; i < 2; i++)
+      {
+        final LDAPConnection c1 = pool.getConnection(host1, port1);
+        assertNotNull(c1);
+        assertEquals(c1.getConnectedPort(), port1);
+        connList.add(c1);
+
+        final LDAPConnection c2 = pool.getConnection(host2, port2);
+        assertNotNull(c2);
+        assertEquals(c2.getConnectedPort(), port2);
+        connList.add(c2);
+      }
+
+      assertEquals(pool.getCurrentAvailableConnections(), 0);
+      assertNull(pool.getConnection(host1, port1));
+
+      for (final LDAPConnection c : connList)
+      {
+        pool.releaseConnection(c);
+      }
+      assertEquals(pool.getCurrentAvailableConnections(), 4);
+    }
+    finally
+    {
+      pool.close();
+      ds2.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of a connection pool that uses a striped queue to hold
+   * its available connections, including when many threads concurrently check
+   * out and release connections.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStripedConnectionQueue()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnection conn = ds.getConnection();
+    final LDAPConnectionPool pool = new LDAPConnectionPool(conn, 1, 5, 1,
+         null, true, null, true);
+    assertTrue(pool.getAvailableConnectionQueue() instanceof
+         StripedConnectionQueue);
+    assertEquals(pool.getCurrentAvailableConnections(), 1);
+    assertEquals(pool.getMaximumAvailableConnections(), 5);
+
+    pool.setCreateIfNecessary(false);
+    pool.setMaxWaitTimeMillis(10L);
+
+    final ArrayList<LDAPConnection> connList =
+         new ArrayList<LDAPConnection>(5);
+    for (int i=0; i < 5; i++)
+    {
+      connList.add(pool.getConnection());
+    }
+    assertEquals(pool.getCurrentAvailableConnections(), 0);
+
+    try
+    {
+      pool.getConnection();
+      fail("Expected an exception when trying to check out a connection " +
+           "when the maximum number of connections were already checked out.");
+    }
+    catch (final LDAPException le)
+    {
+      // This was expected.
+    }
+
+    for (final LDAPConnection c : connList)
+    {
+      pool.releaseConnection(c);
+    }
+    assertEquals(pool.getCurrentAvailableConnections(), 5);
+
+    pool.setMaxWaitTimeMillis(30000L);
+
+    final int numThreads = 16;
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+    final Thread[] threads = new Thread[numThreads];
+    for (int i=0; i < numThreads; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < 50; j++)
+            {
+              assertNotNull(pool.getRootDSE());
+            }
+          }
+          catch (final Throwable t)
+          {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertNull(failure.get());
+    assertEquals(pool.getCurrentAvailableConnections(), 5);
+
+    pool.close();
+    assertTrue(pool.isClosed());
+    assertEquals(pool.getCurrentAvailableConnections(), 0);
+  }
+
+
+
+  /**
+   * Provides test coverage for the methods that may be used to process
+   * individual asynchronous operations using connections from a pool.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testIndividualAsyncOperations()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setMaxOutstandingAsyncRequests(4);
+    final LDAPConnectionPool pool = new LDAPConnectionPool(
+         ds.getConnection(options), 2, 2);
+
+    final TestAsyncListener listener = new TestAsyncListener();
+
+    AsyncRequestID requestID = pool.asyncAdd(new AddRequest(
+         "dn: ou=test,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: test"), listener);
+    assertEquals(pool.getCurrentAvailableConnections(), 2);
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.SUCCESS);
+
+    requestID = pool.asyncCompare(
+         new CompareRequest("ou=test,dc=example,dc=com", "ou", "test"),
+         listener);
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.COMPARE_TRUE);
+
+    requestID = pool.asyncModify(new ModifyRequest(
+         "dn: ou=test,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: foo"), listener);
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.SUCCESS);
+
+    requestID = pool.asyncModifyDN(new ModifyDNRequest(
+         "ou=test,dc=example,dc=com", "ou=test2", true), listener);
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.SUCCESS);
+
+    final TestAsyncListener searchListener = new TestAsyncListener();
+    requestID = pool.asyncSearch(new SearchRequest(searchListener,
+         "dc=example,dc=com", SearchScope.SUB, "(description=foo)"));
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.SUCCESS);
+    assertEquals(searchListener.getSearchEntries(), 1);
+
+    requestID = pool.asyncDelete(
+         new DeleteRequest("ou=test2,dc=example,dc=com"), listener);
+    assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+         ResultCode.SUCCESS);
+    assertEntryMissing(ds, "ou=test2,dc=example,dc=com");
+
+    try
+    {
+      pool.asyncSearch(new SearchRequest("dc=example,dc=com",
+           SearchScope.BASE, "(objectClass=*)"));
+      fail("Expected an exception for a search without an async listener.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PARAM_ERROR);
+    }
+
+
+    // Issue many more operations than the pool's connections will allow to be
+    // outstanding at once.  They should all complete successfully.
+    final ArrayList<AsyncRequestID> requestIDs =
+         new ArrayList<AsyncRequestID>(200);
+    for (int i=0; i < 200; i++)
+    {
+      requestIDs.add(pool.asyncModify(new ModifyRequest(
+           "dn: dc=example,dc=com",
+           "changetype: modify",
+           "replace: description",
+           "description: " + i), null));
+    }
+
+    for (final AsyncRequestID id : requestIDs)
+    {
+      assertResultCodeEquals(id.get(30L, TimeUnit.SECONDS),
+           ResultCode.SUCCESS);
+    }
+
+    assertEquals(pool.getCurrentAvailableConnections(), 2);
+    final LDAPConnection conn = pool.getConnection();
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+    pool.releaseConnection(conn);
+
+    pool.close();
+  }
+
+
+
+  /**
+   * Tests the behavior of the processRequestsInParallel method.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testProcessRequestsInParallel()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnectionPool pool =
+         new LDAPConnectionPool(ds.getConnection(), 4, 4);
+
+    final ArrayList<LDAPRequest> requests = new ArrayList<LDAPRequest>(502);
+    for (int i=0; i < 500; i++)
+    {
+      requests.add(new AddRequest(
+           "dn: ou=test" + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: test" + i));
+    }
+    requests.add(new CompareRequest("dc=example,dc=com", "dc", "example"));
+    requests.add(new AddRequest(
+         "dn: ou=test0,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: test0"));
+
+    final List<LDAPResult> results =
+         pool.processRequestsInParallel(requests, 3, 10, 60000L);
+    assertNotNull(results);
+    assertEquals(results.size(), 502);
+
+    for (int i=0; i < 500; i++)
+    {
+      assertResultCodeEquals(results.get(i), ResultCode.SUCCESS);
+      assertEntryExists(ds, "ou=test" + i + ",dc=example,dc=com");
+    }
+    assertResultCodeEquals(results.get(500), ResultCode.COMPARE_TRUE);
+    assertResultCodeEquals(results.get(501), ResultCode.ENTRY_ALREADY_EXISTS);
+
+    assertEquals(pool.getCurrentAvailableConnections(), 4);
+
+
+    // Make sure that a list with an unacceptable request is rejected without
+    // sending any of the requests.
+    final ArrayList<LDAPRequest> invalidRequests =
+         new ArrayList<LDAPRequest>(2);
+    invalidRequests.add(new DeleteRequest("ou=test0,dc=example,dc=com"));
+    invalidRequests.add(
+         new SimpleBindRequest("cn=Directory Manager", "password"));
+
+    try
+    {
+      pool.processRequestsInParallel(invalidRequests, 2, 5, 60000L);
+      fail("Expected an exception for a list with a bind request.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PARAM_ERROR);
+    }
+
+    assertEntryExists(ds, "ou=test0,dc=example,dc=com");
+    assertEquals(pool.getCurrentAvailableConnections(), 4);
+
+    pool.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that a pooled asynchronous operation that cannot be sent
+   * because the connection already has the maximum number of outstanding
+   * asynchronous requests will not cause the connection to be closed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAsyncOperationPermitTimeoutKeepsConnection()
+         throws Exception
+  {
+    final LDAPListener listener = new LDAPListener(
+         new LDAPListenerConfig(0, new TestBlockingRequestHandler()));
+    listener.startListening();
+
+    try
+    {
+      final LDAPConnectionOptions options = new LDAPConnectionOptions();
+      options.setMaxOutstandingAsyncRequests(1);
+      final LDAPConnectionPool pool = new LDAPConnectionPool(
+           new LDAPConnection(options, "127.0.0.1", listener.getListenPort()),
+           1, 1);
+      pool.setRetryFailedOperationsDueToInvalidConnections(true);
+      final LDAPConnectionPoolStatistics stats =
+           pool.getConnectionPoolStatistics();
+      final long numConnectionsCreated =
+           stats.getNumSuccessfulConnectionAttempts();
+
+      // Send a search that will not complete until it is released, which uses
+      // the only permit available on the pooled connection.
+      final TestAsyncListener blockedListener = new TestAsyncListener();
+      final AsyncRequestID blockedID = pool.asyncSearch(new SearchRequest(
+           blockedListener, "cn=wait", SearchScope.BASE, "(objectClass=*)"));
+      assertEquals(pool.getCurrentAvailableConnections(), 1);
+
+      // A second search should time out waiting for a permit, but the
+      // connection should be returned to the pool rather than closed.
+      final SearchRequest timeoutRequest = new SearchRequest(
+           new TestAsyncListener(), "cn=other", SearchScope.BASE,
+           "(objectClass=*)");
+      timeoutRequest.setResponseTimeoutMillis(100L);
+      try
+      {
+        pool.asyncSearch(timeoutRequest);
+        fail("Expected an exception when the outstanding request limit was " +
+             "reached.");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.TIMEOUT);
+      }
+
+      assertEquals(pool.getCurrentAvailableConnections(), 1);
+      assertEquals(stats.getNumConnectionsClosedDefunct(), 0L);
+      assertEquals(stats.getNumSuccessfulConnectionAttempts(),
+           numConnectionsCreated);
+      assertFalse(blockedID.isDone());
+
+      // Release the blocked search and make sure that it completes
+      // successfully on the original connection.
+      final LDAPConnection releaseConn =
+           new LDAPConnection("127.0.0.1", listener.getListenPort());
+      assertEquals(releaseConn.search("cn=release", SearchScope.BASE,
+           "(objectClass=*)").getResultCode(), ResultCode.SUCCESS);
+      releaseConn.close();
+
+      assertResultCodeEquals(blockedID.get(30L, TimeUnit.SECONDS),
+           ResultCode.SUCCESS);
+
+      pool.close();
+    }
+    finally
+    {
+      listener.shutDown(true);
+    }
+  }
 }
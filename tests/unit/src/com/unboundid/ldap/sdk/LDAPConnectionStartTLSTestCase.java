@@ -132,6 +132,40 @@ public final class LDAPConnectionStartTLSTestCase
 
 
 
+  /**
+   * Tests the behavior of an LDAP connection configured to use a selector-based
+   * reader when it is secured with StartTLS.  The connection should switch to
+   * using a dedicated reader thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStartTLSWithSelectorReader()
+         throws Exception
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+    opts.setUseSelectorReader(true);
+
+    final LDAPConnection conn = new LDAPConnection(opts, "localhost",
+         ds.getListenPort("WithStartTLS"));
+    assertNull(conn.getConnectionInternals(true).getConnectionReader().
+         getReaderThread());
+    assertNotNull(conn.getRootDSE());
+
+    final SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
+    final ExtendedResult startTLSResult = conn.processExtendedOperation(
+         new StartTLSExtendedRequest(sslUtil.createSSLSocketFactory()));
+    assertResultCodeEquals(startTLSResult, ResultCode.SUCCESS);
+    assertNotNull(conn.getConnectionInternals(true).getConnectionReader().
+         getReaderThread());
+
+    assertNotNull(conn.getRootDSE());
+    conn.close();
+  }
+
+
+
+
   /**
    * Tests the behavior of an LDAP connection that is established, secured with
    * StartTLS, and then the reconnect method invoked.  The reconnected
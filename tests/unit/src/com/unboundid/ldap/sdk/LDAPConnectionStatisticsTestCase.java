@@ -26,6 +26,9 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.util.LatencyHistogram;
+
 
 
 /**
@@ -830,4 +833,61 @@ public class LDAPConnectionStatisticsTestCase
 
     conn.close();
   }
+
+
+
+  /**
+   * Tests the behavior of the response time histograms.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testResponseTimeHistograms()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    final LDAPConnection conn = ds.getConnection();
+    final LDAPConnectionStatistics stats = conn.getConnectionStatistics();
+
+    assertFalse(stats.collectResponseTimeHistograms());
+    assertNull(stats.getResponseTimeHistogram(OperationType.SEARCH));
+
+    conn.getEntry("dc=example,dc=com");
+    assertNull(stats.getResponseTimeHistogram(OperationType.SEARCH));
+
+    stats.setCollectResponseTimeHistograms(true);
+    assertTrue(stats.collectResponseTimeHistograms());
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 0L);
+
+    conn.getEntry("dc=example,dc=com");
+    conn.getEntry("dc=example,dc=com");
+    conn.modify("dc=example,dc=com",
+         new Modification(ModificationType.REPLACE, "description", "foo"));
+
+    final LatencyHistogram searchHistogram =
+         stats.getResponseTimeHistogram(OperationType.SEARCH);
+    assertEquals(searchHistogram.getCount(), 2L);
+    assertTrue(searchHistogram.getMaxValue() > 0L);
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.MODIFY).getCount(), 1L);
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.ADD).getCount(), 0L);
+
+    // Make sure that the histogram returned is a snapshot.
+    searchHistogram.record(1L);
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 2L);
+
+    stats.reset();
+    assertTrue(stats.collectResponseTimeHistograms());
+    assertEquals(
+         stats.getResponseTimeHistogram(OperationType.SEARCH).getCount(), 0L);
+
+    stats.setCollectResponseTimeHistograms(false);
+    assertFalse(stats.collectResponseTimeHistograms());
+    assertNull(stats.getResponseTimeHistogram(OperationType.SEARCH));
+
+    conn.close();
+  }
 }
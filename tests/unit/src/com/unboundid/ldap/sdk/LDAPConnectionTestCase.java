@@ -23,6 +23,10 @@ package com.unboundid.ldap.sdk;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.net.SocketFactory;
 
 import org.testng.annotations.Test;
@@ -5212,6 +5216,461 @@ public class LDAPConnectionTestCase
 
 
 
+  /**
+   * Tests the behavior of connections configured to use a shared
+   * selector-based reader rather than a dedicated reader thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorReader()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    // Add an entry that is large enough to require multiple reads and an
+    // expansion of the read buffer.
+    final StringBuilder largeValue = new StringBuilder(100_000);
+    for (int i=0; i < 100_000; i++)
+    {
+      largeValue.append((char) ('a' + (i % 26)));
+    }
+
+    ds.add(
+         "dn: ou=large,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: large",
+         "description: " + largeValue);
+
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+    opts.setUseSelectorReader(true);
+
+    final ArrayList<LDAPConnection> connections =
+         new ArrayList<LDAPConnection>(20);
+    for (int i=0; i < 20; i++)
+    {
+      final LDAPConnection conn =
+           new LDAPConnection(opts, "localhost", ds.getListenPort());
+      assertTrue(conn.isConnected());
+      assertNull(conn.getConnectionInternals(true).getConnectionReader().
+           getReaderThread());
+      connections.add(conn);
+    }
+
+    for (final LDAPConnection conn : connections)
+    {
+      final SearchResultEntry e =
+           conn.getEntry("ou=large,dc=example,dc=com");
+      assertNotNull(e);
+      assertEquals(e.getAttributeValue("description"), largeValue.toString());
+
+      final SearchResult searchResult = conn.search("dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)");
+      assertResultCodeEquals(searchResult, ResultCode.SUCCESS);
+      assertEquals(searchResult.getEntryCount(), 4);
+
+      final TestAsyncListener listener = new TestAsyncListener();
+      final ArrayList<AsyncRequestID> requestIDs =
+           new ArrayList<AsyncRequestID>(10);
+      for (int i=0; i < 10; i++)
+      {
+        requestIDs.add(conn.asyncSearch(new SearchRequest(listener,
+             "dc=example,dc=com", SearchScope.SUB, "(objectClass=*)")));
+      }
+
+      for (final AsyncRequestID requestID : requestIDs)
+      {
+        assertResultCodeEquals(requestID.get(), ResultCode.SUCCESS);
+      }
+      assertEquals(listener.getSearchResults(), 10);
+      assertEquals(listener.getSearchEntries(), 40);
+    }
+
+    for (final LDAPConnection conn : connections)
+    {
+      conn.close();
+      assertFalse(conn.isConnected());
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a listener that takes a long time to process a
+   * response for a connection configured to use a selector-based reader does
+   * not prevent responses from being read for other connections.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorReaderSlowListener()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+    opts.setUseSelectorReader(true);
+    opts.setResponseTimeoutMillis(10_000L);
+
+    // Create enough connections that at least some of them will share a
+    // selector thread with the connection whose listener will block.
+    final LDAPConnection blockedConn =
+         new LDAPConnection(opts, "localhost", ds.getListenPort());
+    final ArrayList<LDAPConnection> otherConns =
+         new ArrayList<LDAPConnection>(10);
+    for (int i=0; i < 10; i++)
+    {
+      otherConns.add(new LDAPConnection(opts, "localhost",
+           ds.getListenPort()));
+    }
+
+    final CountDownLatch listenerEntered = new CountDownLatch(1);
+    final CountDownLatch releaseListener = new CountDownLatch(1);
+    final AsyncCompareResultListener listener =
+         new AsyncCompareResultListener()
+         {
+           @Override()
+           public void compareResultReceived(final AsyncRequestID requestID,
+                                             final CompareResult result)
+           {
+             listenerEntered.countDown();
+             try
+             {
+               releaseListener.await(30L, TimeUnit.SECONDS);
+             }
+             catch (final InterruptedException ie)
+             {
+               Thread.currentThread().interrupt();
+             }
+           }
+         };
+
+    final AsyncRequestID requestID = blockedConn.asyncCompare(
+         new CompareRequest("dc=example,dc=com", "dc", "example"), listener);
+    assertTrue(listenerEntered.await(10L, TimeUnit.SECONDS));
+
+    try
+    {
+      for (final LDAPConnection conn : otherConns)
+      {
+        assertNotNull(conn.getRootDSE());
+      }
+    }
+    finally
+    {
+      releaseListener.countDown();
+    }
+
+    assertResultCodeEquals(requestID.get(10L, TimeUnit.SECONDS),
+         ResultCode.COMPARE_TRUE);
+    assertNotNull(blockedConn.getRootDSE());
+
+    blockedConn.close();
+    for (final LDAPConnection conn : otherConns)
+    {
+      conn.close();
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of a connection configured to use a selector-based
+   * reader when the server closes the connection.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectorReaderServerDisconnect()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+    opts.setUseSelectorReader(true);
+
+    final LDAPConnection conn =
+         new LDAPConnection(opts, "localhost", ds.getListenPort());
+    assertNotNull(conn.getRootDSE());
+
+    ds.closeAllConnections(true);
+
+    final long stopWaitingTime = System.currentTimeMillis() + 10_000L;
+    while (conn.isConnected() &&
+           (System.currentTimeMillis() < stopWaitingTime))
+    {
+      Thread.sleep(10L);
+    }
+
+    assertFalse(conn.isConnected());
+    assertNotNull(conn.getDisconnectType());
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests the behavior of the {@code processRequestsAsync} method with a
+   * set of requests large enough that they must be written in multiple
+   * batches.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testProcessRequestsAsync()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    final LDAPConnection conn = ds.getConnection();
+
+    final StringBuilder description = new StringBuilder();
+    for (int i=0; i < 200; i++)
+    {
+      description.append('x');
+    }
+
+    final ArrayList<LDAPRequest> requests = new ArrayList<LDAPRequest>(1003);
+    for (int i=0; i < 1000; i++)
+    {
+      requests.add(new AddRequest(
+           "dn: uid=user." + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + i,
+           "cn: User " + i,
+           "description: " + description));
+    }
+
+    requests.add(new CompareRequest("uid=user.999,dc=example,dc=com", "uid",
+         "user.999"));
+    requests.add(new ModifyRequest(
+         "dn: uid=user.0,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: foo"));
+
+    final TestAsyncListener searchListener = new TestAsyncListener();
+    requests.add(new SearchRequest(searchListener, "dc=example,dc=com",
+         SearchScope.ONE, "(description=foo)"));
+
+    final long lastCommunicationTime = conn.getLastCommunicationTime();
+    final List<AsyncRequestID> requestIDs = conn.processRequestsAsync(requests);
+    assertNotNull(requestIDs);
+    assertEquals(requestIDs.size(), requests.size());
+    assertTrue(conn.getLastCommunicationTime() >= lastCommunicationTime);
+
+    for (int i=0; i < 1000; i++)
+    {
+      final LDAPResult result = requestIDs.get(i).get(30L, TimeUnit.SECONDS);
+      assertEquals(result.getResultCode(), ResultCode.SUCCESS);
+    }
+
+    assertEquals(requestIDs.get(1000).get(30L, TimeUnit.SECONDS).
+         getResultCode(), ResultCode.COMPARE_TRUE);
+    assertEquals(requestIDs.get(1001).get(30L, TimeUnit.SECONDS).
+         getResultCode(), ResultCode.SUCCESS);
+    assertEquals(requestIDs.get(1002).get(30L, TimeUnit.SECONDS).
+         getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchListener.getSearchEntries(), 1);
+
+    assertEquals(ds.countEntriesBelow("dc=example,dc=com"), 1001);
+
+    // Make sure that the connection can still be used normally.
+    assertNotNull(conn.getRootDSE());
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests the behavior of the {@code processRequestsAsync} method when a
+   * request cannot be processed asynchronously.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testProcessRequestsAsyncUnsupportedRequests()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    final LDAPConnection conn = ds.getConnection();
+
+    final ArrayList<LDAPRequest> requests = new ArrayList<LDAPRequest>(2);
+    requests.add(new DeleteRequest("dc=example,dc=com"));
+    requests.add(new SimpleBindRequest());
+
+    try
+    {
+      conn.processRequestsAsync(requests);
+      fail("Expected an exception when trying to pipeline a bind request.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PARAM_ERROR);
+    }
+
+    requests.set(1, new SearchRequest("dc=example,dc=com", SearchScope.BASE,
+         "(objectClass=*)"));
+    try
+    {
+      conn.processRequestsAsync(requests);
+      fail("Expected an exception when trying to pipeline a search request " +
+           "without an async search result listener.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PARAM_ERROR);
+    }
+
+    // Make sure that the delete was not sent.
+    assertEntryExists(conn, "dc=example,dc=com");
+    conn.close();
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setUseSynchronousMode(true);
+
+    final LDAPConnection syncConn =
+         new LDAPConnection(options, "localhost", ds.getListenPort());
+    try
+    {
+      syncConn.processRequestsAsync(
+           Arrays.<LDAPRequest>asList(new DeleteRequest("dc=example,dc=com")));
+      fail("Expected an exception when trying to pipeline requests over a " +
+           "connection in synchronous mode.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+    }
+    finally
+    {
+      syncConn.close();
+    }
+
+    try
+    {
+      new LDAPConnection().processRequestsAsync(
+           Arrays.<LDAPRequest>asList(new DeleteRequest("dc=example,dc=com")));
+      fail("Expected an exception when trying to pipeline requests over an " +
+           "unestablished connection.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.SERVER_DOWN);
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of asynchronous operations on a connection that limits
+   * the number of outstanding asynchronous requests.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMaxOutstandingAsyncRequests()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setMaxOutstandingAsyncRequests(5);
+    final LDAPConnection conn = ds.getConnection(options);
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+
+
+    // Issue more requests than the limit allows from a single thread.  They
+    // should all complete without any problems.
+    final ArrayList<AsyncRequestID> requestIDs =
+         new ArrayList<AsyncRequestID>(100);
+    for (int i=0; i < 100; i++)
+    {
+      requestIDs.add(conn.asyncCompare(
+           new CompareRequest("dc=example,dc=com", "dc", "example"), null));
+      assertTrue(conn.getOutstandingAsyncRequestCount() <= 5);
+    }
+
+    for (final AsyncRequestID requestID : requestIDs)
+    {
+      assertEquals(requestID.get(30L, TimeUnit.SECONDS).getResultCode(),
+           ResultCode.COMPARE_TRUE);
+    }
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+
+
+    // Pipelined requests must also honor the limit.
+    final ArrayList<LDAPRequest> requests = new ArrayList<LDAPRequest>(50);
+    for (int i=0; i < 50; i++)
+    {
+      requests.add(new ModifyRequest(
+           "dn: dc=example,dc=com",
+           "changetype: modify",
+           "replace: description",
+           "description: " + i));
+    }
+
+    for (final AsyncRequestID requestID : conn.processRequestsAsync(requests))
+    {
+      assertEquals(requestID.get(30L, TimeUnit.SECONDS).getResultCode(),
+           ResultCode.SUCCESS);
+    }
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+
+
+    // Reduce the limit to a single request and make the server slow to
+    // respond.  An attempt to send a second request should time out while
+    // waiting for the first to complete.
+    options.setMaxOutstandingAsyncRequests(1);
+    conn.setConnectionOptions(options);
+    ds.setProcessingDelayMillis(1000L);
+
+    final ModifyRequest modifyRequest = new ModifyRequest(
+         "dn: dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: slow");
+    modifyRequest.setResponseTimeoutMillis(30_000L);
+    final AsyncRequestID modifyID = conn.asyncModify(modifyRequest, null);
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 1);
+
+    final CompareRequest compareRequest =
+         new CompareRequest("dc=example,dc=com", "dc", "example");
+    compareRequest.setResponseTimeoutMillis(10L);
+    try
+    {
+      conn.asyncCompare(compareRequest, null);
+      fail("Expected a timeout while waiting for an async request permit.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.TIMEOUT);
+    }
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 1);
+
+    ds.setProcessingDelayMillis(0L);
+    assertEquals(modifyID.get(30L, TimeUnit.SECONDS).getResultCode(),
+         ResultCode.SUCCESS);
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+
+
+    // Abandoning an operation should release its permit.
+    final AsyncRequestID compareID = conn.asyncCompare(
+         new CompareRequest("dc=example,dc=com", "dc", "example"), null);
+    conn.abandon(compareID);
+    assertEquals(conn.getOutstandingAsyncRequestCount(), 0);
+
+    conn.close();
+  }
+
+
+
   /**
    * Ensures that the last communication time for the provided connection has
    * been updated since the last value.
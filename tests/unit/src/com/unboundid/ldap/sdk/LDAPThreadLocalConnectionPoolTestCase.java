@@ -22,12 +22,16 @@ package com.unboundid.ldap.sdk;
 
 
 
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.LDAPListener;
+import com.unboundid.ldap.listener.LDAPListenerConfig;
+import com.unboundid.ldap.listener.TestBlockingRequestHandler;
 import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.ldap.sdk.extensions.WhoAmIExtendedRequest;
 import com.unboundid.ldap.sdk.extensions.WhoAmIExtendedResult;
@@ -1128,4 +1132,56 @@ public class LDAPThreadLocalConnectionPoolTestCase
     pool.close();
     ds.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that a connection that has exceeded the maximum connection
+   * age will not be closed when it is released while an asynchronous operation
+   * initiated on it is still awaiting a response.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testExpiredConnectionWithOutstandingAsyncOperation()
+         throws Exception
+  {
+    final LDAPListener listener = new LDAPListener(
+         new LDAPListenerConfig(0, new TestBlockingRequestHandler()));
+    listener.startListening();
+
+    try
+    {
+      final LDAPThreadLocalConnectionPool pool =
+           new LDAPThreadLocalConnectionPool(
+                new LDAPConnection("127.0.0.1", listener.getListenPort()));
+      pool.setMaxConnectionAgeMillis(1L);
+      Thread.sleep(10L);
+
+      // The search will not complete until the release search is processed on
+      // a separate connection.  Releasing the pooled connection after sending
+      // it must not close the connection even though it has expired.
+      final TestAsyncListener asyncListener = new TestAsyncListener();
+      final AsyncRequestID requestID = pool.asyncSearch(new SearchRequest(
+           asyncListener, "cn=wait", SearchScope.BASE, "(objectClass=*)"));
+      assertEquals(
+           pool.getConnectionPoolStatistics().getNumConnectionsClosedExpired(),
+           0L);
+
+      final LDAPConnection releaseConn =
+           new LDAPConnection("127.0.0.1", listener.getListenPort());
+      assertEquals(releaseConn.search("cn=release", SearchScope.BASE,
+           "(objectClass=*)").getResultCode(), ResultCode.SUCCESS);
+      releaseConn.close();
+
+      assertResultCodeEquals(requestID.get(30L, TimeUnit.SECONDS),
+           ResultCode.SUCCESS);
+
+      pool.close();
+    }
+    finally
+    {
+      listener.shutDown(true);
+    }
+  }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+
+
+/**
+ * This class provides a set of test cases for the StripedConnectionQueue
+ * class.
+ */
+public class StripedConnectionQueueTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the basic behavior of a queue with multiple stripes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBasicBehavior()
+         throws Exception
+  {
+    final StripedConnectionQueue queue = new StripedConnectionQueue(3, 8);
+    assertEquals(queue.getNumStripes(), 3);
+    assertEquals(queue.size(), 0);
+    assertEquals(queue.remainingCapacity(), 3);
+    assertNull(queue.peek());
+    assertNull(queue.poll());
+    assertNull(queue.poll(10L, TimeUnit.MILLISECONDS));
+    assertFalse(queue.iterator().hasNext());
+
+    final LDAPConnection c1 = new LDAPConnection();
+    final LDAPConnection c2 = new LDAPConnection();
+    final LDAPConnection c3 = new LDAPConnection();
+    final LDAPConnection c4 = new LDAPConnection();
+
+    assertTrue(queue.offer(c1));
+    assertTrue(queue.offer(c2, 1L, TimeUnit.SECONDS));
+    queue.put(c3);
+    assertFalse(queue.offer(c4));
+    assertEquals(queue.size(), 3);
+    assertEquals(queue.remainingCapacity(), 0);
+    assertNotNull(queue.peek());
+
+    try
+    {
+      queue.add(c4);
+      fail("Expected an exception when adding to a full queue.");
+    }
+    catch (final IllegalStateException ise)
+    {
+      // This was expected.
+    }
+
+    final HashSet<LDAPConnection> connSet = new HashSet<LDAPConnection>(3);
+    final Iterator<LDAPConnection> iterator = queue.iterator();
+    while (iterator.hasNext())
+    {
+      connSet.add(iterator.next());
+    }
+    assertEquals(connSet.size(), 3);
+
+    // The most recently released connection should be the first one retrieved
+    // by the same thread.
+    assertSame(queue.poll(), c3);
+    assertEquals(queue.size(), 2);
+
+    final ArrayList<LDAPConnection> drained = new ArrayList<LDAPConnection>(2);
+    assertEquals(queue.drainTo(drained, 1), 1);
+    assertEquals(queue.drainTo(drained), 1);
+    assertEquals(drained.size(), 2);
+    assertTrue(drained.contains(c1));
+    assertTrue(drained.contains(c2));
+
+    assertEquals(queue.size(), 0);
+    assertEquals(queue.remainingCapacity(), 3);
+    assertNull(queue.poll());
+  }
+
+
+
+  /**
+   * Tests that a connection released by one thread can be retrieved by a
+   * different thread, which may require stealing it from another stripe.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStealFromOtherStripe()
+         throws Exception
+  {
+    final StripedConnectionQueue queue = new StripedConnectionQueue(4, 4);
+    final LDAPConnection conn = new LDAPConnection();
+
+    final Thread t = new Thread()
+    {
+      @Override()
+      public void run()
+      {
+        queue.offer(conn);
+      }
+    };
+    t.start();
+    t.join();
+
+    assertEquals(queue.size(), 1);
+    assertSame(queue.poll(), conn);
+    assertEquals(queue.size(), 0);
+  }
+
+
+
+  /**
+   * Tests the ability to remove a specific connection from the queue.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRemove()
+         throws Exception
+  {
+    final StripedConnectionQueue queue = new StripedConnectionQueue(4, 4);
+    final LDAPConnection conn1 = new LDAPConnection();
+    final LDAPConnection conn2 = new LDAPConnection();
+    final LDAPConnection conn3 = new LDAPConnection();
+
+    assertTrue(queue.offer(conn1));
+    assertTrue(queue.offer(conn2));
+    assertEquals(queue.size(), 2);
+
+    assertFalse(queue.remove(conn3));
+    assertFalse(queue.remove(null));
+    assertEquals(queue.size(), 2);
+
+    assertTrue(queue.remove(conn1));
+    assertFalse(queue.remove(conn1));
+    assertEquals(queue.size(), 1);
+    assertEquals(queue.remainingCapacity(), 3);
+
+    assertSame(queue.poll(), conn2);
+    assertNull(queue.poll());
+  }
+
+
+
+  /**
+   * Tests that a thread blocked waiting for a connection will be notified when
+   * one is released by another thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBlockingPoll()
+         throws Exception
+  {
+    final StripedConnectionQueue queue = new StripedConnectionQueue(1, 1);
+    final LDAPConnection conn = new LDAPConnection();
+
+    final AtomicReference<LDAPConnection> ref =
+         new AtomicReference<LDAPConnection>();
+    final Thread t = new Thread()
+    {
+      @Override()
+      public void run()
+      {
+        try
+        {
+          ref.set(queue.poll(30L, TimeUnit.SECONDS));
+        }
+        catch (final InterruptedException ie)
+        {
+          // No action is required.
+        }
+      }
+    };
+    t.start();
+
+    Thread.sleep(50L);
+    assertTrue(queue.offer(conn));
+
+    t.join(30000L);
+    assertSame(ref.get(), conn);
+
+    assertTrue(queue.offer(conn));
+    assertSame(queue.take(), conn);
+  }
+
+
+
+  /**
+   * Tests the behavior when many threads concurrently retrieve and return
+   * connections, to ensure that connections are neither lost nor duplicated.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentAccess()
+         throws Exception
+  {
+    final StripedConnectionQueue queue = new StripedConnectionQueue(8, 4);
+    final HashSet<LDAPConnection> connections = new HashSet<LDAPConnection>(8);
+    for (int i=0; i < 8; i++)
+    {
+      final LDAPConnection c = new LDAPConnection();
+      connections.add(c);
+      assertTrue(queue.offer(c));
+    }
+
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+    final Thread[] threads = new Thread[32];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < 1000; j++)
+            {
+              final LDAPConnection c = queue.poll(30L, TimeUnit.SECONDS);
+              assertNotNull(c);
+              assertTrue(queue.offer(c));
+            }
+          }
+          catch (final Throwable t)
+          {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertNull(failure.get());
+    assertEquals(queue.size(), 8);
+
+    final HashSet<LDAPConnection> remaining = new HashSet<LDAPConnection>(8);
+    queue.drainTo(remaining);
+    assertEquals(remaining.size(), 8);
+    assertTrue(remaining.containsAll(connections));
+  }
+}
@@ -22,10 +22,13 @@ package com.unboundid.ldap.sdk.examples;
 
 
 
+import java.io.ByteArrayOutputStream;
+
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.ldap.sdk.ResultCode;
@@ -927,4 +930,68 @@ public class SearchRateTestCase
 
     assertEquals(searchRate.runTool(args), ResultCode.SUCCESS);
   }
+
+
+
+  /**
+   * Tests the ability to include latency percentiles in CSV output, with
+   * correction for coordinated omission.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLatencyPercentilesWithCSV()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final String[] args =
+    {
+      "-h", "127.0.0.1",
+      "-p", String.valueOf(ds.getListenPort()),
+      "-b", "dc=example,dc=com",
+      "-s", "base",
+      "-f", "(objectClass=*)",
+      "-t", "2",
+      "-i", "1",
+      "-I", "2",
+      "-r", "100",
+      "-c",
+      "--timestampFormat", "none",
+      "--latencyPercentiles",
+      "--correctForCoordinatedOmission"
+    };
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(SearchRate.main(args, out, out), ResultCode.SUCCESS);
+
+    final String output = out.toString("UTF-8");
+    assertTrue(output.contains("Recent 99.9% Dur ms"), output);
+    assertTrue(output.contains("Overall Max Dur ms"), output);
+  }
+
+
+
+  /**
+   * Tests to ensure that the --correctForCoordinatedOmission argument cannot
+   * be used without the --latencyPercentiles argument.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCorrectForCoordinatedOmissionWithoutPercentiles()
+         throws Exception
+  {
+    final String[] args =
+    {
+      "-h", "127.0.0.1",
+      "-p", "389",
+      "-b", "dc=example,dc=com",
+      "-s", "base",
+      "-f", "(objectClass=*)",
+      "-r", "100",
+      "--correctForCoordinatedOmission"
+    };
+    assertFalse(SearchRate.main(args, null, null) == ResultCode.SUCCESS);
+  }
 }
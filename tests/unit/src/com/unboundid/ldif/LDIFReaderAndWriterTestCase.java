@@ -33,6 +33,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9559,4 +9560,437 @@ public class LDIFReaderAndWriterTestCase
          "objectClass: domain",
          "dc: example");
   }
+
+
+
+  /**
+   * Provides test data for the parallel batch writer tests.
+   *
+   * @return  Test data for the parallel batch writer tests.
+   */
+  @DataProvider(name = "parallelBatchSizes")
+  public Object[][] getParallelBatchSizes()
+  {
+    return new Object[][]
+    {
+      new Object[] { 0 },
+      new Object[] { 1 },
+      new Object[] { 7 },
+      new Object[] { 100 },
+      new Object[] { 10000 }
+    };
+  }
+
+
+
+  /**
+   * Tests that writing individual records in parallel batches produces exactly
+   * the same output as writing them synchronously, including the placement of
+   * comments and the handling of records altered or dropped by a translator.
+   *
+   * @param  batchSize  The parallel batch size to use.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "parallelBatchSizes")
+  public void testWriteInParallelBatches(final int batchSize)
+         throws Exception
+  {
+    final LDIFWriterEntryTranslator translator =
+         new LDIFWriterEntryTranslator()
+         {
+           public Entry translateEntryToWrite(final Entry original)
+           {
+             final String uid = original.getAttributeValue("uid");
+             if (uid.endsWith("5"))
+             {
+               return null;
+             }
+
+             final Entry e = original.duplicate();
+             e.addAttribute("description", "translated " + uid);
+             return e;
+           }
+         };
+
+    final ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+    final ByteArrayOutputStream parallelOutput = new ByteArrayOutputStream();
+    final LDIFWriter expectedWriter =
+         new LDIFWriter(expectedOutput, 0, translator);
+    final LDIFWriter parallelWriter =
+         new LDIFWriter(parallelOutput, 4, translator);
+
+    assertEquals(parallelWriter.getParallelBatchSize(), 0);
+    parallelWriter.setParallelBatchSize(batchSize);
+    assertEquals(parallelWriter.getParallelBatchSize(), batchSize);
+
+    for (final LDIFWriter w : Arrays.asList(expectedWriter, parallelWriter))
+    {
+      w.setWrapColumn(40);
+      w.writeVersionHeader();
+
+      for (int i=0; i < 500; i++)
+      {
+        final Entry e = new Entry("uid=user." + i + ",dc=example,dc=com");
+        e.addAttribute("objectClass", "top", "person", "inetOrgPerson");
+        e.addAttribute("uid", "user." + i);
+        e.addAttribute("cn", "A value long enough to be wrapped " + i);
+        e.addAttribute("userPassword", new byte[] { 0x00, (byte) i });
+
+        if ((i % 11) == 0)
+        {
+          w.writeEntry(e, "Comment for user " + i);
+        }
+        else
+        {
+          w.writeEntry(e);
+        }
+
+        if ((i % 50) == 0)
+        {
+          w.writeComment("Standalone comment " + i, true, false);
+          w.writeChangeRecord(new LDIFDeleteChangeRecord(e.getDN()));
+          w.writeLDIFRecord(
+               new LDIFDeleteChangeRecord("cn=record " + i), "Record " + i);
+        }
+      }
+
+      w.close();
+    }
+
+    assertTrue(expectedOutput.size() > 0);
+    assertEquals(parallelOutput.toByteArray(), expectedOutput.toByteArray());
+  }
+
+
+
+  /**
+   * Tests that records held in a parallel batch are written when the writer is
+   * flushed, and that a batched writer falls back to synchronous processing
+   * when it was not created with any parallel threads.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testFlushParallelBatch()
+         throws Exception
+  {
+    final Entry e = new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    final ByteArrayOutputStream parallelOutput = new ByteArrayOutputStream();
+    final LDIFWriter parallelWriter = new LDIFWriter(parallelOutput, 2);
+    parallelWriter.setParallelBatchSize(1000);
+    parallelWriter.writeEntry(e);
+    parallelWriter.flush();
+    assertEquals(parallelOutput.toByteArray(),
+         StaticUtils.getBytes(e.toLDIFString() + StaticUtils.EOL));
+    parallelWriter.close();
+
+    final ByteArrayOutputStream syncOutput = new ByteArrayOutputStream();
+    final LDIFWriter syncWriter = new LDIFWriter(syncOutput);
+    syncWriter.setParallelBatchSize(1000);
+    syncWriter.writeEntry(e);
+    syncWriter.flush();
+    assertEquals(syncOutput.toByteArray(), parallelOutput.toByteArray());
+
+    syncWriter.setParallelBatchSize(-1);
+    assertEquals(syncWriter.getParallelBatchSize(), 0);
+    syncWriter.close();
+  }
+
+
+
+  /**
+   * Tests reading a memory-mapped LDIF file that is large enough to be split
+   * into multiple chunks, ensuring that the records (and any exceptions, along
+   * with their line numbers) are exactly the same as when reading the file one
+   * line at a time.
+   *
+   * @param  numThreads  The number of threads to use when reading the LDIF.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "testNumThreads")
+  public void testReadMemoryMapped(final int numThreads)
+         throws Exception
+  {
+    final File tempFile = createTempFile();
+    final FileOutputStream outputStream = new FileOutputStream(tempFile);
+    final LDIFWriter ldifWriter = new LDIFWriter(outputStream);
+    ldifWriter.setWrapColumn(76);
+    ldifWriter.writeVersionHeader();
+
+    final StringBuilder description = new StringBuilder();
+    for (int i=0; i < 50; i++)
+    {
+      description.append("This is a long value. ");
+    }
+
+    for (int i=0; i < 5000; i++)
+    {
+      final Entry e = new Entry("uid=user." + i + ",dc=example,dc=com");
+      e.addAttribute("objectClass", "top", "person", "inetOrgPerson");
+      e.addAttribute("uid", "user." + i);
+      e.addAttribute("description", description.toString() + i);
+      e.addAttribute("userPassword", new byte[] { 0x00, (byte) i });
+
+      if ((i % 100) == 0)
+      {
+        ldifWriter.writeComment("Comment " + i + ' ' + description, true,
+             false);
+      }
+
+      ldifWriter.writeEntry(e);
+
+      if (i == 1234)
+      {
+        ldifWriter.flush();
+        outputStream.write(StaticUtils.getBytes("dn: cn=malformed" +
+             StaticUtils.EOL + "not a valid line" + StaticUtils.EOL +
+             StaticUtils.EOL + "\r\n\r\n"));
+      }
+      else if (i == 3456)
+      {
+        ldifWriter.flush();
+        outputStream.write(StaticUtils.getBytes(" leading space" +
+             StaticUtils.EOL + StaticUtils.EOL));
+      }
+    }
+
+    ldifWriter.writeChangeRecord(
+         new LDIFDeleteChangeRecord("uid=user.0,dc=example,dc=com"));
+    ldifWriter.close();
+    assertTrue(tempFile.length() > (2L * 1024L * 1024L));
+
+    final List<String> expected =
+         readAllRecords(new LDIFReader(tempFile, numThreads));
+    final List<String> mapped = readAllRecords(
+         new LDIFReader(tempFile, numThreads, null, null, true));
+
+    assertEquals(expected.size(), 5003);
+    assertEquals(mapped.size(), expected.size());
+    for (int i=0; i < expected.size(); i++)
+    {
+      assertEquals(mapped.get(i), expected.get(i));
+    }
+
+    tempFile.delete();
+  }
+
+
+
+  /**
+   * Tests the behavior when attempting to memory-map LDIF files that are
+   * empty or very small.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReadMemoryMappedSmallFiles()
+         throws Exception
+  {
+    final File emptyFile = createTempFile();
+    LDIFReader ldifReader = new LDIFReader(emptyFile, 2, null, null, true);
+    assertNull(ldifReader.readEntry());
+    ldifReader.close();
+
+    final File smallFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    ldifReader = new LDIFReader(smallFile, 2, null, null, true);
+    assertEquals(ldifReader.readEntry(), new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+    assertNull(ldifReader.readEntry());
+    ldifReader.close();
+
+    // Memory-mapping should be ignored when reading synchronously.
+    ldifReader = new LDIFReader(smallFile, 0, null, null, true);
+    assertNotNull(ldifReader.readEntry());
+    assertNull(ldifReader.readEntry());
+    ldifReader.close();
+
+    // Closing the reader should not be a problem before all records have been
+    // read.
+    ldifReader = new LDIFReader(smallFile, 2, null, null, true);
+    ldifReader.close();
+
+    emptyFile.delete();
+    smallFile.delete();
+  }
+
+
+
+  /**
+   * Reads all of the records from the provided LDIF reader, representing each
+   * as a string that will either be the LDIF representation of the record or
+   * information about the exception encountered while reading it.
+   *
+   * @param  ldifReader  The reader from which to read the records.  It will
+   *                     be closed before returning.
+   *
+   * @return  The string representations of the records that were read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<String> readAllRecords(final LDIFReader ldifReader)
+          throws Exception
+  {
+    final ArrayList<String> records = new ArrayList<String>(5000);
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          final LDIFRecord r = ldifReader.readLDIFRecord();
+          if (r == null)
+          {
+            return records;
+          }
+
+          records.add(r.toLDIFString());
+        }
+        catch (final LDIFException le)
+        {
+          records.add(le.getLineNumber() + " " + le.getMessage());
+        }
+      }
+    }
+    finally
+    {
+      ldifReader.close();
+    }
+  }
+
+
+
+  /**
+   * Tests that comments for records in a parallel batch are discarded along
+   * with the records if the batch cannot be written because the thread was
+   * interrupted, so that they will not be written with a later batch.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInterruptedParallelBatchDiscardsComments()
+         throws Exception
+  {
+    final ByteArrayOutputStream parallelOutput = new ByteArrayOutputStream();
+    final LDIFWriter parallelWriter = new LDIFWriter(parallelOutput, 2);
+    parallelWriter.setParallelBatchSize(1000);
+
+    // Write enough entries that the batch will be processed by multiple
+    // threads, since that's when the interrupt will be noticed.
+    for (int i=0; i < 20; i++)
+    {
+      parallelWriter.writeEntry(new Entry("ou=" + i + ",dc=example,dc=com"),
+           "Comment for discarded entry " + i);
+    }
+
+    Thread.currentThread().interrupt();
+    try
+    {
+      parallelWriter.flush();
+      fail("Expected an exception when flushing while interrupted");
+    }
+    catch (final InterruptedIOException e)
+    {
+      // This was expected.
+    }
+    finally
+    {
+      Thread.interrupted();
+    }
+
+    final Entry e = new Entry("ou=People,dc=example,dc=com");
+    parallelWriter.writeEntry(e);
+    parallelWriter.close();
+
+    assertEquals(parallelOutput.toByteArray(),
+         StaticUtils.getBytes(e.toLDIFString() + StaticUtils.EOL));
+  }
+
+
+
+  /**
+   * Tests that when a translator fails for a record in the middle of a
+   * parallel batch, all of the other records in the batch are still written
+   * (matching the output of a synchronous writer) and the failure for the first
+   * bad record is reported.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelBatchTranslatorFailureInMiddle()
+         throws Exception
+  {
+    final LDIFWriterEntryTranslator translator =
+         new LDIFWriterEntryTranslator()
+         {
+           public Entry translateEntryToWrite(final Entry original)
+           {
+             final String uid = original.getAttributeValue("uid");
+             if (uid.equals("user.3") || uid.equals("user.6"))
+             {
+               throw new RuntimeException("Cannot translate " + uid);
+             }
+
+             return original;
+           }
+         };
+
+    final ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+    final LDIFWriter expectedWriter =
+         new LDIFWriter(expectedOutput, 0, translator);
+
+    final ByteArrayOutputStream parallelOutput = new ByteArrayOutputStream();
+    final LDIFWriter parallelWriter =
+         new LDIFWriter(parallelOutput, 4, translator);
+    parallelWriter.setParallelBatchSize(10);
+
+    for (int i=0; i < 10; i++)
+    {
+      final Entry e = new Entry("uid=user." + i + ",dc=example,dc=com");
+      e.addAttribute("objectClass", "top", "person", "inetOrgPerson");
+      e.addAttribute("uid", "user." + i);
+
+      try
+      {
+        expectedWriter.writeEntry(e, "Comment for user " + i);
+        assertFalse((i == 3) || (i == 6));
+      }
+      catch (final RuntimeException re)
+      {
+        assertTrue((i == 3) || (i == 6));
+      }
+
+      try
+      {
+        // The tenth record fills the batch and causes it to be written.
+        parallelWriter.writeEntry(e, "Comment for user " + i);
+        assertTrue(i < 9);
+      }
+      catch (final RuntimeException re)
+      {
+        assertEquals(i, 9);
+        assertEquals(re.getMessage(), "Cannot translate user.3");
+      }
+    }
+
+    expectedWriter.close();
+    parallelWriter.close();
+
+    assertEquals(parallelOutput.toByteArray(), expectedOutput.toByteArray());
+    assertTrue(StaticUtils.toUTF8String(parallelOutput.toByteArray()).contains(
+         "uid=user.9,dc=example,dc=com"));
+  }
 }
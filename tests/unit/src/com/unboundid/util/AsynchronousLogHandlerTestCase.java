@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.testng.annotations.Test;
+
+
+
+/**
+ * This class provides a set of test cases for the asynchronous log handler.
+ */
+public class AsynchronousLogHandlerTestCase
+       extends UtilTestCase
+{
+  /**
+   * Tests the behavior of a handler created with the default settings.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDefaultSettings()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler);
+
+    assertSame(h.getWrappedHandler(), testHandler);
+    assertEquals(h.getQueueFullBehavior(),
+         AsynchronousLogQueueFullBehavior.BLOCK);
+
+    for (int i=0; i < 100; i++)
+    {
+      h.publish(new LogRecord(Level.INFO, "message " + i));
+      h.flush();
+    }
+
+    waitForMessageCount(testHandler, 100);
+    assertEquals(h.getDiscardedRecordCount(), 0L);
+
+    h.close();
+    assertTrue(testHandler.isClosed());
+    assertEquals(h.getQueuedRecordCount(), 0);
+    assertTrue(testHandler.getFlushCount() >= 1);
+
+    // Records published after the handler has been closed should be ignored,
+    // and closing it again should not have any effect.
+    h.publish(new LogRecord(Level.INFO, "after close"));
+    h.close();
+    assertEquals(testHandler.getMessageCount(), 100);
+    assertEquals(h.getQueuedRecordCount(), 0);
+  }
+
+
+
+  /**
+   * Tests the behavior of a handler with a very small queue that will block
+   * publishing threads when the queue is full.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBlockWhenFull()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler, 1,
+         AsynchronousLogQueueFullBehavior.BLOCK, 10, 1000L);
+
+    for (int i=0; i < 1000; i++)
+    {
+      h.publish(new LogRecord(Level.INFO, "message " + i));
+    }
+
+    h.close();
+    assertEquals(testHandler.getMessageCount(), 1000);
+    assertEquals(h.getDiscardedRecordCount(), 0L);
+
+    // With at most ten records in each batch and a flush after at least ten
+    // records, there should be between 51 and 101 flushes, including the one
+    // when the handler was closed.
+    assertTrue(testHandler.getFlushCount() >= 51);
+    assertTrue(testHandler.getFlushCount() <= 101);
+  }
+
+
+
+  /**
+   * Tests the behavior of a handler that will discard records when the queue
+   * is full.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDiscardWhenFull()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler, 5,
+         AsynchronousLogQueueFullBehavior.DISCARD, 1000, 1000L);
+
+    // Prevent the background thread from publishing any records to the test
+    // handler until all of the records have been published.
+    synchronized (testHandler)
+    {
+      for (int i=0; i < 100; i++)
+      {
+        h.publish(new LogRecord(Level.INFO, "message " + i));
+      }
+    }
+
+    final long discardedCount = h.getDiscardedRecordCount();
+    assertTrue(discardedCount > 0L);
+
+    h.close();
+    assertEquals(testHandler.getMessageCount(), (100 - discardedCount));
+    assertFalse(testHandler.getMessagesString().contains("discarded"));
+  }
+
+
+
+  /**
+   * Tests the behavior of a handler that will discard records when the queue
+   * is full and will report the number of records that were discarded.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDiscardAndCountWhenFull()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler, 5,
+         AsynchronousLogQueueFullBehavior.DISCARD_AND_COUNT, 1000, 1000L);
+
+    synchronized (testHandler)
+    {
+      for (int i=0; i < 100; i++)
+      {
+        h.publish(new LogRecord(Level.INFO, "message " + i));
+      }
+    }
+
+    final long discardedCount = h.getDiscardedRecordCount();
+    assertTrue(discardedCount > 0L);
+
+    h.close();
+    assertEquals(testHandler.getMessageCount(), (100 - discardedCount + 1));
+    assertTrue(testHandler.getMessagesString().contains(discardedCount +
+         " log record(s) were discarded"));
+  }
+
+
+
+  /**
+   * Tests to ensure that the wrapped handler will be flushed after the
+   * maximum flush delay has elapsed, even if the maximum number of records
+   * between flushes has not been reached.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testFlushAfterDelay()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler,
+         100, AsynchronousLogQueueFullBehavior.BLOCK, 1000, 10L);
+
+    h.publish(new LogRecord(Level.INFO, "message"));
+
+    final long stopWaitingTime = System.currentTimeMillis() + 10000L;
+    while ((testHandler.getFlushCount() == 0) &&
+         (System.currentTimeMillis() < stopWaitingTime))
+    {
+      Thread.sleep(1L);
+    }
+
+    assertEquals(testHandler.getFlushCount(), 1);
+    assertEquals(testHandler.getMessageCount(), 1);
+
+    h.close();
+    assertEquals(testHandler.getFlushCount(), 2);
+  }
+
+
+
+  /**
+   * Tests to ensure that the flush method waits for all previously-queued
+   * records to be published and then flushes the wrapped handler.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testFlush()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler,
+         1000, AsynchronousLogQueueFullBehavior.DISCARD, 1000, 60000L);
+
+    for (int i=0; i < 100; i++)
+    {
+      h.publish(new LogRecord(Level.INFO, "message " + i));
+    }
+
+    h.flush();
+    assertEquals(testHandler.getMessageCount(), 100);
+    assertEquals(testHandler.getFlushCount(), 1);
+    assertEquals(h.getQueuedRecordCount(), 0);
+
+    // Flushing when nothing is queued should still flush the wrapped handler.
+    h.flush();
+    assertEquals(testHandler.getFlushCount(), 2);
+
+    h.close();
+    assertEquals(testHandler.getFlushCount(), 3);
+
+    // Flushing after the handler has been closed should not have any effect.
+    h.flush();
+    assertEquals(testHandler.getFlushCount(), 3);
+    assertEquals(testHandler.getMessageCount(), 100);
+  }
+
+
+
+  /**
+   * Tests to ensure that records that are not loggable based on the level for
+   * the asynchronous handler will not be published to the wrapped handler.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLevel()
+         throws Exception
+  {
+    final TestLogHandler testHandler = new TestLogHandler();
+    final AsynchronousLogHandler h = new AsynchronousLogHandler(testHandler);
+    h.setLevel(Level.WARNING);
+
+    h.publish(new LogRecord(Level.INFO, "info"));
+    h.publish(new LogRecord(Level.SEVERE, "severe"));
+    h.publish(null);
+
+    h.close();
+    assertEquals(testHandler.getMessageCount(), 1);
+    assertTrue(testHandler.getMessagesString().contains("severe"));
+  }
+
+
+
+  /**
+   * Tests to ensure that invalid arguments are rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testInvalidQueueSize()
+         throws Exception
+  {
+    new AsynchronousLogHandler(new TestLogHandler(), 0,
+         AsynchronousLogQueueFullBehavior.BLOCK, 1000, 1000L);
+  }
+
+
+
+  /**
+   * Waits for the provided handler to have received the specified number of
+   * messages.
+   *
+   * @param  testHandler  The test handler to examine.
+   * @param  count        The number of messages to wait for.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static void waitForMessageCount(final TestLogHandler testHandler,
+                                          final int count)
+          throws Exception
+  {
+    final long stopWaitingTime = System.currentTimeMillis() + 10000L;
+    while ((testHandler.getMessageCount() < count) &&
+         (System.currentTimeMillis() < stopWaitingTime))
+    {
+      Thread.sleep(1L);
+    }
+
+    assertEquals(testHandler.getMessageCount(), count);
+  }
+}
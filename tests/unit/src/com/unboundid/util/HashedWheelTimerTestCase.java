@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+
+
+/**
+ * This class provides a set of test cases for the hashed wheel timer.
+ */
+public class HashedWheelTimerTestCase
+       extends UtilTestCase
+{
+  /**
+   * Tests the basic settings for a timer.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSettings()
+         throws Exception
+  {
+    final HashedWheelTimer timer =
+         new HashedWheelTimer("testSettings", 5L, 100);
+
+    assertEquals(timer.getTickDurationMillis(), 5L);
+    assertEquals(timer.getTicksPerWheel(), 128);
+    assertEquals(timer.getNumScheduledTasks(), 0);
+
+    timer.shutDown();
+  }
+
+
+
+  /**
+   * Tests to ensure that scheduled tasks are run, and that they are not run
+   * before their requested delay has elapsed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTasksRun()
+         throws Exception
+  {
+    final HashedWheelTimer timer = new HashedWheelTimer("testTasksRun", 5L, 8);
+
+    // Use delays that span multiple rotations of the wheel.
+    final long[] delays = { 0L, 1L, 10L, 37L, 40L, 41L, 100L, 250L };
+    final CountDownLatch latch = new CountDownLatch(delays.length);
+    final AtomicInteger earlyRuns = new AtomicInteger(0);
+    final ArrayList<HashedWheelTimer.Timeout> timeouts =
+         new ArrayList<HashedWheelTimer.Timeout>(delays.length);
+    for (final long delay : delays)
+    {
+      final long scheduledTime = System.nanoTime();
+      timeouts.add(timer.schedule(new Runnable()
+      {
+        @Override()
+        public void run()
+        {
+          final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(
+               System.nanoTime() - scheduledTime);
+          if (elapsedMillis < delay)
+          {
+            earlyRuns.incrementAndGet();
+          }
+          latch.countDown();
+        }
+      }, delay));
+    }
+
+    assertTrue(latch.await(30L, TimeUnit.SECONDS));
+    assertEquals(earlyRuns.get(), 0);
+    assertEquals(timer.getNumScheduledTasks(), 0);
+
+    for (final HashedWheelTimer.Timeout t : timeouts)
+    {
+      assertTrue(t.isExpired());
+      assertFalse(t.isCanceled());
+      assertFalse(t.cancel());
+    }
+
+    timer.shutDown();
+  }
+
+
+
+  /**
+   * Tests to ensure that canceled tasks are not run.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCancel()
+         throws Exception
+  {
+    final HashedWheelTimer timer = new HashedWheelTimer("testCancel", 5L, 16);
+
+    final AtomicLong runCount = new AtomicLong(0L);
+    final Runnable task = new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        runCount.incrementAndGet();
+      }
+    };
+
+    final ArrayList<HashedWheelTimer.Timeout> timeouts =
+         new ArrayList<HashedWheelTimer.Timeout>(1000);
+    for (int i=0; i < 1000; i++)
+    {
+      timeouts.add(timer.schedule(task, 50L + (i % 100)));
+    }
+    assertEquals(timer.getNumScheduledTasks(), 1000);
+
+    for (final HashedWheelTimer.Timeout t : timeouts)
+    {
+      assertTrue(t.cancel());
+      assertTrue(t.isCanceled());
+      assertFalse(t.isExpired());
+      assertFalse(t.cancel());
+    }
+    assertEquals(timer.getNumScheduledTasks(), 0);
+
+    // Make sure that the timer still works after going idle.
+    final CountDownLatch latch = new CountDownLatch(1);
+    final HashedWheelTimer.Timeout timeout = timer.schedule(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        latch.countDown();
+      }
+    }, 200L);
+
+    assertTrue(latch.await(30L, TimeUnit.SECONDS));
+    assertTrue(timeout.isExpired());
+    assertEquals(runCount.get(), 0L);
+
+    timer.shutDown();
+  }
+
+
+
+  /**
+   * Tests to ensure that an exception thrown by a task does not prevent other
+   * tasks from running.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTaskThrowsException()
+         throws Exception
+  {
+    final HashedWheelTimer timer =
+         new HashedWheelTimer("testTaskThrowsException", 5L, 16);
+
+    timer.schedule(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        throw new RuntimeException("This is a test.");
+      }
+    }, 0L);
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    timer.schedule(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        latch.countDown();
+      }
+    }, 20L);
+
+    assertTrue(latch.await(30L, TimeUnit.SECONDS));
+
+    timer.shutDown();
+  }
+
+
+
+  /**
+   * Tests to ensure that tasks cannot be scheduled after the timer has been
+   * shut down.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testScheduleAfterShutDown()
+         throws Exception
+  {
+    final HashedWheelTimer timer =
+         new HashedWheelTimer("testScheduleAfterShutDown", 5L, 16);
+    timer.shutDown();
+
+    timer.schedule(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+      }
+    }, 0L);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2018 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import org.testng.annotations.Test;
+
+
+
+/**
+ * This class provides a set of test cases for the latency histogram.
+ */
+public class LatencyHistogramTestCase
+       extends UtilTestCase
+{
+  /**
+   * Tests the behavior of an empty histogram.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testEmptyHistogram()
+         throws Exception
+  {
+    final LatencyHistogram h = new LatencyHistogram();
+
+    assertEquals(h.getCount(), 0L);
+    assertEquals(h.getMaxValue(), 0L);
+    assertEquals(h.getMeanValue(), 0.0d);
+    assertEquals(h.getValueAtPercentile(0.0d), 0L);
+    assertEquals(h.getValueAtPercentile(50.0d), 0L);
+    assertEquals(h.getValueAtPercentile(100.0d), 0L);
+    assertNotNull(h.toString());
+  }
+
+
+
+  /**
+   * Tests the behavior of a histogram with small values, which should be
+   * recorded exactly.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSmallValues()
+         throws Exception
+  {
+    final LatencyHistogram h = new LatencyHistogram();
+    for (int i=1; i <= 20; i++)
+    {
+      h.record(i);
+    }
+    h.record(-5L);
+
+    assertEquals(h.getCount(), 21L);
+    assertEquals(h.getMaxValue(), 20L);
+    assertEquals(h.getMeanValue(), 10.0d);
+    assertEquals(h.getValueAtPercentile(0.0d), 0L);
+    assertEquals(h.getValueAtPercentile(50.0d), 10L);
+    assertEquals(h.getValueAtPercentile(90.0d), 18L);
+    assertEquals(h.getValueAtPercentile(100.0d), 20L);
+  }
+
+
+
+  /**
+   * Tests the precision of the values reported for a large range of values.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPrecision()
+         throws Exception
+  {
+    final LatencyHistogram h = new LatencyHistogram();
+    for (long i=1L; i <= 100000L; i++)
+    {
+      h.record(i * 1000L);
+    }
+
+    assertEquals(h.getCount(), 100000L);
+    assertEquals(h.getMaxValue(), 100000000L);
+
+    final double[] percentiles = { 50.0d, 90.0d, 99.0d, 99.9d };
+    for (final double p : percentiles)
+    {
+      final long expected = Math.round(p * 1000.0d) * 1000L;
+      final long actual = h.getValueAtPercentile(p);
+      assertTrue((actual >= expected), "p=" + p + ", actual=" + actual);
+      assertTrue((actual <= (expected * 1.035d)),
+           "p=" + p + ", actual=" + actual);
+    }
+
+    assertEquals(h.getValueAtPercentile(100.0d), 100000000L);
+  }
+
+
+
+  /**
+   * Tests the bucket index and upper bound calculations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBuckets()
+         throws Exception
+  {
+    final long[] values = { 0L, 1L, 31L, 32L, 33L, 63L, 64L, 65L, 66L, 1000L,
+         123456789L, 1L << 40, (1L << 40) - 1L, Long.MAX_VALUE };
+
+    for (final long v : values)
+    {
+      final int index = LatencyHistogram.getBucketIndex(v);
+      assertTrue(LatencyHistogram.getBucketUpperBound(index) >= v);
+      if (index > 0)
+      {
+        assertTrue(LatencyHistogram.getBucketUpperBound(index - 1) < v);
+      }
+    }
+
+    final LatencyHistogram h = new LatencyHistogram();
+    h.record(Long.MAX_VALUE);
+    assertEquals(h.getValueAtPercentile(50.0d), Long.MAX_VALUE);
+  }
+
+
+
+  /**
+   * Tests the ability to merge histograms and to take snapshots.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAddAndSnapshot()
+         throws Exception
+  {
+    final LatencyHistogram h1 = new LatencyHistogram();
+    final LatencyHistogram h2 = new LatencyHistogram();
+    for (int i=1; i <= 10; i++)
+    {
+      h1.record(i);
+      h2.record(i + 10);
+    }
+
+    final LatencyHistogram snapshot = h1.getSnapshot(false);
+    assertEquals(snapshot.getCount(), 10L);
+    assertEquals(h1.getCount(), 10L);
+
+    snapshot.add(h2.getSnapshot(true));
+    assertEquals(snapshot.getCount(), 20L);
+    assertEquals(snapshot.getMaxValue(), 20L);
+    assertEquals(snapshot.getValueAtPercentile(50.0d), 10L);
+    assertEquals(snapshot.getMeanValue(), 10.5d);
+
+    assertEquals(h2.getCount(), 0L);
+    assertEquals(h2.getMaxValue(), 0L);
+    assertEquals(h2.getMeanValue(), 0.0d);
+  }
+
+
+
+  /**
+   * Tests the coordinated omission correction.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCoordinatedOmissionCorrection()
+         throws Exception
+  {
+    final LatencyHistogram h = new LatencyHistogram();
+    h.record(10L, 0L);
+    assertEquals(h.getCount(), 1L);
+
+    h.record(10L, 20L);
+    assertEquals(h.getCount(), 2L);
+
+    // A value of 100 with an expected interval of 20 should also record the
+    // values 80, 60, 40, and 20.
+    h.record(100L, 20L);
+    assertEquals(h.getCount(), 7L);
+    assertEquals(h.getMaxValue(), 100L);
+    assertEquals(h.getValueAtPercentile(50.0d), 40L);
+  }
+
+
+
+  /**
+   * Tests the behavior when an invalid percentile is requested.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testInvalidPercentile()
+         throws Exception
+  {
+    new LatencyHistogram().getValueAtPercentile(100.1d);
+  }
+}
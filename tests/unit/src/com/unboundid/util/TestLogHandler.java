@@ -39,6 +39,12 @@ public class TestLogHandler
   // log messages have been written to this logger.
   private int messageCount;
 
+  // The number of times this handler has been flushed.
+  private int flushCount;
+
+  // Indicates whether this handler has been closed.
+  private boolean closed;
+
   // The list that will be used to hold messages read.
   private LinkedList<LogRecord> messageList;
 
@@ -50,29 +56,32 @@ public class TestLogHandler
   public TestLogHandler()
   {
     messageCount = 0;
+    flushCount   = 0;
+    closed       = false;
     messageList  = new LinkedList<LogRecord>();
   }
 
 
 
   /**
-   * Closes this logger.  This has no effect.
+   * Closes this logger.  This will only record that the handler has been
+   * closed.
    */
   @Override()
-  public void close()
+  public synchronized void close()
   {
-    // No implementation is required.
+    closed = true;
   }
 
 
 
   /**
-   * Flushes any buffered output.  This has no effect.
+   * Flushes any buffered output.  This will only increment the flush counter.
    */
   @Override()
-  public void flush()
+  public synchronized void flush()
   {
-    // No implementation is required.
+    flushCount++;
   }
 
 
@@ -111,6 +120,31 @@ public class TestLogHandler
 
 
 
+  /**
+   * Gets the number of times this test log handler has been flushed.
+   *
+   * @return  The number of times this test log handler has been flushed.
+   */
+  public synchronized int getFlushCount()
+  {
+    return flushCount;
+  }
+
+
+
+  /**
+   * Indicates whether this test log handler has been closed.
+   *
+   * @return  {@code true} if this test log handler has been closed, or
+   *          {@code false} if not.
+   */
+  public synchronized boolean isClosed()
+  {
+    return closed;
+  }
+
+
+
   /**
    * Resets the message count so that the next call to {@code publish} will be
    * recorded as the first invocation.
@@ -28,6 +28,7 @@ import java.util.HashSet;
 import java.util.Set;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.TrustManager;
 
@@ -1135,4 +1136,63 @@ public class SSLUtilTestCase
       s.close();
     }
   }
+
+
+
+  /**
+   * Tests to ensure that socket factories created by the same SSLUtil
+   * instance share an SSL context so that TLS sessions can be resumed, and
+   * tests the methods used to configure the session cache.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSharedSSLContext()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDSWithSSL();
+
+    final SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
+    assertEquals(sslUtil.getSessionCacheSize(), -1);
+    assertEquals(sslUtil.getSessionTimeoutSeconds(), -1);
+
+    sslUtil.setSessionCacheSize(100);
+    sslUtil.setSessionTimeoutSeconds(600);
+    assertEquals(sslUtil.getSessionCacheSize(), 100);
+    assertEquals(sslUtil.getSessionTimeoutSeconds(), 600);
+
+    final SSLContext sslContext = sslUtil.createSSLContext();
+    assertEquals(sslContext.getClientSessionContext().getSessionCacheSize(),
+         100);
+    assertEquals(sslContext.getClientSessionContext().getSessionTimeout(),
+         600);
+    assertNotSame(sslUtil.createSSLContext(), sslContext);
+
+    final LDAPConnection conn1 = new LDAPConnection(
+         sslUtil.createSSLSocketFactory(), "localhost", ds.getListenPort());
+    assertNotNull(conn1.getRootDSE());
+    final SSLSession session1 = conn1.getSSLSession();
+    assertNotNull(session1);
+
+    Thread.sleep(10L);
+
+    final LDAPConnection conn2 = new LDAPConnection(
+         sslUtil.createSSLSocketFactory(), "localhost", ds.getListenPort());
+    assertNotNull(conn2.getRootDSE());
+    final SSLSession session2 = conn2.getSSLSession();
+    assertNotNull(session2);
+
+    // The second connection should have resumed the session created for the
+    // first connection.
+    assertEquals(session2.getCreationTime(), session1.getCreationTime());
+    assertTrue(session2.getCreationTime() < conn2.getConnectTime());
+
+    conn1.close();
+    conn2.close();
+
+    sslUtil.setSessionCacheSize(-5);
+    sslUtil.setSessionTimeoutSeconds(-5);
+    assertEquals(sslUtil.getSessionCacheSize(), -1);
+    assertEquals(sslUtil.getSessionTimeoutSeconds(), -1);
+  }
 }
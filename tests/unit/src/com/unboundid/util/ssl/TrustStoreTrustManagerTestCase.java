@@ -23,6 +23,8 @@ package com.unboundid.util.ssl;
 
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
@@ -330,4 +332,95 @@ public class TrustStoreTrustManagerTestCase
 
     m.checkServerTrusted(chain, "RSA");
   }
+
+
+
+  /**
+   * Tests to ensure that the trust store is reloaded when it changes if no
+   * refresh interval is configured.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReloadOnChange()
+         throws Exception
+  {
+    final File f = createTempFile();
+    Files.copy(new File(getJKSKeyStorePath()).toPath(), f.toPath(),
+         StandardCopyOption.REPLACE_EXISTING);
+
+    final TrustStoreTrustManager m =
+         new TrustStoreTrustManager(f, getJKSKeyStorePIN(), "JKS", false);
+    assertEquals(m.getRefreshIntervalMillis(), 0L);
+
+    final KeyStoreKeyManager ksManager =
+         new KeyStoreKeyManager(getJKSKeyStorePath(), getJKSKeyStorePIN());
+    final X509Certificate[] chain =
+         ksManager.getCertificateChain(getJKSKeyStoreAlias());
+
+    m.checkServerTrusted(chain, "RSA");
+    m.checkServerTrusted(chain, "RSA");
+
+    final File invalid = createTempFile("not a valid trust store");
+    Files.copy(invalid.toPath(), f.toPath(),
+         StandardCopyOption.REPLACE_EXISTING);
+
+    try
+    {
+      m.checkServerTrusted(chain, "RSA");
+      fail("Expected an exception after replacing the trust store");
+    }
+    catch (final CertificateException ce)
+    {
+      // This was expected.
+    }
+
+    assertTrue(f.delete());
+    try
+    {
+      m.checkServerTrusted(chain, "RSA");
+      fail("Expected an exception after removing the trust store");
+    }
+    catch (final CertificateException ce)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the trust store is not examined for changes more
+   * often than the configured refresh interval.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRefreshInterval()
+         throws Exception
+  {
+    final File f = createTempFile();
+    Files.copy(new File(getJKSKeyStorePath()).toPath(), f.toPath(),
+         StandardCopyOption.REPLACE_EXISTING);
+
+    final TrustStoreTrustManager m = new TrustStoreTrustManager(
+         f.getAbsolutePath(), getJKSKeyStorePIN(), "JKS", false, 3600000L);
+    assertEquals(m.getRefreshIntervalMillis(), 3600000L);
+
+    final KeyStoreKeyManager ksManager =
+         new KeyStoreKeyManager(getJKSKeyStorePath(), getJKSKeyStorePIN());
+    final X509Certificate[] chain =
+         ksManager.getCertificateChain(getJKSKeyStoreAlias());
+
+    m.checkServerTrusted(chain, "RSA");
+
+    // The trust store should not be examined again until the refresh interval
+    // has elapsed, so the cached trust managers should still be used.
+    assertTrue(f.delete());
+    m.checkServerTrusted(chain, "RSA");
+    m.checkClientTrusted(chain, "RSA");
+
+    assertEquals(new TrustStoreTrustManager(f.getAbsolutePath(), null, null,
+         true, -1L).getRefreshIntervalMillis(), 0L);
+  }
 }